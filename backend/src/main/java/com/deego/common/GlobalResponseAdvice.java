@@ -1,8 +1,12 @@
 package com.deego.common;
 
+import com.deego.enums.QueryPhase;
+import com.deego.metrics.QueryMetrics;
+import com.deego.metrics.QueryTiming;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.MethodParameter;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -23,6 +27,9 @@ public class GlobalResponseAdvice implements ResponseBodyAdvice<Object> {
 
 	private final ObjectMapper objectMapper = new ObjectMapper();
 
+	@Autowired
+	private QueryMetrics queryMetrics;
+
 	/* ================== 统一返回包装 ================== */
 
 	@Override
@@ -44,7 +51,7 @@ public class GlobalResponseAdvice implements ResponseBodyAdvice<Object> {
 		// 对 String 特殊处理（避免 StringHttpMessageConverter 报错）
 		if (body instanceof String s) {
 			try {
-				return objectMapper.writeValueAsString(ApiResponse.ok(s));
+				return timedSerialize(ApiResponse.ok(s), response);
 			} catch (JsonProcessingException e) {
 				return s; // 回退：不阻断原始返回
 			}
@@ -57,4 +64,19 @@ public class GlobalResponseAdvice implements ResponseBodyAdvice<Object> {
 		// 其他常规对象统一包装
 		return ApiResponse.ok(body);
 	}
+
+	/**
+	 * String 返回值在这里序列化，之后由 StringHttpMessageConverter 原样输出，所以序列化阶段在此计时
+	 */
+	private String timedSerialize(Object value, ServerHttpResponse response) throws JsonProcessingException {
+		QueryTiming timing = QueryTiming.current();
+		if (timing == null) {
+			return objectMapper.writeValueAsString(value);
+		}
+		long start = System.nanoTime();
+		String json = objectMapper.writeValueAsString(value);
+		queryMetrics.record(timing.connectionId(), QueryPhase.SERIALIZE, System.nanoTime() - start);
+		response.getHeaders().set(QueryTiming.HEADER, timing.toHeaderValue());
+		return json;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,291 @@
+package com.deego.config;
+
+import com.deego.metadata.DatabaseNodeType;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Nebula 自定义配置，对应 application.yml 中的 nebula.* 节点
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "nebula")
+public class NebulaProperties {
+
+	private Query query = new Query();
+
+	private Cursor cursor = new Cursor();
+
+	private Job job = new Job();
+
+	private ResultStore resultStore = new ResultStore();
+
+	private Cache cache = new Cache();
+
+	private MetadataCache metadataCache = new MetadataCache();
+
+	private MetadataWatch metadataWatch = new MetadataWatch();
+
+	private Pool pool = new Pool();
+
+	private Admission admission = new Admission();
+
+	private Transfer transfer = new Transfer();
+
+	@Getter
+	@Setter
+	public static class Query {
+		/**
+		 * 流式查询时每次从数据库拉取的行数（JDBC fetchSize）
+		 */
+		private int fetchSize = 1000;
+
+		/**
+		 * Arrow 输出时每个 record batch 的行数
+		 */
+		private int arrowBatchSize = 16384;
+
+		/**
+		 * 默认语句超时，0 表示不限制；连接上配置的 queryTimeout 和请求参数 timeout 优先
+		 */
+		private Duration defaultTimeout = Duration.ZERO;
+	}
+
+	@Getter
+	@Setter
+	public static class Cursor {
+		/**
+		 * 游标空闲多久后自动关闭并归还连接
+		 */
+		private Duration idleTimeout = Duration.ofMinutes(10);
+
+		/**
+		 * 每个连接（connId@database）最多同时打开的游标数，每个游标会独占一个池连接
+		 */
+		private int maxPerConnection = 4;
+
+		/**
+		 * 单次翻页最多返回的行数
+		 */
+		private int maxWindowSize = 5000;
+	}
+
+	@Getter
+	@Setter
+	public static class Job {
+		/**
+		 * 异步任务保留的前 N 行结果，随 preview 事件推送
+		 */
+		private int previewRows = 500;
+
+		/**
+		 * 进度事件的最小推送间隔
+		 */
+		private Duration progressInterval = Duration.ofMillis(500);
+
+		/**
+		 * 任务结束后保留多久，过期后无法再查询状态
+		 */
+		private Duration retention = Duration.ofMinutes(10);
+	}
+
+	@Getter
+	@Setter
+	public static class ResultStore {
+		/**
+		 * 溢写文件目录，为空时使用 java.io.tmpdir/nebula-results
+		 */
+		private String directory;
+
+		/**
+		 * 所有结果在堆内缓冲的总预算
+		 */
+		private DataSize heapBudget = DataSize.ofMegabytes(256);
+
+		/**
+		 * 所有结果溢写文件的总预算，超出时淘汰最早的结果
+		 */
+		private DataSize diskBudget = DataSize.ofGigabytes(10);
+
+		/**
+		 * 单个结果在堆内缓冲的上限，超出后溢写到磁盘
+		 */
+		private DataSize memoryThreshold = DataSize.ofMegabytes(16);
+
+		/**
+		 * 每多少行记录一次字节偏移
+		 */
+		private int indexInterval = 128;
+	}
+
+	@Getter
+	@Setter
+	public static class Cache {
+		/**
+		 * 结果缓存默认有效期，请求可通过 cacheTtl 覆盖
+		 */
+		private Duration ttl = Duration.ofSeconds(30);
+
+		/**
+		 * 缓存结果总大小上限（估算值），超出后按 LRU 淘汰
+		 */
+		private DataSize maxSize = DataSize.ofMegabytes(64);
+
+		/**
+		 * 单个结果超过该大小时不缓存
+		 */
+		private DataSize maxEntrySize = DataSize.ofMegabytes(8);
+	}
+
+	@Getter
+	@Setter
+	public static class MetadataCache {
+		/**
+		 * 关闭后对象树每次展开都查询目录
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * 节点列表的默认有效期
+		 */
+		private Duration ttl = Duration.ofMinutes(5);
+
+		/**
+		 * 按节点类型覆盖有效期，例如库和角色很少变化，列和索引变化较多
+		 */
+		private Map<DatabaseNodeType, Duration> ttls = new EnumMap<>(DatabaseNodeType.class);
+
+		/**
+		 * 展开 schema 下的对象列表时在后台一次读出整个 schema 的所有列表（包括每张表的列、约束、索引）并缓存；
+		 * 每张表占 3 个条目，maxEntries 需要能容纳最大的 schema
+		 */
+		private boolean prefetch = true;
+
+		/**
+		 * 最多缓存的节点列表数，超出后按 LRU 淘汰
+		 */
+		private int maxEntries = 50000;
+
+		/**
+		 * 子节点多于这个数的列表不缓存
+		 */
+		private int maxEntryNodes = 50000;
+	}
+
+	@Getter
+	@Setter
+	public static class MetadataWatch {
+		/**
+		 * 没有权限安装事件触发器（需要超级用户）或指定轮询时，查询目录变化标记的间隔；每个被监视的库一条查询
+		 */
+		private Duration pollInterval = Duration.ofSeconds(15);
+
+		/**
+		 * 监听连接断开后重连的间隔；重连后整个库的对象树缓存失效，断开期间的变化无从得知
+		 */
+		private Duration reconnectDelay = Duration.ofSeconds(5);
+	}
+
+	@Getter
+	@Setter
+	public static class Pool {
+		/**
+		 * 每个目标数据库（connId@database）的连接池大小
+		 */
+		private int maximumPoolSize = 10;
+
+		/**
+		 * 从连接池取连接的最长等待时间；正常情况下准入控制会先于它生效
+		 */
+		private Duration connectionTimeout = Duration.ofSeconds(30);
+	}
+
+	@Getter
+	@Setter
+	public static class Admission {
+		/**
+		 * 关闭后仍然按连接池大小限制并发，但不再预留额度
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * 每个连接池同时执行的工作数，不超过 pool.maximum-pool-size；差值留给游标、DDL 动作等不经过准入控制的调用
+		 */
+		private int maxConcurrent = 8;
+
+		/**
+		 * 其中 BULK 优先级（后台任务、导出）最多占用的额度
+		 */
+		private int bulkMaxConcurrent = 4;
+
+		/**
+		 * 每个连接池最多排队的请求数，超出时直接返回 429
+		 */
+		private int maxQueue = 50;
+
+		/**
+		 * 排队的最长等待时间
+		 */
+		private Duration maxWait = Duration.ofSeconds(10);
+	}
+
+	@Getter
+	@Setter
+	public static class Transfer {
+		/**
+		 * 导入导出时在数据库连接和 HTTP 响应/文件之间的缓冲区大小
+		 */
+		private DataSize bufferSize = DataSize.ofKilobytes(64);
+
+		/**
+		 * 导入时每批（一条 COPY 语句 / 一个事务）的行数，批次提交后才计入可继续导入的位置
+		 */
+		private int batchSize = 50_000;
+
+		/**
+		 * 解析线程每次交给写入线程的行数
+		 */
+		private int chunkRows = 1000;
+
+		/**
+		 * 解析线程和写入线程之间最多缓冲的块数；写入跟不上时解析线程阻塞，内存占用不超过 chunkRows * queueChunks 行
+		 */
+		private int queueChunks = 8;
+
+		/**
+		 * 默认允许的类型转换失败记录数，超过后停止导入
+		 */
+		private int maxErrors = 1000;
+
+		/**
+		 * 导入时上传的源文件、并行导出时各段临时文件的保存目录，为空时使用系统临时目录
+		 */
+		private String uploadDir;
+
+		/**
+		 * 按服务器路径（filePath）导入时允许读取的目录，请求中的路径相对于它解析，不能指向目录之外；为空时禁止按路径导入
+		 */
+		private String importDir = "data/import";
+
+		/**
+		 * 动作中按服务器路径（filePath）导出数据和 DDL 时允许写入的目录，规则同 importDir；为空时禁止写服务器文件
+		 */
+		private String exportDir = "data/export";
+
+		/**
+		 * Parquet 导出时数据页的默认压缩方式：none / snappy / gzip / zstd / lz4
+		 */
+		private String parquetCompression = "zstd";
+
+		/**
+		 * Parquet 导出时每个行组的默认大小（编码压缩后）；一个行组在内存中攒满后才写出
+		 */
+		private DataSize parquetRowGroupSize = DataSize.ofMegabytes(64);
+	}
+}
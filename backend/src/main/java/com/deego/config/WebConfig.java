@@ -0,0 +1,41 @@
+package com.deego.config;
+
+import com.deego.metrics.QueryMetrics;
+import com.deego.metrics.QueryTimingInterceptor;
+import com.deego.metrics.TimingJacksonHttpMessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+	@Autowired
+	private QueryMetrics queryMetrics;
+
+	/**
+	 * 查询、元数据浏览和 DDL 操作的请求按阶段计时
+	 */
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new QueryTimingInterceptor())
+				.addPathPatterns("/api/query/**", "/api/meta/**", "/db/**");
+	}
+
+	/**
+	 * 用计时的转换器替换默认的 Jackson 转换器，保留其 ObjectMapper 配置和在列表中的位置
+	 */
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		for (int i = 0; i < converters.size(); i++) {
+			if (converters.get(i) instanceof MappingJackson2HttpMessageConverter jackson) {
+				converters.set(i, new TimingJacksonHttpMessageConverter(jackson.getObjectMapper(), queryMetrics));
+			}
+		}
+	}
+}
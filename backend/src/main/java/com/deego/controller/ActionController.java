@@ -3,6 +3,7 @@
 package com.deego.controller;
 
 import com.deego.common.ApiResponse;
+import com.deego.exception.BizException;
 import com.deego.service.ActionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +33,10 @@ public class ActionController {
 			// 确保 connectionId 在 params 中（ActionService 需要）
 			String result = actionService.executeAction(handler, params);
 			return ApiResponse.ok(result);
+		} catch (BizException e) {
+			// 业务错误保留错误码（SCHEMA_NOT_FOUND、TABLE_NOT_FOUND 等），前端可以据此区分
+			log.warn("Action {} failed: {}", handler, e.getMessage());
+			return ApiResponse.error(e.getCode(), "动作执行失败: " + e.getMessage());
 		} catch (Exception e) {
 			log.error("Action error: ", e);
 			return ApiResponse.error("ACTION_ERROR", "动作执行失败: " + e.getMessage());
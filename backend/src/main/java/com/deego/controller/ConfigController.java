@@ -2,6 +2,7 @@ package com.deego.controller;
 
 import com.deego.model.Connection;
 import com.deego.model.Folder;
+import com.deego.pool.AdmissionGate;
 import com.deego.service.ConnectionService;
 import com.deego.service.FolderService;
 import com.deego.utils.BeanUtils;
@@ -110,6 +111,14 @@ public class ConfigController {
 		return ResponseEntity.ok(connectionService.testConnection(conn));
 	}
 
+	/**
+	 * 各连接池的准入控制状态：并发额度、执行中、排队数、拒绝和超时次数
+	 */
+	@GetMapping("/connections/admission")
+	public ResponseEntity<List<AdmissionGate.AdmissionStats>> admissionStats() {
+		return ResponseEntity.ok(connectionService.admissionStats());
+	}
+
 	@GetMapping("/connections/{id}/test")
 	public ResponseEntity<String> testConnection(@PathVariable String id) {
 		return connectionService.getConnection(id)
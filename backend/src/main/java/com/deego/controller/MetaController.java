@@ -2,13 +2,24 @@ package com.deego.controller;
 
 import com.deego.common.ApiResponse;
 import com.deego.metadata.DatabaseNodeType;
+import com.deego.metadata.cache.MetadataCache;
+import com.deego.metadata.cache.MetadataCacheStats;
+import com.deego.metadata.postgresql.ddl.SchemaCompareResult;
+import com.deego.metadata.watch.MetadataWatcher;
+import com.deego.metadata.watch.WatchStatus;
 import com.deego.model.param.OptionParam;
+import com.deego.model.param.SchemaCompareParam;
 import com.deego.model.pgsql.Option;
+import com.deego.query.ColumnarResult;
+import com.deego.query.ResultFormat;
 import com.deego.service.MetaService;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.util.ObjectUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -20,20 +31,101 @@ public class MetaController {
 	@Autowired
 	private MetaService metaService;
 
+	@Autowired
+	private MetadataCache metadataCache;
+
+	@Autowired
+	private MetadataWatcher metadataWatcher;
+
 	/**
 	 * 统一左侧树展开接口
 	 * 示例：
 	 * /api/meta/1/children/database/
 	 * /api/meta/1/children/schema/mydb/
 	 * /api/meta/1/children/table/mydb/public/
+	 * 可选参数 format=columnar：列信息只返回一次，节点属性按列存放
+	 * 可选参数 refresh=true：跳过缓存重新查询
 	 */
 	@GetMapping({"/{connId}/children/{type}", "/{connId}/children/{type}/{*path}"})
-	public ApiResponse<List<Map<String, Object>>> children(
+	public ApiResponse<?> children(
 			@PathVariable String connId,
 			@PathVariable String type,
-			@PathVariable(required = false) String path) {
+			@PathVariable(required = false) String path,
+			@RequestParam(required = false) String format,
+			@RequestParam(defaultValue = "false") boolean refresh) {
 		DatabaseNodeType nodeType = DatabaseNodeType.valueOf(type.toUpperCase());
-		return ApiResponse.ok(metaService.listChildren(connId, nodeType, path));
+		List<Map<String, Object>> children = metaService.listChildren(connId, nodeType, path, refresh);
+		if (ResultFormat.from(format) == ResultFormat.COLUMNAR) {
+			return ApiResponse.ok(ColumnarResult.of(children));
+		}
+		return ApiResponse.ok(children);
+	}
+
+	/**
+	 * /api/meta/cache/stats (GET): 对象树缓存命中率和条目数
+	 */
+	@GetMapping("/cache/stats")
+	public ApiResponse<MetadataCacheStats> cacheStats() {
+		return ApiResponse.ok(metadataCache.stats());
+	}
+
+	/**
+	 * /api/meta/cache?connId=1 (DELETE): 清空某个连接的对象树缓存，connId 为空时清空全部
+	 */
+	@DeleteMapping("/cache")
+	public ApiResponse<Boolean> clearCache(@RequestParam(required = false) String connId) {
+		if (ObjectUtils.isEmpty(connId)) {
+			metadataCache.clear();
+		} else {
+			metadataCache.invalidateConnection(connId);
+		}
+		return ApiResponse.ok(true);
+	}
+
+	/**
+	 * /api/meta/1/watch?database=mydb&mode=auto (POST): 开始监视库的结构变化，变化时精确失效缓存并推送到 /events。
+	 * mode=auto 优先安装事件触发器（需要超级用户），装不上时轮询目录；mode=poll 只轮询
+	 */
+	@PostMapping("/{connId}/watch")
+	public ApiResponse<WatchStatus> watch(@PathVariable String connId,
+										  @RequestParam(required = false) String database,
+										  @RequestParam(defaultValue = "auto") String mode) {
+		return ApiResponse.ok(metaService.watch(connId, database, mode));
+	}
+
+	/**
+	 * /api/meta/1/watch?database=mydb&uninstall=false (DELETE): 停止监视，database 为空时停止该连接的全部监视；
+	 * uninstall=true 时同时删除库中的事件触发器
+	 */
+	@DeleteMapping("/{connId}/watch")
+	public ApiResponse<List<WatchStatus>> unwatch(@PathVariable String connId,
+												  @RequestParam(required = false) String database,
+												  @RequestParam(defaultValue = "false") boolean uninstall) {
+		return ApiResponse.ok(metadataWatcher.unwatch(connId, database, uninstall));
+	}
+
+	/**
+	 * /api/meta/watch?connId=1 (GET): 当前的监视及其方式（trigger / poll）、事件数和错误
+	 */
+	@GetMapping("/watch")
+	public ApiResponse<List<WatchStatus>> watches(@RequestParam(required = false) String connId) {
+		return ApiResponse.ok(metadataWatcher.list(ObjectUtils.isEmpty(connId) ? null : connId));
+	}
+
+	/**
+	 * /api/meta/1/events (SSE): 先推送 status，之后每次结构变化推送 change，前端据此重新加载受影响的节点
+	 */
+	@GetMapping(value = "/{connId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter events(@PathVariable String connId) {
+		return metadataWatcher.subscribe(connId);
+	}
+
+	/**
+	 * 比较两个库（或同名 schema）的结构，返回差异和把目标改成与源一致的迁移脚本
+	 */
+	@PostMapping("/compare")
+	public ApiResponse<SchemaCompareResult> compare(@RequestBody SchemaCompareParam param) {
+		return ApiResponse.ok(metaService.compareSchemas(param));
 	}
 
 	@PostMapping("/db/options/{connId}")
@@ -36,11 +36,8 @@ public class MoveController {
 					folderService.createOrUpdateFolder(folder);
 				});
 			} else if ("connection".equals(type)) {
-				// 更新 Connection parentId
-				connectionService.getConnection(sourceId).ifPresent(conn -> {
-					conn.setParentId(targetParentId);
-					connectionService.updateConnection(sourceId, conn);  // 复用更新
-				});
+				// 更新 Connection parentId，不重建连接池
+				connectionService.moveConnection(sourceId, targetParentId);
 			}
 			return ResponseEntity.ok("Node moved successfully");
 		} catch (Exception e) {
@@ -1,10 +1,40 @@
 package com.deego.controller;
 
-import com.deego.service.ConnectionService;
+import com.deego.common.ApiResponse;
+import com.deego.exception.AdmissionRejectedException;
+import com.deego.model.param.EditSetParam;
+import com.deego.model.param.PreviewParam;
+import com.deego.model.param.QueryParam;
+import com.deego.query.ColumnarResult;
+import com.deego.query.CursorInfo;
+import com.deego.query.CursorManager;
+import com.deego.query.CursorWindow;
+import com.deego.query.EditResult;
+import com.deego.query.QueryJob;
+import com.deego.query.QueryJobManager;
+import com.deego.query.ResultFormat;
+import com.deego.query.cache.QueryCacheStats;
+import com.deego.query.cache.QueryResultCache;
+import com.deego.query.RunningQuery;
+import com.deego.query.RunningQueryRegistry;
+import com.deego.query.TablePreview;
+import com.deego.service.EditService;
+import com.deego.service.PreviewService;
+import com.deego.utils.IdWorker;
+import com.deego.service.QueryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.util.ObjectUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
 import java.util.List;
 import java.util.Map;
 
@@ -13,34 +43,247 @@ import java.util.Map;
 public class QueryController {
 
 	@Autowired
-	private ConnectionService connectionService;
+	private QueryService queryService;
+
+	@Autowired
+	private CursorManager cursorManager;
+
+	@Autowired
+	private RunningQueryRegistry runningQueryRegistry;
+
+	@Autowired
+	private QueryJobManager queryJobManager;
+
+	@Autowired
+	private QueryResultCache resultCache;
+
+	@Autowired
+	private PreviewService previewService;
+
+	@Autowired
+	private EditService editService;
+
+	private static final String QUERY_ID_HEADER = "X-Query-Id";
 
 	/**
 	 * /api/query/execute (POST): 执行 SQL 查询，返回结果。
-	 * body: {connId: 1, query: "SELECT * FROM users LIMIT 1000"}
-	 * 返回: {success: true, results: [...], rowCount: 10}
+	 * body: {connId: 1, database: "mydb", query: "SELECT * FROM users LIMIT 1000", format: "rows" | "columnar", queryId: "q1", timeout: 30}
+	 * 参数化查询：query 中使用 ? 或 :name 占位符，params 为数组或对象，值可写成 {type: "TIMESTAMP", value: "2024-01-01 00:00:00"}
+	 * 返回: {success: true, queryId: "q1", results: [...], rowCount: 10}
+	 * format=columnar 时 results 为 {columns: [...], data: [[列1的值...], [列2的值...]], rowCount: 10}
+	 * queryId 为空时由服务端生成；执行中可通过 /api/query/{queryId}/cancel 取消
+	 * cache=true 时只读查询走结果缓存（cacheTtl 秒后过期），写语句和 DDL 会使相关表的缓存失效
 	 */
 	@PostMapping("/execute")
-	public ResponseEntity<Map<String, Object>> executeQuery(@RequestBody Map<String, Object> request) {
-		String connId = (String) request.get("connId");
-		String query = (String) request.get("query");
-
+	public ResponseEntity<Map<String, Object>> executeQuery(@RequestBody QueryParam request) {
 		try {
-			JdbcTemplate jdbc = connectionService.getJdbcTemplate(connId);
+			ResultFormat format = ResultFormat.from(request.getFormat());
+			if (format == ResultFormat.ARROW || format == ResultFormat.PARQUET) {
+				throw new IllegalArgumentException(format + " format is only supported by /api/query/stream");
+			}
+			if (ObjectUtils.isEmpty(request.getQueryId())) {
+				request.setQueryId(IdWorker.getIdStr());
+			}
+			if (format == ResultFormat.COLUMNAR) {
+				// 直接从 ResultSet 按列收集，不经过逐行的 Map
+				ColumnarResult result = queryService.execute(request, format, ColumnarResult::of);
+				return ResponseEntity.ok(Map.of(
+						"success", true,
+						"queryId", request.getQueryId(),
+						"format", "columnar",
+						"results", result,
+						"rowCount", result.getRowCount()
+				));
+			}
 			// 执行查询（假设 SELECT；生产加类型检查，避免 DDL）
-			List<Map<String, Object>> results = jdbc.queryForList(query);
+			List<Map<String, Object>> results = queryService.execute(request, format, new RowMapperResultSetExtractor<>(new ColumnMapRowMapper()));
 			Map<String, Object> response = Map.of(
 					"success", true,
+					"queryId", request.getQueryId(),
 					"results", results,
 					"rowCount", results.size()
 			);
 			return ResponseEntity.ok(response);
+		} catch (AdmissionRejectedException e) {
+			// 交给全局异常处理返回 429
+			throw e;
 		} catch (Exception e) {
 			Map<String, Object> error = Map.of(
 					"success", false,
-					"error", e.getMessage()
+					"error", String.valueOf(NestedExceptionUtils.getMostSpecificCause(e).getMessage())
 			);
 			return ResponseEntity.badRequest().body(error);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * /api/query/stream (POST): 流式执行 SQL 查询，结果以 NDJSON 逐行返回。
+	 * body: {connId: 1, database: "mydb", query: "SELECT * FROM big_table WHERE id > :id", params: {id: 100}, format: "rows" | "columnar" | "arrow", queryId: "q1", timeout: 30}
+	 * 返回: 第一行为列信息 {"@columns":[...]}，随后每行一条记录，最后一行 {"@rowCount":N}（出错时为 {"@error":"..."}）
+	 * format=columnar 时每条记录写成数组，不再重复列名
+	 * format=arrow 时返回 Arrow IPC 流（application/vnd.apache.arrow.stream），按 record batch 分批输出
+	 * format=parquet 时返回 Parquet 文件附件 result.parquet，列类型保留为 Parquet 逻辑类型
+	 * 响应头 X-Query-Id 为本次查询的 ID，可用于取消
+	 */
+	@PostMapping(value = "/stream", produces = {"application/x-ndjson", ResultFormat.ARROW_STREAM_MEDIA_TYPE, ResultFormat.PARQUET_MEDIA_TYPE})
+	public ResponseEntity<StreamingResponseBody> streamQuery(@RequestBody QueryParam request) {
+		ResultFormat format = ResultFormat.from(request.getFormat());
+		String contentType = switch (format) {
+			case ARROW -> ResultFormat.ARROW_STREAM_MEDIA_TYPE;
+			case PARQUET -> ResultFormat.PARQUET_MEDIA_TYPE;
+			default -> "application/x-ndjson";
+		};
+		StreamingResponseBody body = queryService.stream(request, format);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+															.contentType(MediaType.parseMediaType(contentType))
+															.header(QUERY_ID_HEADER, request.getQueryId());
+		if (format == ResultFormat.PARQUET) {
+			response.header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("result.parquet").build().toString());
+		}
+		return response.body(body);
+	}
+
+	/**
+	 * /api/query/{queryId}/cancel (POST): 取消执行中的查询（包括流式查询和游标读取）
+	 * 返回 false 表示查询不存在或已经结束
+	 */
+	@PostMapping("/{queryId}/cancel")
+	public ApiResponse<Boolean> cancelQuery(@PathVariable String queryId) {
+		return ApiResponse.ok(runningQueryRegistry.cancel(queryId));
+	}
+
+	/**
+	 * /api/query/running?connId=1 (GET): 列出正在执行的查询，connId 为空时返回全部
+	 */
+	@GetMapping("/running")
+	public ApiResponse<List<RunningQuery>> runningQueries(@RequestParam(required = false) String connId) {
+		return ApiResponse.ok(runningQueryRegistry.list(connId));
+	}
+
+	/**
+	 * /api/query/cache/stats (GET): 结果缓存命中率、条目数和占用大小
+	 */
+	@GetMapping("/cache/stats")
+	public ApiResponse<QueryCacheStats> cacheStats() {
+		return ApiResponse.ok(resultCache.stats());
+	}
+
+	/**
+	 * /api/query/cache?connId=1 (DELETE): 清空某个连接的结果缓存，connId 为空时清空全部
+	 */
+	@DeleteMapping("/cache")
+	public ApiResponse<Boolean> clearCache(@RequestParam(required = false) String connId) {
+		if (ObjectUtils.isEmpty(connId)) {
+			resultCache.clear();
+		} else {
+			resultCache.invalidate(connId, List.of());
+		}
+		return ApiResponse.ok(true);
+	}
+
+	/**
+	 * /api/query/jobs (POST): 异步提交查询，立即返回任务信息（jobId 即 queryId），查询在后台虚拟线程上执行。
+	 * body: {connId: 1, database: "mydb", query: "SELECT ...", params: [...], queryId: "q1", timeout: 30}
+	 */
+	@PostMapping("/jobs")
+	public ApiResponse<QueryJob> submitJob(@RequestBody QueryParam request) {
+		return ApiResponse.ok(queryJobManager.submit(request));
+	}
+
+	/**
+	 * /api/query/jobs/{jobId} (GET): 查询任务状态、行数和前若干行结果
+	 */
+	@GetMapping("/jobs/{jobId}")
+	public ApiResponse<QueryJob> getJob(@PathVariable String jobId) {
+		return ApiResponse.ok(queryJobManager.get(jobId));
+	}
+
+	/**
+	 * /api/query/jobs/{jobId}/rows?offset=0&limit=200&format=rows (GET): 读取任务结果中 [offset, offset + limit) 的行，
+	 * 结果保存在服务端结果集存储中，超出内存预算的部分溢写到磁盘
+	 */
+	@GetMapping("/jobs/{jobId}/rows")
+	public ApiResponse<CursorWindow> jobRows(@PathVariable String jobId,
+			@RequestParam(defaultValue = "0") long offset,
+			@RequestParam(defaultValue = "200") int limit,
+			@RequestParam(required = false) String format) {
+		return ApiResponse.ok(queryJobManager.rows(jobId, offset, limit, ResultFormat.from(format)));
+	}
+
+	/**
+	 * /api/query/jobs/{jobId}/events (GET): 以 SSE 订阅任务事件 status / progress / preview，任务结束后连接关闭
+	 */
+	@GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter jobEvents(@PathVariable String jobId) {
+		return queryJobManager.get(jobId).subscribe();
+	}
+
+	/**
+	 * /api/query/jobs/{jobId} (DELETE): 取消（如仍在执行）并丢弃任务
+	 */
+	@DeleteMapping("/jobs/{jobId}")
+	public ApiResponse<String> removeJob(@PathVariable String jobId) {
+		queryJobManager.remove(jobId);
+		return ApiResponse.ok(jobId);
+	}
+
+	/**
+	 * /api/query/cursor (POST): 打开服务端游标，返回 cursorId 和列信息。
+	 * body: {connId: 1, database: "mydb", query: "SELECT * FROM big_table", timeout: 30}
+	 */
+	@PostMapping("/cursor")
+	public ApiResponse<CursorInfo> openCursor(@RequestBody QueryParam request) {
+		return ApiResponse.ok(cursorManager.open(request.getConnId(), request.getDatabase(), request.getQuery(), request.getTimeout()));
+	}
+
+	/**
+	 * /api/query/cursor/{cursorId}?offset=0&limit=200&format=rows (GET): 读取结果集中 [offset, offset + limit) 的行
+	 */
+	@GetMapping("/cursor/{cursorId}")
+	public ApiResponse<CursorWindow> fetchCursor(@PathVariable String cursorId,
+			@RequestParam(defaultValue = "0") long offset,
+			@RequestParam(defaultValue = "200") int limit,
+			@RequestParam(required = false) String format) {
+		return ApiResponse.ok(cursorManager.fetch(cursorId, offset, limit, ResultFormat.from(format)));
+	}
+
+	/**
+	 * /api/query/cursor/{cursorId} (DELETE): 关闭游标并归还连接
+	 */
+	@DeleteMapping("/cursor/{cursorId}")
+	public ApiResponse<String> closeCursor(@PathVariable String cursorId) {
+		cursorManager.close(cursorId);
+		return ApiResponse.ok(cursorId);
+	}
+
+	/**
+	 * /api/query/preview (POST): 打开表浏览数据，返回第一页和估算行数，不执行 count(*)。
+	 * body: {connId: 1, database: "mydb", schemaName: "public", objectName: "orders", limit: 200, format: "rows" | "columnar",
+	 * sample: "system" | "bernoulli", samplePercent: 1, seed: 42}
+	 * 还有更多数据时返回 cursorId，之后用 /api/query/cursor/{cursorId} 翻页
+	 */
+	@PostMapping("/preview")
+	public ApiResponse<TablePreview> preview(@RequestBody PreviewParam request) {
+		return ApiResponse.ok(previewService.preview(request));
+	}
+
+	/**
+	 * /api/query/preview/count (POST): 精确行数，参数同上；执行中可通过 /api/query/{queryId}/cancel 取消
+	 */
+	@PostMapping("/preview/count")
+	public ApiResponse<Long> previewCount(@RequestBody PreviewParam request) {
+		return ApiResponse.ok(previewService.count(request));
+	}
+
+	/**
+	 * /api/query/edits (POST): 把结果表格中的修改写回一张表，整组修改在一个事务中执行。
+	 * body: {connId: 1, database: "mydb", schemaName: "public", objectName: "orders", keyColumns: ["id"],
+	 * inserts: [{name: "a"}], updates: [{key: {id: 1}, values: {name: "b"}, original: {name: "a"}}], deletes: [{key: {id: 2}}]}
+	 * 列集合相同的行合并成一条语句（PostgreSQL）或一个 JDBC 批次执行；original 与数据库当前值不一致时整组回滚，返回 committed=false 和 conflicts。
+	 * 执行中可通过 /api/query/{queryId}/cancel 取消
+	 */
+	@PostMapping("/edits")
+	public ApiResponse<EditResult> applyEdits(@RequestBody EditSetParam request) {
+		return ApiResponse.ok(editService.apply(request));
+	}
+}
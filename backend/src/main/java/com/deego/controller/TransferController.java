@@ -0,0 +1,215 @@
+package com.deego.controller;
+
+import com.deego.common.ApiResponse;
+import com.deego.model.param.DataCompareParam;
+import com.deego.model.param.ExportParam;
+import com.deego.model.param.ImportParam;
+import com.deego.model.param.TableCopyParam;
+import com.deego.service.TransferService;
+import com.deego.transfer.CopyExport;
+import com.deego.transfer.DataCompareJob;
+import com.deego.transfer.DataCompareManager;
+import com.deego.transfer.ImportJob;
+import com.deego.transfer.ImportJobManager;
+import com.deego.transfer.TableCopyJob;
+import com.deego.transfer.TableCopyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/api/transfer")
+public class TransferController {
+
+	@Autowired
+	private TransferService transferService;
+
+	@Autowired
+	private ImportJobManager importJobManager;
+
+	@Autowired
+	private TableCopyManager tableCopyManager;
+
+	@Autowired
+	private DataCompareManager dataCompareManager;
+
+	private static final String QUERY_ID_HEADER = "X-Query-Id";
+
+	/**
+	 * /api/transfer/export (POST): 用 COPY TO STDOUT 导出表数据，作为附件流式下载。
+	 * body: {connId: 1, database: "mydb", schemaName: "public", objectName: "orders", columns: ["id", "total"], format: "csv" | "tsv" | "binary", header: true,
+	 * compression: "none" | "gzip" | "lz4", parallel: 4, partitionBy: "ctid" | "pk"}
+	 * 指定 query 时导出查询结果：{connId: 1, query: "SELECT * FROM orders WHERE total > 100", format: "csv"}
+	 * 响应头 X-Query-Id 可用于 /api/query/{queryId}/cancel 中止导出
+	 */
+	@PostMapping("/export")
+	public ResponseEntity<StreamingResponseBody> export(@RequestBody ExportParam request) {
+		CopyExport export = transferService.export(request);
+		ContentDisposition disposition = ContentDisposition.attachment()
+														   .filename(export.fileName(), StandardCharsets.UTF_8)
+														   .build();
+		return ResponseEntity.ok()
+							 .contentType(MediaType.parseMediaType(export.mediaType()))
+							 .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+							 .header(QUERY_ID_HEADER, export.queryId())
+							 .body(export.body());
+	}
+
+	/**
+	 * /api/transfer/import (POST multipart): 上传文件并导入，file 为源文件，options 为 JSON 参数
+	 * options: {connId: 1, database: "mydb", schemaName: "public", objectName: "orders", format: "csv" | "tsv" | "jsonl", header: true,
+	 * mapping: {"Order No": "order_id"}, batchSize: 50000, skipRows: 0, onError: "stop" | "skip", maxErrors: 1000}
+	 * 返回导入任务，进度通过 /api/transfer/imports/{importId} 或其 events 获取
+	 */
+	@PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	public ApiResponse<ImportJob> importFile(@RequestPart("file") MultipartFile file,
+											 @RequestPart("options") ImportParam options) {
+		return ApiResponse.ok(importJobManager.submit(options, file));
+	}
+
+	/**
+	 * /api/transfer/import (POST json): 导入服务器上的文件，参数同上，另需 filePath
+	 */
+	@PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ApiResponse<ImportJob> importServerFile(@RequestBody ImportParam request) {
+		return ApiResponse.ok(importJobManager.submit(request, null));
+	}
+
+	/**
+	 * /api/transfer/imports/{importId} (GET): 导入任务快照，包括进度、checkpoint 和错误明细
+	 */
+	@GetMapping("/imports/{importId}")
+	public ApiResponse<ImportJob> getImport(@PathVariable String importId) {
+		return ApiResponse.ok(importJobManager.get(importId));
+	}
+
+	/**
+	 * /api/transfer/imports/{importId}/events (GET): 订阅导入任务的 SSE 事件
+	 */
+	@GetMapping(value = "/imports/{importId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter importEvents(@PathVariable String importId) {
+		return importJobManager.get(importId).subscribe();
+	}
+
+	/**
+	 * /api/transfer/imports/{importId}/cancel (POST): 取消导入，已提交的批次保留
+	 */
+	@PostMapping("/imports/{importId}/cancel")
+	public ApiResponse<ImportJob> cancelImport(@PathVariable String importId) {
+		return ApiResponse.ok(importJobManager.cancel(importId));
+	}
+
+	/**
+	 * /api/transfer/imports/{importId}/resume (POST): 从 checkpoint 继续失败或取消的导入
+	 */
+	@PostMapping("/imports/{importId}/resume")
+	public ApiResponse<ImportJob> resumeImport(@PathVariable String importId) {
+		return ApiResponse.ok(importJobManager.resume(importId));
+	}
+
+	/**
+	 * /api/transfer/imports/{importId} (DELETE): 取消并移除导入任务，删除上传的源文件
+	 */
+	@DeleteMapping("/imports/{importId}")
+	public ApiResponse<String> removeImport(@PathVariable String importId) {
+		importJobManager.remove(importId);
+		return ApiResponse.ok(importId);
+	}
+
+	/**
+	 * /api/transfer/copy (POST): 把源连接上的表直接复制到目标连接，目标表需要事先建好。
+	 * body: {sourceConnId: 1, sourceDatabase: "db1", targetConnId: 2, targetDatabase: "db2", parallel: 2, batchSize: 50000, truncate: false,
+	 * tables: [{sourceSchema: "public", sourceTable: "orders", targetSchema: "public", targetTable: "orders", columns: ["id", "total"], where: "total > 0"}]}
+	 * 返回复制任务，进度通过 /api/transfer/copies/{copyId} 或其 events 获取
+	 */
+	@PostMapping("/copy")
+	public ApiResponse<TableCopyJob> copy(@RequestBody TableCopyParam request) {
+		return ApiResponse.ok(tableCopyManager.submit(request));
+	}
+
+	/**
+	 * /api/transfer/copies/{copyId} (GET): 复制任务快照，包括各表的状态、行数和吞吐
+	 */
+	@GetMapping("/copies/{copyId}")
+	public ApiResponse<TableCopyJob> getCopy(@PathVariable String copyId) {
+		return ApiResponse.ok(tableCopyManager.get(copyId));
+	}
+
+	/**
+	 * /api/transfer/copies/{copyId}/events (GET): 订阅复制任务的 SSE 事件
+	 */
+	@GetMapping(value = "/copies/{copyId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter copyEvents(@PathVariable String copyId) {
+		return tableCopyManager.get(copyId).subscribe();
+	}
+
+	/**
+	 * /api/transfer/copies/{copyId}/cancel (POST): 取消复制，正在复制的表撤销未提交的部分
+	 */
+	@PostMapping("/copies/{copyId}/cancel")
+	public ApiResponse<TableCopyJob> cancelCopy(@PathVariable String copyId) {
+		return ApiResponse.ok(tableCopyManager.cancel(copyId));
+	}
+
+	/**
+	 * /api/transfer/copies/{copyId} (DELETE): 取消并移除复制任务
+	 */
+	@DeleteMapping("/copies/{copyId}")
+	public ApiResponse<String> removeCopy(@PathVariable String copyId) {
+		tableCopyManager.remove(copyId);
+		return ApiResponse.ok(copyId);
+	}
+
+	/**
+	 * /api/transfer/compare (POST): 比较两个连接上两张表的数据，按键划分范围并行比较，只细分不一致的范围。
+	 * body: {sourceConnId: 1, sourceDatabase: "db1", sourceSchema: "public", sourceTable: "orders",
+	 * targetConnId: 2, targetDatabase: "db2", targetSchema: "public", targetTable: "orders",
+	 * keyColumns: ["id"], columns: ["id", "total"], parallel: 4, chunkRows: 100000, leafRows: 1000, maxDiffs: 1000}
+	 * 返回比较任务，进度和差异行通过 /api/transfer/compares/{compareId} 或其 events 获取
+	 */
+	@PostMapping("/compare")
+	public ApiResponse<DataCompareJob> compare(@RequestBody DataCompareParam request) {
+		return ApiResponse.ok(dataCompareManager.submit(request));
+	}
+
+	/**
+	 * /api/transfer/compares/{compareId} (GET): 比较任务快照，包括各项计数和差异行
+	 */
+	@GetMapping("/compares/{compareId}")
+	public ApiResponse<DataCompareJob> getCompare(@PathVariable String compareId) {
+		return ApiResponse.ok(dataCompareManager.get(compareId));
+	}
+
+	/**
+	 * /api/transfer/compares/{compareId}/events (GET): 订阅比较任务的 SSE 事件
+	 */
+	@GetMapping(value = "/compares/{compareId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter compareEvents(@PathVariable String compareId) {
+		return dataCompareManager.get(compareId).subscribe();
+	}
+
+	/**
+	 * /api/transfer/compares/{compareId}/cancel (POST): 取消比较，已得到的结果保留
+	 */
+	@PostMapping("/compares/{compareId}/cancel")
+	public ApiResponse<DataCompareJob> cancelCompare(@PathVariable String compareId) {
+		return ApiResponse.ok(dataCompareManager.cancel(compareId));
+	}
+
+	/**
+	 * /api/transfer/compares/{compareId} (DELETE): 取消并移除比较任务
+	 */
+	@DeleteMapping("/compares/{compareId}")
+	public ApiResponse<String> removeCompare(@PathVariable String compareId) {
+		dataCompareManager.remove(compareId);
+		return ApiResponse.ok(compareId);
+	}
+}
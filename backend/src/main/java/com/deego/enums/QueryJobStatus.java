@@ -0,0 +1,16 @@
+package com.deego.enums;
+
+/**
+ * 异步任务（查询、导入）状态
+ */
+public enum QueryJobStatus {
+	PENDING,
+	RUNNING,
+	SUCCEEDED,
+	FAILED,
+	CANCELLED;
+
+	public boolean isFinished() {
+		return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+	}
+}
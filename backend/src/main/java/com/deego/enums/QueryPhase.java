@@ -0,0 +1,34 @@
+package com.deego.enums;
+
+/**
+ * 一次数据库请求的耗时阶段，用于定位慢查询的时间花在了哪里
+ */
+public enum QueryPhase {
+	/**
+	 * 在准入控制中排队等待额度
+	 */
+	ADMISSION,
+	/**
+	 * 从连接池借出连接
+	 */
+	CONNECTION,
+	/**
+	 * 语句在数据库端执行，直到返回第一批结果
+	 */
+	EXECUTE,
+	/**
+	 * 遍历结果集、拉取并处理全部行
+	 */
+	FETCH,
+	/**
+	 * 把响应序列化为 JSON
+	 */
+	SERIALIZE;
+
+	/**
+	 * 指标标签和 Server-Timing 中使用的名称
+	 */
+	public String tag() {
+		return name().toLowerCase();
+	}
+}
@@ -0,0 +1,19 @@
+package com.deego.enums;
+
+/**
+ * 数据库工作的优先级，排队时按声明顺序调度：元数据浏览等交互请求优先，批量导出最后
+ */
+public enum WorkPriority {
+	/**
+	 * 对象树、属性面板等交互式元数据请求
+	 */
+	INTERACTIVE,
+	/**
+	 * 编辑器中执行的普通查询
+	 */
+	QUERY,
+	/**
+	 * 后台任务、导出等长时间占用连接的工作，同时受 bulk-max-concurrent 限制
+	 */
+	BULK
+}
@@ -0,0 +1,18 @@
+package com.deego.exception;
+
+/**
+ * 连接的并发额度和等待队列都已满，请求被直接拒绝（HTTP 429），客户端可在 retryAfterSeconds 后重试
+ */
+public class AdmissionRejectedException extends BizException {
+
+	private final long retryAfterSeconds;
+
+	public AdmissionRejectedException(String message, long retryAfterSeconds) {
+		super("TOO_MANY_REQUESTS", message);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+}
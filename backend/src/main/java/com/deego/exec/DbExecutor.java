@@ -1,5 +1,8 @@
 package com.deego.exec;
 
+import com.deego.query.store.StoredResult;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
 import java.util.List;
 import java.util.Map;
 
@@ -8,4 +11,42 @@ public interface DbExecutor {
     <T> List<T> queryForList(String templateOrSql, Class<T> clazz, Object... params);
     List<Map<String, Object>> queryMapForList(String sql, Object... params);
     int execute(String templateOrSql);
-}
\ No newline at end of file
+
+    /**
+     * 流式查询：按 fetchSize 分批从数据库拉取并逐行回调，整个结果集不会在内存中物化
+     */
+    default void queryStream(String sql, int fetchSize, RowStreamHandler handler) {
+        queryStream(sql, fetchSize, StatementHook.NONE, handler);
+    }
+
+    default void queryStream(String sql, int fetchSize, StatementHook hook, RowStreamHandler handler) {
+        queryStream(sql, null, fetchSize, hook, handler);
+    }
+
+    /**
+     * 带绑定参数的流式查询，args 与 sql 中的 ? 占位符一一对应（可以是 SqlParameterValue），为空时不绑定参数
+     */
+    void queryStream(String sql, Object[] args, int fetchSize, StatementHook hook, RowStreamHandler handler);
+
+    /**
+     * 把查询结果写入服务端结果集存储（先写堆内缓冲，超出后溢写到内存映射文件），listener 可为 null，用于同时观察每一行
+     */
+    default StoredResult queryToStore(String sql, Object[] args, int fetchSize, StatementHook hook, StoredResult result, RowStreamHandler listener) {
+        try {
+            queryStream(sql, args, fetchSize, hook, listener == null ? result : result.andThen(listener));
+        } finally {
+            result.finish();
+        }
+        return result;
+    }
+
+    /**
+     * 执行查询并交给 extractor 处理结果集，hook 可在执行前拿到 Statement（设置超时、支持取消）
+     */
+    <T> T query(String sql, StatementHook hook, ResultSetExtractor<T> extractor);
+
+    /**
+     * 以 PreparedStatement 执行带参数的查询。同一个池连接上相同的 SQL 会复用驱动缓存的预编译语句
+     */
+    <T> T query(String sql, Object[] args, StatementHook hook, ResultSetExtractor<T> extractor);
+}
@@ -1,36 +1,289 @@
 package com.deego.exec;
 
+import com.deego.enums.QueryPhase;
+import com.deego.enums.WorkPriority;
+import com.deego.pool.AdmissionGate;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
+/**
+ * 基于 JdbcTemplate 的执行器。配置了 {@link AdmissionGate} 时，每次调用先按 priority 占用准入额度，
+ * 结束后归还；直接使用 {@link #jdbc()} 的调用不受准入控制。
+ * 每次调用按准入等待、借连接、执行、拉取结果四个阶段计时，交给 {@link PhaseRecorder}。
+ */
 public class JdbcExecutor implements DbExecutor {
     private final JdbcTemplate jdbc;
+    private final AdmissionGate gate;
+    private final WorkPriority priority;
+    private final PhaseRecorder recorder;
 
     public JdbcExecutor(JdbcTemplate jdbc) {
+        this(jdbc, null, WorkPriority.QUERY, PhaseRecorder.NONE);
+    }
+
+    public JdbcExecutor(JdbcTemplate jdbc, AdmissionGate gate, WorkPriority priority, PhaseRecorder recorder) {
         this.jdbc = jdbc;
+        this.gate = gate;
+        this.priority = priority;
+        this.recorder = recorder;
     }
 
     public JdbcTemplate jdbc() { return jdbc; }
 
+    /**
+     * 与 {@link #jdbc()} 共用连接池、同样不经过准入控制，但借连接、执行和拉取结果按阶段计时，
+     * 用于直接操作 JdbcTemplate 的动作
+     */
+    public JdbcTemplate timedJdbc() {
+        return new JdbcTemplate(new PhaseTimingDataSource(jdbc.getDataSource(), recorder));
+    }
+
+    /**
+     * 共享同一个连接池和准入控制、以另一优先级执行的执行器
+     */
+    public JdbcExecutor withPriority(WorkPriority priority) {
+        return priority == this.priority ? this : new JdbcExecutor(jdbc, gate, priority, recorder);
+    }
+
+    /**
+     * 一次占用最多 permits 个准入额度（见 {@link AdmissionGate#acquire(WorkPriority, int)}），用于需要同时持有多个连接的工作。
+     * 返回的执行器借连接时不再经过准入控制，由调用方把同时借出的连接数控制在实际占用的额度之内；关闭时归还全部额度
+     */
+    public Reservation reserve(int permits) {
+        if (gate == null) {
+            return new Reservation(this, permits, null);
+        }
+        long start = System.nanoTime();
+        AdmissionGate.Permit permit;
+        try {
+            permit = gate.acquire(priority, permits);
+        } finally {
+            recorder.record(QueryPhase.ADMISSION, System.nanoTime() - start);
+        }
+        return new Reservation(new JdbcExecutor(jdbc, null, priority, recorder), permit.getPermits(), permit);
+    }
+
+    /**
+     * 同 {@link #reserve(int)}，但不排队：额度不够时立即返回 null
+     */
+    public Reservation tryReserve(int permits) {
+        if (gate == null) {
+            return new Reservation(this, permits, null);
+        }
+        AdmissionGate.Permit permit = gate.tryAcquire(priority, permits);
+        return permit == null ? null : new Reservation(new JdbcExecutor(jdbc, null, priority, recorder), permit.getPermits(), permit);
+    }
+
     @Override
     public List<Map<String, Object>> queryMapForList(String sql) {
-        return jdbc.queryForList(sql);
+        return query(sql, StatementHook.NONE, new RowMapperResultSetExtractor<>(new ColumnMapRowMapper()));
     }
 
     @Override
     public <T> List<T> queryForList(String templateOrSql, Class<T> clazz, Object... params) {
-        return jdbc.queryForList(templateOrSql, clazz, params);
+        return query(templateOrSql, params, StatementHook.NONE, new RowMapperResultSetExtractor<>(new SingleColumnRowMapper<>(clazz)));
     }
 
     @Override
     public List<Map<String, Object>> queryMapForList(String sql, Object... params) {
-        return jdbc.queryForList(sql, params);
+        return query(sql, params, StatementHook.NONE, new RowMapperResultSetExtractor<>(new ColumnMapRowMapper()));
     }
 
     @Override
     public int execute(String sql) {
-        return jdbc.update(sql);
+        return withConnection(con -> {
+            try (Statement st = con.createStatement()) {
+                long start = System.nanoTime();
+                try {
+                    return st.executeUpdate(sql);
+                } finally {
+                    recorder.record(QueryPhase.EXECUTE, System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    @Override
+    public <T> T query(String sql, StatementHook hook, ResultSetExtractor<T> extractor) {
+        return withConnection(con -> {
+            // 使用普通 Statement：编辑器里的 SQL 可能包含 ? 操作符（如 jsonb），不能当作占位符
+            try (Statement st = con.createStatement()) {
+                hook.beforeExecute(con, st);
+                try (ResultSet rs = executeQuery(st, sql)) {
+                    return extract(rs, extractor);
+                }
+            }
+        });
+    }
+
+    @Override
+    public <T> T query(String sql, Object[] args, StatementHook hook, ResultSetExtractor<T> extractor) {
+        return withConnection(con -> {
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                bind(ps, args);
+                hook.beforeExecute(con, ps);
+                try (ResultSet rs = executeQuery(ps)) {
+                    return extract(rs, extractor);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void queryStream(String sql, Object[] args, int fetchSize, StatementHook hook, RowStreamHandler handler) {
+        withConnection(con -> {
+            boolean autoCommit = con.getAutoCommit();
+            // PostgreSQL 只有在非自动提交模式下才会按 fetchSize 使用游标分批拉取，否则一次性读完整个结果集
+            if (autoCommit) {
+                con.setAutoCommit(false);
+            }
+            try {
+                streamRows(con, sql, args, fetchSize, hook, handler);
+                if (autoCommit) {
+                    con.commit();
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (autoCommit) {
+                    con.rollback();
+                }
+                throw e;
+            } finally {
+                if (autoCommit) {
+                    con.setAutoCommit(true);
+                }
+            }
+            return null;
+        });
+    }
+
+    private void streamRows(Connection con, String sql, Object[] args, int fetchSize, StatementHook hook, RowStreamHandler handler) throws SQLException {
+        // 没有绑定参数时用普通 Statement，与 query 一致：编辑器里的 SQL 可能包含 ? 操作符（如 jsonb 的 ?、?|、?&）。
+        // MySQL 的 useCursorFetch 仅对服务端预编译语句生效，仍用 PreparedStatement
+        boolean bound = args != null && args.length > 0;
+        boolean prepared = bound || isMySql(con);
+        try (Statement st = prepared
+                ? con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)
+                : con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(fetchSize);
+            if (st instanceof PreparedStatement ps) {
+                bind(ps, args);
+            }
+            hook.beforeExecute(con, st);
+            try (ResultSet rs = st instanceof PreparedStatement ps ? executeQuery(ps) : executeQuery(st, sql)) {
+                extract(rs, r -> {
+                    handler.onStart(r.getMetaData());
+                    long rowCount = 0;
+                    while (r.next()) {
+                        if (hook.isCancelled()) {
+                            throw new SQLException("Query was cancelled", "57014");
+                        }
+                        handler.processRow(r);
+                        rowCount++;
+                    }
+                    handler.onComplete(rowCount);
+                    return null;
+                });
+            }
+        }
+    }
+
+    private static boolean isMySql(Connection con) throws SQLException {
+        String product = con.getMetaData().getDatabaseProductName();
+        return product != null && (product.equalsIgnoreCase("MySQL") || product.equalsIgnoreCase("MariaDB"));
+    }
+
+    private ResultSet executeQuery(PreparedStatement ps) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return ps.executeQuery();
+        } finally {
+            recorder.record(QueryPhase.EXECUTE, System.nanoTime() - start);
+        }
+    }
+
+    private ResultSet executeQuery(Statement st, String sql) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return st.executeQuery(sql);
+        } finally {
+            recorder.record(QueryPhase.EXECUTE, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 拉取阶段包含驱动按 fetchSize 分批取数以及 extractor 自身处理行的时间
+     */
+    private <T> T extract(ResultSet rs, ResultSetExtractor<T> extractor) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return extractor.extractData(rs);
+        } finally {
+            recorder.record(QueryPhase.FETCH, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 在准入控制下借出连接执行 action，分别记录准入等待和借连接的耗时；
+     * 用于 COPY 等需要直接操作驱动连接的工作，连接在 action 返回后归还
+     */
+    public <T> T withConnection(ConnectionCallback<T> action) {
+        return admitted(() -> {
+            long requested = System.nanoTime();
+            return jdbc.execute((ConnectionCallback<T>) con -> {
+                recorder.record(QueryPhase.CONNECTION, System.nanoTime() - requested);
+                return action.doInConnection(con);
+            });
+        });
+    }
+
+    /**
+     * 绑定参数；SqlParameterValue 按声明的 SQL 类型绑定，其余按值的 Java 类型推断
+     */
+    private static void bind(PreparedStatement ps, Object[] args) throws SQLException {
+        if (args != null && args.length > 0) {
+            new ArgumentPreparedStatementSetter(args).setValues(ps);
+        }
+    }
+
+    private <T> T admitted(Supplier<T> work) {
+        if (gate == null) {
+            return work.get();
+        }
+        long start = System.nanoTime();
+        AdmissionGate.Permit acquired;
+        try {
+            acquired = gate.acquire(priority);
+        } finally {
+            recorder.record(QueryPhase.ADMISSION, System.nanoTime() - start);
+        }
+        try (AdmissionGate.Permit permit = acquired) {
+            return work.get();
+        }
+    }
+
+    /**
+     * 预先占用的额度和在额度内借连接的执行器
+     */
+    public record Reservation(JdbcExecutor executor, int permits, AdmissionGate.Permit permit) implements AutoCloseable {
+        @Override
+        public void close() {
+            if (permit != null) {
+                permit.close();
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,15 @@
+package com.deego.exec;
+
+import com.deego.enums.QueryPhase;
+
+/**
+ * 接收执行器各阶段耗时的回调（纳秒）
+ */
+@FunctionalInterface
+public interface PhaseRecorder {
+
+    PhaseRecorder NONE = (phase, nanos) -> {
+    };
+
+    void record(QueryPhase phase, long nanos);
+}
@@ -0,0 +1,130 @@
+package com.deego.exec;
+
+import com.deego.enums.QueryPhase;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 给直接使用 JdbcTemplate 的调用（如 /db/{handler} 动作）按阶段计时的 DataSource：借连接记为 CONNECTION，
+ * Statement 的 execute* 记为 EXECUTE，ResultSet 的 next 累计后在关闭结果集时记为 FETCH。
+ * unwrap / isWrapperFor 交给原始连接，COPY 等需要驱动连接的调用不受影响
+ */
+class PhaseTimingDataSource extends DelegatingDataSource {
+
+    private final PhaseRecorder recorder;
+
+    PhaseTimingDataSource(DataSource target, PhaseRecorder recorder) {
+        super(target);
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return proxy(Connection.class, super.getConnection());
+        } finally {
+            recorder.record(QueryPhase.CONNECTION, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return proxy(Connection.class, super.getConnection(username, password));
+        } finally {
+            recorder.record(QueryPhase.CONNECTION, System.nanoTime() - start);
+        }
+    }
+
+    private <T> T proxy(Class<T> type, T target) {
+        if (type == ResultSet.class) {
+            return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, new ResultSetHandler(target)));
+        }
+        return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            boolean execute = target instanceof Statement && method.getName().startsWith("execute");
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invoke(target, method, args);
+            } finally {
+                if (execute) {
+                    recorder.record(QueryPhase.EXECUTE, System.nanoTime() - start);
+                }
+            }
+            return wrap(method, result);
+        }));
+    }
+
+    /**
+     * 连接返回的语句、语句返回的结果集继续计时
+     */
+    private Object wrap(Method method, Object result) {
+        Class<?> type = method.getReturnType();
+        if (result != null && type.isInterface() && (Statement.class.isAssignableFrom(type) || type == ResultSet.class)) {
+            @SuppressWarnings("unchecked")
+            Class<Object> cast = (Class<Object>) type;
+            return proxy(cast, result);
+        }
+        return result;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 每行都上报一次开销太大，next 的耗时累计到结果集关闭时一次记下
+     */
+    private final class ResultSetHandler implements InvocationHandler {
+
+        private final Object target;
+        private long fetchNanos;
+        private boolean recorded;
+
+        private ResultSetHandler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next" -> {
+                    long start = System.nanoTime();
+                    try {
+                        return PhaseTimingDataSource.invoke(target, method, args);
+                    } finally {
+                        fetchNanos += System.nanoTime() - start;
+                    }
+                }
+                case "close" -> {
+                    try {
+                        return PhaseTimingDataSource.invoke(target, method, args);
+                    } finally {
+                        if (!recorded) {
+                            recorded = true;
+                            recorder.record(QueryPhase.FETCH, fetchNanos);
+                        }
+                    }
+                }
+                default -> {
+                    return PhaseTimingDataSource.invoke(target, method, args);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.deego.exec;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * 流式查询回调：在 RowCallbackHandler 的逐行回调之外，增加结果集开始 / 结束两个钩子，
+ * 便于在没有任何数据行时也能输出列信息。
+ */
+public interface RowStreamHandler extends RowCallbackHandler {
+
+    /**
+     * 结果集打开后、读取第一行之前回调
+     */
+    default void onStart(ResultSetMetaData meta) throws SQLException {
+    }
+
+    /**
+     * 结果集遍历完毕后回调
+     */
+    default void onComplete(long rowCount) throws SQLException {
+    }
+
+    /**
+     * 组合两个回调，每个事件先交给当前回调，再交给 next
+     */
+    default RowStreamHandler andThen(RowStreamHandler next) {
+        RowStreamHandler first = this;
+        return new RowStreamHandler() {
+            @Override
+            public void onStart(ResultSetMetaData meta) throws SQLException {
+                first.onStart(meta);
+                next.onStart(meta);
+            }
+
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                first.processRow(rs);
+                next.processRow(rs);
+            }
+
+            @Override
+            public void onComplete(long rowCount) throws SQLException {
+                first.onComplete(rowCount);
+                next.onComplete(rowCount);
+            }
+        };
+    }
+}
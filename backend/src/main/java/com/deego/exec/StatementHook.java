@@ -0,0 +1,24 @@
+package com.deego.exec;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 语句创建之后、执行之前的回调，用于设置超时、登记到运行中查询表等
+ */
+@FunctionalInterface
+public interface StatementHook {
+
+    StatementHook NONE = (con, stmt) -> {
+    };
+
+    void beforeExecute(Connection con, Statement stmt) throws SQLException;
+
+    /**
+     * 流式读取时每行检查一次：按 fetchSize 分批拉取的间隙里数据库没有正在执行的语句，驱动的 cancel 不起作用，只能由读取方停下
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
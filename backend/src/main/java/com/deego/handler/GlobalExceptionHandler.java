@@ -1,9 +1,11 @@
 package com.deego.handler;
 
 import com.deego.common.ApiResponse;
+import com.deego.exception.AdmissionRejectedException;
 import com.deego.exception.BizException;
 import com.deego.common.ErrorCode;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -19,6 +21,14 @@ import java.sql.SQLException;
 @Slf4j
 public class GlobalExceptionHandler {
 
+	@ExceptionHandler(AdmissionRejectedException.class)
+	public ResponseEntity<ApiResponse<?>> handleAdmissionRejected(AdmissionRejectedException e) {
+		ApiResponse<?> response = ApiResponse.error(e.getCode(), e.getMessage());
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+							 .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+							 .body(response);
+	}
+
 	@ExceptionHandler(BizException.class)
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
 	public ResponseEntity<ApiResponse<?>> handleBizException(BizException e) {
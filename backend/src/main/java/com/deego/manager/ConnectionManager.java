@@ -1,15 +1,22 @@
 package com.deego.manager;
 
+import com.deego.config.NebulaProperties;
 import com.deego.enums.DatabaseType;
+import com.deego.enums.WorkPriority;
 import com.deego.exec.DbExecutor;
 import com.deego.exec.JdbcExecutor;
+import com.deego.metrics.QueryMetrics;
 import com.deego.model.Connection;
 import com.deego.pool.*;
 import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.util.ObjectUtils;
 
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -18,6 +25,13 @@ public class ConnectionManager {
 
     private final Map<String, Object> poolCache = new ConcurrentHashMap<>();
     private final Map<String, DbExecutor> execCache = new ConcurrentHashMap<>();
+    private final Map<String, AdmissionGate> gates = new ConcurrentHashMap<>();
+
+    @Autowired
+    private NebulaProperties properties;
+
+    @Autowired
+    private QueryMetrics queryMetrics;
 
     private final Map<DatabaseType, PoolProvider<?>> providers = Map.of(
             DatabaseType.POSTGRESQL, new PostgresPoolProvider(),
@@ -26,7 +40,23 @@ public class ConnectionManager {
             DatabaseType.ORACLE, new OraclePoolProvider()
     );
 
+    @PostConstruct
+    public void configureProviders() {
+        providers.values().forEach(p -> {
+            if (p instanceof AbstractJdbcPoolProvider jdbcProvider) {
+                jdbcProvider.configure(properties.getPool());
+            }
+        });
+    }
+
     public DbExecutor acquireExecutor(Connection conn, String targetDb) {
+        return acquireExecutor(conn, targetDb, WorkPriority.QUERY);
+    }
+
+    /**
+     * 获取执行器；执行器的每次调用都要先通过该连接池的准入控制，priority 决定排队时的先后
+     */
+    public DbExecutor acquireExecutor(Connection conn, String targetDb, WorkPriority priority) {
         DatabaseType type = DatabaseType.fromValue(conn.getDbType());
         String db = ObjectUtils.isEmpty(targetDb) ? conn.getDatabase() : targetDb;
         PoolProvider<?> provider = providers.get(type);
@@ -35,14 +65,39 @@ public class ConnectionManager {
         }
         String key = provider.cacheKey(conn, db);
 
-        return execCache.computeIfAbsent(key, k -> {
+        DbExecutor executor = execCache.computeIfAbsent(key, k -> {
             Object handle = poolCache.computeIfAbsent(k, kk -> provider.create(conn, db));
             if (type.isRelational() && handle instanceof HikariDataSource ds) {
                 JdbcTemplate jdbc = new JdbcTemplate(ds);
-                return new JdbcExecutor(jdbc);
+                String connId = conn.getId();
+                return new JdbcExecutor(jdbc, admissionGate(k), WorkPriority.QUERY,
+                        (phase, nanos) -> queryMetrics.record(connId, phase, nanos));
             }
             throw new IllegalStateException("Unsupported executor for dbType=" + type);
         });
+        return executor instanceof JdbcExecutor jdbcExecutor ? jdbcExecutor.withPriority(priority) : executor;
+    }
+
+    /**
+     * 连接池（connId@database）的准入控制；游标等直接从 DataSource 取连接的调用方也应通过它占用额度
+     */
+    public AdmissionGate admissionGate(String poolKey) {
+        return gates.computeIfAbsent(poolKey, k -> {
+            NebulaProperties.Admission config = properties.getAdmission();
+            // 并发额度不超过连接池大小，否则多出来的请求仍会在 Hikari 里排队
+            int maxConcurrent = config.isEnabled()
+                    ? Math.min(config.getMaxConcurrent(), properties.getPool().getMaximumPoolSize())
+                    : properties.getPool().getMaximumPoolSize();
+            return new AdmissionGate(k, maxConcurrent, config.getBulkMaxConcurrent(), config.getMaxQueue(),
+                    config.getMaxWait().toMillis());
+        });
+    }
+
+    public List<AdmissionGate.AdmissionStats> admissionStats() {
+        return gates.values().stream()
+                .map(AdmissionGate::stats)
+                .sorted(Comparator.comparing(AdmissionGate.AdmissionStats::key))
+                .toList();
     }
 
     public com.zaxxer.hikari.HikariDataSource createEphemeralJdbcDataSource(com.deego.model.Connection conn, String targetDb) {
@@ -68,6 +123,7 @@ public class ConnectionManager {
             if (k.startsWith(connId + "@")) {
                 Object h = poolCache.remove(k);
                 execCache.remove(k);
+                gates.remove(k);
                 if (h instanceof HikariDataSource ds) {
                     ds.close();
                 }
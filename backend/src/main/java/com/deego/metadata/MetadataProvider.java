@@ -32,6 +32,17 @@ public interface MetadataProvider {
 	 */
 	List<Map<String, Object>> listChildren(String connId, Connection connection, DatabaseNodeType nodeType, String[] pathSegments);
 
+	/**
+	 * 一次读取某个 schema 下对象树的全部子节点列表（schema 下的各类对象，以及每张表的列、约束、索引），
+	 * 结果与逐个节点调用 {@link #listChildren} 相同。不支持时返回 null，调用方逐个节点查询
+	 *
+	 * @param database 库名
+	 * @param schema   schema 名
+	 */
+	default Map<TreeListing, List<Map<String, Object>>> prefetchSchema(String connId, Connection connection, String database, String schema) {
+		return null;
+	}
+
 	/**
 	 * 获取数据库选项
 	 */
@@ -0,0 +1,7 @@
+package com.deego.metadata;
+
+/**
+ * 对象树中的一个子节点列表：节点类型 + 库之后的父路径，如 TABLE:"public"、COLUMN:"public/orders"
+ */
+public record TreeListing(DatabaseNodeType type, String path) {
+}
@@ -0,0 +1,274 @@
+package com.deego.metadata.cache;
+
+import com.deego.config.NebulaProperties;
+import com.deego.metadata.DatabaseNodeType;
+import com.deego.metadata.TreeListing;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 对象树节点列表的缓存：键为 (connId, database, 节点类型, 父路径)，按节点类型设置有效期，条目数超出上限时按 LRU 淘汰。
+ * <p>
+ * 通过动作接口执行的 DDL 按受影响的列表和子树失效（某个 schema 下的表列表、某张表下的列和索引等）；
+ * 编辑器中执行的 DDL 无法确定影响范围，使整个连接失效。打开 schema 时在后台把整个 schema 的列表一次读出（见 prefetch）。每个连接维护一个失效版本号，
+ * 加载期间发生失效时结果不写入缓存，避免把旧列表放回去。
+ */
+@Component
+@Slf4j
+public class MetadataCache {
+
+	/**
+	 * 实例级的节点，与展开时所在的库无关
+	 */
+	private static final Set<DatabaseNodeType> INSTANCE_TYPES = Set.of(DatabaseNodeType.DATABASE, DatabaseNodeType.ROLE,
+			DatabaseNodeType.LOGIN_ROLE, DatabaseNodeType.GROUP_ROLE, DatabaseNodeType.SYSTEM_ROLE);
+
+	@Autowired
+	private NebulaProperties properties;
+
+	/**
+	 * accessOrder = true，迭代顺序即 LRU 顺序
+	 */
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+	private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+	/**
+	 * 正在后台预取的 schema
+	 */
+	private final Set<Scope> prefetching = ConcurrentHashMap.newKeySet();
+
+	private final ExecutorService prefetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong puts = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+	private final AtomicLong prefetches = new AtomicLong();
+
+	/**
+	 * database 为空表示实例级的节点；path 为库之后的父路径，如 ""（库下的 schema）、"public"、"public/orders"
+	 */
+	private record Key(String connId, String database, DatabaseNodeType type, String path) {
+	}
+
+	private record Scope(String connId, String database, String schema) {
+	}
+
+	private record Entry(List<Map<String, Object>> nodes, long expiresAt) {
+	}
+
+	/**
+	 * 命中时直接返回缓存的列表，否则执行 loader 并缓存结果；refresh 为 true 时跳过缓存重新加载
+	 */
+	public List<Map<String, Object>> get(String connId, String database, DatabaseNodeType type, String path, boolean refresh,
+										 Supplier<List<Map<String, Object>>> loader) {
+		return get(connId, database, type, path, refresh, loader, null);
+	}
+
+	/**
+	 * 同 {@link #get(String, String, DatabaseNodeType, String, boolean, Supplier)}，未命中时还在后台执行 prefetch：
+	 * 一次读出 path 所在 schema 的全部列表并一起缓存，之后展开其中的表直接命中。
+	 * 当前请求不等待预取（大 schema 上预取比单个列表慢得多），同一个 schema 同时只有一个预取在执行
+	 */
+	public List<Map<String, Object>> get(String connId, String database, DatabaseNodeType type, String path, boolean refresh,
+										 Supplier<List<Map<String, Object>>> loader,
+										 Supplier<Map<TreeListing, List<Map<String, Object>>>> prefetch) {
+		NebulaProperties.MetadataCache config = properties.getMetadataCache();
+		if (!config.isEnabled()) {
+			return loader.get();
+		}
+		Key key = new Key(connId, INSTANCE_TYPES.contains(type) ? null : database, type, path);
+		if (!refresh) {
+			List<Map<String, Object>> cached = lookup(key);
+			if (cached != null) {
+				hits.incrementAndGet();
+				return cached;
+			}
+		}
+		misses.incrementAndGet();
+		long generation = generation(connId).get();
+		List<Map<String, Object>> nodes = loader.get();
+		put(key, nodes, generation, config);
+		if (prefetch != null && !refresh && config.isPrefetch()) {
+			prefetchAsync(new Scope(connId, database, path.split("/")[0]), prefetch, config);
+		}
+		return nodes;
+	}
+
+	/**
+	 * 使指定类型的子节点列表失效。database 为空时匹配该连接的所有库，path 为空时匹配所有父路径
+	 */
+	public void invalidate(String connId, String database, String path, DatabaseNodeType... types) {
+		Set<DatabaseNodeType> matched = Set.of(types);
+		remove(connId, key -> matched.contains(key.type()) && matches(key, database)
+				&& (path == null || path.equals(key.path())));
+	}
+
+	/**
+	 * 使 path 本身及其下层路径中指定类型的列表失效，例如某个 schema 下所有表的索引列表
+	 */
+	public void invalidateUnder(String connId, String database, String path, DatabaseNodeType... types) {
+		Set<DatabaseNodeType> matched = Set.of(types);
+		remove(connId, key -> matched.contains(key.type()) && key.database() != null && matches(key, database)
+				&& (key.path().equals(path) || key.path().startsWith(path + "/")));
+	}
+
+	/**
+	 * 使某个节点下的整个子树失效：以它为父路径的列表，以及更深层的所有列表。database 为空时匹配该连接的所有库
+	 */
+	public void invalidateSubtree(String connId, String database, String path) {
+		remove(connId, key -> key.database() != null && matches(key, database)
+				&& (key.path().equals(path) || key.path().startsWith(path + "/")));
+	}
+
+	/**
+	 * 使某个库下的全部列表失效；database 为空时为整个连接
+	 */
+	public void invalidateDatabase(String connId, String database) {
+		remove(connId, key -> database == null || database.equals(key.database()));
+	}
+
+	public void invalidateConnection(String connId) {
+		invalidateDatabase(connId, null);
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public MetadataCacheStats stats() {
+		synchronized (entries) {
+			return new MetadataCacheStats(hits.get(), misses.get(), puts.get(), evictions.get(), invalidations.get(), prefetches.get(),
+					entries.size(), properties.getMetadataCache().getMaxEntries());
+		}
+	}
+
+	/**
+	 * 停止接受新的预取并中断进行中的预取（结果本来就只是缓存）
+	 */
+	@PreDestroy
+	public void shutdown() {
+		prefetchExecutor.shutdownNow();
+	}
+
+	/**
+	 * 实例级的列表不属于任何库，按库失效时也一并失效（库名可能就是要删除或新建的库）
+	 */
+	private static boolean matches(Key key, String database) {
+		return database == null || key.database() == null || database.equals(key.database());
+	}
+
+	private void remove(String connId, Predicate<Key> predicate) {
+		generation(connId).incrementAndGet();
+		int removed = 0;
+		synchronized (entries) {
+			Iterator<Key> it = entries.keySet().iterator();
+			while (it.hasNext()) {
+				Key key = it.next();
+				if (Objects.equals(connId, key.connId()) && predicate.test(key)) {
+					it.remove();
+					removed++;
+				}
+			}
+		}
+		if (removed > 0) {
+			invalidations.addAndGet(removed);
+			log.debug("Invalidated {} cached tree lists of connection {}", removed, connId);
+		}
+	}
+
+	private List<Map<String, Object>> lookup(Key key) {
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.expiresAt() < System.currentTimeMillis()) {
+				entries.remove(key);
+				return null;
+			}
+			return entry.nodes();
+		}
+	}
+
+	private void prefetchAsync(Scope scope, Supplier<Map<TreeListing, List<Map<String, Object>>>> prefetch,
+							   NebulaProperties.MetadataCache config) {
+		if (!prefetching.add(scope)) {
+			return;
+		}
+		long generation = generation(scope.connId()).get();
+		try {
+			prefetchExecutor.execute(() -> {
+				try {
+					Map<TreeListing, List<Map<String, Object>>> listings = prefetch.get();
+					if (listings != null) {
+						prefetches.incrementAndGet();
+						putAll(scope.connId(), scope.database(), listings, generation, config);
+					}
+				} catch (RuntimeException e) {
+					log.warn("Prefetch of schema {} in {} on connection {} failed: {}", scope.schema(), scope.database(), scope.connId(), e.getMessage());
+				} finally {
+					prefetching.remove(scope);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// 应用正在关闭
+			prefetching.remove(scope);
+		}
+	}
+
+	private void put(Key key, List<Map<String, Object>> nodes, long generation, NebulaProperties.MetadataCache config) {
+		putAll(key.connId(), key.database(), Map.of(new TreeListing(key.type(), key.path()), nodes), generation, config);
+	}
+
+	private void putAll(String connId, String database, Map<TreeListing, List<Map<String, Object>>> listings, long generation,
+						NebulaProperties.MetadataCache config) {
+		long now = System.currentTimeMillis();
+		synchronized (entries) {
+			if (generation(connId).get() != generation) {
+				// 加载期间有 DDL，列表可能已经过时
+				return;
+			}
+			listings.forEach((listing, nodes) -> {
+				if (nodes.size() > config.getMaxEntryNodes()) {
+					return;
+				}
+				Duration ttl = config.getTtls().getOrDefault(listing.type(), config.getTtl());
+				Key key = new Key(connId, INSTANCE_TYPES.contains(listing.type()) ? null : database, listing.type(), listing.path());
+				entries.put(key, new Entry(List.copyOf(nodes), now + ttl.toMillis()));
+				puts.incrementAndGet();
+			});
+			Iterator<Entry> it = entries.values().iterator();
+			while (entries.size() > config.getMaxEntries() && it.hasNext()) {
+				it.next();
+				it.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	private AtomicLong generation(String connId) {
+		return generations.computeIfAbsent(connId, k -> new AtomicLong());
+	}
+}
@@ -0,0 +1,13 @@
+package com.deego.metadata.cache;
+
+/**
+ * 对象树缓存统计；prefetches 为整个 schema 一次读出的次数，每次会写入该 schema 下的全部列表
+ */
+public record MetadataCacheStats(long hits, long misses, long puts, long evictions, long invalidations, long prefetches,
+								 int entries, int maxEntries) {
+
+	public double getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double) hits / total;
+	}
+}
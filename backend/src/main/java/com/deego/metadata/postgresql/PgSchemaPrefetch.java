@@ -0,0 +1,189 @@
+package com.deego.metadata.postgresql;
+
+import com.deego.metadata.DatabaseNodeType;
+import com.deego.metadata.TreeListing;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次读取某个 schema 下对象树的全部子节点列表：schema 下的表、视图、物化视图、序列、函数、存储过程，
+ * 以及每张表（视图）的列、约束和索引。
+ * <p>
+ * 五条集合查询（pg_class、pg_attribute、pg_constraint、pg_index、pg_proc）拼成一条多语句发给服务端，
+ * 驱动只在最后发一次 Sync，整个 schema 只有一次往返；逐个节点展开时打开 schema 要 6 次查询，每张表再要 3 次。
+ * 节点的生成与 {@link PostgreSqlMetadataProvider} 逐个节点查询时共用，结果完全一致。
+ */
+public final class PgSchemaPrefetch {
+
+	private static final String NAMESPACE = "(SELECT oid FROM pg_namespace WHERE nspname = ?)";
+
+	/**
+	 * 与逐个节点查询的过滤条件一致：表来自 pg_tables（排除 pg_ 开头的），视图、物化视图、序列按 relkind 区分
+	 */
+	private static final String SQL = """
+			SELECT c.relname AS name, c.relkind::text AS kind
+			FROM pg_class c
+			WHERE c.relnamespace = %1$s
+			  AND c.relkind IN ('r', 'p', 'v', 'm', 'S')
+			  AND NOT (c.relkind IN ('r', 'p') AND c.relname LIKE 'pg_%%')
+			ORDER BY c.relname;
+			SELECT c.relname AS table_name,
+			       a.attname AS name,
+			       format_type(a.atttypid, NULL) AS data_type,
+			       CASE WHEN a.attnotnull THEN 'NO' ELSE 'YES' END AS is_nullable
+			FROM pg_attribute a
+			JOIN pg_class c ON c.oid = a.attrelid
+			WHERE c.relnamespace = %1$s
+			  AND c.relkind IN ('r', 'p', 'v', 'm')
+			  AND a.attnum > 0 AND NOT a.attisdropped
+			ORDER BY a.attrelid, a.attnum;
+			SELECT rel.relname AS table_name,
+			       con.conname AS name,
+			       CASE con.contype
+			           WHEN 'p' THEN 'PRIMARY KEY'
+			           WHEN 'u' THEN 'UNIQUE'
+			           WHEN 'f' THEN 'FOREIGN KEY'
+			           WHEN 'c' THEN 'CHECK'
+			           WHEN 'x' THEN 'EXCLUSION'
+			       END AS constraint_type,
+			       pg_get_constraintdef(con.oid, true) AS definition
+			FROM pg_constraint con
+			JOIN pg_class rel ON rel.oid = con.conrelid
+			WHERE rel.relnamespace = %1$s
+			  AND con.contype IN ('p', 'u', 'f', 'c', 'x')
+			ORDER BY con.conname;
+			SELECT t.relname AS table_name,
+			       i.relname AS name,
+			       pg_get_indexdef(i.oid) AS indexdef
+			FROM pg_index x
+			JOIN pg_class t ON t.oid = x.indrelid
+			JOIN pg_class i ON i.oid = x.indexrelid
+			WHERE t.relnamespace = %1$s
+			  AND t.relkind IN ('r', 'm', 'p')
+			  AND i.relkind IN ('i', 'I')
+			ORDER BY i.relname;
+			SELECT p.oid,
+			       p.proname AS name,
+			       pg_get_function_arguments(p.oid) AS args,
+			       pg_get_function_result(p.oid) AS result_type,
+			       p.prokind::text AS kind
+			FROM pg_proc p
+			WHERE p.pronamespace = %1$s
+			  AND p.prokind IN ('f', 'p')
+			ORDER BY p.proname, args
+			""".formatted(NAMESPACE);
+
+	private static final int STATEMENTS = 5;
+
+	private PgSchemaPrefetch() {
+	}
+
+	/**
+	 * 键为 节点类型 + 库之后的父路径；schema 不存在时各列表都为空
+	 */
+	public static Map<TreeListing, List<Map<String, Object>>> load(Connection con, String connId, String database, String schema) throws SQLException {
+		List<List<Map<String, Object>>> results = new ArrayList<>(STATEMENTS);
+		try (PreparedStatement ps = con.prepareStatement(SQL)) {
+			for (int i = 1; i <= STATEMENTS; i++) {
+				ps.setString(i, schema);
+			}
+			boolean hasResult = ps.execute();
+			while (hasResult || ps.getUpdateCount() != -1) {
+				if (hasResult) {
+					results.add(readRows(ps.getResultSet()));
+				}
+				hasResult = ps.getMoreResults();
+			}
+		}
+		if (results.size() != STATEMENTS) {
+			throw new SQLException("Expected " + STATEMENTS + " result sets from schema prefetch, got " + results.size());
+		}
+
+		Map<TreeListing, List<Map<String, Object>>> listings = new HashMap<>();
+		Map<String, List<Map<String, Object>>> bySchemaKind = new HashMap<>();
+		for (Map<String, Object> row : results.get(0)) {
+			String kind = (String) row.remove("kind");
+			// 普通表和分区表在同一个列表中，保持查询的排序
+			bySchemaKind.computeIfAbsent("p".equals(kind) ? "r" : kind, k -> new ArrayList<>()).add(row);
+			if (!"S".equals(kind)) {
+				// 每张表和视图都有列、约束、索引三个列表，没有的也缓存空列表，展开时不再查询
+				String path = schema + "/" + row.get("name");
+				listings.put(new TreeListing(DatabaseNodeType.COLUMN, path), new ArrayList<>());
+				listings.put(new TreeListing(DatabaseNodeType.CONSTRAINT, path), new ArrayList<>());
+				listings.put(new TreeListing(DatabaseNodeType.INDEX, path), new ArrayList<>());
+			}
+		}
+		listings.put(new TreeListing(DatabaseNodeType.TABLE, schema),
+				PostgreSqlMetadataProvider.tableNodes(connId, database, schema, bySchemaKind.getOrDefault("r", new ArrayList<>())));
+		listings.put(new TreeListing(DatabaseNodeType.VIEW, schema),
+				PostgreSqlMetadataProvider.viewNodes(connId, database, schema, bySchemaKind.getOrDefault("v", new ArrayList<>())));
+		listings.put(new TreeListing(DatabaseNodeType.MATERIALIZED_VIEW, schema),
+				PostgreSqlMetadataProvider.materializedViewNodes(connId, database, schema, bySchemaKind.getOrDefault("m", new ArrayList<>())));
+		listings.put(new TreeListing(DatabaseNodeType.SEQUENCE, schema),
+				PostgreSqlMetadataProvider.sequenceNodes(connId, database, schema, bySchemaKind.getOrDefault("S", new ArrayList<>())));
+
+		groupByTable(listings, DatabaseNodeType.COLUMN, schema, results.get(1));
+		groupByTable(listings, DatabaseNodeType.CONSTRAINT, schema, results.get(2));
+		groupByTable(listings, DatabaseNodeType.INDEX, schema, results.get(3));
+		listings.forEach((listing, rows) -> {
+			if (listing.path().equals(schema)) {
+				return;
+			}
+			String table = listing.path().substring(schema.length() + 1);
+			switch (listing.type()) {
+				case COLUMN -> PostgreSqlMetadataProvider.columnNodes(connId, database, schema, table, rows);
+				case CONSTRAINT -> PostgreSqlMetadataProvider.constraintNodes(connId, database, schema, table, rows);
+				case INDEX -> PostgreSqlMetadataProvider.indexNodes(connId, database, schema, table, rows);
+				default -> {
+				}
+			}
+		});
+
+		List<Map<String, Object>> functions = new ArrayList<>();
+		List<Map<String, Object>> procedures = new ArrayList<>();
+		for (Map<String, Object> row : results.get(4)) {
+			if ("p".equals(row.remove("kind"))) {
+				row.remove("result_type");
+				procedures.add(row);
+			} else {
+				functions.add(row);
+			}
+		}
+		listings.put(new TreeListing(DatabaseNodeType.FUNCTION, schema), PostgreSqlMetadataProvider.functionNodes(connId, database, schema, functions));
+		listings.put(new TreeListing(DatabaseNodeType.PROCEDURE, schema), PostgreSqlMetadataProvider.procedureNodes(connId, database, schema, procedures));
+		return listings;
+	}
+
+	/**
+	 * 按 table_name 分到各表的列表中，保持查询的顺序；不在关系列表里的表（如 pg_ 开头的表）忽略
+	 */
+	private static void groupByTable(Map<TreeListing, List<Map<String, Object>>> listings, DatabaseNodeType type, String schema,
+									 List<Map<String, Object>> rows) {
+		for (Map<String, Object> row : rows) {
+			List<Map<String, Object>> list = listings.get(new TreeListing(type, schema + "/" + row.remove("table_name")));
+			if (list != null) {
+				list.add(row);
+			}
+		}
+	}
+
+	private static List<Map<String, Object>> readRows(ResultSet rs) throws SQLException {
+		try (rs) {
+			ColumnMapRowMapper mapper = new ColumnMapRowMapper();
+			List<Map<String, Object>> rows = new ArrayList<>();
+			int rowNum = 0;
+			while (rs.next()) {
+				rows.add(mapper.mapRow(rs, rowNum++));
+			}
+			return rows;
+		}
+	}
+}
@@ -1,9 +1,12 @@
 package com.deego.metadata.postgresql;
 
 import com.deego.enums.DatabaseType;
+import com.deego.enums.WorkPriority;
 import com.deego.exec.DbExecutor;
+import com.deego.exec.JdbcExecutor;
 import com.deego.metadata.DatabaseNodeType;
 import com.deego.metadata.MetadataProvider;
+import com.deego.metadata.TreeListing;
 import com.deego.model.Connection;
 import com.deego.model.param.OptionParam;
 import com.deego.model.pgsql.PgOption;
@@ -36,9 +39,16 @@ public class PostgreSqlMetadataProvider implements MetadataProvider {
 		// pathSegments[0] 默认是 database 名（调用方保证）
 		DbExecutor executor = connectionService.getExecutor(
 				connId,
-				pathSegments.length > 0 ? pathSegments[0] : null
+				pathSegments.length > 0 ? pathSegments[0] : null,
+				WorkPriority.INTERACTIVE
 		);
+		return listChildren(connId, executor, nodeType, pathSegments);
+	}
 
+	/**
+	 * 在给定的执行器上逐个节点查询，不经过连接管理（同包的基准测试直接用 JDBC 连接调用）
+	 */
+	List<Map<String, Object>> listChildren(String connId, DbExecutor executor, DatabaseNodeType nodeType, String[] pathSegments) {
 		return switch (nodeType) {
 			// ======== 角色相关（实例级） ========
 			case LOGIN_ROLE -> listLoginRoles(connId, executor);
@@ -61,10 +71,22 @@ public class PostgreSqlMetadataProvider implements MetadataProvider {
 		};
 	}
 
+	/**
+	 * 整个 schema 的子节点列表在一次往返中读出，见 {@link PgSchemaPrefetch}；在后台执行，排在交互请求之后
+	 */
+	@Override
+	public Map<TreeListing, List<Map<String, Object>>> prefetchSchema(String connId, Connection connection, String database, String schema) {
+		DbExecutor executor = connectionService.getExecutor(connId, database, WorkPriority.QUERY);
+		if (!(executor instanceof JdbcExecutor jdbc)) {
+			return null;
+		}
+		return jdbc.withConnection(con -> PgSchemaPrefetch.load(con, connId, database, schema));
+	}
+
 	@Override
 	public PgOption getOptions(Connection connection, OptionParam param) {
 		PgOption options = new PgOption();
-		DbExecutor executor = connectionService.getExecutor(connection.getId());
+		DbExecutor executor = connectionService.getExecutor(connection.getId(), null, WorkPriority.INTERACTIVE);
 		try {
 			if (param.getTypes().contains(PgOptionTypeEnum.ENCODINGS)) {
 				// ============= 1. 编码（列出 PG 支持的编码，而不是仅当前库用到的） =============
@@ -174,13 +196,7 @@ public class PostgreSqlMetadataProvider implements MetadataProvider {
                 WHERE schemaname = ? AND tablename NOT LIKE 'pg_%'
                 ORDER BY tablename
                 """;
-		List<Map<String, Object>> rows = exec.queryMapForList(sql, schema);
-		rows.forEach(r -> {
-			String table = (String) r.get("name");
-			r.put("id", connId + "::table/" + database + "/" + schema + "/" + table + "/");
-			r.put("name", table);
-		});
-		return rows;
+		return tableNodes(connId, database, schema, exec.queryMapForList(sql, schema));
 	}
 
 	private List<Map<String, Object>> listColumns(String connId, DbExecutor exec, String[] segs) {
@@ -189,19 +205,19 @@ public class PostgreSqlMetadataProvider implements MetadataProvider {
 		String schema = segs[1];
 		String table = segs[2];
 
+		// 直接查 pg_attribute：information_schema.columns 是多表关联的视图，还要逐行做权限检查，大库上慢得多
 		String sql = """
-                SELECT column_name AS name, data_type, is_nullable
-                FROM information_schema.columns
-                WHERE table_schema = ? AND table_name = ?
-                ORDER BY ordinal_position
+                SELECT a.attname AS name,
+                       format_type(a.atttypid, NULL) AS data_type,
+                       CASE WHEN a.attnotnull THEN 'NO' ELSE 'YES' END AS is_nullable
+                FROM pg_attribute a
+                JOIN pg_class c ON c.oid = a.attrelid
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = ? AND c.relname = ?
+                  AND a.attnum > 0 AND NOT a.attisdropped
+                ORDER BY a.attnum
                 """;
-		List<Map<String, Object>> rows = exec.queryMapForList(sql, schema, table);
-		rows.forEach(r -> {
-			String col = (String) r.get("name");
-			r.put("id", connId + "::column/" + database + "/" + schema + "/" + table + "/" + col);
-			r.put("name", col + " (" + r.get("data_type") + ")");
-		});
-		return rows;
+		return columnNodes(connId, database, schema, table, exec.queryMapForList(sql, schema, table));
 	}
 
 	// ==================== 约束 / 索引 ====================
@@ -231,15 +247,7 @@ public class PostgreSqlMetadataProvider implements MetadataProvider {
                   AND con.contype IN ('p', 'u', 'f', 'c', 'x')
                 ORDER BY con.conname
                 """;
-
-		List<Map<String, Object>> rows = exec.queryMapForList(sql, schema, table);
-		rows.forEach(r -> {
-			String constraintName = (String) r.get("name");
-			String constraintType = (String) r.get("constraint_type");
-			r.put("id", connId + "::constraint/" + database + "/" + schema + "/" + table + "/" + constraintName);
-			r.put("name", constraintName + " [" + constraintType + "]");
-		});
-		return rows;
+		return constraintNodes(connId, database, schema, table, exec.queryMapForList(sql, schema, table));
 	}
 
 	private List<Map<String, Object>> listIndexes(String connId, DbExecutor exec, String[] segs) {
@@ -257,14 +265,7 @@ public class PostgreSqlMetadataProvider implements MetadataProvider {
                   AND tablename = ?
                 ORDER BY indexname
                 """;
-
-		List<Map<String, Object>> rows = exec.queryMapForList(sql, schema, table);
-		rows.forEach(r -> {
-			String indexName = (String) r.get("name");
-			r.put("id", connId + "::index/" + database + "/" + schema + "/" + table + "/" + indexName);
-			r.put("name", indexName);
-		});
-		return rows;
+		return indexNodes(connId, database, schema, table, exec.queryMapForList(sql, schema, table));
 	}
 
 	// ==================== 视图 / 物化视图 / 序列 ====================
@@ -281,14 +282,7 @@ public class PostgreSqlMetadataProvider implements MetadataProvider {
                 WHERE schemaname = ?
                 ORDER BY viewname
                 """;
-
-		List<Map<String, Object>> rows = exec.queryMapForList(sql, schema);
-		rows.forEach(r -> {
-			String view = (String) r.get("name");
-			r.put("id", connId + "::view/" + database + "/" + schema + "/" + view + "/");
-			r.put("name", view);
-		});
-		return rows;
+		return viewNodes(connId, database, schema, exec.queryMapForList(sql, schema));
 	}
 
 	/** 列出某个 schema 下的物化视图 */
@@ -303,14 +297,7 @@ public class PostgreSqlMetadataProvider implements MetadataProvider {
                 WHERE schemaname = ?
                 ORDER BY matviewname
                 """;
-
-		List<Map<String, Object>> rows = exec.queryMapForList(sql, schema);
-		rows.forEach(r -> {
-			String mv = (String) r.get("name");
-			r.put("id", connId + "::matview/" + database + "/" + schema + "/" + mv + "/");
-			r.put("name", mv);
-		});
-		return rows;
+		return materializedViewNodes(connId, database, schema, exec.queryMapForList(sql, schema));
 	}
 
 	/** 列出某个 schema 下的序列 */
@@ -320,19 +307,13 @@ public class PostgreSqlMetadataProvider implements MetadataProvider {
 		String schema = segs[1];
 
 		String sql = """
-                SELECT sequence_name AS name
-                FROM information_schema.sequences
-                WHERE sequence_schema = ?
-                ORDER BY sequence_name
+                SELECT c.relname AS name
+                FROM pg_class c
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = ? AND c.relkind = 'S'
+                ORDER BY c.relname
                 """;
-
-		List<Map<String, Object>> rows = exec.queryMapForList(sql, schema);
-		rows.forEach(r -> {
-			String seq = (String) r.get("name");
-			r.put("id", connId + "::sequence/" + database + "/" + schema + "/" + seq + "/");
-			r.put("name", seq);
-		});
-		return rows;
+		return sequenceNodes(connId, database, schema, exec.queryMapForList(sql, schema));
 	}
 
 	// ==================== 函数 / 存储过程 ====================
@@ -355,20 +336,7 @@ public class PostgreSqlMetadataProvider implements MetadataProvider {
                   AND p.prokind = 'f'
                 ORDER BY p.proname, args
                 """;
-
-		List<Map<String, Object>> rows = exec.queryMapForList(sql, schema);
-		rows.forEach(r -> {
-			String funcName = (String) r.get("name");
-			String args = (String) r.get("args");          // 可能为空字符串
-			String resultType = (String) r.get("result_type");
-
-			String signature = funcName + "(" + (args == null ? "" : args) + ")";
-			r.put("id", connId + "::function/" + database + "/" + schema + "/" + signature);
-
-			String display = signature + " → " + resultType;
-			r.put("name", display);
-		});
-		return rows;
+		return functionNodes(connId, database, schema, exec.queryMapForList(sql, schema));
 	}
 
 	/** 列出某个 schema 下的存储过程（prokind = 'p'） */
@@ -388,8 +356,91 @@ public class PostgreSqlMetadataProvider implements MetadataProvider {
                   AND p.prokind = 'p'
                 ORDER BY p.proname, args
                 """;
+		return procedureNodes(connId, database, schema, exec.queryMapForList(sql, schema));
+	}
+
+	// ==================== 查询结果 -> 树节点（逐个节点查询和整个 schema 预取共用） ====================
+
+	static List<Map<String, Object>> tableNodes(String connId, String database, String schema, List<Map<String, Object>> rows) {
+		rows.forEach(r -> {
+			String table = (String) r.get("name");
+			r.put("id", connId + "::table/" + database + "/" + schema + "/" + table + "/");
+			r.put("name", table);
+		});
+		return rows;
+	}
+
+	static List<Map<String, Object>> columnNodes(String connId, String database, String schema, String table, List<Map<String, Object>> rows) {
+		rows.forEach(r -> {
+			String col = (String) r.get("name");
+			r.put("id", connId + "::column/" + database + "/" + schema + "/" + table + "/" + col);
+			r.put("name", col + " (" + r.get("data_type") + ")");
+		});
+		return rows;
+	}
+
+	static List<Map<String, Object>> constraintNodes(String connId, String database, String schema, String table, List<Map<String, Object>> rows) {
+		rows.forEach(r -> {
+			String constraintName = (String) r.get("name");
+			String constraintType = (String) r.get("constraint_type");
+			r.put("id", connId + "::constraint/" + database + "/" + schema + "/" + table + "/" + constraintName);
+			r.put("name", constraintName + " [" + constraintType + "]");
+		});
+		return rows;
+	}
+
+	static List<Map<String, Object>> indexNodes(String connId, String database, String schema, String table, List<Map<String, Object>> rows) {
+		rows.forEach(r -> {
+			String indexName = (String) r.get("name");
+			r.put("id", connId + "::index/" + database + "/" + schema + "/" + table + "/" + indexName);
+			r.put("name", indexName);
+		});
+		return rows;
+	}
+
+	static List<Map<String, Object>> viewNodes(String connId, String database, String schema, List<Map<String, Object>> rows) {
+		rows.forEach(r -> {
+			String view = (String) r.get("name");
+			r.put("id", connId + "::view/" + database + "/" + schema + "/" + view + "/");
+			r.put("name", view);
+		});
+		return rows;
+	}
+
+	static List<Map<String, Object>> materializedViewNodes(String connId, String database, String schema, List<Map<String, Object>> rows) {
+		rows.forEach(r -> {
+			String mv = (String) r.get("name");
+			r.put("id", connId + "::matview/" + database + "/" + schema + "/" + mv + "/");
+			r.put("name", mv);
+		});
+		return rows;
+	}
+
+	static List<Map<String, Object>> sequenceNodes(String connId, String database, String schema, List<Map<String, Object>> rows) {
+		rows.forEach(r -> {
+			String seq = (String) r.get("name");
+			r.put("id", connId + "::sequence/" + database + "/" + schema + "/" + seq + "/");
+			r.put("name", seq);
+		});
+		return rows;
+	}
+
+	static List<Map<String, Object>> functionNodes(String connId, String database, String schema, List<Map<String, Object>> rows) {
+		rows.forEach(r -> {
+			String funcName = (String) r.get("name");
+			String args = (String) r.get("args");          // 可能为空字符串
+			String resultType = (String) r.get("result_type");
+
+			String signature = funcName + "(" + (args == null ? "" : args) + ")";
+			r.put("id", connId + "::function/" + database + "/" + schema + "/" + signature);
+
+			String display = signature + " → " + resultType;
+			r.put("name", display);
+		});
+		return rows;
+	}
 
-		List<Map<String, Object>> rows = exec.queryMapForList(sql, schema);
+	static List<Map<String, Object>> procedureNodes(String connId, String database, String schema, List<Map<String, Object>> rows) {
 		rows.forEach(r -> {
 			String procName = (String) r.get("name");
 			String args = (String) r.get("args");
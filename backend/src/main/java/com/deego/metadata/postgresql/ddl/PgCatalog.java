@@ -0,0 +1,467 @@
+package com.deego.metadata.postgresql.ddl;
+
+import lombok.Getter;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * 若干 schema 的目录快照，用于生成 DDL。
+ * <p>
+ * 每类对象只有一条集合查询（pg_namespace、pg_class、pg_attribute、pg_constraint、pg_index、pg_proc、pg_trigger、pg_depend 等），
+ * pg_get_viewdef / pg_get_functiondef 之类的函数在查询里逐行调用，往返次数与对象数量无关。
+ * 所有查询在同一个 REPEATABLE READ 只读事务中执行，看到的是同一个快照。扩展创建的对象不包括在内。
+ */
+@Getter
+public final class PgCatalog {
+
+	public record Schema(String name, String comment) {
+	}
+
+	public record Extension(String name, String schema) {
+	}
+
+	/**
+	 * 枚举（kind = e）或域（kind = d）
+	 */
+	public record Type(long oid, String schema, String name, char kind, List<String> labels, String baseType,
+					   boolean notNull, String defaultValue, List<String> checks, String comment) {
+	}
+
+	/**
+	 * 独立的序列，不包括标识列自动创建的序列；ownedBy 为 serial 列所在的表和列名
+	 */
+	public record Sequence(long oid, String schema, String name, String dataType, long start, long increment,
+						   long min, long max, long cache, boolean cycle, Long ownedByTable, String ownedByColumn, String comment) {
+	}
+
+	/**
+	 * 表（r）、分区表（p）、视图（v）和物化视图（m）；parents 为父表 oid，parentNames 为加好引号的父表全名（父表可能不在快照中）
+	 */
+	public record Relation(long oid, String schema, String name, char kind, boolean unlogged, List<Long> parents,
+						   List<String> parentNames, String partitionBound, String partitionKey, List<String> options, String definition, String comment) {
+
+		public boolean isView() {
+			return kind == 'v' || kind == 'm';
+		}
+	}
+
+	/**
+	 * identity 为 a（ALWAYS）/ d（BY DEFAULT），generated 为 s（STORED）/ v（VIRTUAL），没有时为 0；
+	 * local 为 false 表示从父表继承的列
+	 */
+	public record Column(long relid, String name, String type, String collation, boolean notNull, String defaultValue,
+						 char identity, char generated, boolean local, String comment) {
+	}
+
+	/**
+	 * type 为 pg_constraint.contype：p、u、c、f、x
+	 */
+	public record Constraint(long relid, String name, char type, String definition, boolean local, String comment) {
+	}
+
+	public record Index(long relid, String name, String definition, String comment) {
+	}
+
+	public record Trigger(long relid, String name, String definition, String comment) {
+	}
+
+	/**
+	 * 函数（kind = f）或存储过程（kind = p），arguments 为 pg_get_function_identity_arguments，argumentTypes 为只有类型的输入参数列表（函数的标识）
+	 */
+	public record Routine(long oid, String schema, String name, char kind, String arguments, String argumentTypes, String definition, String comment) {
+	}
+
+	private static final String NOT_FROM_EXTENSION = """
+			NOT EXISTS (SELECT 1 FROM pg_depend e WHERE e.classid = '%s'::regclass AND e.objid = %s AND e.deptype = 'e')""";
+
+	private static final String SCHEMAS_SQL = """
+			SELECT n.nspname, d.description
+			FROM pg_namespace n
+			LEFT JOIN pg_description d ON d.objoid = n.oid AND d.classoid = 'pg_namespace'::regclass
+			WHERE n.nspname !~ '^pg_' AND n.nspname <> 'information_schema'
+			  AND (?::text[] IS NULL OR n.nspname = ANY(?::text[]))
+			  AND %s
+			ORDER BY n.nspname
+			""".formatted(NOT_FROM_EXTENSION.formatted("pg_namespace", "n.oid"));
+
+	private static final String EXTENSIONS_SQL = """
+			SELECT e.extname, n.nspname
+			FROM pg_extension e
+			JOIN pg_namespace n ON n.oid = e.extnamespace
+			WHERE e.extname <> 'plpgsql'
+			ORDER BY e.extname
+			""";
+
+	private static final String TYPES_SQL = """
+			SELECT t.oid, n.nspname, t.typname, t.typtype,
+			       ARRAY(SELECT e.enumlabel::text FROM pg_enum e WHERE e.enumtypid = t.oid ORDER BY e.enumsortorder) AS labels,
+			       CASE WHEN t.typtype = 'd' THEN format_type(t.typbasetype, t.typtypmod) END AS base_type,
+			       t.typnotnull, t.typdefault,
+			       ARRAY(SELECT 'CONSTRAINT ' || quote_ident(k.conname) || ' ' || pg_get_constraintdef(k.oid)
+			             FROM pg_constraint k WHERE k.contypid = t.oid AND k.contype = 'c' ORDER BY k.conname) AS checks,
+			       d.description
+			FROM pg_type t
+			JOIN pg_namespace n ON n.oid = t.typnamespace
+			LEFT JOIN pg_description d ON d.objoid = t.oid AND d.classoid = 'pg_type'::regclass
+			WHERE t.typtype IN ('e', 'd') AND n.nspname = ANY(?::text[])
+			  AND %s
+			ORDER BY n.nspname, t.typname
+			""".formatted(NOT_FROM_EXTENSION.formatted("pg_type", "t.oid"));
+
+	private static final String SEQUENCES_SQL = """
+			SELECT c.oid, n.nspname, c.relname, format_type(s.seqtypid, NULL) AS data_type,
+			       s.seqstart, s.seqincrement, s.seqmin, s.seqmax, s.seqcache, s.seqcycle,
+			       o.refobjid AS owned_table, a.attname AS owned_column, d.description
+			FROM pg_sequence s
+			JOIN pg_class c ON c.oid = s.seqrelid
+			JOIN pg_namespace n ON n.oid = c.relnamespace
+			LEFT JOIN pg_depend o ON o.classid = 'pg_class'::regclass AND o.objid = c.oid
+			     AND o.refclassid = 'pg_class'::regclass AND o.deptype = 'a'
+			LEFT JOIN pg_attribute a ON a.attrelid = o.refobjid AND a.attnum = o.refobjsubid
+			LEFT JOIN pg_description d ON d.objoid = c.oid AND d.classoid = 'pg_class'::regclass AND d.objsubid = 0
+			WHERE n.nspname = ANY(?::text[])
+			  AND NOT EXISTS (SELECT 1 FROM pg_depend i WHERE i.classid = 'pg_class'::regclass AND i.objid = c.oid AND i.deptype = 'i')
+			  AND %s
+			ORDER BY n.nspname, c.relname
+			""".formatted(NOT_FROM_EXTENSION.formatted("pg_class", "c.oid"));
+
+	private static final String RELATIONS_SQL = """
+			SELECT c.oid, n.nspname, c.relname, c.relkind, c.relpersistence,
+			       ARRAY(SELECT i.inhparent::bigint FROM pg_inherits i WHERE i.inhrelid = c.oid ORDER BY i.inhseqno) AS parents,
+			       ARRAY(SELECT quote_ident(pn.nspname) || '.' || quote_ident(pc.relname)
+			             FROM pg_inherits i
+			             JOIN pg_class pc ON pc.oid = i.inhparent
+			             JOIN pg_namespace pn ON pn.oid = pc.relnamespace
+			             WHERE i.inhrelid = c.oid ORDER BY i.inhseqno) AS parent_names,
+			       CASE WHEN c.relispartition THEN pg_get_expr(c.relpartbound, c.oid) END AS partition_bound,
+			       CASE WHEN c.relkind = 'p' THEN pg_get_partkeydef(c.oid) END AS partition_key,
+			       c.reloptions,
+			       CASE WHEN c.relkind IN ('v', 'm') THEN pg_get_viewdef(c.oid, true) END AS definition,
+			       d.description
+			FROM pg_class c
+			JOIN pg_namespace n ON n.oid = c.relnamespace
+			LEFT JOIN pg_description d ON d.objoid = c.oid AND d.classoid = 'pg_class'::regclass AND d.objsubid = 0
+			WHERE c.relkind IN ('r', 'p', 'v', 'm') AND n.nspname = ANY(?::text[]) AND (?::text IS NULL OR c.relname = ?)
+			  AND %s
+			ORDER BY n.nspname, c.relname
+			""".formatted(NOT_FROM_EXTENSION.formatted("pg_class", "c.oid"));
+
+	private static final String COLUMNS_SQL = """
+			SELECT a.attrelid, a.attname, format_type(a.atttypid, a.atttypmod) AS type,
+			       CASE WHEN a.attcollation <> t.typcollation THEN quote_ident(cn.nspname) || '.' || quote_ident(co.collname) END AS collation,
+			       a.attnotnull, pg_get_expr(ad.adbin, ad.adrelid) AS default_value, a.attidentity, a.attgenerated, a.attislocal,
+			       d.description
+			FROM pg_attribute a
+			JOIN pg_class c ON c.oid = a.attrelid
+			JOIN pg_namespace n ON n.oid = c.relnamespace
+			JOIN pg_type t ON t.oid = a.atttypid
+			LEFT JOIN pg_attrdef ad ON ad.adrelid = a.attrelid AND ad.adnum = a.attnum
+			LEFT JOIN pg_collation co ON co.oid = a.attcollation
+			LEFT JOIN pg_namespace cn ON cn.oid = co.collnamespace
+			LEFT JOIN pg_description d ON d.objoid = a.attrelid AND d.classoid = 'pg_class'::regclass AND d.objsubid = a.attnum
+			WHERE a.attnum > 0 AND NOT a.attisdropped AND c.relkind IN ('r', 'p', 'v', 'm')
+			  AND n.nspname = ANY(?::text[]) AND (?::text IS NULL OR c.relname = ?)
+			ORDER BY a.attrelid, a.attnum
+			""";
+
+	private static final String CONSTRAINTS_SQL = """
+			SELECT k.conrelid, k.conname, k.contype, pg_get_constraintdef(k.oid) AS definition, k.conislocal, d.description
+			FROM pg_constraint k
+			JOIN pg_class c ON c.oid = k.conrelid
+			JOIN pg_namespace n ON n.oid = c.relnamespace
+			LEFT JOIN pg_description d ON d.objoid = k.oid AND d.classoid = 'pg_constraint'::regclass
+			WHERE k.contype IN ('p', 'u', 'c', 'f', 'x')
+			  AND n.nspname = ANY(?::text[]) AND (?::text IS NULL OR c.relname = ?)
+			ORDER BY k.conrelid, k.contype, k.conname
+			""";
+
+	/**
+	 * 不包括约束自带的索引，也不包括分区上挂到父表索引下的索引（由父表索引自动创建）
+	 */
+	private static final String INDEXES_SQL = """
+			SELECT x.indrelid, i.relname, pg_get_indexdef(x.indexrelid) AS definition, d.description
+			FROM pg_index x
+			JOIN pg_class i ON i.oid = x.indexrelid
+			JOIN pg_class c ON c.oid = x.indrelid
+			JOIN pg_namespace n ON n.oid = c.relnamespace
+			LEFT JOIN pg_description d ON d.objoid = i.oid AND d.classoid = 'pg_class'::regclass AND d.objsubid = 0
+			WHERE c.relkind IN ('r', 'p', 'm') AND n.nspname = ANY(?::text[]) AND (?::text IS NULL OR c.relname = ?)
+			  AND NOT EXISTS (SELECT 1 FROM pg_constraint k WHERE k.conindid = x.indexrelid AND k.contype IN ('p', 'u', 'x'))
+			  AND NOT EXISTS (SELECT 1 FROM pg_inherits h WHERE h.inhrelid = x.indexrelid)
+			ORDER BY x.indrelid, i.relname
+			""";
+
+	/**
+	 * 不包括内部触发器和分区上从父表触发器复制出来的触发器
+	 */
+	private static final String TRIGGERS_SQL = """
+			SELECT t.tgrelid, t.tgname, pg_get_triggerdef(t.oid) AS definition, d.description
+			FROM pg_trigger t
+			JOIN pg_class c ON c.oid = t.tgrelid
+			JOIN pg_namespace n ON n.oid = c.relnamespace
+			LEFT JOIN pg_description d ON d.objoid = t.oid AND d.classoid = 'pg_trigger'::regclass
+			WHERE NOT t.tgisinternal AND n.nspname = ANY(?::text[]) AND (?::text IS NULL OR c.relname = ?)
+			  AND NOT EXISTS (SELECT 1 FROM pg_depend p WHERE p.classid = 'pg_trigger'::regclass AND p.objid = t.oid AND p.deptype IN ('P', 'S'))
+			ORDER BY t.tgrelid, t.tgname
+			""";
+
+	private static final String ROUTINES_SQL = """
+			SELECT p.oid, n.nspname, p.proname, p.prokind, pg_get_function_identity_arguments(p.oid) AS arguments,
+			       oidvectortypes(p.proargtypes) AS argument_types, pg_get_functiondef(p.oid) AS definition, d.description
+			FROM pg_proc p
+			JOIN pg_namespace n ON n.oid = p.pronamespace
+			LEFT JOIN pg_description d ON d.objoid = p.oid AND d.classoid = 'pg_proc'::regclass AND d.objsubid = 0
+			WHERE p.prokind IN ('f', 'p') AND n.nspname = ANY(?::text[])
+			  AND %s
+			ORDER BY n.nspname, p.proname, arguments
+			""".formatted(NOT_FROM_EXTENSION.formatted("pg_proc", "p.oid"));
+
+	/**
+	 * 普通依赖（deptype = n），两端都归并到建表、建视图、建函数或建类型的那条语句上：
+	 * 视图的规则归到视图，列默认值和 CHECK 约束归到表，域约束归到域，依赖表的行类型（或其数组）时归到表。
+	 * 外键在所有表建完之后单独添加，不参与排序。只取用户对象（oid >= 16384）
+	 */
+	private static final String DEPENDENCIES_SQL = """
+			SELECT DISTINCT
+			       CASE d.classid
+			           WHEN 'pg_class'::regclass THEN 'r' || d.objid
+			           WHEN 'pg_rewrite'::regclass THEN 'r' || r.ev_class
+			           WHEN 'pg_attrdef'::regclass THEN 'r' || ad.adrelid
+			           WHEN 'pg_constraint'::regclass THEN COALESCE('r' || NULLIF(k.conrelid, 0), 't' || NULLIF(k.contypid, 0))
+			           WHEN 'pg_proc'::regclass THEN 'p' || d.objid
+			           WHEN 'pg_type'::regclass THEN 't' || d.objid
+			       END AS object,
+			       CASE d.refclassid
+			           WHEN 'pg_class'::regclass THEN 'r' || d.refobjid
+			           WHEN 'pg_proc'::regclass THEN 'p' || d.refobjid
+			           WHEN 'pg_type'::regclass THEN COALESCE('r' || NULLIF(rt.typrelid, 0), 'r' || NULLIF(et.typrelid, 0), 't' || d.refobjid)
+			       END AS referenced
+			FROM pg_depend d
+			LEFT JOIN pg_rewrite r ON d.classid = 'pg_rewrite'::regclass AND r.oid = d.objid
+			LEFT JOIN pg_attrdef ad ON d.classid = 'pg_attrdef'::regclass AND ad.oid = d.objid
+			LEFT JOIN pg_constraint k ON d.classid = 'pg_constraint'::regclass AND k.oid = d.objid AND k.contype <> 'f'
+			LEFT JOIN pg_type rt ON d.refclassid = 'pg_type'::regclass AND rt.oid = d.refobjid
+			LEFT JOIN pg_type et ON et.oid = rt.typelem AND rt.typelem <> 0
+			WHERE d.deptype = 'n' AND d.objid >= 16384 AND d.refobjid >= 16384
+			  AND d.refclassid IN ('pg_class'::regclass, 'pg_proc'::regclass, 'pg_type'::regclass)
+			""";
+
+	private final List<Schema> schemas;
+	private final List<Extension> extensions;
+	private final List<Type> types;
+	private final List<Sequence> sequences;
+	private final List<Relation> relations;
+	private final List<Routine> routines;
+	private final Map<Long, List<Column>> columns;
+	private final Map<Long, List<Constraint>> constraints;
+	private final Map<Long, List<Index>> indexes;
+	private final Map<Long, List<Trigger>> triggers;
+
+	/**
+	 * 对象键（r / p / t 加 oid）到它所依赖的对象键
+	 */
+	private final Map<String, Set<String>> dependencies;
+
+	/**
+	 * 只读取了一张表（{@link #loadTable}）
+	 */
+	private final boolean singleTable;
+
+	PgCatalog(boolean singleTable, List<Schema> schemas, List<Extension> extensions, List<Type> types, List<Sequence> sequences,
+					  List<Relation> relations, List<Routine> routines, Map<Long, List<Column>> columns,
+					  Map<Long, List<Constraint>> constraints, Map<Long, List<Index>> indexes,
+					  Map<Long, List<Trigger>> triggers, Map<String, Set<String>> dependencies) {
+		this.singleTable = singleTable;
+		this.schemas = schemas;
+		this.extensions = extensions;
+		this.types = types;
+		this.sequences = sequences;
+		this.relations = relations;
+		this.routines = routines;
+		this.columns = columns;
+		this.constraints = constraints;
+		this.indexes = indexes;
+		this.triggers = triggers;
+		this.dependencies = dependencies;
+	}
+
+	/**
+	 * 读取整个数据库（除系统 schema 外）的目录
+	 */
+	public static PgCatalog loadDatabase(Connection con) throws SQLException {
+		return load(con, null, null);
+	}
+
+	public static PgCatalog loadSchema(Connection con, String schema) throws SQLException {
+		return load(con, List.of(schema), null);
+	}
+
+	/**
+	 * 只读取一张表（或视图）本身：列、约束、索引和触发器，不包括它引用的序列、类型和函数
+	 */
+	public static PgCatalog loadTable(Connection con, String schema, String table) throws SQLException {
+		return load(con, List.of(schema), table);
+	}
+
+	private static PgCatalog load(Connection con, List<String> schemaFilter, String table) throws SQLException {
+		boolean autoCommit = con.getAutoCommit();
+		int isolation = con.getTransactionIsolation();
+		con.setAutoCommit(false);
+		con.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+		try {
+			try (PreparedStatement ps = con.prepareStatement("SET TRANSACTION READ ONLY")) {
+				ps.execute();
+			}
+			Loader loader = new Loader(con, table);
+			Array filter = schemaFilter == null ? null : con.createArrayOf("text", schemaFilter.toArray());
+			List<Schema> schemas = loader.list(SCHEMAS_SQL, ps -> {
+				ps.setArray(1, filter);
+				ps.setArray(2, filter);
+			}, rs -> new Schema(rs.getString(1), rs.getString(2)));
+			loader.schemas = con.createArrayOf("text", schemas.stream().map(Schema::name).toArray());
+
+			boolean database = schemaFilter == null;
+			boolean wholeSchema = table == null;
+			List<Extension> extensions = database
+					? loader.list(EXTENSIONS_SQL, Binder.NONE, rs -> new Extension(rs.getString(1), rs.getString(2)))
+					: List.of();
+			List<Type> types = wholeSchema ? loader.list(TYPES_SQL, loader::bindSchemas, rs -> new Type(
+					rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4).charAt(0), strings(rs.getArray(5)),
+					rs.getString(6), rs.getBoolean(7), rs.getString(8), strings(rs.getArray(9)), rs.getString(10))) : List.of();
+			List<Sequence> sequences = wholeSchema ? loader.list(SEQUENCES_SQL, loader::bindSchemas, rs -> new Sequence(
+					rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getLong(5), rs.getLong(6),
+					rs.getLong(7), rs.getLong(8), rs.getLong(9), rs.getBoolean(10),
+					rs.getObject(11) == null ? null : rs.getLong(11), rs.getString(12), rs.getString(13))) : List.of();
+			List<Relation> relations = loader.list(RELATIONS_SQL, loader::bindRelations, rs -> new Relation(
+					rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4).charAt(0), "u".equals(rs.getString(5)),
+					longs(rs.getArray(6)), strings(rs.getArray(7)), rs.getString(8), rs.getString(9), strings(rs.getArray(10)),
+					rs.getString(11), rs.getString(12)));
+			List<Routine> routines = wholeSchema ? loader.list(ROUTINES_SQL, loader::bindSchemas, rs -> new Routine(
+					rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4).charAt(0), rs.getString(5),
+					rs.getString(6), rs.getString(7), rs.getString(8))) : List.of();
+			Map<Long, List<Column>> columns = group(loader.list(COLUMNS_SQL, loader::bindRelations, rs -> new Column(
+					rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getBoolean(5), rs.getString(6),
+					flag(rs.getString(7)), flag(rs.getString(8)), rs.getBoolean(9), rs.getString(10))), Column::relid);
+			Map<Long, List<Constraint>> constraints = group(loader.list(CONSTRAINTS_SQL, loader::bindRelations, rs -> new Constraint(
+					rs.getLong(1), rs.getString(2), rs.getString(3).charAt(0), rs.getString(4), rs.getBoolean(5), rs.getString(6))), Constraint::relid);
+			Map<Long, List<Index>> indexes = group(loader.list(INDEXES_SQL, loader::bindRelations, rs -> new Index(
+					rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4))), Index::relid);
+			Map<Long, List<Trigger>> triggers = group(loader.list(TRIGGERS_SQL, loader::bindRelations, rs -> new Trigger(
+					rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4))), Trigger::relid);
+			Map<String, Set<String>> dependencies = new HashMap<>();
+			if (wholeSchema) {
+				for (String[] edge : loader.list(DEPENDENCIES_SQL, Binder.NONE, rs -> new String[]{rs.getString(1), rs.getString(2)})) {
+					if (edge[0] != null && edge[1] != null && !edge[0].equals(edge[1])) {
+						dependencies.computeIfAbsent(edge[0], k -> new HashSet<>()).add(edge[1]);
+					}
+				}
+			}
+			con.commit();
+			return new PgCatalog(!wholeSchema, schemas, extensions, types, sequences, relations, routines,
+					columns, constraints, indexes, triggers, dependencies);
+		} catch (SQLException | RuntimeException e) {
+			con.rollback();
+			throw e;
+		} finally {
+			con.setTransactionIsolation(isolation);
+			con.setAutoCommit(autoCommit);
+		}
+	}
+
+	/**
+	 * 对象总数（schema、类型、序列、表和视图、函数、索引、约束、触发器），用于日志和提示
+	 */
+	public int getObjectCount() {
+		return schemas.size() + types.size() + sequences.size() + relations.size() + routines.size()
+				+ indexes.values().stream().mapToInt(List::size).sum()
+				+ constraints.values().stream().mapToInt(List::size).sum()
+				+ triggers.values().stream().mapToInt(List::size).sum();
+	}
+
+	private static <T> Map<Long, List<T>> group(List<T> items, ToLongFunction<T> key) {
+		Map<Long, List<T>> grouped = new LinkedHashMap<>();
+		for (T item : items) {
+			grouped.computeIfAbsent(key.applyAsLong(item), k -> new ArrayList<>()).add(item);
+		}
+		return grouped;
+	}
+
+	private static char flag(String value) {
+		return value == null || value.isEmpty() ? 0 : value.charAt(0);
+	}
+
+	private static List<String> strings(Array array) throws SQLException {
+		return array == null ? List.of() : Arrays.asList((String[]) array.getArray());
+	}
+
+	private static List<Long> longs(Array array) throws SQLException {
+		return array == null ? List.of() : Arrays.asList((Long[]) array.getArray());
+	}
+
+	@FunctionalInterface
+	private interface Binder {
+
+		Binder NONE = ps -> {
+		};
+
+		void bind(PreparedStatement ps) throws SQLException;
+	}
+
+	@FunctionalInterface
+	private interface Mapper<T> {
+		T map(ResultSet rs) throws SQLException;
+	}
+
+	/**
+	 * 同一个连接上依次执行各条目录查询
+	 */
+	private static class Loader {
+
+		private final Connection con;
+		private final String table;
+		private Array schemas;
+
+		Loader(Connection con, String table) {
+			this.con = con;
+			this.table = table;
+		}
+
+		void bindSchemas(PreparedStatement ps) throws SQLException {
+			ps.setArray(1, schemas);
+		}
+
+		void bindRelations(PreparedStatement ps) throws SQLException {
+			ps.setArray(1, schemas);
+			ps.setString(2, table);
+			ps.setString(3, table);
+		}
+
+		<T> List<T> list(String sql, Binder binder, Mapper<T> mapper) throws SQLException {
+			try (PreparedStatement ps = con.prepareStatement(sql)) {
+				binder.bind(ps);
+				// 大库的 pg_attribute / pg_depend 结果按批拉取
+				ps.setFetchSize(5000);
+				List<T> items = new ArrayList<>();
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						items.add(mapper.map(rs));
+					}
+				}
+				return items;
+			}
+		}
+	}
+}
@@ -0,0 +1,368 @@
+package com.deego.metadata.postgresql.ddl;
+
+import com.deego.enums.DatabaseType;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Column;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Constraint;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Index;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Relation;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Routine;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Schema;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Sequence;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Trigger;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Type;
+import com.deego.utils.SqlUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 在内存中由 {@link PgCatalog} 生成 DDL 脚本，不再访问数据库。
+ * <p>
+ * 顺序：扩展、schema，然后按依赖拓扑排序的类型、序列、函数、表和视图（没有依赖关系时按这个先后），
+ * 最后是序列的 OWNED BY、索引、外键、触发器和注释。函数体不做检查（check_function_bodies = false），
+ * 与 pg_dump 一样可以先于它引用的表创建；依赖成环时按上面的先后打破。
+ */
+public final class PgDdlGenerator {
+
+	private final PgCatalog catalog;
+	private final Appendable out;
+	private final Map<Long, Relation> relationsByOid = new HashMap<>();
+
+	PgDdlGenerator(PgCatalog catalog, Appendable out) {
+		this.catalog = catalog;
+		this.out = out;
+		catalog.getRelations().forEach(r -> relationsByOid.put(r.oid(), r));
+	}
+
+	/**
+	 * 写出整个快照的 DDL
+	 */
+	public static void write(PgCatalog catalog, Appendable out) throws IOException {
+		new PgDdlGenerator(catalog, out).write();
+	}
+
+	/**
+	 * 返回整个快照的 DDL
+	 */
+	public static String generate(PgCatalog catalog) {
+		StringBuilder sb = new StringBuilder();
+		try {
+			write(catalog, sb);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return sb.toString();
+	}
+
+	private void write() throws IOException {
+		if (!catalog.getRoutines().isEmpty()) {
+			out.append("SET check_function_bodies = false;\n\n");
+		}
+		for (PgCatalog.Extension extension : catalog.getExtensions()) {
+			out.append("CREATE EXTENSION IF NOT EXISTS ").append(ident(extension.name()))
+			   .append(" WITH SCHEMA ").append(ident(extension.schema())).append(";\n");
+		}
+		if (!catalog.isSingleTable()) {
+			for (Schema schema : catalog.getSchemas()) {
+				out.append("CREATE SCHEMA IF NOT EXISTS ").append(ident(schema.name())).append(";\n");
+			}
+			out.append('\n');
+		}
+
+		for (Node node : sortedNodes()) {
+			switch (node.object()) {
+				case Type type -> writeType(type);
+				case Sequence sequence -> writeSequence(sequence);
+				case Routine routine -> out.append(routine.definition().stripTrailing()).append(";\n\n");
+				case Relation relation when relation.isView() -> writeView(relation, false);
+				case Relation relation -> writeTable(relation);
+				default -> throw new IllegalStateException("Unexpected object " + node.object());
+			}
+		}
+
+		for (Sequence sequence : catalog.getSequences()) {
+			Relation owner = sequence.ownedByTable() == null ? null : relationsByOid.get(sequence.ownedByTable());
+			if (owner != null) {
+				out.append("ALTER SEQUENCE ").append(name(sequence.schema(), sequence.name())).append(" OWNED BY ")
+				   .append(name(owner)).append('.').append(ident(sequence.ownedByColumn())).append(";\n");
+			}
+		}
+		for (Relation relation : catalog.getRelations()) {
+			for (Index index : catalog.getIndexes().getOrDefault(relation.oid(), List.of())) {
+				out.append(index(relation, index)).append(";\n");
+			}
+		}
+		for (Relation relation : catalog.getRelations()) {
+			for (Constraint constraint : constraints(relation)) {
+				if (constraint.type() == 'f') {
+					out.append(addConstraint(relation, constraint)).append(";\n");
+				}
+			}
+		}
+		for (Relation relation : catalog.getRelations()) {
+			for (Trigger trigger : catalog.getTriggers().getOrDefault(relation.oid(), List.of())) {
+				out.append(trigger.definition()).append(";\n");
+			}
+		}
+		out.append('\n');
+		writeComments();
+	}
+
+	/**
+	 * 类型、序列、函数、表和视图按依赖做拓扑排序；同一时刻可以输出的对象中按种类、schema、名称取最小的，结果稳定
+	 */
+	List<Node> sortedNodes() {
+		Map<String, Node> nodes = new HashMap<>();
+		catalog.getTypes().forEach(t -> nodes.put("t" + t.oid(), new Node(t.kind() == 'e' ? 0 : 1, t.schema(), t.name(), t)));
+		catalog.getSequences().forEach(s -> nodes.put("r" + s.oid(), new Node(2, s.schema(), s.name(), s)));
+		catalog.getRoutines().forEach(r -> nodes.put("p" + r.oid(), new Node(3, r.schema(), r.name() + "(" + r.arguments() + ")", r)));
+		catalog.getRelations().forEach(r -> nodes.put("r" + r.oid(), new Node(r.isView() ? 5 : 4, r.schema(), r.name(), r)));
+
+		Map<String, Set<String>> dependencies = new HashMap<>();
+		catalog.getDependencies().forEach((key, refs) -> {
+			if (nodes.containsKey(key)) {
+				refs.stream().filter(nodes::containsKey).forEach(ref -> dependencies.computeIfAbsent(key, k -> new HashSet<>()).add(ref));
+			}
+		});
+		// 子表（继承或分区）在父表之后
+		for (Relation relation : catalog.getRelations()) {
+			for (Long parent : relation.parents()) {
+				if (relationsByOid.containsKey(parent)) {
+					dependencies.computeIfAbsent("r" + relation.oid(), k -> new HashSet<>()).add("r" + parent);
+				}
+			}
+		}
+
+		Map<String, Integer> pending = new HashMap<>();
+		Map<String, List<String>> dependents = new HashMap<>();
+		nodes.keySet().forEach(key -> pending.put(key, 0));
+		dependencies.forEach((key, refs) -> {
+			pending.put(key, refs.size());
+			refs.forEach(ref -> dependents.computeIfAbsent(ref, k -> new ArrayList<>()).add(key));
+		});
+
+		Comparator<String> order = Comparator.comparing(nodes::get, Node.ORDER);
+		PriorityQueue<String> ready = new PriorityQueue<>(order);
+		pending.forEach((key, count) -> {
+			if (count == 0) {
+				ready.add(key);
+			}
+		});
+		List<Node> sorted = new ArrayList<>(nodes.size());
+		Set<String> emitted = new HashSet<>();
+		while (emitted.size() < nodes.size()) {
+			String key = ready.poll();
+			if (key == null) {
+				// 剩下的对象互相依赖，取顺序最小的一个先输出
+				key = pending.keySet().stream().filter(k -> !emitted.contains(k)).min(order).orElseThrow();
+			}
+			if (!emitted.add(key)) {
+				continue;
+			}
+			sorted.add(nodes.get(key));
+			for (String dependent : dependents.getOrDefault(key, List.of())) {
+				if (!emitted.contains(dependent) && pending.merge(dependent, -1, Integer::sum) == 0) {
+					ready.add(dependent);
+				}
+			}
+		}
+		return sorted;
+	}
+
+	void writeType(Type type) throws IOException {
+		String name = name(type.schema(), type.name());
+		if (type.kind() == 'e') {
+			out.append("CREATE TYPE ").append(name).append(" AS ENUM (")
+			   .append(String.join(", ", type.labels().stream().map(PgDdlGenerator::literal).toList())).append(");\n\n");
+			return;
+		}
+		out.append("CREATE DOMAIN ").append(name).append(" AS ").append(type.baseType());
+		if (type.defaultValue() != null) {
+			out.append(" DEFAULT ").append(type.defaultValue());
+		}
+		if (type.notNull()) {
+			out.append(" NOT NULL");
+		}
+		for (String check : type.checks()) {
+			out.append(' ').append(check);
+		}
+		out.append(";\n\n");
+	}
+
+	void writeSequence(Sequence sequence) throws IOException {
+		out.append("CREATE SEQUENCE ").append(name(sequence.schema(), sequence.name()))
+		   .append(" AS ").append(sequence.dataType())
+		   .append(" START WITH ").append(String.valueOf(sequence.start()))
+		   .append(" INCREMENT BY ").append(String.valueOf(sequence.increment()))
+		   .append(" MINVALUE ").append(String.valueOf(sequence.min()))
+		   .append(" MAXVALUE ").append(String.valueOf(sequence.max()))
+		   .append(" CACHE ").append(String.valueOf(sequence.cache()))
+		   .append(sequence.cycle() ? " CYCLE" : "").append(";\n\n");
+	}
+
+	/**
+	 * replace 时写成 CREATE OR REPLACE VIEW（物化视图不支持）
+	 */
+	void writeView(Relation view, boolean replace) throws IOException {
+		out.append(view.kind() == 'm' ? "CREATE MATERIALIZED VIEW " : replace ? "CREATE OR REPLACE VIEW " : "CREATE VIEW ").append(name(view));
+		if (!view.options().isEmpty()) {
+			out.append(" WITH (").append(String.join(", ", view.options())).append(')');
+		}
+		out.append(" AS\n").append(stripSemicolon(view.definition()));
+		out.append(view.kind() == 'm' ? "\nWITH NO DATA;\n\n" : ";\n\n");
+	}
+
+	void writeTable(Relation table) throws IOException {
+		List<String> elements = new ArrayList<>();
+		boolean partition = table.partitionBound() != null;
+		for (Column column : catalog.getColumns().getOrDefault(table.oid(), List.of())) {
+			if (column.local() && !partition) {
+				elements.add(column(column));
+			}
+		}
+		for (Constraint constraint : constraints(table)) {
+			if (constraint.type() != 'f') {
+				elements.add("CONSTRAINT " + ident(constraint.name()) + " " + constraint.definition());
+			}
+		}
+
+		out.append(table.unlogged() ? "CREATE UNLOGGED TABLE " : "CREATE TABLE ").append(name(table));
+		if (partition) {
+			out.append(" PARTITION OF ").append(table.parentNames().get(0));
+		}
+		if (!elements.isEmpty() || !partition) {
+			out.append(" (\n    ").append(String.join(",\n    ", elements)).append("\n)");
+		}
+		if (partition) {
+			out.append(' ').append(table.partitionBound());
+		} else if (!table.parents().isEmpty()) {
+			out.append(" INHERITS (")
+			   .append(String.join(", ", table.parentNames()))
+			   .append(')');
+		}
+		if (table.partitionKey() != null) {
+			out.append(" PARTITION BY ").append(table.partitionKey());
+		}
+		if (!table.options().isEmpty()) {
+			out.append(" WITH (").append(String.join(", ", table.options())).append(')');
+		}
+		out.append(";\n\n");
+	}
+
+	static String column(Column column) {
+		StringBuilder sb = new StringBuilder(ident(column.name())).append(' ').append(column.type());
+		if (column.collation() != null) {
+			sb.append(" COLLATE ").append(column.collation());
+		}
+		if (column.generated() != 0) {
+			sb.append(" GENERATED ALWAYS AS (").append(column.defaultValue()).append(column.generated() == 'v' ? ") VIRTUAL" : ") STORED");
+		} else if (column.defaultValue() != null) {
+			sb.append(" DEFAULT ").append(column.defaultValue());
+		}
+		if (column.notNull()) {
+			sb.append(" NOT NULL");
+		}
+		if (column.identity() != 0) {
+			sb.append(column.identity() == 'a' ? " GENERATED ALWAYS AS IDENTITY" : " GENERATED BY DEFAULT AS IDENTITY");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 分区表上的索引去掉 ONLY，由 PostgreSQL 在各分区上建好并挂到父索引下
+	 */
+	static String index(Relation relation, Index index) {
+		return relation.kind() == 'p' ? index.definition().replaceFirst(" ON ONLY ", " ON ") : index.definition();
+	}
+
+	static String addConstraint(Relation relation, Constraint constraint) {
+		return "ALTER TABLE " + name(relation) + " ADD CONSTRAINT " + ident(constraint.name()) + " " + constraint.definition();
+	}
+
+	/**
+	 * 只取本表定义的约束，继承来的由父表带过来
+	 */
+	List<Constraint> constraints(Relation relation) {
+		return catalog.getConstraints().getOrDefault(relation.oid(), List.of()).stream().filter(Constraint::local).toList();
+	}
+
+	private void writeComments() throws IOException {
+		for (Schema schema : catalog.isSingleTable() ? List.<Schema>of() : catalog.getSchemas()) {
+			comment("SCHEMA " + ident(schema.name()), schema.comment());
+		}
+		for (Type type : catalog.getTypes()) {
+			comment((type.kind() == 'e' ? "TYPE " : "DOMAIN ") + name(type.schema(), type.name()), type.comment());
+		}
+		for (Sequence sequence : catalog.getSequences()) {
+			comment("SEQUENCE " + name(sequence.schema(), sequence.name()), sequence.comment());
+		}
+		for (Routine routine : catalog.getRoutines()) {
+			comment((routine.kind() == 'p' ? "PROCEDURE " : "FUNCTION ") + name(routine.schema(), routine.name())
+					+ "(" + routine.arguments() + ")", routine.comment());
+		}
+		for (Relation relation : catalog.getRelations()) {
+			String kind = switch (relation.kind()) {
+				case 'v' -> "VIEW ";
+				case 'm' -> "MATERIALIZED VIEW ";
+				default -> "TABLE ";
+			};
+			comment(kind + name(relation), relation.comment());
+			for (Column column : catalog.getColumns().getOrDefault(relation.oid(), List.of())) {
+				comment("COLUMN " + name(relation) + "." + ident(column.name()), column.comment());
+			}
+			for (Constraint constraint : constraints(relation)) {
+				comment("CONSTRAINT " + ident(constraint.name()) + " ON " + name(relation), constraint.comment());
+			}
+			for (Index index : catalog.getIndexes().getOrDefault(relation.oid(), List.of())) {
+				comment("INDEX " + name(relation.schema(), index.name()), index.comment());
+			}
+			for (Trigger trigger : catalog.getTriggers().getOrDefault(relation.oid(), List.of())) {
+				comment("TRIGGER " + ident(trigger.name()) + " ON " + name(relation), trigger.comment());
+			}
+		}
+	}
+
+	private void comment(String target, String comment) throws IOException {
+		if (comment != null) {
+			out.append("COMMENT ON ").append(target).append(" IS ").append(literal(comment)).append(";\n");
+		}
+	}
+
+	static String name(Relation relation) {
+		return name(relation.schema(), relation.name());
+	}
+
+	static String name(String schema, String name) {
+		return SqlUtils.qualifiedName(DatabaseType.POSTGRESQL, schema, name);
+	}
+
+	static String ident(String name) {
+		return SqlUtils.quoteIdent(name);
+	}
+
+	static String literal(String value) {
+		return "'" + value.replace("'", "''") + "'";
+	}
+
+	private static String stripSemicolon(String definition) {
+		String trimmed = definition.stripTrailing();
+		return trimmed.endsWith(";") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+	}
+
+	/**
+	 * 参与排序的对象；rank 为没有依赖关系时的先后：枚举、域、序列、函数、表、视图
+	 */
+	record Node(int rank, String schema, String name, Object object) {
+
+		static final Comparator<Node> ORDER = Comparator.comparingInt(Node::rank)
+														.thenComparing(Node::schema)
+														.thenComparing(Node::name);
+	}
+}
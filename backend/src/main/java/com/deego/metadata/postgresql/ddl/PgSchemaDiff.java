@@ -0,0 +1,920 @@
+package com.deego.metadata.postgresql.ddl;
+
+import com.deego.metadata.postgresql.ddl.PgCatalog.Column;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Constraint;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Extension;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Index;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Relation;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Routine;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Schema;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Sequence;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Trigger;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Type;
+import com.deego.metadata.postgresql.ddl.PgDdlGenerator.Node;
+import com.deego.metadata.postgresql.ddl.SchemaCompareResult.Difference;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+import static com.deego.metadata.postgresql.ddl.PgDdlGenerator.ident;
+import static com.deego.metadata.postgresql.ddl.PgDdlGenerator.literal;
+import static com.deego.metadata.postgresql.ddl.PgDdlGenerator.name;
+
+/**
+ * 在内存中比较两份 {@link PgCatalog} 快照，得到差异列表和把目标改成与源一致的迁移脚本，不再访问数据库。
+ * <p>
+ * 对象按 schema 和名称对应（函数再加参数类型，列、约束和触发器加所在的表），与两端的 oid 无关。
+ * 新建对象的语句由 {@link PgDdlGenerator} 按源快照生成，与导出 DDL 完全相同；两端都有的表逐项生成 ALTER TABLE，
+ * 同一张表的修改合并成一条语句，多个列改类型时只重写一次表。
+ * <p>
+ * 脚本顺序：创建 schema 和扩展；删除触发器和外键，按目标快照的依赖逆序删除表、视图、函数、序列和类型，再删除索引、约束和列；
+ * 按源快照的依赖顺序创建或修改类型、序列、函数、表和视图；最后是 OWNED BY、索引、外键、触发器和注释。
+ * 每条删除表或列的语句前有一行 {@code -- WARNING: data loss} 注释。
+ * 视图不能 CREATE OR REPLACE（删除或改变了已有的列）、或者依赖的表删除了列或改了列类型时，连同依赖它的视图一起删除后重建；
+ * 函数的参数名、默认值或返回类型变化时同样删除后重建。枚举删除或调整取值、域的基础类型、分区和继承关系的变化不会自动迁移，只记入 warnings。
+ */
+public final class PgSchemaDiff {
+
+	private final PgCatalog source;
+	private final PgCatalog target;
+	private final SchemaCompareResult result = new SchemaCompareResult();
+
+	private final StringBuilder header = new StringBuilder();
+	private final StringBuilder drops = new StringBuilder();
+	private final StringBuilder body = new StringBuilder();
+	private final StringBuilder tail = new StringBuilder();
+
+	/**
+	 * 按源快照生成建对象的语句，写入 body
+	 */
+	private final PgDdlGenerator generator;
+
+	private final Map<String, Relation> sourceRelations;
+	private final Map<String, Relation> targetRelations;
+	private final Map<Long, Relation> sourceByOid;
+	private final Map<Long, Relation> targetByOid;
+	private final Map<String, Type> sourceTypes;
+	private final Map<String, Type> targetTypes;
+	private final Map<String, Sequence> sourceSequences;
+	private final Map<String, Sequence> targetSequences;
+	private final Map<String, Routine> sourceRoutines;
+	private final Map<String, Routine> targetRoutines;
+	private final Map<String, Index> sourceIndexes = new HashMap<>();
+	private final Map<String, Index> targetIndexes = new HashMap<>();
+
+	/**
+	 * 目标中要删除的表和视图、函数、序列（包括删除后按源快照重建的）
+	 */
+	private final Set<String> droppedRelations = new HashSet<>();
+	private final Set<String> droppedRoutines = new HashSet<>();
+	private final Set<String> droppedSequences = new HashSet<>();
+
+	/**
+	 * 脚本中新建或重建的对象，比较注释时按目标中没有处理
+	 */
+	private final Set<String> created = new HashSet<>();
+
+	private final List<String> removedSchemas = new ArrayList<>();
+	private final List<String> removedExtensions = new ArrayList<>();
+	private boolean routinesWritten;
+
+	private PgSchemaDiff(PgCatalog source, PgCatalog target) {
+		this.source = source;
+		this.target = target;
+		this.generator = new PgDdlGenerator(source, body);
+		sourceRelations = byKey(source.getRelations(), PgDdlGenerator::name);
+		targetRelations = byKey(target.getRelations(), PgDdlGenerator::name);
+		sourceByOid = byKey(source.getRelations(), Relation::oid);
+		targetByOid = byKey(target.getRelations(), Relation::oid);
+		sourceTypes = byKey(source.getTypes(), t -> name(t.schema(), t.name()));
+		targetTypes = byKey(target.getTypes(), t -> name(t.schema(), t.name()));
+		sourceSequences = byKey(source.getSequences(), s -> name(s.schema(), s.name()));
+		targetSequences = byKey(target.getSequences(), s -> name(s.schema(), s.name()));
+		sourceRoutines = byKey(source.getRoutines(), PgSchemaDiff::key);
+		targetRoutines = byKey(target.getRoutines(), PgSchemaDiff::key);
+		indexesByName(source, sourceIndexes);
+		indexesByName(target, targetIndexes);
+	}
+
+	/**
+	 * 比较 source（期望的结构，如开发库）和 target（要迁移的库，如生产库），脚本执行后 target 与 source 一致
+	 */
+	public static SchemaCompareResult compare(PgCatalog source, PgCatalog target) {
+		return new PgSchemaDiff(source, target).compare();
+	}
+
+	private SchemaCompareResult compare() {
+		try {
+			schemasAndExtensions();
+			planDrops();
+			writeDrops();
+			writeObjects();
+			writeTail();
+			writeComments();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		StringBuilder script = new StringBuilder();
+		if (routinesWritten) {
+			script.append("SET check_function_bodies = false;\n\n");
+		}
+		for (StringBuilder section : List.of(header, drops, body, tail)) {
+			if (!section.isEmpty()) {
+				script.append(section).append(section.toString().endsWith("\n\n") ? "" : "\n");
+			}
+		}
+		result.setScript(script.toString().stripTrailing() + (script.isEmpty() ? "" : "\n"));
+		result.setIdentical(result.getDifferences().isEmpty());
+		result.setSourceObjects(source.getObjectCount());
+		result.setTargetObjects(target.getObjectCount());
+		return result;
+	}
+
+	private void schemasAndExtensions() {
+		Map<String, Schema> targetSchemas = byKey(target.getSchemas(), Schema::name);
+		for (Schema schema : source.getSchemas()) {
+			if (targetSchemas.remove(schema.name()) == null) {
+				header.append("CREATE SCHEMA ").append(ident(schema.name())).append(";\n");
+				created.add("n:" + schema.name());
+				diff("added", "schema", schema.name(), null);
+			}
+		}
+		targetSchemas.keySet().stream().sorted().forEach(schema -> {
+			removedSchemas.add(schema);
+			diff("removed", "schema", schema, null);
+		});
+
+		// 只有比较整个库时两端才读取了扩展
+		Map<String, Extension> targetExtensions = byKey(target.getExtensions(), Extension::name);
+		for (Extension extension : source.getExtensions()) {
+			Extension old = targetExtensions.remove(extension.name());
+			if (old == null) {
+				header.append("CREATE EXTENSION IF NOT EXISTS ").append(ident(extension.name()))
+					  .append(" WITH SCHEMA ").append(ident(extension.schema())).append(";\n");
+				diff("added", "extension", extension.name(), null);
+			} else if (!old.schema().equals(extension.schema())) {
+				header.append("ALTER EXTENSION ").append(ident(extension.name()))
+					  .append(" SET SCHEMA ").append(ident(extension.schema())).append(";\n");
+				diff("changed", "extension", extension.name(), "schema " + old.schema() + " -> " + extension.schema());
+			}
+		}
+		targetExtensions.keySet().stream().sorted().forEach(extension -> {
+			removedExtensions.add(extension);
+			diff("removed", "extension", extension, null);
+		});
+	}
+
+	/**
+	 * 确定目标中要删除的表、视图、函数和序列。删除的对象、删除了列或改了列类型的表、要重建的函数和删除的类型，
+	 * 沿目标快照的依赖关系找出依赖它们的视图，这些视图也先删除，再按源快照重建
+	 */
+	private void planDrops() {
+		Set<String> seeds = new HashSet<>();
+		for (Relation old : target.getRelations()) {
+			Relation relation = sourceRelations.get(name(old));
+			if (relation == null || relation.kind() != old.kind() || relation.isView() && viewChanged(relation, old) && !replaceable(relation, old)) {
+				droppedRelations.add(name(old));
+				seeds.add("r" + old.oid());
+			} else if (!old.isView() && columnsRewritten(relation, old)) {
+				seeds.add("r" + old.oid());
+			}
+		}
+		for (Routine old : target.getRoutines()) {
+			Routine routine = sourceRoutines.get(key(old));
+			if (routine == null || routine.kind() != old.kind() || !signature(routine).equals(signature(old))) {
+				droppedRoutines.add(key(old));
+				seeds.add("p" + old.oid());
+			}
+		}
+		for (Type old : target.getTypes()) {
+			if (!sourceTypes.containsKey(name(old.schema(), old.name()))) {
+				seeds.add("t" + old.oid());
+			}
+		}
+
+		Map<String, List<String>> dependents = new HashMap<>();
+		target.getDependencies().forEach((key, refs) -> refs.forEach(ref -> dependents.computeIfAbsent(ref, k -> new ArrayList<>()).add(key)));
+		Deque<String> queue = new ArrayDeque<>(seeds);
+		Set<String> visited = new HashSet<>(seeds);
+		while (!queue.isEmpty()) {
+			for (String dependent : dependents.getOrDefault(queue.poll(), List.of())) {
+				Relation view = dependent.startsWith("r") ? targetByOid.get(Long.parseLong(dependent.substring(1))) : null;
+				if (view != null && view.isView() && visited.add(dependent)) {
+					droppedRelations.add(name(view));
+					queue.add(dependent);
+				}
+			}
+		}
+
+		// 属于被删除的表或列的序列会随之删除，源中还有时需要重建
+		for (Sequence old : target.getSequences()) {
+			Relation owner = old.ownedByTable() == null ? null : targetByOid.get(old.ownedByTable());
+			if (owner != null && (droppedRelations.contains(name(owner)) || columnDropped(owner, old.ownedByColumn()))) {
+				droppedSequences.add(name(old.schema(), old.name()));
+			}
+		}
+	}
+
+	private void writeDrops() {
+		// 触发器和外键先删，后面删表、改列时不会被挡住
+		for (Relation old : target.getRelations()) {
+			Relation relation = sourceRelations.get(name(old));
+			boolean dropped = droppedRelations.contains(name(old));
+			Map<String, Trigger> triggers = relation == null ? Map.of() : byKey(source.getTriggers().getOrDefault(relation.oid(), List.of()), Trigger::name);
+			for (Trigger trigger : dropped ? List.<Trigger>of() : target.getTriggers().getOrDefault(old.oid(), List.of())) {
+				Trigger now = triggers.get(trigger.name());
+				if (now == null || !now.definition().equals(trigger.definition())) {
+					drops.append("DROP TRIGGER ").append(ident(trigger.name())).append(" ON ").append(name(old)).append(";\n");
+					removed(now, "trigger", display(old) + "." + trigger.name());
+				}
+			}
+			Map<String, Constraint> constraints = relation == null ? Map.of() : localConstraints(source, relation);
+			for (Constraint constraint : localConstraints(target, old).values()) {
+				Constraint now = constraints.get(constraint.name());
+				if (constraint.type() == 'f' && (dropped || now == null || !now.definition().equals(constraint.definition()))) {
+					drops.append("ALTER TABLE ").append(name(old)).append(" DROP CONSTRAINT ").append(ident(constraint.name())).append(";\n");
+					if (relation != null) {
+						removed(now, "constraint", display(old) + "." + constraint.name());
+					}
+				}
+			}
+		}
+
+		// 依赖者在前：分区和子表先于父表，视图先于它引用的表和函数
+		List<Node> nodes = new PgDdlGenerator(target, new StringBuilder()).sortedNodes();
+		for (int i = nodes.size() - 1; i >= 0; i--) {
+			switch (nodes.get(i).object()) {
+				case Relation old when droppedRelations.contains(name(old)) -> {
+					if (!old.isView()) {
+						dataLoss("drops table " + display(old) + " with all of its rows");
+					}
+					drops.append(switch (old.kind()) {
+						case 'v' -> "DROP VIEW ";
+						case 'm' -> "DROP MATERIALIZED VIEW ";
+						default -> "DROP TABLE ";
+					}).append(name(old)).append(";\n");
+					if (!sourceRelations.containsKey(name(old))) {
+						diff("removed", kind(old), display(old), null);
+					}
+				}
+				case Routine old when droppedRoutines.contains(key(old)) -> {
+					drops.append(old.kind() == 'p' ? "DROP PROCEDURE " : "DROP FUNCTION ").append(key(old)).append(";\n");
+					if (!sourceRoutines.containsKey(key(old))) {
+						diff("removed", old.kind() == 'p' ? "procedure" : "function", old.schema() + "." + old.name() + "(" + old.arguments() + ")", null);
+					}
+				}
+				case Sequence old when !sourceSequences.containsKey(name(old.schema(), old.name())) -> {
+					if (!droppedSequences.contains(name(old.schema(), old.name()))) {
+						drops.append("DROP SEQUENCE ").append(name(old.schema(), old.name())).append(";\n");
+					}
+					diff("removed", "sequence", old.schema() + "." + old.name(), null);
+				}
+				case Type old when !sourceTypes.containsKey(name(old.schema(), old.name())) -> {
+					drops.append(old.kind() == 'e' ? "DROP TYPE " : "DROP DOMAIN ").append(name(old.schema(), old.name())).append(";\n");
+					diff("removed", old.kind() == 'e' ? "type" : "domain", old.schema() + "." + old.name(), null);
+				}
+				default -> {
+				}
+			}
+		}
+
+		for (Relation old : target.getRelations()) {
+			if (droppedRelations.contains(name(old)) || old.kind() == 'v') {
+				continue;
+			}
+			Relation relation = sourceRelations.get(name(old));
+			for (Index index : target.getIndexes().getOrDefault(old.oid(), List.of())) {
+				Index now = sourceIndexes.get(name(old.schema(), index.name()));
+				if (now == null || !now.definition().equals(index.definition())) {
+					drops.append("DROP INDEX ").append(name(old.schema(), index.name())).append(";\n");
+					removed(now, "index", old.schema() + "." + index.name());
+				}
+			}
+			Map<String, Constraint> constraints = localConstraints(source, relation);
+			for (Constraint constraint : localConstraints(target, old).values()) {
+				Constraint now = constraints.get(constraint.name());
+				if (constraint.type() != 'f' && (now == null || !now.definition().equals(constraint.definition()))) {
+					drops.append("ALTER TABLE ").append(name(old)).append(" DROP CONSTRAINT ").append(ident(constraint.name())).append(";\n");
+					removed(now, "constraint", display(old) + "." + constraint.name());
+				}
+			}
+			Map<String, Column> columns = localColumns(source, relation);
+			for (Column column : old.isView() ? List.<Column>of() : localColumns(target, old).values()) {
+				Column now = columns.get(column.name());
+				if (now == null || recreated(now, column)) {
+					dataLoss(now == null ? "drops column " + display(old) + "." + column.name() + " with its values"
+							: "drops and re-adds column " + display(old) + "." + column.name() + ", existing values are not kept");
+					drops.append("ALTER TABLE ").append(name(old)).append(" DROP COLUMN ").append(ident(column.name())).append(";\n");
+					removed(now, "column", display(old) + "." + column.name());
+				}
+			}
+		}
+		removedSchemas.forEach(schema -> drops.append("DROP SCHEMA ").append(ident(schema)).append(";\n"));
+		removedExtensions.forEach(extension -> drops.append("DROP EXTENSION ").append(ident(extension)).append(";\n"));
+	}
+
+	/**
+	 * 按源快照的依赖顺序创建或修改类型、序列、函数、表和视图
+	 */
+	private void writeObjects() throws IOException {
+		for (Node node : generator.sortedNodes()) {
+			switch (node.object()) {
+				case Type type -> type(type);
+				case Sequence sequence -> sequence(sequence);
+				case Routine routine -> routine(routine);
+				case Relation relation -> relation(relation);
+				default -> throw new IllegalStateException("Unexpected object " + node.object());
+			}
+		}
+	}
+
+	private void type(Type type) throws IOException {
+		String name = name(type.schema(), type.name());
+		String display = type.schema() + "." + type.name();
+		String objectType = type.kind() == 'e' ? "type" : "domain";
+		Type old = targetTypes.get(name);
+		if (old == null) {
+			generator.writeType(type);
+			created.add("t:" + name);
+			diff("added", objectType, display, null);
+			return;
+		}
+		if (old.kind() != type.kind()) {
+			warning("Type " + display + " changed between enum and domain, migrate it manually");
+			diff("changed", objectType, display, "kind");
+			return;
+		}
+		List<String> statements = new ArrayList<>();
+		List<String> details = new ArrayList<>();
+		if (type.kind() == 'e') {
+			if (type.labels().equals(old.labels())) {
+				return;
+			}
+			details.add("labels");
+			if (!type.labels().stream().filter(old.labels()::contains).toList().equals(old.labels())) {
+				warning("Enum " + display + " removed or reordered labels, migrate it manually");
+			} else {
+				// 新取值按源中的位置插入，前一个取值此时一定已经存在
+				for (int i = 0; i < type.labels().size(); i++) {
+					String label = type.labels().get(i);
+					if (!old.labels().contains(label)) {
+						String position = i > 0 ? " AFTER " + literal(type.labels().get(i - 1))
+								: type.labels().size() > 1 ? " BEFORE " + literal(type.labels().get(1)) : "";
+						statements.add("ALTER TYPE " + name + " ADD VALUE " + literal(label) + position);
+					}
+				}
+			}
+		} else {
+			if (!type.baseType().equals(old.baseType())) {
+				warning("Domain " + display + " changed base type from " + old.baseType() + " to " + type.baseType() + ", migrate it manually");
+				details.add("base type");
+			}
+			if (!Objects.equals(type.defaultValue(), old.defaultValue())) {
+				statements.add("ALTER DOMAIN " + name + (type.defaultValue() == null ? " DROP DEFAULT" : " SET DEFAULT " + type.defaultValue()));
+				details.add("default");
+			}
+			if (type.notNull() != old.notNull()) {
+				statements.add("ALTER DOMAIN " + name + (type.notNull() ? " SET NOT NULL" : " DROP NOT NULL"));
+				details.add("not null");
+			}
+			for (String check : old.checks()) {
+				if (!type.checks().contains(check)) {
+					statements.add("ALTER DOMAIN " + name + " DROP CONSTRAINT " + checkName(check));
+				}
+			}
+			for (String check : type.checks()) {
+				if (!old.checks().contains(check)) {
+					statements.add("ALTER DOMAIN " + name + " ADD " + check);
+				}
+			}
+			if (!type.checks().equals(old.checks())) {
+				details.add("checks");
+			}
+		}
+		statements.forEach(statement -> body.append(statement).append(";\n"));
+		if (!statements.isEmpty()) {
+			body.append('\n');
+		}
+		if (!details.isEmpty()) {
+			diff("changed", objectType, display, String.join(", ", details));
+		}
+	}
+
+	private void sequence(Sequence sequence) throws IOException {
+		String name = name(sequence.schema(), sequence.name());
+		Sequence old = targetSequences.get(name);
+		if (old == null || droppedSequences.contains(name)) {
+			generator.writeSequence(sequence);
+			created.add("s:" + name);
+			if (old == null) {
+				diff("added", "sequence", sequence.schema() + "." + sequence.name(), null);
+			}
+			return;
+		}
+		List<String> clauses = new ArrayList<>();
+		if (!sequence.dataType().equals(old.dataType())) {
+			clauses.add("AS " + sequence.dataType());
+		}
+		if (sequence.increment() != old.increment()) {
+			clauses.add("INCREMENT BY " + sequence.increment());
+		}
+		if (sequence.min() != old.min()) {
+			clauses.add("MINVALUE " + sequence.min());
+		}
+		if (sequence.max() != old.max()) {
+			clauses.add("MAXVALUE " + sequence.max());
+		}
+		if (sequence.start() != old.start()) {
+			clauses.add("START WITH " + sequence.start());
+		}
+		if (sequence.cache() != old.cache()) {
+			clauses.add("CACHE " + sequence.cache());
+		}
+		if (sequence.cycle() != old.cycle()) {
+			clauses.add(sequence.cycle() ? "CYCLE" : "NO CYCLE");
+		}
+		if (!clauses.isEmpty()) {
+			body.append("ALTER SEQUENCE ").append(name).append(' ').append(String.join(" ", clauses)).append(";\n\n");
+			diff("changed", "sequence", sequence.schema() + "." + sequence.name(), String.join(", ", clauses));
+		}
+	}
+
+	private void routine(Routine routine) {
+		String key = key(routine);
+		Routine old = targetRoutines.get(key);
+		boolean recreate = old == null || droppedRoutines.contains(key);
+		if (!recreate && old.definition().equals(routine.definition())) {
+			return;
+		}
+		// pg_get_functiondef 输出的是 CREATE OR REPLACE，已有的函数直接替换
+		body.append(routine.definition().stripTrailing()).append(";\n\n");
+		routinesWritten = true;
+		String display = routine.schema() + "." + routine.name() + "(" + routine.arguments() + ")";
+		String objectType = routine.kind() == 'p' ? "procedure" : "function";
+		if (old == null) {
+			created.add("p:" + key);
+			diff("added", objectType, display, null);
+		} else {
+			if (recreate) {
+				created.add("p:" + key);
+			}
+			diff("changed", objectType, display, recreate ? "signature" : "definition");
+		}
+	}
+
+	private void relation(Relation relation) throws IOException {
+		Relation old = targetRelations.get(name(relation));
+		if (old == null || droppedRelations.contains(name(relation))) {
+			created.add("r:" + name(relation));
+			if (relation.isView()) {
+				generator.writeView(relation, false);
+			} else {
+				generator.writeTable(relation);
+			}
+			if (old == null) {
+				diff("added", kind(relation), display(relation), null);
+			} else if (old.kind() != relation.kind()) {
+				diff("changed", kind(relation), display(relation), "kind " + kind(old) + " -> " + kind(relation));
+				if (!old.isView()) {
+					warning("Table " + display(relation) + " is recreated as " + kind(relation) + ", its data is lost");
+				}
+			} else if (viewChanged(relation, old)) {
+				diff("changed", kind(relation), display(relation), "definition");
+			}
+			if (old != null && relation.kind() == 'm') {
+				warning("Materialized view " + display(relation) + " is recreated WITH NO DATA, refresh it after migration");
+			}
+			return;
+		}
+		if (relation.isView()) {
+			if (viewChanged(relation, old)) {
+				generator.writeView(relation, true);
+				diff("changed", kind(relation), display(relation), "definition");
+			}
+			return;
+		}
+		alterTable(relation, old);
+	}
+
+	/**
+	 * 两端都有的表：同一张表的修改合并成一条 ALTER TABLE；增删标识列各自单独执行，与默认值的增删先后有关
+	 */
+	private void alterTable(Relation relation, Relation old) {
+		String table = name(relation);
+		List<String> before = new ArrayList<>();
+		List<String> actions = new ArrayList<>();
+		List<String> after = new ArrayList<>();
+		List<String> details = new ArrayList<>();
+		if (relation.unlogged() != old.unlogged()) {
+			actions.add(relation.unlogged() ? "SET UNLOGGED" : "SET LOGGED");
+			details.add(relation.unlogged() ? "unlogged" : "logged");
+		}
+		Map<String, String> options = options(relation.options());
+		Map<String, String> oldOptions = options(old.options());
+		List<String> set = options.entrySet().stream()
+								  .filter(e -> !e.getValue().equals(oldOptions.get(e.getKey())))
+								  .map(e -> e.getKey() + "=" + e.getValue()).toList();
+		List<String> reset = oldOptions.keySet().stream().filter(k -> !options.containsKey(k)).toList();
+		if (!set.isEmpty()) {
+			actions.add("SET (" + String.join(", ", set) + ")");
+		}
+		if (!reset.isEmpty()) {
+			actions.add("RESET (" + String.join(", ", reset) + ")");
+		}
+		if (!set.isEmpty() || !reset.isEmpty()) {
+			details.add("options");
+		}
+		if (!Objects.equals(relation.partitionKey(), old.partitionKey()) || !Objects.equals(relation.partitionBound(), old.partitionBound())
+				|| !relation.parentNames().equals(old.parentNames())) {
+			warning("Partitioning or inheritance of " + display(relation) + " differs, migrate it manually");
+			details.add("partitioning");
+		}
+		if (!details.isEmpty()) {
+			diff("changed", kind(relation), display(relation), String.join(", ", details));
+		}
+
+		Map<String, Column> oldColumns = localColumns(target, old);
+		for (Column column : localColumns(source, relation).values()) {
+			Column previous = oldColumns.get(column.name());
+			String display = display(relation) + "." + column.name();
+			if (previous == null || recreated(column, previous)) {
+				actions.add("ADD COLUMN " + PgDdlGenerator.column(column));
+				created.add("c:" + table + "." + column.name());
+				diff(previous == null ? "added" : "changed", "column", display, previous == null ? null : "generated");
+				continue;
+			}
+			String alter = "ALTER COLUMN " + ident(column.name());
+			List<String> changes = new ArrayList<>();
+			if (!column.type().equals(previous.type()) || !Objects.equals(column.collation(), previous.collation())) {
+				actions.add(alter + " TYPE " + column.type() + (column.collation() == null ? "" : " COLLATE " + column.collation())
+						+ " USING " + ident(column.name()) + "::" + column.type());
+				changes.add(column.type().equals(previous.type()) ? "collation" : "type " + previous.type() + " -> " + column.type());
+			}
+			if (column.identity() != previous.identity()) {
+				if (column.identity() == 0) {
+					before.add(alter + " DROP IDENTITY");
+				} else {
+					String generated = column.identity() == 'a' ? "ALWAYS" : "BY DEFAULT";
+					after.add(previous.identity() == 0 ? alter + " ADD GENERATED " + generated + " AS IDENTITY" : alter + " SET GENERATED " + generated);
+				}
+				changes.add("identity");
+			}
+			if (column.generated() == 0 && !Objects.equals(column.defaultValue(), previous.defaultValue())) {
+				actions.add(column.defaultValue() == null ? alter + " DROP DEFAULT" : alter + " SET DEFAULT " + column.defaultValue());
+				changes.add("default");
+			}
+			if (column.notNull() != previous.notNull()) {
+				actions.add(alter + (column.notNull() ? " SET NOT NULL" : " DROP NOT NULL"));
+				changes.add(column.notNull() ? "not null" : "nullable");
+			}
+			if (!changes.isEmpty()) {
+				diff("changed", "column", display, String.join(", ", changes));
+			}
+		}
+
+		Map<String, Constraint> oldConstraints = localConstraints(target, old);
+		for (Constraint constraint : localConstraints(source, relation).values()) {
+			Constraint previous = oldConstraints.get(constraint.name());
+			if (constraint.type() != 'f' && (previous == null || !previous.definition().equals(constraint.definition()))) {
+				actions.add("ADD CONSTRAINT " + ident(constraint.name()) + " " + constraint.definition());
+				created.add("k:" + table + "." + constraint.name());
+				diff(previous == null ? "added" : "changed", "constraint", display(relation) + "." + constraint.name(), previous == null ? null : "definition");
+			}
+		}
+
+		before.forEach(action -> body.append("ALTER TABLE ").append(table).append(' ').append(action).append(";\n"));
+		if (!actions.isEmpty()) {
+			body.append("ALTER TABLE ").append(table).append("\n    ").append(String.join(",\n    ", actions)).append(";\n");
+		}
+		after.forEach(action -> body.append("ALTER TABLE ").append(table).append(' ').append(action).append(";\n"));
+		if (!before.isEmpty() || !actions.isEmpty() || !after.isEmpty()) {
+			body.append('\n');
+		}
+	}
+
+	/**
+	 * 序列的 OWNED BY、索引、外键和触发器，与导出 DDL 一样放在所有表之后
+	 */
+	private void writeTail() {
+		for (Sequence sequence : source.getSequences()) {
+			String name = name(sequence.schema(), sequence.name());
+			Sequence old = created.contains("s:" + name) ? null : targetSequences.get(name);
+			String owner = owner(sequence, sourceByOid);
+			if (!Objects.equals(owner, old == null ? null : owner(old, targetByOid)) && (owner != null || old != null)) {
+				tail.append("ALTER SEQUENCE ").append(name).append(" OWNED BY ").append(owner == null ? "NONE" : owner).append(";\n");
+				if (old != null) {
+					diff("changed", "sequence", sequence.schema() + "." + sequence.name(), "owned by");
+				}
+			}
+		}
+		for (Relation relation : source.getRelations()) {
+			boolean kept = !created.contains("r:" + name(relation));
+			for (Index index : source.getIndexes().getOrDefault(relation.oid(), List.of())) {
+				String name = name(relation.schema(), index.name());
+				Index old = kept ? targetIndexes.get(name) : null;
+				if (old == null || !old.definition().equals(index.definition())) {
+					tail.append(PgDdlGenerator.index(relation, index)).append(";\n");
+					created.add("i:" + name);
+					if (kept) {
+						diff(old == null ? "added" : "changed", "index", relation.schema() + "." + index.name(), old == null ? null : "definition");
+					}
+				}
+			}
+		}
+		for (Relation relation : source.getRelations()) {
+			Relation old = created.contains("r:" + name(relation)) ? null : targetRelations.get(name(relation));
+			Map<String, Constraint> oldConstraints = old == null ? Map.of() : localConstraints(target, old);
+			for (Constraint constraint : localConstraints(source, relation).values()) {
+				Constraint previous = oldConstraints.get(constraint.name());
+				if (constraint.type() == 'f' && (previous == null || !previous.definition().equals(constraint.definition()))) {
+					tail.append(PgDdlGenerator.addConstraint(relation, constraint)).append(";\n");
+					created.add("k:" + name(relation) + "." + constraint.name());
+					if (old != null) {
+						diff(previous == null ? "added" : "changed", "constraint", display(relation) + "." + constraint.name(), previous == null ? null : "definition");
+					}
+				}
+			}
+		}
+		for (Relation relation : source.getRelations()) {
+			Relation old = created.contains("r:" + name(relation)) ? null : targetRelations.get(name(relation));
+			Map<String, Trigger> oldTriggers = old == null ? Map.of() : byKey(target.getTriggers().getOrDefault(old.oid(), List.of()), Trigger::name);
+			for (Trigger trigger : source.getTriggers().getOrDefault(relation.oid(), List.of())) {
+				Trigger previous = oldTriggers.get(trigger.name());
+				if (previous == null || !previous.definition().equals(trigger.definition())) {
+					tail.append(trigger.definition()).append(";\n");
+					created.add("g:" + name(relation) + "." + trigger.name());
+					if (old != null) {
+						diff(previous == null ? "added" : "changed", "trigger", display(relation) + "." + trigger.name(), previous == null ? null : "definition");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 注释不同时设置或清除；新建和重建的对象只写源中有的注释
+	 */
+	private void writeComments() {
+		Map<String, Schema> targetSchemas = byKey(target.getSchemas(), Schema::name);
+		for (Schema schema : source.getSchemas()) {
+			Schema old = created.contains("n:" + schema.name()) ? null : targetSchemas.get(schema.name());
+			comment("SCHEMA " + ident(schema.name()), "schema", schema.name(), schema.comment(), old == null ? null : old.comment(), old != null);
+		}
+		for (Type type : source.getTypes()) {
+			String name = name(type.schema(), type.name());
+			Type old = created.contains("t:" + name) ? null : targetTypes.get(name);
+			comment((type.kind() == 'e' ? "TYPE " : "DOMAIN ") + name, type.kind() == 'e' ? "type" : "domain", type.schema() + "." + type.name(),
+					type.comment(), old == null ? null : old.comment(), old != null);
+		}
+		for (Sequence sequence : source.getSequences()) {
+			String name = name(sequence.schema(), sequence.name());
+			Sequence old = created.contains("s:" + name) ? null : targetSequences.get(name);
+			comment("SEQUENCE " + name, "sequence", sequence.schema() + "." + sequence.name(), sequence.comment(), old == null ? null : old.comment(), old != null);
+		}
+		for (Routine routine : source.getRoutines()) {
+			Routine old = created.contains("p:" + key(routine)) ? null : targetRoutines.get(key(routine));
+			comment((routine.kind() == 'p' ? "PROCEDURE " : "FUNCTION ") + key(routine), routine.kind() == 'p' ? "procedure" : "function",
+					routine.schema() + "." + routine.name() + "(" + routine.arguments() + ")", routine.comment(), old == null ? null : old.comment(), old != null);
+		}
+		for (Relation relation : source.getRelations()) {
+			String table = name(relation);
+			Relation old = created.contains("r:" + table) ? null : targetRelations.get(table);
+			String kind = switch (relation.kind()) {
+				case 'v' -> "VIEW ";
+				case 'm' -> "MATERIALIZED VIEW ";
+				default -> "TABLE ";
+			};
+			comment(kind + table, kind(relation), display(relation), relation.comment(), old == null ? null : old.comment(), old != null);
+
+			Map<String, Column> oldColumns = old == null ? Map.of() : byKey(target.getColumns().getOrDefault(old.oid(), List.of()), Column::name);
+			for (Column column : source.getColumns().getOrDefault(relation.oid(), List.of())) {
+				Column previous = created.contains("c:" + table + "." + column.name()) ? null : oldColumns.get(column.name());
+				comment("COLUMN " + table + "." + ident(column.name()), "column", display(relation) + "." + column.name(),
+						column.comment(), previous == null ? null : previous.comment(), previous != null);
+			}
+			Map<String, Constraint> oldConstraints = old == null ? Map.of() : localConstraints(target, old);
+			for (Constraint constraint : localConstraints(source, relation).values()) {
+				Constraint previous = created.contains("k:" + table + "." + constraint.name()) ? null : oldConstraints.get(constraint.name());
+				comment("CONSTRAINT " + ident(constraint.name()) + " ON " + table, "constraint", display(relation) + "." + constraint.name(),
+						constraint.comment(), previous == null ? null : previous.comment(), previous != null);
+			}
+			for (Index index : source.getIndexes().getOrDefault(relation.oid(), List.of())) {
+				String name = name(relation.schema(), index.name());
+				Index previous = created.contains("i:" + name) ? null : targetIndexes.get(name);
+				comment("INDEX " + name, "index", relation.schema() + "." + index.name(), index.comment(), previous == null ? null : previous.comment(), previous != null);
+			}
+			Map<String, Trigger> oldTriggers = old == null ? Map.of() : byKey(target.getTriggers().getOrDefault(old.oid(), List.of()), Trigger::name);
+			for (Trigger trigger : source.getTriggers().getOrDefault(relation.oid(), List.of())) {
+				Trigger previous = created.contains("g:" + table + "." + trigger.name()) ? null : oldTriggers.get(trigger.name());
+				comment("TRIGGER " + ident(trigger.name()) + " ON " + table, "trigger", display(relation) + "." + trigger.name(),
+						trigger.comment(), previous == null ? null : previous.comment(), previous != null);
+			}
+		}
+	}
+
+	private void comment(String object, String objectType, String display, String comment, String oldComment, boolean existing) {
+		if (Objects.equals(comment, oldComment)) {
+			return;
+		}
+		tail.append("COMMENT ON ").append(object).append(" IS ").append(comment == null ? "NULL" : literal(comment)).append(";\n");
+		if (existing) {
+			diff("changed", objectType, display, "comment");
+		}
+	}
+
+	/**
+	 * 视图的定义、选项或输出列有变化
+	 */
+	private boolean viewChanged(Relation view, Relation old) {
+		return !Objects.equals(view.definition(), old.definition()) || !view.options().equals(old.options())
+				|| !columnTypes(source, view).equals(columnTypes(target, old));
+	}
+
+	/**
+	 * CREATE OR REPLACE VIEW 只能在原有的列后面追加列，不能删除、改名或改类型
+	 */
+	private boolean replaceable(Relation view, Relation old) {
+		if (view.kind() != 'v') {
+			return false;
+		}
+		List<String> columns = columnTypes(source, view);
+		List<String> oldColumns = columnTypes(target, old);
+		return columns.size() >= oldColumns.size() && columns.subList(0, oldColumns.size()).equals(oldColumns);
+	}
+
+	/**
+	 * 表删除了列、改了列的类型或排序规则，依赖它的视图需要重建
+	 */
+	private boolean columnsRewritten(Relation table, Relation old) {
+		Map<String, Column> columns = localColumns(source, table);
+		for (Column previous : localColumns(target, old).values()) {
+			Column column = columns.get(previous.name());
+			if (column == null || recreated(column, previous) || !column.type().equals(previous.type())
+					|| !Objects.equals(column.collation(), previous.collation())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean columnDropped(Relation old, String column) {
+		Relation relation = sourceRelations.get(name(old));
+		if (relation == null) {
+			return true;
+		}
+		Column now = localColumns(source, relation).get(column);
+		Column previous = localColumns(target, old).get(column);
+		return previous != null && (now == null || recreated(now, previous));
+	}
+
+	/**
+	 * 生成列与普通列互换，或生成表达式变化：删除后重新添加
+	 */
+	private static boolean recreated(Column column, Column old) {
+		return column.generated() != old.generated() || column.generated() != 0 && !Objects.equals(column.defaultValue(), old.defaultValue());
+	}
+
+	/**
+	 * 本表定义的列；分区的列来自父表，不单独比较
+	 */
+	private static Map<String, Column> localColumns(PgCatalog catalog, Relation relation) {
+		Map<String, Column> columns = new LinkedHashMap<>();
+		if (relation.partitionBound() == null) {
+			for (Column column : catalog.getColumns().getOrDefault(relation.oid(), List.of())) {
+				if (column.local()) {
+					columns.put(column.name(), column);
+				}
+			}
+		}
+		return columns;
+	}
+
+	private static Map<String, Constraint> localConstraints(PgCatalog catalog, Relation relation) {
+		Map<String, Constraint> constraints = new LinkedHashMap<>();
+		for (Constraint constraint : catalog.getConstraints().getOrDefault(relation.oid(), List.of())) {
+			if (constraint.local()) {
+				constraints.put(constraint.name(), constraint);
+			}
+		}
+		return constraints;
+	}
+
+	private static List<String> columnTypes(PgCatalog catalog, Relation relation) {
+		return catalog.getColumns().getOrDefault(relation.oid(), List.of()).stream().map(c -> c.name() + " " + c.type()).toList();
+	}
+
+	private static Map<String, String> options(List<String> options) {
+		Map<String, String> parsed = new LinkedHashMap<>();
+		for (String option : options) {
+			int eq = option.indexOf('=');
+			parsed.put(eq < 0 ? option : option.substring(0, eq), eq < 0 ? "" : option.substring(eq + 1));
+		}
+		return parsed;
+	}
+
+	private static void indexesByName(PgCatalog catalog, Map<String, Index> indexes) {
+		for (Relation relation : catalog.getRelations()) {
+			for (Index index : catalog.getIndexes().getOrDefault(relation.oid(), List.of())) {
+				indexes.put(name(relation.schema(), index.name()), index);
+			}
+		}
+	}
+
+	/**
+	 * 序列所属的表和列；所属的表不在快照中时为空
+	 */
+	private static String owner(Sequence sequence, Map<Long, Relation> relations) {
+		Relation owner = sequence.ownedByTable() == null ? null : relations.get(sequence.ownedByTable());
+		return owner == null ? null : name(owner) + "." + ident(sequence.ownedByColumn());
+	}
+
+	/**
+	 * 函数的标识：schema.名称(输入参数类型)，参数改名不影响；可直接用于 DROP FUNCTION 和 COMMENT ON FUNCTION
+	 */
+	private static String key(Routine routine) {
+		return name(routine.schema(), routine.name()) + "(" + routine.argumentTypes() + ")";
+	}
+
+	/**
+	 * pg_get_functiondef 中 LANGUAGE 之前的部分：参数（含名称和默认值）和返回类型，变化时不能 CREATE OR REPLACE
+	 */
+	private static String signature(Routine routine) {
+		int language = routine.definition().indexOf("\n LANGUAGE ");
+		return language < 0 ? routine.definition().lines().findFirst().orElse("") : routine.definition().substring(0, language);
+	}
+
+	/**
+	 * 域约束 "CONSTRAINT 名称 CHECK (...)" 中加好引号的名称
+	 */
+	private static String checkName(String check) {
+		String rest = check.substring("CONSTRAINT ".length());
+		if (!rest.startsWith("\"")) {
+			return rest.substring(0, rest.indexOf(' '));
+		}
+		int end = 1;
+		while (end < rest.length()) {
+			if (rest.charAt(end) == '"') {
+				if (end + 1 < rest.length() && rest.charAt(end + 1) == '"') {
+					end += 2;
+					continue;
+				}
+				break;
+			}
+			end++;
+		}
+		return rest.substring(0, end + 1);
+	}
+
+	private static String kind(Relation relation) {
+		return switch (relation.kind()) {
+			case 'v' -> "view";
+			case 'm' -> "materialized view";
+			case 'p' -> "partitioned table";
+			default -> "table";
+		};
+	}
+
+	private static String display(Relation relation) {
+		return relation.schema() + "." + relation.name();
+	}
+
+	private static <K, T> Map<K, T> byKey(List<T> items, Function<T, K> key) {
+		Map<K, T> map = new HashMap<>(items.size() * 2);
+		items.forEach(item -> map.put(key.apply(item), item));
+		return map;
+	}
+
+	/**
+	 * 只在目标中有的对象记为 removed；两端都有但定义不同的由创建的一侧记为 changed
+	 */
+	private void removed(Object now, String objectType, String display) {
+		if (now == null) {
+			diff("removed", objectType, display, null);
+		}
+	}
+
+	private void diff(String change, String objectType, String name, String detail) {
+		result.getDifferences().add(new Difference(change, objectType, name, detail));
+	}
+
+	private void warning(String message) {
+		result.getWarnings().add(message);
+	}
+
+	/**
+	 * 删除表或列的语句前加一行注释，执行脚本前能一眼看到哪些语句会丢数据
+	 */
+	private void dataLoss(String message) {
+		drops.append("-- WARNING: data loss, ").append(message).append('\n');
+	}
+}
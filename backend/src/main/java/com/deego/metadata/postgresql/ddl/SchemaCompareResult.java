@@ -0,0 +1,54 @@
+package com.deego.metadata.postgresql.ddl;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 结构比较的结果：差异列表和把目标改成与源一致的迁移脚本
+ */
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class SchemaCompareResult {
+
+	/**
+	 * 比较的两端，形如 连接/库[/schema]
+	 */
+	private String source;
+
+	private String target;
+
+	private boolean identical;
+
+	private List<Difference> differences = new ArrayList<>();
+
+	/**
+	 * 脚本无法自动完成、需要人工处理的变化
+	 */
+	private List<String> warnings = new ArrayList<>();
+
+	private String script;
+
+	private int sourceObjects;
+
+	private int targetObjects;
+
+	/**
+	 * 两端目录快照的读取耗时（并行读取，取较长的一端）和内存中比较的耗时
+	 */
+	private long loadMs;
+
+	private long compareMs;
+
+	/**
+	 * change 为 added（只在源中）、removed（只在目标中）、changed；objectType 如 table、column、index；
+	 * name 为 schema.对象名，列、约束和触发器为 schema.表名.名称；detail 说明变化的内容
+	 */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public record Difference(String change, String objectType, String name, String detail) {
+	}
+}
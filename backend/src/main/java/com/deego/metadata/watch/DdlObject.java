@@ -0,0 +1,9 @@
+package com.deego.metadata.watch;
+
+/**
+ * 一个发生变化的数据库对象。type 使用事件触发器的 object_type 取值（table、view、index、table column、schema 等），
+ * 轮询时按 relkind / prokind 换算成相同的取值；name 为对象名（函数等可能为空），
+ * parent 为列、约束、索引所在的表名，无法得知时为空
+ */
+record DdlObject(String type, String schema, String name, String parent) {
+}
@@ -0,0 +1,100 @@
+package com.deego.metadata.watch;
+
+import com.deego.metadata.DatabaseNodeType;
+import com.deego.metadata.TreeListing;
+import com.deego.metadata.cache.MetadataCache;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 监视到的对象树变化，同时用于使缓存失效和推送给前端：前端重新加载 listings 中的子节点列表、subtrees 下已展开的整个子树，
+ * all 为 true 时重新加载整个库（变化太多装不进一条通知，或监听连接断开过）。
+ * <p>
+ * listings 中的 path 与 /children 接口一致（库之后的父路径）；COLUMN、CONSTRAINT、INDEX 的 path 只有 schema 时，
+ * 表示不知道是哪张表（如单独 DROP INDEX），该 schema 下所有表的这类列表都要重新加载。
+ * source 为 trigger（事件触发器）、poll（轮询目录）或 reconnect
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record MetadataChange(String connId, String database, String source, List<TreeListing> listings, List<String> subtrees, boolean all) {
+
+	private static final Set<DatabaseNodeType> TABLE_CHILD_TYPES = Set.of(DatabaseNodeType.COLUMN, DatabaseNodeType.CONSTRAINT, DatabaseNodeType.INDEX);
+
+	/**
+	 * objects 为空表示范围未知，整个库都要重新加载
+	 */
+	static MetadataChange of(String connId, String database, String source, Collection<DdlObject> objects) {
+		if (objects == null) {
+			return new MetadataChange(connId, database, source, List.of(), List.of(), true);
+		}
+		Set<TreeListing> listings = new LinkedHashSet<>();
+		Set<String> subtrees = new LinkedHashSet<>();
+		for (DdlObject object : objects) {
+			String schema = object.schema();
+			if ("schema".equals(object.type())) {
+				listings.add(new TreeListing(DatabaseNodeType.SCHEMA, ""));
+				if (object.name() != null) {
+					subtrees.add(object.name());
+				}
+				continue;
+			}
+			if (schema == null) {
+				continue;
+			}
+			DatabaseNodeType relationType = switch (object.type()) {
+				case "table", "foreign table" -> DatabaseNodeType.TABLE;
+				case "view" -> DatabaseNodeType.VIEW;
+				case "materialized view" -> DatabaseNodeType.MATERIALIZED_VIEW;
+				default -> null;
+			};
+			if (relationType != null) {
+				listings.add(new TreeListing(relationType, schema));
+				if (object.name() != null) {
+					subtrees.add(schema + "/" + object.name());
+				}
+				continue;
+			}
+			switch (object.type()) {
+				case "sequence" -> listings.add(new TreeListing(DatabaseNodeType.SEQUENCE, schema));
+				case "function", "aggregate" -> listings.add(new TreeListing(DatabaseNodeType.FUNCTION, schema));
+				case "procedure" -> listings.add(new TreeListing(DatabaseNodeType.PROCEDURE, schema));
+				case "index" -> listings.add(tableListing(DatabaseNodeType.INDEX, schema, object.parent()));
+				case "table constraint" -> listings.add(tableListing(DatabaseNodeType.CONSTRAINT, schema, object.parent()));
+				case "table column" -> listings.add(tableListing(DatabaseNodeType.COLUMN, schema, object.parent()));
+				default -> {
+					// 类型、触发器、注释等不在对象树中显示
+				}
+			}
+		}
+		// 已经整棵子树重新加载的，不再单独列出其中的列表
+		listings.removeIf(listing -> subtrees.stream().anyMatch(path -> listing.path().equals(path) || listing.path().startsWith(path + "/")));
+		return new MetadataChange(connId, database, source, new ArrayList<>(listings), new ArrayList<>(subtrees), false);
+	}
+
+	private static TreeListing tableListing(DatabaseNodeType type, String schema, String table) {
+		return new TreeListing(type, table == null ? schema : schema + "/" + table);
+	}
+
+	boolean isEmpty() {
+		return !all && listings.isEmpty() && subtrees.isEmpty();
+	}
+
+	void applyTo(MetadataCache cache) {
+		if (all) {
+			cache.invalidateDatabase(connId, database);
+			return;
+		}
+		for (TreeListing listing : listings) {
+			if (TABLE_CHILD_TYPES.contains(listing.type()) && !listing.path().contains("/")) {
+				cache.invalidateUnder(connId, database, listing.path(), listing.type());
+			} else {
+				cache.invalidate(connId, database, listing.path(), listing.type());
+			}
+		}
+		subtrees.forEach(path -> cache.invalidateSubtree(connId, database, path));
+	}
+}
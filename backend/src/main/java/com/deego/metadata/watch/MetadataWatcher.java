@@ -0,0 +1,204 @@
+package com.deego.metadata.watch;
+
+import com.deego.config.NebulaProperties;
+import com.deego.enums.DatabaseType;
+import com.deego.exception.BizException;
+import com.deego.metadata.cache.MetadataCache;
+import com.deego.model.Connection;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ObjectUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 对象树的推送式失效：按需为连接开启结构监视（见 {@link PgDdlWatch}），监视到变化时精确地使相关的缓存列表失效，
+ * 并通过 SSE 推送给打开了该连接对象树的前端，前端只重新加载受影响的节点，不需要轮询。
+ * <p>
+ * 指向同一个库（host:port/database）的多个连接配置共用一个监视和一条监听连接
+ */
+@Component
+@Slf4j
+public class MetadataWatcher {
+
+	@Autowired
+	private MetadataCache metadataCache;
+
+	@Autowired
+	private NebulaProperties properties;
+
+	/**
+	 * key 为 host:port/database
+	 */
+	private final Map<String, PgDdlWatch> watches = new ConcurrentHashMap<>();
+
+	/**
+	 * 按 connId 订阅变化的前端
+	 */
+	private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+	/**
+	 * 开始监视连接上的某个库（为空时为连接的默认库）；useTrigger 为 false 时直接轮询，不尝试安装事件触发器。
+	 * 已经有其他连接在监视同一个库时共用它，请求的方式与已有的监视不同时拒绝（先 unwatch）；实际的方式见返回状态的 mode
+	 */
+	public WatchStatus watch(Connection conn, String database, boolean useTrigger) {
+		if (DatabaseType.fromValue(conn.getDbType()) != DatabaseType.POSTGRESQL) {
+			throw new BizException("UNSUPPORTED", "Metadata watch is only supported for PostgreSQL");
+		}
+		String db = ObjectUtils.isEmpty(database) ? conn.getDatabase() : database;
+		String key = conn.getHost() + ":" + conn.getPort() + "/" + db;
+		// 与 unwatch 在同一个 key 上互斥：不会加入一个刚被最后一个连接停掉的监视
+		PgDdlWatch watch = watches.compute(key, (k, existing) -> {
+			if (existing != null) {
+				if (existing.isUseTrigger() != useTrigger) {
+					throw new BizException("WATCH_MODE_CONFLICT", k + " is already watched " + (existing.isUseTrigger() ? "with" : "without")
+							+ " event triggers by " + existing.getConnIds() + "; unwatch it first to change the mode");
+				}
+				existing.getConnIds().add(conn.getId());
+				return existing;
+			}
+			NebulaProperties.MetadataWatch config = properties.getMetadataWatch();
+			PgDdlWatch created = new PgDdlWatch(k, "jdbc:postgresql://" + conn.getHost() + ":" + conn.getPort() + "/" + db,
+					jdbcProperties(conn), db, useTrigger, config.getPollInterval(), config.getReconnectDelay(),
+					(source, objects) -> dispatch(k, source, objects));
+			created.getConnIds().add(conn.getId());
+			created.start();
+			return created;
+		});
+		return watch.status();
+	}
+
+	/**
+	 * 停止连接对某个库（为空时为全部库）的监视；没有其他连接共用时关闭监听连接。
+	 * uninstall 为 true 时，只有最后一个连接离开时才删除库中的事件触发器，其他连接仍在监视时保留
+	 */
+	public List<WatchStatus> unwatch(String connId, String database, boolean uninstall) {
+		List<String> keys = watches.values().stream()
+								   .filter(w -> w.getConnIds().contains(connId))
+								   .filter(w -> ObjectUtils.isEmpty(database) || database.equals(w.getDatabase()))
+								   .map(PgDdlWatch::getKey)
+								   .toList();
+		List<WatchStatus> statuses = new ArrayList<>();
+		List<String> failures = new ArrayList<>();
+		for (String key : keys) {
+			// 移除连接、判断是否为空、关闭和卸载在 key 上原子地完成，与同时进行的 watch 不会交错
+			watches.compute(key, (k, watch) -> {
+				if (watch == null || !watch.getConnIds().remove(connId)) {
+					return watch;
+				}
+				PgDdlWatch remaining = watch;
+				if (watch.getConnIds().isEmpty()) {
+					watch.close();
+					remaining = null;
+					if (uninstall) {
+						try {
+							watch.uninstall();
+						} catch (SQLException e) {
+							failures.add(k + ": " + e.getMessage());
+						}
+					}
+				} else if (uninstall) {
+					log.info("Keep event trigger on {}, still watched by {}", k, watch.getConnIds());
+				}
+				statuses.add(watch.status());
+				return remaining;
+			});
+		}
+		if (!failures.isEmpty()) {
+			throw new BizException("UNINSTALL_FAILED", "Cannot remove event trigger from " + String.join("; ", failures));
+		}
+		return statuses;
+	}
+
+	/**
+	 * 连接被删除或修改时调用
+	 */
+	public void unwatchAll(String connId) {
+		unwatch(connId, null, false);
+	}
+
+	public List<WatchStatus> list(String connId) {
+		return watches.values().stream()
+					  .filter(w -> connId == null || w.getConnIds().contains(connId))
+					  .map(PgDdlWatch::status)
+					  .sorted(Comparator.comparing(WatchStatus::key))
+					  .toList();
+	}
+
+	/**
+	 * 订阅连接的对象树变化：先发送当前的监视状态（status），之后每次变化发送一个 change 事件（{@link MetadataChange}）
+	 */
+	public SseEmitter subscribe(String connId) {
+		SseEmitter emitter = new SseEmitter(0L);
+		List<SseEmitter> list = emitters.computeIfAbsent(connId, k -> new CopyOnWriteArrayList<>());
+		list.add(emitter);
+		emitter.onCompletion(() -> list.remove(emitter));
+		emitter.onTimeout(() -> list.remove(emitter));
+		emitter.onError(e -> list.remove(emitter));
+		send(connId, emitter, "status", list(connId));
+		return emitter;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		watches.values().forEach(PgDdlWatch::close);
+		watches.clear();
+		emitters.values().forEach(list -> list.forEach(SseEmitter::complete));
+	}
+
+	private void dispatch(String key, String source, List<DdlObject> objects) {
+		PgDdlWatch watch = watches.get(key);
+		if (watch == null) {
+			return;
+		}
+		for (String connId : watch.getConnIds()) {
+			MetadataChange change = MetadataChange.of(connId, watch.getDatabase(), source, objects);
+			if (change.isEmpty()) {
+				continue;
+			}
+			change.applyTo(metadataCache);
+			log.debug("Metadata of {} changed ({}): {} listings, {} subtrees, all={}", key, source,
+					change.listings().size(), change.subtrees().size(), change.all());
+			List<SseEmitter> list = emitters.get(connId);
+			if (list != null) {
+				list.forEach(emitter -> send(connId, emitter, "change", change));
+			}
+		}
+	}
+
+	private void send(String connId, SseEmitter emitter, String event, Object data) {
+		try {
+			emitter.send(SseEmitter.event().name(event).data(data));
+		} catch (IOException | IllegalStateException e) {
+			log.debug("Drop metadata SSE subscriber of connection {}: {}", connId, e.getMessage());
+			List<SseEmitter> list = emitters.get(connId);
+			if (list != null) {
+				list.remove(emitter);
+			}
+		}
+	}
+
+	private static Properties jdbcProperties(Connection conn) {
+		Properties props = new Properties();
+		if (conn.getUsername() != null) {
+			props.setProperty("user", conn.getUsername());
+		}
+		if (conn.getPassword() != null) {
+			props.setProperty("password", conn.getPassword());
+		}
+		props.setProperty("ApplicationName", "Nebula metadata watch");
+		props.setProperty("tcpKeepAlive", "true");
+		return props;
+	}
+}
@@ -0,0 +1,421 @@
+package com.deego.metadata.watch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * 监视一个 PostgreSQL 库的结构变化，同一个库（host:port/database）只有一个实例和一条专用连接，不占用连接池。
+ * <p>
+ * 优先用事件触发器：ddl_command_end 和 sql_drop 时把变化的对象 pg_notify 到 {@value #CHANNEL}，这里 LISTEN 并解析；
+ * 安装触发器需要超级用户，库里已有触发器（例如管理员装过）时直接监听。监听期间每个轮询间隔检查一次触发器是否还在，
+ * 被删除或禁用时（例如另一个实例卸载了它）改为轮询，不会无声地停止推送。装不上时退回轮询：
+ * 定期用一条查询读出每个 schema、关系、函数的目录行版本（xmin 和列、约束的行数与最大 xmin），与上一次比较。
+ * ANALYZE、VACUUM 对 pg_class 是原地更新，不改变 xmin，不会被当作变化。
+ * <p>
+ * 监听器收到的对象列表为 null 表示范围未知（通知被截断、重连后可能漏掉了变化），整个库都要重新加载
+ */
+@Slf4j
+final class PgDdlWatch {
+
+	static final String CHANNEL = "nebula_ddl";
+
+	static final String MODE_TRIGGER = "trigger";
+	static final String MODE_POLL = "poll";
+
+	/**
+	 * 通知失败不能影响用户的 DDL，函数里的异常只记警告。DROP SCHEMA ... CASCADE 时只报 schema 本身；
+	 * 级联删除的对象只报对象树里的几类（其他 schema 中依赖它的视图、引用它的外键），表上的列、索引等随表一起失效
+	 */
+	private static final String INSTALL_SQL = """
+			CREATE SCHEMA IF NOT EXISTS _nebula;
+			CREATE OR REPLACE FUNCTION _nebula.notify_ddl() RETURNS event_trigger LANGUAGE plpgsql AS $fn$
+			DECLARE
+				objects json;
+				message text;
+			BEGIN
+				IF TG_EVENT = 'sql_drop' THEN
+					SELECT json_agg(json_build_object('type', d.object_type, 'schema', d.schema_name, 'name', d.object_name,
+							'parent', CASE WHEN d.object_type IN ('table column', 'table constraint') THEN d.address_names[2] END))
+					INTO objects
+					FROM pg_event_trigger_dropped_objects() d
+					WHERE (d.original OR d.object_type IN ('table', 'foreign table', 'view', 'materialized view', 'sequence',
+							'function', 'procedure', 'table constraint'))
+					  AND NOT EXISTS (SELECT 1 FROM pg_event_trigger_dropped_objects() s
+									  WHERE s.object_type = 'schema' AND s.object_name = d.schema_name);
+				ELSE
+					SELECT json_agg(json_build_object('type', c.object_type, 'schema', c.schema_name,
+							'name', CASE c.classid
+								WHEN 'pg_class'::regclass THEN (SELECT relname::text FROM pg_class WHERE oid = c.objid)
+								WHEN 'pg_namespace'::regclass THEN (SELECT nspname::text FROM pg_namespace WHERE oid = c.objid)
+								WHEN 'pg_proc'::regclass THEN (SELECT proname::text FROM pg_proc WHERE oid = c.objid)
+							END,
+							'parent', CASE
+								WHEN c.classid = 'pg_class'::regclass AND c.objsubid > 0 THEN (SELECT relname::text FROM pg_class WHERE oid = c.objid)
+								WHEN c.classid = 'pg_class'::regclass THEN (SELECT t.relname::text FROM pg_index i JOIN pg_class t ON t.oid = i.indrelid
+																			 WHERE i.indexrelid = c.objid)
+								WHEN c.classid = 'pg_constraint'::regclass THEN (SELECT t.relname::text FROM pg_constraint k JOIN pg_class t ON t.oid = k.conrelid
+																				  WHERE k.oid = c.objid)
+							END))
+					INTO objects
+					FROM pg_event_trigger_ddl_commands() c;
+				END IF;
+				IF objects IS NULL THEN
+					RETURN;
+				END IF;
+				message := json_build_object('tag', TG_TAG, 'objects', objects)::text;
+				IF octet_length(message) > 7900 THEN
+					message := json_build_object('tag', TG_TAG, 'overflow', true)::text;
+				END IF;
+				PERFORM pg_notify('nebula_ddl', message);
+			EXCEPTION WHEN OTHERS THEN
+				RAISE WARNING 'nebula ddl notify failed: %', SQLERRM;
+			END
+			$fn$;
+			DROP EVENT TRIGGER IF EXISTS nebula_ddl_end;
+			DROP EVENT TRIGGER IF EXISTS nebula_sql_drop;
+			CREATE EVENT TRIGGER nebula_ddl_end ON ddl_command_end EXECUTE FUNCTION _nebula.notify_ddl();
+			CREATE EVENT TRIGGER nebula_sql_drop ON sql_drop EXECUTE FUNCTION _nebula.notify_ddl();
+			""";
+
+	private static final String UNINSTALL_SQL = """
+			DROP EVENT TRIGGER IF EXISTS nebula_ddl_end;
+			DROP EVENT TRIGGER IF EXISTS nebula_sql_drop;
+			DROP SCHEMA IF EXISTS _nebula CASCADE;
+			""";
+
+	private static final String SCHEMA_FILTER = """
+			n.nspname NOT IN ('pg_catalog', 'information_schema', '_nebula')
+			AND n.nspname NOT LIKE 'pg\\_toast%' AND n.nspname NOT LIKE 'pg\\_temp%'""";
+
+	/**
+	 * 轮询用的变化标记，一条查询读出整个库；关系的版本包括 pg_class 行、列（pg_attribute）和约束（pg_constraint）
+	 */
+	private static final String MARKER_SQL = """
+			SELECT 'schema' AS category, NULL AS kind, n.nspname AS schema, NULL AS name, NULL AS parent, n.xmin::text AS version
+			FROM pg_namespace n
+			WHERE %1$s
+			UNION ALL
+			SELECT 'relation', c.relkind::text, n.nspname, c.relname, t.relname,
+			       c.xmin::text || '/' || coalesce(a.version, '') || '/' || coalesce(k.version, '')
+			FROM pg_class c
+			JOIN pg_namespace n ON n.oid = c.relnamespace
+			LEFT JOIN pg_index i ON i.indexrelid = c.oid
+			LEFT JOIN pg_class t ON t.oid = i.indrelid
+			LEFT JOIN (SELECT attrelid, count(*) || ':' || max(xmin::text::bigint) AS version
+			           FROM pg_attribute WHERE attnum > 0 GROUP BY attrelid) a ON a.attrelid = c.oid
+			LEFT JOIN (SELECT conrelid, count(*) || ':' || max(xmin::text::bigint) AS version
+			           FROM pg_constraint WHERE conrelid <> 0 GROUP BY conrelid) k ON k.conrelid = c.oid
+			WHERE %1$s AND c.relkind IN ('r', 'p', 'f', 'v', 'm', 'S', 'i', 'I')
+			UNION ALL
+			SELECT 'routine', p.prokind::text, n.nspname, NULL, NULL, count(*) || ':' || max(p.xmin::text::bigint)
+			FROM pg_proc p
+			JOIN pg_namespace n ON n.oid = p.pronamespace
+			WHERE %1$s AND p.prokind IN ('f', 'p')
+			GROUP BY n.nspname, p.prokind
+			""".formatted(SCHEMA_FILTER);
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final String key;
+	private final String url;
+	private final Properties properties;
+	private final String database;
+	private final boolean useTrigger;
+	private final Duration pollInterval;
+	private final Duration reconnectDelay;
+	private final BiConsumer<String, List<DdlObject>> listener;
+
+	/**
+	 * 共用这个监视的连接配置
+	 */
+	private final Set<String> connIds = new CopyOnWriteArraySet<>();
+
+	private final AtomicLong events = new AtomicLong();
+	private final CountDownLatch closed = new CountDownLatch(1);
+	private volatile boolean running = true;
+	private volatile String mode;
+	private volatile String note;
+	private volatile String error;
+	private volatile Instant lastEventAt;
+
+	PgDdlWatch(String key, String url, Properties properties, String database, boolean useTrigger, Duration pollInterval,
+			   Duration reconnectDelay, BiConsumer<String, List<DdlObject>> listener) {
+		this.key = key;
+		this.url = url;
+		this.properties = properties;
+		this.database = database;
+		this.useTrigger = useTrigger;
+		this.pollInterval = pollInterval;
+		this.reconnectDelay = reconnectDelay;
+		this.listener = listener;
+	}
+
+	void start() {
+		Thread.ofVirtual().name("metadata-watch-" + key).start(this::run);
+	}
+
+	/**
+	 * 轮询和重连的等待立即结束，等待通知时最多 5 秒后退出。不中断监听线程：
+	 * 中断会关闭驱动正在读的 socket，打包运行时还会打断驱动从 jar 中加载类
+	 */
+	void close() {
+		running = false;
+		closed.countDown();
+	}
+
+	String getKey() {
+		return key;
+	}
+
+	String getDatabase() {
+		return database;
+	}
+
+	boolean isUseTrigger() {
+		return useTrigger;
+	}
+
+	Set<String> getConnIds() {
+		return connIds;
+	}
+
+	WatchStatus status() {
+		return new WatchStatus(key, database, mode, List.copyOf(connIds), events.get(), lastEventAt, note, error);
+	}
+
+	/**
+	 * 删除事件触发器和 _nebula schema；使用单独的连接，与监听线程无关
+	 */
+	void uninstall() throws SQLException {
+		try (Connection con = DriverManager.getConnection(url, properties); Statement st = con.createStatement()) {
+			st.execute(UNINSTALL_SQL);
+		}
+	}
+
+	private void run() {
+		boolean connectedBefore = false;
+		while (running) {
+			try (Connection con = DriverManager.getConnection(url, properties)) {
+				mode = useTrigger && ensureTrigger(con) ? MODE_TRIGGER : MODE_POLL;
+				error = null;
+				if (connectedBefore) {
+					// 断开期间的变化无从得知
+					fire("reconnect", null);
+				}
+				connectedBefore = true;
+				log.info("Watching metadata of {} by {}", key, mode);
+				if (MODE_TRIGGER.equals(mode) && !listen(con)) {
+					mode = MODE_POLL;
+					note = "event trigger removed, polling every " + pollInterval;
+					log.info("Event trigger on {} was removed, falling back to polling", key);
+					// 触发器消失到发现之间的变化无从得知
+					fire(MODE_POLL, null);
+				}
+				if (MODE_POLL.equals(mode)) {
+					poll(con);
+				}
+			} catch (SQLException e) {
+				if (!running) {
+					break;
+				}
+				error = e.getMessage();
+				log.warn("Metadata watch of {} failed, reconnecting in {}: {}", key, reconnectDelay, e.getMessage());
+				try {
+					if (closed.await(reconnectDelay.toMillis(), TimeUnit.MILLISECONDS)) {
+						break;
+					}
+				} catch (InterruptedException ie) {
+					break;
+				}
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+		log.info("Stopped watching metadata of {}", key);
+	}
+
+	/**
+	 * 已有启用的触发器时直接使用，否则尝试安装；没有权限时返回 false，改为轮询
+	 */
+	private boolean ensureTrigger(Connection con) throws SQLException {
+		if (triggerEnabled(con)) {
+			note = null;
+			return true;
+		}
+		boolean autoCommit = con.getAutoCommit();
+		con.setAutoCommit(false);
+		try (Statement st = con.createStatement()) {
+			st.execute(INSTALL_SQL);
+			con.commit();
+			note = "event trigger installed";
+			return true;
+		} catch (SQLException e) {
+			con.rollback();
+			note = "event trigger not installed, polling every " + pollInterval + ": " + e.getMessage();
+			log.info("Cannot install event trigger on {}, falling back to polling: {}", key, e.getMessage());
+			return false;
+		} finally {
+			con.setAutoCommit(autoCommit);
+		}
+	}
+
+	private static boolean triggerEnabled(Connection con) throws SQLException {
+		try (Statement st = con.createStatement();
+			 ResultSet rs = st.executeQuery("SELECT count(*) FROM pg_event_trigger WHERE evtname IN ('nebula_ddl_end', 'nebula_sql_drop') AND evtenabled <> 'D'")) {
+			rs.next();
+			return rs.getInt(1) == 2;
+		}
+	}
+
+	/**
+	 * 监听通知直到关闭（返回 true）或发现触发器已被删除、禁用（返回 false）
+	 */
+	private boolean listen(Connection con) throws SQLException {
+		try (Statement st = con.createStatement()) {
+			st.execute("LISTEN " + CHANNEL);
+		}
+		PGConnection pg = con.unwrap(PGConnection.class);
+		long nextCheck = System.nanoTime() + pollInterval.toNanos();
+		while (running) {
+			if (System.nanoTime() - nextCheck >= 0) {
+				if (!triggerEnabled(con)) {
+					return false;
+				}
+				nextCheck = System.nanoTime() + pollInterval.toNanos();
+			}
+			// 只在客户端等待，不向服务端发送任何请求
+			PGNotification[] notifications = pg.getNotifications(5000);
+			if (notifications == null || notifications.length == 0) {
+				continue;
+			}
+			List<DdlObject> objects = new ArrayList<>();
+			boolean overflow = false;
+			for (PGNotification notification : notifications) {
+				List<DdlObject> parsed = parse(notification.getParameter());
+				if (parsed == null) {
+					overflow = true;
+				} else {
+					objects.addAll(parsed);
+				}
+			}
+			fire(MODE_TRIGGER, overflow ? null : objects);
+		}
+		return true;
+	}
+
+	private void poll(Connection con) throws SQLException, InterruptedException {
+		Map<String, Marker> previous = markers(con);
+		while (running) {
+			if (closed.await(pollInterval.toMillis(), TimeUnit.MILLISECONDS)) {
+				return;
+			}
+			Map<String, Marker> current = markers(con);
+			List<DdlObject> changed = new ArrayList<>();
+			for (Map.Entry<String, Marker> entry : current.entrySet()) {
+				if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+					changed.add(entry.getValue().object());
+				}
+			}
+			for (Map.Entry<String, Marker> entry : previous.entrySet()) {
+				if (!current.containsKey(entry.getKey())) {
+					changed.add(entry.getValue().object());
+				}
+			}
+			if (!changed.isEmpty()) {
+				fire(MODE_POLL, changed);
+			}
+			previous = current;
+		}
+	}
+
+	private void fire(String source, List<DdlObject> objects) {
+		events.incrementAndGet();
+		lastEventAt = Instant.now();
+		try {
+			listener.accept(source, objects);
+		} catch (RuntimeException e) {
+			log.warn("Failed to dispatch metadata change of {}: {}", key, e.getMessage());
+		}
+	}
+
+	/**
+	 * 通知内容见 INSTALL_SQL；被截断（overflow）或无法解析时返回 null
+	 */
+	static List<DdlObject> parse(String payload) {
+		try {
+			JsonNode root = MAPPER.readTree(payload);
+			if (root.path("overflow").asBoolean(false) || !root.path("objects").isArray()) {
+				return null;
+			}
+			List<DdlObject> objects = new ArrayList<>();
+			for (JsonNode object : root.path("objects")) {
+				objects.add(new DdlObject(text(object, "type"), text(object, "schema"), text(object, "name"), text(object, "parent")));
+			}
+			return objects;
+		} catch (Exception e) {
+			log.debug("Unparsable ddl notification: {}", payload);
+			return null;
+		}
+	}
+
+	private static String text(JsonNode node, String field) {
+		JsonNode value = node.get(field);
+		return value == null || value.isNull() ? null : value.asText();
+	}
+
+	private static Map<String, Marker> markers(Connection con) throws SQLException {
+		Map<String, Marker> markers = new HashMap<>();
+		try (Statement st = con.createStatement(); ResultSet rs = st.executeQuery(MARKER_SQL)) {
+			while (rs.next()) {
+				String category = rs.getString("category");
+				String kind = rs.getString("kind");
+				String schema = rs.getString("schema");
+				String name = rs.getString("name");
+				DdlObject object = switch (category) {
+					case "schema" -> new DdlObject("schema", null, schema, null);
+					case "routine" -> new DdlObject("p".equals(kind) ? "procedure" : "function", schema, null, null);
+					default -> new DdlObject(relationType(kind), schema, name, rs.getString("parent"));
+				};
+				String id = category + "/" + schema + "/" + (name == null ? kind : name);
+				markers.put(id, new Marker(object, rs.getString("version")));
+			}
+		}
+		return markers;
+	}
+
+	private static String relationType(String relkind) {
+		return switch (relkind) {
+			case "r", "p" -> "table";
+			case "f" -> "foreign table";
+			case "v" -> "view";
+			case "m" -> "materialized view";
+			case "S" -> "sequence";
+			default -> "index";
+		};
+	}
+
+	private record Marker(DdlObject object, String version) {
+	}
+}
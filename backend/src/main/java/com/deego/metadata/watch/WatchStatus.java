@@ -0,0 +1,15 @@
+package com.deego.metadata.watch;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 一个库的结构监视状态。key 为 host:port/database；mode 为 trigger（事件触发器 + LISTEN）或 poll（轮询目录），
+ * 连接成功前为空；events 为收到的变化次数；note 说明触发器的情况（为何退回轮询），error 为最近一次连接失败的原因
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record WatchStatus(String key, String database, String mode, List<String> connIds, long events, Instant lastEventAt,
+						  String note, String error) {
+}
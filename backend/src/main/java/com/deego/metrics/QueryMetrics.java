@@ -0,0 +1,48 @@
+package com.deego.metrics;
+
+import com.deego.enums.QueryPhase;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按连接和阶段记录查询耗时：写入 Micrometer 计时器（nebula.query.phase，标签 connection / phase），
+ * 同时累加到当前请求的 {@link QueryTiming}
+ */
+@Component
+public class QueryMetrics {
+
+	public static final String TIMER = "nebula.query.phase";
+
+	@Autowired
+	private MeterRegistry registry;
+
+	public void record(String connectionId, QueryPhase phase, long nanos) {
+		QueryTiming timing = QueryTiming.current();
+		if (timing != null) {
+			timing.add(connectionId, phase, nanos);
+		}
+		if (connectionId != null) {
+			timer(connectionId, phase).record(nanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Micrometer 按名称和标签缓存计时器，重复注册返回同一个实例；分位数由 HdrHistogram 在滑动窗口内计算
+	 */
+	private Timer timer(String connectionId, QueryPhase phase) {
+		return Timer.builder(TIMER)
+				.description("Time spent in each phase of a database request")
+				.tag("connection", connectionId)
+				.tag("phase", phase.tag())
+				.publishPercentiles(0.5, 0.95, 0.99)
+				.publishPercentileHistogram()
+				.minimumExpectedValue(Duration.ofNanos(10_000))
+				.maximumExpectedValue(Duration.ofMinutes(10))
+				.register(registry);
+	}
+}
@@ -0,0 +1,71 @@
+package com.deego.metrics;
+
+import com.deego.enums.QueryPhase;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * 单个 HTTP 请求内各阶段的累计耗时，绑定在处理请求的线程上。
+ * 一个请求可能执行多条语句（如元数据浏览），同一阶段的耗时累加后写入 Server-Timing 响应头。
+ */
+public final class QueryTiming {
+
+	public static final String HEADER = "Server-Timing";
+
+	private static final ThreadLocal<QueryTiming> CURRENT = new ThreadLocal<>();
+
+	private final long startNanos = System.nanoTime();
+	private final Map<QueryPhase, Long> phases = new EnumMap<>(QueryPhase.class);
+	private String connectionId;
+
+	private QueryTiming() {
+	}
+
+	public static QueryTiming begin() {
+		QueryTiming timing = new QueryTiming();
+		CURRENT.set(timing);
+		return timing;
+	}
+
+	/**
+	 * 当前线程上的计时，不在被计时的请求中（后台任务、流式响应的写出线程）时为 null
+	 */
+	public static QueryTiming current() {
+		return CURRENT.get();
+	}
+
+	public static void end() {
+		CURRENT.remove();
+	}
+
+	synchronized void add(String connectionId, QueryPhase phase, long nanos) {
+		if (connectionId != null) {
+			this.connectionId = connectionId;
+		}
+		phases.merge(phase, nanos, Long::sum);
+	}
+
+	/**
+	 * 本次请求最近一次使用的连接 id，序列化阶段的耗时记在这个连接下
+	 */
+	public synchronized String connectionId() {
+		return connectionId;
+	}
+
+	/**
+	 * 形如 admission;dur=0.012, execute;dur=3.210, total;dur=4.001（毫秒）
+	 */
+	public synchronized String toHeaderValue() {
+		StringJoiner joiner = new StringJoiner(", ");
+		phases.forEach((phase, nanos) -> joiner.add(entry(phase.tag(), nanos)));
+		joiner.add(entry("total", System.nanoTime() - startNanos));
+		return joiner.toString();
+	}
+
+	private static String entry(String name, long nanos) {
+		return name + ";dur=" + String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+	}
+}
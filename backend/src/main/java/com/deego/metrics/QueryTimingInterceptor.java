@@ -0,0 +1,28 @@
+package com.deego.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * 为查询、元数据和 DDL 操作请求开启 {@link QueryTiming}，请求结束（或转入异步处理）时清理
+ */
+public class QueryTimingInterceptor implements AsyncHandlerInterceptor {
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		QueryTiming.begin();
+		return true;
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		// 流式响应在其它线程写出，响应头已经提交，阶段耗时只进入指标
+		QueryTiming.end();
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		QueryTiming.end();
+	}
+}
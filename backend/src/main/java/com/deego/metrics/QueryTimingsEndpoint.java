@@ -0,0 +1,62 @@
+package com.deego.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /actuator/querytimings：按连接、阶段汇总查询耗时（次数、平均、最大和 p50/p95/p99，单位毫秒）
+ */
+@Component
+@Endpoint(id = "querytimings")
+public class QueryTimingsEndpoint {
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@ReadOperation
+	public Map<String, Map<String, Map<String, Object>>> timings() {
+		return summarize(null);
+	}
+
+	@ReadOperation
+	public Map<String, Map<String, Object>> connection(@Selector String connectionId) {
+		return summarize(connectionId).getOrDefault(connectionId, Map.of());
+	}
+
+	private Map<String, Map<String, Map<String, Object>>> summarize(String connectionId) {
+		Map<String, Map<String, Map<String, Object>>> result = new TreeMap<>();
+		var search = registry.find(QueryMetrics.TIMER);
+		if (connectionId != null) {
+			search = search.tag("connection", connectionId);
+		}
+		for (Timer timer : search.timers()) {
+			String connection = timer.getId().getTag("connection");
+			String phase = timer.getId().getTag("phase");
+			result.computeIfAbsent(connection, k -> new TreeMap<>()).put(phase, summary(timer.takeSnapshot()));
+		}
+		return result;
+	}
+
+	private static Map<String, Object> summary(HistogramSnapshot snapshot) {
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("count", snapshot.count());
+		summary.put("meanMs", snapshot.mean(TimeUnit.MILLISECONDS));
+		summary.put("maxMs", snapshot.max(TimeUnit.MILLISECONDS));
+		for (ValueAtPercentile p : snapshot.percentileValues()) {
+			summary.put("p" + Math.round(p.percentile() * 100) + "Ms", p.value(TimeUnit.MILLISECONDS));
+		}
+		return summary;
+	}
+}
@@ -0,0 +1,60 @@
+package com.deego.metrics;
+
+import com.deego.enums.QueryPhase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * 计时的 JSON 转换器：直接写出响应体，不在内存中缓冲整个结果。
+ * 响应头在开始输出时提交，Server-Timing 头中是序列化之前的各阶段；序列化耗时总是计入指标，
+ * 容器支持 trailer（HTTP/1.1 分块传输、HTTP/2）时再以 Server-Timing trailer 发送包含序列化和总耗时的完整计时
+ */
+public class TimingJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+	private final QueryMetrics metrics;
+
+	public TimingJacksonHttpMessageConverter(ObjectMapper objectMapper, QueryMetrics metrics) {
+		super(objectMapper);
+		this.metrics = metrics;
+	}
+
+	@Override
+	protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+			throws IOException, HttpMessageNotWritableException {
+		QueryTiming timing = QueryTiming.current();
+		if (timing == null) {
+			super.writeInternal(object, type, outputMessage);
+			return;
+		}
+		outputMessage.getHeaders().set(QueryTiming.HEADER, timing.toHeaderValue());
+		addTrailer(outputMessage, timing);
+		long start = System.nanoTime();
+		try {
+			super.writeInternal(object, type, outputMessage);
+		} finally {
+			metrics.record(timing.connectionId(), QueryPhase.SERIALIZE, System.nanoTime() - start);
+		}
+	}
+
+	private static void addTrailer(HttpOutputMessage outputMessage, QueryTiming timing) {
+		if (!(outputMessage instanceof ServletServerHttpResponse servlet)) {
+			return;
+		}
+		HttpServletResponse response = servlet.getServletResponse();
+		try {
+			response.setTrailerFields(() -> Map.of(QueryTiming.HEADER, timing.toHeaderValue()));
+		} catch (IllegalStateException e) {
+			// HTTP/1.0 等不支持 trailer，只计入指标
+			return;
+		}
+		outputMessage.getHeaders().set("Trailer", QueryTiming.HEADER);
+	}
+}
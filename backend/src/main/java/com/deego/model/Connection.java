@@ -25,5 +25,11 @@ public class Connection {
 	@Column(name = "parent_id")
 	private String parentId;
 
+	/**
+	 * 该连接上查询的默认超时（秒），为空时使用全局配置
+	 */
+	@Column(name = "query_timeout")
+	private Integer queryTimeout;
+
 	private Boolean connected = false;
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.deego.model.param;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * /api/transfer/compare 的请求参数：比较两个连接上的两张表的数据（如主库与副本、迁移前后、预发与生产）
+ */
+@Getter
+@Setter
+public class DataCompareParam {
+
+	private String sourceConnId;
+
+	/**
+	 * 源数据库，为空时使用源连接上配置的默认库
+	 */
+	private String sourceDatabase;
+
+	private String sourceSchema;
+
+	private String sourceTable;
+
+	private String targetConnId;
+
+	/**
+	 * 目标数据库，为空时使用目标连接上配置的默认库
+	 */
+	private String targetDatabase;
+
+	/**
+	 * 目标 schema，为空时使用目标连接的默认 schema
+	 */
+	private String targetSchema;
+
+	/**
+	 * 目标表，为空时与源表同名
+	 */
+	private String targetTable;
+
+	/**
+	 * 用于划分范围和对应行的键列（两端同名），为空时使用源表的主键。两端的键列上都需要有索引，否则每个范围都是一次全表扫描；文本键两端的排序规则需要一致
+	 */
+	private List<String> keyColumns;
+
+	/**
+	 * 参与比较的列（两端同名），为空时比较两端都有的列（名称不区分大小写）
+	 */
+	private List<String> columns;
+
+	/**
+	 * 同时比较的范围数，默认 4；每个范围占用源和目标各一个 BULK 连接，受准入控制的并发上限约束
+	 */
+	private Integer parallel;
+
+	/**
+	 * 初始划分时每个范围的行数，默认 100000
+	 */
+	private Integer chunkRows;
+
+	/**
+	 * 哈希不一致的范围不超过这么多行时逐行比较，否则继续细分，默认 1000
+	 */
+	private Integer leafRows;
+
+	/**
+	 * 最多保留的差异行数，默认 1000；超出后只计数
+	 */
+	private Integer maxDiffs;
+}
@@ -0,0 +1,77 @@
+package com.deego.model.param;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /api/query/edits 的请求参数：结果表格中对一张表的一组修改，在一个事务中全部生效或全部回滚
+ */
+@Getter
+@Setter
+public class EditSetParam {
+
+	private String connId;
+
+	/**
+	 * 目标数据库，为空时使用连接上配置的默认库
+	 */
+	private String database;
+
+	private String schemaName;
+
+	private String objectName;
+
+	/**
+	 * 定位行的键列，为空时使用表的主键
+	 */
+	private List<String> keyColumns;
+
+	/**
+	 * 新增的行：列名 -> 值，没有给出的列取默认值
+	 */
+	private List<Map<String, Object>> inserts;
+
+	/**
+	 * 修改的行，key 和 values 都要给出
+	 */
+	private List<RowEdit> updates;
+
+	/**
+	 * 删除的行，只需要 key
+	 */
+	private List<RowEdit> deletes;
+
+	/**
+	 * 客户端生成的 ID，执行中可通过 /api/query/{queryId}/cancel 取消；为空时由服务端生成
+	 */
+	private String queryId;
+
+	/**
+	 * 每条语句的超时（秒），优先于连接上的默认超时
+	 */
+	private Integer timeout;
+
+	@Getter
+	@Setter
+	public static class RowEdit {
+
+		/**
+		 * 键列 -> 行被读取时的键值
+		 */
+		private Map<String, Object> key;
+
+		/**
+		 * 要写入的列 -> 新值
+		 */
+		private Map<String, Object> values;
+
+		/**
+		 * 乐观并发检查：列 -> 读取时的值。数据库中的当前值与之不同（其他会话已修改或删除该行）时视为冲突，整组修改回滚。
+		 * 为空时只按键定位，不做检查
+		 */
+		private Map<String, Object> original;
+	}
+}
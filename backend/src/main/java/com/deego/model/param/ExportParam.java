@@ -0,0 +1,68 @@
+package com.deego.model.param;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * /api/transfer/export 的请求参数；指定 query 时导出查询结果，否则导出 schemaName.objectName 整张表
+ */
+@Getter
+@Setter
+public class ExportParam {
+
+	private String connId;
+
+	/**
+	 * 目标数据库，为空时使用连接上配置的默认库
+	 */
+	private String database;
+
+	private String schemaName;
+
+	private String objectName;
+
+	/**
+	 * 只导出这些列，为空时导出全部列
+	 */
+	private List<String> columns;
+
+	private String query;
+
+	/**
+	 * 数据格式：csv（默认）/ tsv / binary / parquet
+	 */
+	private String format;
+
+	/**
+	 * CSV/TSV 是否输出表头，默认输出
+	 */
+	private Boolean header;
+
+	/**
+	 * 压缩方式：none（默认）/ gzip / lz4，压缩在独立的线程上与导出并行进行。
+	 * parquet 格式压缩的是文件内的数据页：none / snappy / gzip / zstd / lz4，默认取 nebula.transfer.parquet-compression
+	 */
+	private String compression;
+
+	/**
+	 * parquet 格式每个行组的大小，如 128MB，默认取 nebula.transfer.parquet-row-group-size；行组越大压缩率越高，导出时占用的内存也越多
+	 */
+	private String rowGroupSize;
+
+	/**
+	 * 并行度：大于 1 时把表按范围切分，各段在独立的池连接上共享同一个快照导出，结果按范围顺序合并；只支持导出整张表
+	 */
+	private Integer parallel;
+
+	/**
+	 * 并行导出的切分方式：ctid（默认，按数据块范围）/ pk（按单列整数主键的值范围）
+	 */
+	private String partitionBy;
+
+	/**
+	 * 客户端生成的 ID，可通过 /api/query/{queryId}/cancel 中止导出；为空时由服务端生成
+	 */
+	private String queryId;
+}
@@ -0,0 +1,70 @@
+package com.deego.model.param;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+/**
+ * /api/transfer/import 的请求参数。数据来自上传的文件，或者服务器上的 filePath
+ */
+@Getter
+@Setter
+public class ImportParam {
+
+	private String connId;
+
+	/**
+	 * 目标数据库，为空时使用连接上配置的默认库
+	 */
+	private String database;
+
+	private String schemaName;
+
+	private String objectName;
+
+	/**
+	 * 服务器上的源文件路径，上传文件时忽略
+	 */
+	private String filePath;
+
+	/**
+	 * 源文件格式：csv（默认）/ tsv / jsonl
+	 */
+	private String format;
+
+	/**
+	 * 源文件的压缩方式：auto（默认，按文件头识别）/ none / gzip / lz4
+	 */
+	private String compression;
+
+	/**
+	 * CSV/TSV 第一行是否为表头，默认是；没有表头时按列序号（1, 2, ...）映射
+	 */
+	private Boolean header;
+
+	/**
+	 * 源字段到目标列的映射，为空时按同名（不区分大小写）映射
+	 */
+	private Map<String, String> mapping;
+
+	/**
+	 * 每批（一条 COPY 语句 / 一个事务）的行数，为空时使用 nebula.transfer.batch-size
+	 */
+	private Integer batchSize;
+
+	/**
+	 * 跳过源文件的前 N 条数据记录，用于从上次失败的位置继续导入
+	 */
+	private Long skipRows;
+
+	/**
+	 * 批次写入失败时的处理：stop（默认，停止导入，可以之后继续）/ skip（记录错误后继续下一批）
+	 */
+	private String onError;
+
+	/**
+	 * 类型转换失败的记录数上限，超过后停止导入；为空时使用 nebula.transfer.max-errors
+	 */
+	private Integer maxErrors;
+}
@@ -0,0 +1,59 @@
+package com.deego.model.param;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * /api/query/preview 的请求参数：打开一张表（或视图）浏览数据
+ */
+@Getter
+@Setter
+public class PreviewParam {
+
+	private String connId;
+
+	/**
+	 * 目标数据库，为空时使用连接上配置的默认库
+	 */
+	private String database;
+
+	private String schemaName;
+
+	private String objectName;
+
+	/**
+	 * 第一页的行数，默认 200，不超过 nebula.cursor.max-window-size
+	 */
+	private Integer limit;
+
+	/**
+	 * 结果格式：rows（默认）/ columnar
+	 */
+	private String format;
+
+	/**
+	 * 随机抽样（仅 PostgreSQL 的表和物化视图）：system 按数据页抽样，几乎不随表变大而变慢；bernoulli 按行抽样，更均匀但要扫描全表
+	 */
+	private String sample;
+
+	/**
+	 * 抽样比例（0, 100]，为空时按估算行数取一个大约能填满两页的比例
+	 */
+	private Double samplePercent;
+
+	/**
+	 * 抽样种子，相同种子在数据不变时得到相同的样本；带种子时样本按物理位置排序，第一页也相同。
+	 * 排序需要读完整个样本，大表上的比例会被限制在约 10 万行以内
+	 */
+	private Integer seed;
+
+	/**
+	 * 精确计数时使用的查询 ID，可通过 /api/query/{queryId}/cancel 取消；为空时由服务端生成
+	 */
+	private String queryId;
+
+	/**
+	 * 超时（秒），优先于连接上的默认超时
+	 */
+	private Integer timeout;
+}
@@ -0,0 +1,51 @@
+package com.deego.model.param;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * /api/query/* 的请求参数
+ */
+@Getter
+@Setter
+public class QueryParam {
+
+	private String connId;
+
+	/**
+	 * 目标数据库，为空时使用连接上配置的默认库
+	 */
+	private String database;
+
+	private String query;
+
+	/**
+	 * 绑定参数：数组对应 ? 占位符，对象对应 :name 占位符
+	 */
+	private Object params;
+
+	/**
+	 * 结果格式：rows（默认）/ columnar / arrow / parquet
+	 */
+	private String format;
+
+	/**
+	 * 客户端生成的查询 ID，用于在结果返回前取消查询；为空时由服务端生成
+	 */
+	private String queryId;
+
+	/**
+	 * 本次查询的超时（秒），优先于连接上的默认超时
+	 */
+	private Integer timeout;
+
+	/**
+	 * 是否使用结果缓存，只对只读语句生效
+	 */
+	private Boolean cache;
+
+	/**
+	 * 缓存有效期（秒），为空时使用 nebula.cache.ttl
+	 */
+	private Integer cacheTtl;
+}
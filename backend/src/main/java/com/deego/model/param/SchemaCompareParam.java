@@ -0,0 +1,37 @@
+package com.deego.model.param;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * /api/meta/compare 的请求参数：比较两个 PostgreSQL 库（或其中同名的一个 schema）的结构，生成把目标改成与源一致的迁移脚本
+ */
+@Getter
+@Setter
+public class SchemaCompareParam {
+
+	/**
+	 * 源（期望的结构，如开发库）
+	 */
+	private String sourceConnId;
+
+	/**
+	 * 源数据库，为空时使用源连接上配置的默认库
+	 */
+	private String sourceDatabase;
+
+	/**
+	 * 目标（要迁移的库，如生产库）
+	 */
+	private String targetConnId;
+
+	/**
+	 * 目标数据库，为空时使用目标连接上配置的默认库
+	 */
+	private String targetDatabase;
+
+	/**
+	 * 只比较两端同名的这个 schema，为空时比较整个库（除系统 schema 外，包括扩展）
+	 */
+	private String schemaName;
+}
@@ -0,0 +1,74 @@
+package com.deego.model.param;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * /api/transfer/copy 的请求参数：把源连接上的若干张表直接复制到目标连接，不经过中间文件
+ */
+@Getter
+@Setter
+public class TableCopyParam {
+
+	private String sourceConnId;
+
+	/**
+	 * 源数据库，为空时使用源连接上配置的默认库
+	 */
+	private String sourceDatabase;
+
+	private String targetConnId;
+
+	/**
+	 * 目标数据库，为空时使用目标连接上配置的默认库
+	 */
+	private String targetDatabase;
+
+	private List<Table> tables;
+
+	/**
+	 * 同时复制的表数，默认 2；每张表占用源和目标各一个 BULK 连接，受准入控制的并发上限约束
+	 */
+	private Integer parallel;
+
+	/**
+	 * 逐行写入时每批（一个事务）的行数，默认取 nebula.transfer.batch-size；两端都是 PostgreSQL 时整表是一条 COPY
+	 */
+	private Integer batchSize;
+
+	/**
+	 * 复制前清空目标表；两端都是 PostgreSQL 时与 COPY 在同一个事务中执行，失败后目标表保持原样
+	 */
+	private Boolean truncate;
+
+	@Getter
+	@Setter
+	public static class Table {
+
+		private String sourceSchema;
+
+		private String sourceTable;
+
+		/**
+		 * 目标 schema，为空时使用目标连接的默认 schema
+		 */
+		private String targetSchema;
+
+		/**
+		 * 目标表，为空时与源表同名；目标表需要事先建好
+		 */
+		private String targetTable;
+
+		/**
+		 * 只复制这些列（两端同名），为空时复制两端都有的列（名称不区分大小写）
+		 */
+		private List<String> columns;
+
+		/**
+		 * 源表的过滤条件，如 created_at >= '2024-01-01'
+		 */
+		private String where;
+	}
+}
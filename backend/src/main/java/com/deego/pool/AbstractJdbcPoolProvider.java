@@ -1,19 +1,29 @@
 package com.deego.pool;
 
+import com.deego.config.NebulaProperties;
 import com.deego.model.Connection;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
 public abstract class AbstractJdbcPoolProvider implements PoolProvider<HikariDataSource> {
 
+    private NebulaProperties.Pool pool = new NebulaProperties.Pool();
+
+    /**
+     * 使用 nebula.pool.* 配置，之后创建的连接池生效
+     */
+    public void configure(NebulaProperties.Pool pool) {
+        this.pool = pool;
+    }
+
     protected HikariConfig baseConfig(Connection conn, String poolName) {
         HikariConfig config = new HikariConfig();
         config.setPoolName(poolName);
-        config.setMaximumPoolSize(10);
+        config.setMaximumPoolSize(pool.getMaximumPoolSize());
         config.setMinimumIdle(0);
         config.setIdleTimeout(300_000L);
         config.setMaxLifetime(1_800_000L);
-        config.setConnectionTimeout(30_000L);
+        config.setConnectionTimeout(pool.getConnectionTimeout().toMillis());
         config.setInitializationFailTimeout(1L);
         return config;
     }
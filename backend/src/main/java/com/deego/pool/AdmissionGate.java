@@ -0,0 +1,229 @@
+package com.deego.pool;
+
+import com.deego.enums.WorkPriority;
+import com.deego.exception.AdmissionRejectedException;
+import com.deego.exception.BizException;
+import lombok.Getter;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单个连接池（connId@database）前的准入控制：
+ * <ul>
+ *   <li>同时执行的工作不超过 maxConcurrent，其中 BULK 不超过 maxBulk，保证交互请求总有额度</li>
+ *   <li>超出时排队，按优先级、再按到达顺序放行，最多等待 maxWait</li>
+ *   <li>队列已满时立即拒绝（{@link AdmissionRejectedException}，对应 HTTP 429），而不是在 Hikari 上等到 connectionTimeout</li>
+ * </ul>
+ * 使用 ReentrantLock 而不是 synchronized，等待时不会钉住虚拟线程的载体线程。
+ */
+public class AdmissionGate {
+
+    @Getter
+    private final String key;
+    private final int maxConcurrent;
+    private final int maxBulk;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+            Comparator.comparing((Waiter w) -> w.priority).thenComparingLong(w -> w.seq));
+    private final AtomicLong sequence = new AtomicLong();
+
+    private int active;
+    private int bulkActive;
+
+    @Getter
+    private long rejected;
+
+    @Getter
+    private long timedOut;
+
+    public AdmissionGate(String key, int maxConcurrent, int maxBulk, int maxQueue, long maxWaitMillis) {
+        this.key = key;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxBulk = Math.max(1, Math.min(maxBulk, this.maxConcurrent));
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    private final class Waiter {
+        final WorkPriority priority;
+        final int permits;
+        final long seq = sequence.incrementAndGet();
+        final Condition granted = lock.newCondition();
+        boolean admitted;
+
+        Waiter(WorkPriority priority, int permits) {
+            this.priority = priority;
+            this.permits = permits;
+        }
+    }
+
+    /**
+     * 占用一个执行额度，用 try-with-resources 归还
+     */
+    public Permit acquire(WorkPriority priority) {
+        return acquire(priority, 1);
+    }
+
+    /**
+     * 一次占用多个执行额度（超过该优先级的总额度时按总额度），全部可用时才放行，不会只占一部分；
+     * 同一个工作需要同时持有多个连接时使用，逐个申请会在额度不足时互相等待到超时。实际占用的个数见 {@link Permit#getPermits()}
+     */
+    public Permit acquire(WorkPriority priority, int permits) {
+        int count = Math.max(1, Math.min(permits, capacity(priority)));
+        lock.lock();
+        try {
+            // 每次归还额度都会立即放行可运行的等待者，所以有空闲额度时队列里只剩受额度限制的等待者，新请求可以直接运行
+            if (canRun(priority, count)) {
+                admit(priority, count);
+                return new Permit(priority, count);
+            }
+            if (queue.size() >= maxQueue) {
+                rejected++;
+                throw new AdmissionRejectedException("Too many concurrent requests on " + key + ", try again later",
+                        Math.max(1, TimeUnit.NANOSECONDS.toSeconds(maxWaitNanos)));
+            }
+            Waiter waiter = new Waiter(priority, count);
+            queue.add(waiter);
+            long remaining = maxWaitNanos;
+            try {
+                while (!waiter.admitted && remaining > 0) {
+                    remaining = waiter.granted.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abandon(waiter);
+                throw new BizException("ADMISSION_INTERRUPTED", "Interrupted while waiting for a connection slot on " + key);
+            }
+            if (!waiter.admitted) {
+                queue.remove(waiter);
+                timedOut++;
+                throw new BizException("ADMISSION_TIMEOUT", "Timed out waiting for a connection slot on " + key);
+            }
+            return new Permit(priority, count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 不排队地尝试占用额度，额度不够时立即返回 null；用于已经持有其它额度的调用方，避免持有额度时再排队等待
+     */
+    public Permit tryAcquire(WorkPriority priority, int permits) {
+        int count = Math.max(1, Math.min(permits, capacity(priority)));
+        lock.lock();
+        try {
+            if (!canRun(priority, count)) {
+                return null;
+            }
+            admit(priority, count);
+            return new Permit(priority, count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public AdmissionStats stats() {
+        lock.lock();
+        try {
+            return new AdmissionStats(key, maxConcurrent, active, bulkActive, queue.size(), rejected, timedOut);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int capacity(WorkPriority priority) {
+        return priority == WorkPriority.BULK ? maxBulk : maxConcurrent;
+    }
+
+    private boolean canRun(WorkPriority priority, int permits) {
+        return active + permits <= maxConcurrent && (priority != WorkPriority.BULK || bulkActive + permits <= maxBulk);
+    }
+
+    private void admit(WorkPriority priority, int permits) {
+        active += permits;
+        if (priority == WorkPriority.BULK) {
+            bulkActive += permits;
+        }
+    }
+
+    private void release(WorkPriority priority, int permits) {
+        lock.lock();
+        try {
+            active -= permits;
+            if (priority == WorkPriority.BULK) {
+                bulkActive -= permits;
+            }
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按优先级放行可以运行的等待者，直到额度用完；BULK 额度或剩余额度不够时跳过排在前面的等待者
+     */
+    private void dispatch() {
+        while (!queue.isEmpty() && active < maxConcurrent) {
+            // PriorityQueue 的迭代器不保证顺序，按优先级排一遍
+            Waiter next = null;
+            for (Iterator<Waiter> it = queue.iterator(); it.hasNext(); ) {
+                Waiter w = it.next();
+                if (canRun(w.priority, w.permits) && (next == null || queue.comparator().compare(w, next) < 0)) {
+                    next = w;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            queue.remove(next);
+            admit(next.priority, next.permits);
+            next.admitted = true;
+            next.granted.signal();
+        }
+    }
+
+    private void abandon(Waiter waiter) {
+        if (waiter.admitted) {
+            // 已经分配了额度，转交给下一个等待者
+            release(waiter.priority, waiter.permits);
+        } else {
+            queue.remove(waiter);
+        }
+    }
+
+    public record AdmissionStats(String key, int maxConcurrent, int active, int bulkActive, int queued,
+                                 long rejected, long timedOut) {
+    }
+
+    /**
+     * 执行额度，close 时归还并唤醒下一个等待者；重复 close 无副作用
+     */
+    public final class Permit implements AutoCloseable {
+        private final WorkPriority priority;
+        @Getter
+        private final int permits;
+        private boolean released;
+
+        private Permit(WorkPriority priority, int permits) {
+            this.priority = priority;
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(priority, permits);
+            }
+        }
+    }
+}
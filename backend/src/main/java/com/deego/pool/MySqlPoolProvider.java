@@ -19,6 +19,7 @@ public class MySqlPoolProvider extends AbstractJdbcPoolProvider {
         config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
         config.addDataSourceProperty("useServerPrepStmts", "true");
         config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        config.addDataSourceProperty("useCursorFetch", "true");
         return new HikariDataSource(config);
     }
 }
\ No newline at end of file
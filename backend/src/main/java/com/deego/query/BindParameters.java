@@ -0,0 +1,126 @@
+package com.deego.query;
+
+import com.deego.exception.BizException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.JDBCType;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * 把请求中的 SQL 和参数转换为 {@link PreparedQuery}：
+ * <ul>
+ *   <li>params 为数组时按位置绑定 ? 占位符</li>
+ *   <li>params 为对象时按名称绑定 :name 占位符，集合值会展开为 IN (?, ?, ...)</li>
+ * </ul>
+ * 参数值可以是 JSON 标量，也可以是 {"type": "TIMESTAMP", "value": "2024-01-01 00:00:00"} 这样的带类型形式，
+ * type 取 java.sql.JDBCType 的名称（另支持 UUID）。
+ */
+public final class BindParameters {
+
+	private BindParameters() {
+	}
+
+	public static PreparedQuery prepare(String sql, Object params) {
+		if (params == null) {
+			return new PreparedQuery(sql, new Object[0]);
+		}
+		if (params instanceof List<?> list) {
+			return new PreparedQuery(sql, list.stream().map(BindParameters::toValue).toArray());
+		}
+		if (params instanceof Map<?, ?> map) {
+			MapSqlParameterSource source = new MapSqlParameterSource();
+			map.forEach((name, value) -> source.addValue(String.valueOf(name), toNamedValue(value)));
+			ParsedSql parsed = NamedParameterUtils.parseSqlStatement(sql);
+			String positional = NamedParameterUtils.substituteNamedParameters(parsed, source);
+			try {
+				// substituteNamedParameters 已经为集合值生成了多个 ?，这里把值也展开
+				Object[] args = NamedParameterUtils.buildValueArray(parsed, source, null);
+				return new PreparedQuery(positional, Arrays.stream(args)
+						.flatMap(arg -> arg instanceof Collection<?> c ? c.stream().map(Object.class::cast) : Stream.of(arg))
+						.toArray());
+			} catch (InvalidDataAccessApiUsageException e) {
+				throw new BizException("INVALID_PARAMETER", e.getMessage());
+			}
+		}
+		throw new BizException("INVALID_PARAMETER", "params must be an array (for ?) or an object (for :name)");
+	}
+
+	/**
+	 * 缓存键中使用的参数表示，SqlParameterValue 没有实现 equals
+	 */
+	static Object cacheKeyOf(Object arg) {
+		if (arg instanceof SqlParameterValue v) {
+			return List.of(v.getSqlType(), Objects.toString(v.getValue()));
+		}
+		return arg;
+	}
+
+	private static Object toNamedValue(Object value) {
+		// 集合交给 NamedParameterUtils 展开成多个占位符
+		if (value instanceof Collection<?> c) {
+			return c.stream().map(BindParameters::toValue).toList();
+		}
+		return toValue(value);
+	}
+
+	private static Object toValue(Object value) {
+		if (!(value instanceof Map<?, ?> typed) || !typed.containsKey("type")) {
+			return value;
+		}
+		String type = String.valueOf(typed.get("type")).toUpperCase(Locale.ROOT);
+		Object raw = typed.get("value");
+		if ("UUID".equals(type)) {
+			return new SqlParameterValue(JDBCType.OTHER.getVendorTypeNumber(), raw == null ? null : UUID.fromString(raw.toString()));
+		}
+		JDBCType jdbcType;
+		try {
+			jdbcType = JDBCType.valueOf(type);
+		} catch (IllegalArgumentException e) {
+			throw new BizException("INVALID_PARAMETER", "Unknown parameter type: " + type);
+		}
+		try {
+			return new SqlParameterValue(jdbcType.getVendorTypeNumber(), raw == null ? null : convert(jdbcType, raw));
+		} catch (NumberFormatException | DateTimeParseException e) {
+			throw new BizException("INVALID_PARAMETER", "Cannot convert '" + raw + "' to " + type + ": " + e.getMessage());
+		}
+	}
+
+	private static Object convert(JDBCType type, Object raw) {
+		String text = raw.toString();
+		return switch (type) {
+			case TINYINT, SMALLINT, INTEGER -> raw instanceof Number n ? n.intValue() : Integer.valueOf(text.trim());
+			case BIGINT -> raw instanceof Number n ? n.longValue() : Long.valueOf(text.trim());
+			case REAL, FLOAT -> raw instanceof Number n ? n.floatValue() : Float.valueOf(text.trim());
+			case DOUBLE -> raw instanceof Number n ? n.doubleValue() : Double.valueOf(text.trim());
+			case NUMERIC, DECIMAL -> new BigDecimal(text.trim());
+			case BIT, BOOLEAN -> raw instanceof Boolean b ? b : Boolean.valueOf(text.trim());
+			case DATE -> Date.valueOf(LocalDate.parse(text.trim()));
+			case TIME -> Time.valueOf(LocalTime.parse(text.trim()));
+			case TIMESTAMP -> Timestamp.valueOf(LocalDateTime.parse(text.trim().replace(' ', 'T')));
+			case TIMESTAMP_WITH_TIMEZONE -> OffsetDateTime.parse(text.trim().replace(' ', 'T'));
+			case BINARY, VARBINARY, LONGVARBINARY, BLOB -> Base64.getDecoder().decode(text);
+			default -> raw instanceof String || raw instanceof Number || raw instanceof Boolean ? raw : text;
+		};
+	}
+}
@@ -0,0 +1,34 @@
+package com.deego.query;
+
+/**
+ * 多位的 bit(n) 值统一写成由 '0'、'1' 组成的位串：PostgreSQL 驱动本身返回位串文本，
+ * MySQL 驱动返回按大端右对齐打包的字节数组，直接 toString 会得到数组的地址
+ */
+public final class BitString {
+
+	private BitString() {
+	}
+
+	/**
+	 * 列是否是多位的位串（bit(1) 按布尔值处理）
+	 */
+	public static boolean isBitString(String typeName, int precision) {
+		return "bit".equalsIgnoreCase(typeName) && precision > 1;
+	}
+
+	/**
+	 * length 为列声明的位数；字节数组取最低的 length 位，不足时在前面补 0
+	 */
+	public static String of(Object value, int length) {
+		if (!(value instanceof byte[] bytes)) {
+			return value.toString();
+		}
+		int total = bytes.length * 8;
+		int bits = length > 0 ? length : total;
+		StringBuilder text = new StringBuilder(bits);
+		for (int i = total - bits; i < total; i++) {
+			text.append(i >= 0 && (bytes[i / 8] & (0x80 >>> (i % 8))) != 0 ? '1' : '0');
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,46 @@
+package com.deego.query;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 结果集列信息
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ColumnMeta {
+
+	/**
+	 * 列名（别名优先）
+	 */
+	private String name;
+
+	/**
+	 * java.sql.Types 中的类型编码
+	 */
+	private int jdbcType;
+
+	/**
+	 * 数据库原生类型名，例如 int4 / varchar
+	 */
+	private String typeName;
+
+	public static List<ColumnMeta> of(ResultSetMetaData meta) throws SQLException {
+		int count = meta.getColumnCount();
+		List<ColumnMeta> columns = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			columns.add(new ColumnMeta(JdbcUtils.lookupColumnName(meta, i), meta.getColumnType(i), meta.getColumnTypeName(i)));
+		}
+		return columns;
+	}
+}
@@ -0,0 +1,89 @@
+package com.deego.query;
+
+import lombok.Getter;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列式结果：列信息只出现一次，data.get(i) 是第 i 列的全部取值。
+ * 对宽表而言可以去掉 JSON 中重复的列名，显著减小响应体积与序列化开销。
+ */
+@Getter
+public class ColumnarResult {
+
+	private final List<ColumnMeta> columns;
+
+	private final List<List<Object>> data;
+
+	private int rowCount;
+
+	public ColumnarResult(List<ColumnMeta> columns) {
+		this.columns = columns;
+		this.data = new ArrayList<>(columns.size());
+		for (int i = 0; i < columns.size(); i++) {
+			data.add(new ArrayList<>());
+		}
+	}
+
+	public void addRow(ResultSet rs) throws SQLException {
+		for (int i = 0; i < data.size(); i++) {
+			data.get(i).add(JdbcUtils.getResultSetValue(rs, i + 1));
+		}
+		rowCount++;
+	}
+
+	public void addRow(Map<String, Object> row) {
+		for (int i = 0; i < data.size(); i++) {
+			data.get(i).add(row.get(columns.get(i).getName()));
+		}
+		rowCount++;
+	}
+
+	/**
+	 * 直接从 ResultSet 构建，不经过逐行的 Map
+	 */
+	public static ColumnarResult of(ResultSet rs) throws SQLException {
+		ColumnarResult result = new ColumnarResult(ColumnMeta.of(rs.getMetaData()));
+		while (rs.next()) {
+			result.addRow(rs);
+		}
+		return result;
+	}
+
+	/**
+	 * 已知列信息时，把行式结果转换为列式
+	 */
+	public static ColumnarResult of(List<ColumnMeta> columns, List<Map<String, Object>> rows) {
+		ColumnarResult result = new ColumnarResult(columns);
+		rows.forEach(result::addRow);
+		return result;
+	}
+
+	/**
+	 * 行式结果（例如元数据树节点）转换为列式：列取所有行 key 的并集，类型按第一个非空值推断
+	 */
+	public static ColumnarResult of(List<Map<String, Object>> rows) {
+		Map<String, Integer> types = new LinkedHashMap<>();
+		for (Map<String, Object> row : rows) {
+			row.forEach((key, value) -> {
+				Integer type = types.get(key);
+				if (value != null && (type == null || type == SqlTypeValue.TYPE_UNKNOWN)) {
+					types.put(key, StatementCreatorUtils.javaTypeToSqlParameterType(value.getClass()));
+				} else if (type == null) {
+					types.put(key, SqlTypeValue.TYPE_UNKNOWN);
+				}
+			});
+		}
+		List<ColumnMeta> columns = new ArrayList<>(types.size());
+		types.forEach((name, type) -> columns.add(new ColumnMeta(name, type, null)));
+		return of(columns, rows);
+	}
+}
@@ -0,0 +1,20 @@
+package com.deego.query;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 打开游标后返回给前端的信息
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class CursorInfo {
+
+	private String cursorId;
+
+	private List<ColumnMeta> columns;
+}
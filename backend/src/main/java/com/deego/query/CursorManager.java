@@ -0,0 +1,194 @@
+package com.deego.query;
+
+import com.deego.config.NebulaProperties;
+import com.deego.enums.DatabaseType;
+import com.deego.enums.WorkPriority;
+import com.deego.exception.BizException;
+import com.deego.exec.DbExecutor;
+import com.deego.exec.JdbcExecutor;
+import com.deego.model.Connection;
+import com.deego.pool.AdmissionGate;
+import com.deego.service.ConnectionService;
+import com.deego.utils.IdWorker;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ObjectUtils;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务端游标管理：打开查询得到 cursorId，之后按窗口翻页，最后关闭。
+ * 每个游标独占一个池连接，空闲超时后自动关闭归还。
+ */
+@Component
+@Slf4j
+public class CursorManager {
+
+	@Autowired
+	private ConnectionService connectionService;
+
+	@Autowired
+	private NebulaProperties properties;
+
+	@Autowired
+	private RunningQueryRegistry registry;
+
+	private final Map<String, CursorSession> sessions = new ConcurrentHashMap<>();
+
+	/**
+	 * 每个游标在关闭前一直占用所在连接池的一个准入额度，和它独占的池连接对应
+	 */
+	private final Map<String, AdmissionGate.Permit> permits = new ConcurrentHashMap<>();
+
+	/**
+	 * 每个连接池（connId@database）上已打开和正在打开的游标数，用于 maxPerConnection 限制
+	 */
+	private final Map<String, Integer> openCounts = new ConcurrentHashMap<>();
+
+	/**
+	 * 打开游标；cursorId 同时作为 queryId 登记，打开和读取窗口期间都可以通过 /api/query/{cursorId}/cancel 取消
+	 */
+	public CursorInfo open(String connId, String database, String sql, Integer timeout) {
+		Connection conn = connectionService.getConnection(connId)
+										   .orElseThrow(() -> new BizException("Connection not found: " + connId));
+		String db = ObjectUtils.isEmpty(database) ? conn.getDatabase() : database;
+		String poolKey = connId + "@" + db;
+		NebulaProperties.Cursor config = properties.getCursor();
+
+		// 先原子地占一个名额：并发打开时不会同时通过检查而超出上限
+		openCounts.compute(poolKey, (k, count) -> {
+			int current = count == null ? 0 : count;
+			if (current >= config.getMaxPerConnection()) {
+				throw new BizException("CURSOR_LIMIT", "Too many open cursors on " + poolKey + ", close some result tabs first");
+			}
+			return current + 1;
+		});
+		boolean opened = false;
+		try {
+			CursorInfo info = open(conn, db, sql, timeout);
+			opened = true;
+			return info;
+		} finally {
+			if (!opened) {
+				releaseSlot(poolKey);
+			}
+		}
+	}
+
+	private CursorInfo open(Connection conn, String db, String sql, Integer timeout) {
+		String connId = conn.getId();
+		DbExecutor executor = connectionService.getExecutor(connId, db);
+		if (!(executor instanceof JdbcExecutor jdbcExecutor)) {
+			throw new BizException("Cursor is not supported for connection " + connId);
+		}
+		DataSource ds = jdbcExecutor.jdbc().getDataSource();
+
+		String id = IdWorker.getIdStr();
+		AdmissionGate.Permit permit = connectionService.admissionGate(connId, db).acquire(WorkPriority.QUERY);
+		RunningQuery query;
+		try {
+			query = registry.begin(id, conn, db, sql, timeout);
+		} catch (RuntimeException e) {
+			permit.close();
+			throw e;
+		}
+		java.sql.Connection con = null;
+		try {
+			con = ds.getConnection();
+			int timeoutSeconds = query.getTimeoutSeconds();
+			CursorSession session = DatabaseType.fromValue(conn.getDbType()) == DatabaseType.POSTGRESQL
+					? new PgCursorSession(id, connId, db, sql, timeoutSeconds, con)
+					: new JdbcCursorSession(id, connId, db, sql, timeoutSeconds, con, properties.getQuery().getFetchSize());
+			session.open(query);
+			sessions.put(id, session);
+			permits.put(id, permit);
+			return new CursorInfo(id, session.getColumns());
+		} catch (SQLException e) {
+			abandon(con, permit);
+			throw new BizException("CURSOR_ERROR", "Failed to open cursor: " + e.getMessage(), e);
+		} catch (RuntimeException e) {
+			abandon(con, permit);
+			throw e;
+		} finally {
+			registry.finish(query);
+		}
+	}
+
+	public CursorWindow fetch(String cursorId, long offset, int limit, ResultFormat format) {
+		CursorSession session = sessions.get(cursorId);
+		if (session == null) {
+			throw new BizException("CURSOR_NOT_FOUND", "Cursor not found or expired: " + cursorId);
+		}
+		int size = Math.min(Math.max(limit, 1), properties.getCursor().getMaxWindowSize());
+		RunningQuery query = registry.track(new RunningQuery(cursorId, session.getConnId(), session.getDatabase(),
+				session.getSql(), session.getTimeoutSeconds()));
+		try {
+			return session.window(Math.max(offset, 0), size, format, query);
+		} catch (SQLException e) {
+			// 事务已处于失败状态，游标不可再用
+			close(cursorId);
+			throw new BizException("CURSOR_ERROR", "Failed to fetch from cursor: " + e.getMessage(), e);
+		} finally {
+			registry.finish(query);
+		}
+	}
+
+	public void close(String cursorId) {
+		CursorSession session = sessions.remove(cursorId);
+		if (session != null) {
+			session.close();
+			releaseSlot(session.getPoolKey());
+		}
+		AdmissionGate.Permit permit = permits.remove(cursorId);
+		if (permit != null) {
+			permit.close();
+		}
+	}
+
+	/**
+	 * 定期关闭空闲游标，避免前端忘记关闭导致池连接被长期占用
+	 */
+	@Scheduled(fixedDelay = 30_000L)
+	public void evictIdle() {
+		long deadline = System.currentTimeMillis() - properties.getCursor().getIdleTimeout().toMillis();
+		List<String> idle = sessions.values().stream()
+									.filter(s -> s.getLastAccess() < deadline)
+									.map(CursorSession::getId)
+									.toList();
+		idle.forEach(id -> {
+			log.debug("Closing idle cursor {}", id);
+			close(id);
+		});
+	}
+
+	@PreDestroy
+	public void closeAll() {
+		List.copyOf(sessions.keySet()).forEach(this::close);
+	}
+
+	private void abandon(java.sql.Connection con, AdmissionGate.Permit permit) {
+		if (con != null) {
+			closeQuietly(con);
+		}
+		permit.close();
+	}
+
+	private void releaseSlot(String poolKey) {
+		openCounts.computeIfPresent(poolKey, (k, count) -> count > 1 ? count - 1 : null);
+	}
+
+	private void closeQuietly(java.sql.Connection con) {
+		try {
+			con.close();
+		} catch (SQLException e) {
+			log.debug("Failed to close connection: {}", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.deego.query;
+
+import com.deego.exec.StatementHook;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 服务端游标会话：独占一个池连接，按窗口读取结果集。
+ * 同一个会话的读取是串行的（调用方在会话上加锁）。
+ */
+@Slf4j
+public abstract class CursorSession implements AutoCloseable {
+
+	@Getter
+	private final String id;
+
+	@Getter
+	private final String connId;
+
+	@Getter
+	private final String database;
+
+	@Getter
+	private final String sql;
+
+	/**
+	 * 每次读取窗口的语句超时（秒），打开游标时确定
+	 */
+	@Getter
+	private final int timeoutSeconds;
+
+	protected final Connection con;
+
+	@Getter
+	protected List<ColumnMeta> columns;
+
+	@Getter
+	private volatile long lastAccess = System.currentTimeMillis();
+
+	protected CursorSession(String id, String connId, String database, String sql, int timeoutSeconds, Connection con) {
+		this.id = id;
+		this.connId = connId;
+		this.database = database;
+		this.sql = sql;
+		this.timeoutSeconds = timeoutSeconds;
+		this.con = con;
+	}
+
+	/**
+	 * connId@database，用于按连接统计游标数量
+	 */
+	public String getPoolKey() {
+		return connId + "@" + database;
+	}
+
+	/**
+	 * 打开游标并读取列信息；hook 在语句执行前调用，用于登记语句以便取消
+	 */
+	protected abstract void open(StatementHook hook) throws SQLException;
+
+	/**
+	 * 读取 [offset, offset + limit) 范围内的行；多读一行用于判断是否还有更多数据
+	 */
+	protected abstract List<Map<String, Object>> fetch(long offset, int limit, StatementHook hook) throws SQLException;
+
+	public synchronized CursorWindow window(long offset, int limit, ResultFormat format, StatementHook hook) throws SQLException {
+		lastAccess = System.currentTimeMillis();
+		List<Map<String, Object>> rows = fetch(offset, limit + 1, hook);
+		boolean hasMore = rows.size() > limit;
+		if (hasMore) {
+			rows = rows.subList(0, limit);
+		}
+		if (format == ResultFormat.COLUMNAR) {
+			return new CursorWindow(id, offset, null, ColumnarResult.of(columns, rows), hasMore);
+		}
+		return new CursorWindow(id, offset, rows, null, hasMore);
+	}
+
+	protected abstract void release() throws SQLException;
+
+	@Override
+	public synchronized void close() {
+		try {
+			release();
+			con.rollback();
+			con.setAutoCommit(true);
+		} catch (SQLException e) {
+			log.debug("Failed to release cursor {}: {}", id, e.getMessage());
+		} finally {
+			try {
+				// 归还到连接池
+				con.close();
+			} catch (SQLException e) {
+				log.debug("Failed to return connection of cursor {}: {}", id, e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package com.deego.query;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 游标翻页结果
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorWindow {
+
+	private String cursorId;
+
+	/**
+	 * 本页第一行在结果集中的偏移（从 0 开始）
+	 */
+	private long offset;
+
+	/**
+	 * 行式数据（format=rows）
+	 */
+	private List<Map<String, Object>> rows;
+
+	/**
+	 * 列式数据（format=columnar）
+	 */
+	private ColumnarResult columnar;
+
+	/**
+	 * 本页之后是否还有数据
+	 */
+	private boolean hasMore;
+}
@@ -0,0 +1,41 @@
+package com.deego.query;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一组表格修改的执行结果。有冲突时事务已回滚，行数均为 0，conflicts 列出全部冲突的行
+ */
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class EditResult {
+
+	private boolean committed;
+
+	private long inserted;
+
+	private long updated;
+
+	private long deleted;
+
+	/**
+	 * 发给数据库的语句数（每条一次往返），同一形状的修改合并为一条语句或一个批次
+	 */
+	private int statements;
+
+	private long elapsedMs;
+
+	private List<Conflict> conflicts = new ArrayList<>();
+
+	/**
+	 * op 为 update / delete，index 为该行在请求 updates / deletes 中的下标
+	 */
+	public record Conflict(String op, int index, Map<String, Object> key) {
+	}
+}
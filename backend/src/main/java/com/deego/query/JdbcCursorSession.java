@@ -0,0 +1,109 @@
+package com.deego.query;
+
+import com.deego.exception.BizException;
+import com.deego.exec.StatementHook;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 通用 JDBC 游标：只进 ResultSet + fetchSize，适用于没有专门实现的数据库。
+ * 可滚动结果集在 MySQL 等驱动上会整个读到客户端，这里只向前读：向后翻页时重新执行查询再跳到目标行。
+ */
+public class JdbcCursorSession extends CursorSession {
+
+	private final int fetchSize;
+
+	private PreparedStatement ps;
+	private ResultSet rs;
+
+	/**
+	 * 结果集已经读过的行数，下一次 next() 得到第 position + 1 行
+	 */
+	private long position;
+
+	private boolean exhausted;
+
+	/**
+	 * 上一个窗口读到的最后一行（第 position 行）。窗口会多读一行判断是否还有数据，下一页从这一行开始，不必重新执行
+	 */
+	private Map<String, Object> lastRow;
+
+	public JdbcCursorSession(String id, String connId, String database, String sql, int timeoutSeconds, Connection con, int fetchSize) {
+		super(id, connId, database, sql, timeoutSeconds, con);
+		this.fetchSize = fetchSize;
+	}
+
+	@Override
+	protected void open(StatementHook hook) throws SQLException {
+		con.setAutoCommit(false);
+		ps = con.prepareStatement(getSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		ps.setFetchSize(fetchSize);
+		hook.beforeExecute(con, ps);
+		execute();
+		columns = ColumnMeta.of(rs.getMetaData());
+	}
+
+	@Override
+	protected List<Map<String, Object>> fetch(long offset, int limit, StatementHook hook) throws SQLException {
+		if (offset > Integer.MAX_VALUE) {
+			throw new BizException("CURSOR_OFFSET_TOO_LARGE", "Cursor offset exceeds " + Integer.MAX_VALUE + ": " + offset);
+		}
+		// 结果集已经打开，这里只登记语句，向前读取时驱动可能仍需向服务端取数
+		hook.beforeExecute(con, ps);
+		List<Map<String, Object>> rows = new ArrayList<>(limit);
+		if (offset == position - 1 && lastRow != null) {
+			rows.add(lastRow);
+		} else if (offset < position) {
+			// 只进结果集不能回退，重新执行查询
+			rs.close();
+			execute();
+		}
+		while (position < offset && advance()) {
+			// 跳过目标窗口之前的行
+		}
+		ColumnMapRowMapper mapper = new ColumnMapRowMapper();
+		while (rows.size() < limit && advance()) {
+			rows.add(mapper.mapRow(rs, rows.size()));
+		}
+		if (!rows.isEmpty()) {
+			lastRow = rows.get(rows.size() - 1);
+		}
+		return rows;
+	}
+
+	private void execute() throws SQLException {
+		rs = ps.executeQuery();
+		position = 0;
+		exhausted = false;
+		lastRow = null;
+	}
+
+	private boolean advance() throws SQLException {
+		if (exhausted || !rs.next()) {
+			exhausted = true;
+			return false;
+		}
+		position++;
+		return true;
+	}
+
+	@Override
+	protected void release() throws SQLException {
+		try {
+			if (rs != null) {
+				rs.close();
+			}
+		} finally {
+			if (ps != null) {
+				ps.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.deego.query;
+
+import com.deego.exec.RowStreamHandler;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 把结果集逐行写成 NDJSON（每行一个 JSON）：
+ * <pre>
+ * {"@columns":[{"name":"id","jdbcType":4,"typeName":"int4"}, ...]}
+ * {"id":1,"name":"a"}
+ * ...
+ * {"@rowCount":2}
+ * </pre>
+ * format=columnar 时每行写成数组 [1,"a"]，列名只在第一行出现一次。
+ * 出错时以 {"@error":"..."} 结尾。第一行数据写出后立即 flush，之后每 flushEvery 行 flush 一次。
+ */
+public class NdjsonResultWriter implements RowStreamHandler {
+
+	private final JsonGenerator gen;
+	private final int flushEvery;
+	private final boolean compact;
+
+	private String[] labels;
+	private long rowCount;
+
+	public NdjsonResultWriter(JsonGenerator gen, int flushEvery, ResultFormat format) {
+		this.gen = gen;
+		this.flushEvery = Math.max(1, flushEvery);
+		this.compact = format == ResultFormat.COLUMNAR;
+		// 行与行之间由我们自己写换行，不要 Jackson 默认的空格分隔
+		this.gen.setRootValueSeparator(null);
+	}
+
+	@Override
+	public void onStart(ResultSetMetaData meta) throws SQLException {
+		List<ColumnMeta> columns = ColumnMeta.of(meta);
+		labels = columns.stream().map(ColumnMeta::getName).toArray(String[]::new);
+		try {
+			gen.writeStartObject();
+			gen.writeFieldName("@columns");
+			gen.writeObject(columns);
+			gen.writeEndObject();
+			endLine(true);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void processRow(ResultSet rs) throws SQLException {
+		try {
+			if (compact) {
+				gen.writeStartArray();
+				for (int i = 0; i < labels.length; i++) {
+					gen.writeObject(JdbcUtils.getResultSetValue(rs, i + 1));
+				}
+				gen.writeEndArray();
+			} else {
+				gen.writeStartObject();
+				for (int i = 0; i < labels.length; i++) {
+					gen.writeFieldName(labels[i]);
+					gen.writeObject(JdbcUtils.getResultSetValue(rs, i + 1));
+				}
+				gen.writeEndObject();
+			}
+			rowCount++;
+			endLine(rowCount == 1 || rowCount % flushEvery == 0);
+		} catch (IOException e) {
+			// 客户端断开等写出失败，中止遍历，由上层关闭语句并归还连接
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void onComplete(long rowCount) {
+		try {
+			gen.writeStartObject();
+			gen.writeNumberField("@rowCount", rowCount);
+			gen.writeEndObject();
+			endLine(true);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void writeError(String message) throws IOException {
+		gen.writeStartObject();
+		gen.writeStringField("@error", message);
+		gen.writeEndObject();
+		endLine(true);
+	}
+
+	private void endLine(boolean flush) throws IOException {
+		gen.writeRaw('\n');
+		if (flush) {
+			gen.flush();
+		}
+	}
+}
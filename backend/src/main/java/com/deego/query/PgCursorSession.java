@@ -0,0 +1,69 @@
+package com.deego.query;
+
+import com.deego.exec.StatementHook;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PostgreSQL 游标：DECLARE ... SCROLL CURSOR，翻页时用 MOVE ABSOLUTE + FETCH FORWARD，
+ * 两条语句合并发送，每个窗口只需一次网络往返，服务端不会为每页重新执行查询。
+ */
+public class PgCursorSession extends CursorSession {
+
+	private final String cursorName;
+
+	public PgCursorSession(String id, String connId, String database, String sql, int timeoutSeconds, Connection con) {
+		super(id, connId, database, sql, timeoutSeconds, con);
+		this.cursorName = "\"nebula_cursor_" + id + "\"";
+	}
+
+	@Override
+	protected void open(StatementHook hook) throws SQLException {
+		con.setAutoCommit(false);
+		try (Statement st = con.createStatement()) {
+			hook.beforeExecute(con, st);
+			st.execute("DECLARE " + cursorName + " SCROLL CURSOR FOR " + getSql());
+			// FETCH 0 不返回任何行，只用来拿到列信息
+			try (ResultSet rs = st.executeQuery("FETCH FORWARD 0 FROM " + cursorName)) {
+				columns = ColumnMeta.of(rs.getMetaData());
+			}
+		}
+	}
+
+	@Override
+	protected List<Map<String, Object>> fetch(long offset, int limit, StatementHook hook) throws SQLException {
+		try (Statement st = con.createStatement()) {
+			hook.beforeExecute(con, st);
+			// MOVE ABSOLUTE n 定位到第 n 行，随后的 FETCH 从第 n+1 行开始
+			st.execute("MOVE ABSOLUTE " + offset + " IN " + cursorName + "; FETCH FORWARD " + limit + " FROM " + cursorName);
+			while (st.getResultSet() == null) {
+				if (!st.getMoreResults() && st.getUpdateCount() == -1) {
+					return List.of();
+				}
+			}
+			try (ResultSet rs = st.getResultSet()) {
+				ColumnMapRowMapper mapper = new ColumnMapRowMapper();
+				List<Map<String, Object>> rows = new ArrayList<>(limit);
+				int rowNum = 0;
+				while (rs.next()) {
+					rows.add(mapper.mapRow(rs, rowNum++));
+				}
+				return rows;
+			}
+		}
+	}
+
+	@Override
+	protected void release() throws SQLException {
+		try (Statement st = con.createStatement()) {
+			st.execute("CLOSE " + cursorName);
+		}
+	}
+}
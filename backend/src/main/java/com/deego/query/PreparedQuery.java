@@ -0,0 +1,21 @@
+package com.deego.query;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 绑定好参数的查询：sql 只包含 ? 占位符，args 与占位符一一对应（可以是 SqlParameterValue）
+ */
+public record PreparedQuery(String sql, Object[] args) {
+
+	public boolean hasArgs() {
+		return args != null && args.length > 0;
+	}
+
+	/**
+	 * 参数值列表，用于结果缓存键
+	 */
+	public List<Object> argList() {
+		return args == null ? List.of() : Arrays.stream(args).map(BindParameters::cacheKeyOf).toList();
+	}
+}
@@ -0,0 +1,124 @@
+package com.deego.query;
+
+import com.deego.enums.QueryJobStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 异步查询任务：提交后立即返回 jobId，查询在虚拟线程上执行，
+ * 状态、已读取行数和前若干行结果通过 SSE 推送给订阅者。
+ * <p>
+ * SSE 事件：status（任务快照）、progress（{rowCount}）、preview（{columns, rows}）；任务结束后再发一次 status 并关闭连接。
+ */
+@Getter
+@Slf4j
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QueryJob {
+
+	private final String jobId;
+	private final String connId;
+	private final String database;
+	private final String sql;
+	private final Instant submittedAt = Instant.now();
+
+	private volatile QueryJobStatus status = QueryJobStatus.PENDING;
+	private volatile Instant startedAt;
+	private volatile Instant finishedAt;
+	private volatile long rowCount;
+	private volatile List<ColumnMeta> columns;
+
+	/**
+	 * 前 previewRows 行结果，读满或查询结束后一次性发布
+	 */
+	private volatile List<Map<String, Object>> rows;
+
+	/**
+	 * rows 只包含部分结果
+	 */
+	private volatile Boolean truncated;
+
+	private volatile String error;
+
+	@JsonIgnore
+	private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+	public QueryJob(String jobId, String connId, String database, String sql) {
+		this.jobId = jobId;
+		this.connId = connId;
+		this.database = database;
+		this.sql = sql;
+	}
+
+	/**
+	 * 订阅任务事件。先补发当前快照，任务已结束时直接关闭
+	 */
+	public SseEmitter subscribe() {
+		SseEmitter emitter = new SseEmitter();
+		emitters.add(emitter);
+		emitter.onCompletion(() -> emitters.remove(emitter));
+		emitter.onTimeout(() -> emitters.remove(emitter));
+		emitter.onError(e -> emitters.remove(emitter));
+		send(emitter, "status", this);
+		if (rows != null) {
+			send(emitter, "preview", Map.of("columns", columns, "rows", rows));
+		}
+		if (status.isFinished()) {
+			emitter.complete();
+		}
+		return emitter;
+	}
+
+	void started() {
+		startedAt = Instant.now();
+		status = QueryJobStatus.RUNNING;
+		publish("status", this);
+	}
+
+	void columns(List<ColumnMeta> columns) {
+		this.columns = columns;
+	}
+
+	void progress(long rowCount) {
+		this.rowCount = rowCount;
+		publish("progress", Map.of("rowCount", rowCount));
+	}
+
+	void preview(List<Map<String, Object>> rows, boolean truncated) {
+		this.rows = rows;
+		this.truncated = truncated;
+		publish("preview", Map.of("columns", columns == null ? List.of() : columns, "rows", rows));
+	}
+
+	void finished(QueryJobStatus status, long rowCount, String error) {
+		this.rowCount = rowCount;
+		this.error = error;
+		this.finishedAt = Instant.now();
+		this.status = status;
+		publish("status", this);
+		emitters.forEach(SseEmitter::complete);
+		emitters.clear();
+	}
+
+	private void publish(String event, Object data) {
+		emitters.forEach(emitter -> send(emitter, event, data));
+	}
+
+	private void send(SseEmitter emitter, String event, Object data) {
+		try {
+			emitter.send(SseEmitter.event().name(event).data(data));
+		} catch (IOException | IllegalStateException e) {
+			// 客户端已断开，不影响查询继续执行
+			log.debug("Drop SSE subscriber of job {}: {}", jobId, e.getMessage());
+			emitters.remove(emitter);
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package com.deego.query;
+
+import com.deego.config.NebulaProperties;
+import com.deego.enums.QueryJobStatus;
+import com.deego.enums.WorkPriority;
+import com.deego.exception.BizException;
+import com.deego.exec.DbExecutor;
+import com.deego.exec.RowStreamHandler;
+import com.deego.model.param.QueryParam;
+import com.deego.query.store.ResultStore;
+import com.deego.query.store.StoredResult;
+import com.deego.service.ConnectionService;
+import com.deego.service.QueryService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 异步查询任务管理：查询在虚拟线程上执行，等待数据库期间不占用 Servlet 线程。
+ * 完整结果保存在 {@link ResultStore}，可以按窗口翻页读取。
+ * 任务同时登记在 {@link RunningQueryRegistry}，jobId 即 queryId，可以用 /api/query/{jobId}/cancel 取消。
+ */
+@Component
+@Slf4j
+public class QueryJobManager {
+
+	@Autowired
+	private QueryService queryService;
+
+	@Autowired
+	private ConnectionService connectionService;
+
+	@Autowired
+	private RunningQueryRegistry registry;
+
+	@Autowired
+	private NebulaProperties properties;
+
+	@Autowired
+	private ResultStore resultStore;
+
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	private final Map<String, QueryJob> jobs = new ConcurrentHashMap<>();
+
+	public QueryJob submit(QueryParam param) {
+		RunningQuery query = queryService.begin(param);
+		DbExecutor db;
+		PreparedQuery prepared;
+		try {
+			// 后台任务按 BULK 排队，不挤占对象树等交互请求的额度
+			db = connectionService.getExecutor(query.getConnId(), query.getDatabase(), WorkPriority.BULK);
+			prepared = BindParameters.prepare(param.getQuery(), param.getParams());
+		} catch (RuntimeException e) {
+			registry.finish(query);
+			throw e;
+		}
+		QueryJob job = new QueryJob(query.getQueryId(), query.getConnId(), query.getDatabase(), param.getQuery());
+		// 提交时就创建结果，任务还在排队时 rows 读到的是空的未完成窗口，而不是 RESULT_EXPIRED
+		StoredResult result = resultStore.create(job.getJobId());
+		jobs.put(job.getJobId(), job);
+		executor.execute(() -> run(job, query, prepared, db, result));
+		return job;
+	}
+
+	public QueryJob get(String jobId) {
+		QueryJob job = jobs.get(jobId);
+		if (job == null) {
+			throw new BizException("JOB_NOT_FOUND", "Query job not found or expired: " + jobId);
+		}
+		return job;
+	}
+
+	/**
+	 * 从结果集存储中读取任务结果的 [offset, offset + limit) 行；任务仍在排队或执行时只能读到已写入的部分（hasMore 为 true）
+	 */
+	public CursorWindow rows(String jobId, long offset, int limit, ResultFormat format) {
+		get(jobId);
+		StoredResult result = resultStore.get(jobId);
+		int size = Math.min(Math.max(limit, 1), properties.getCursor().getMaxWindowSize());
+		long from = Math.max(offset, 0);
+		List<Map<String, Object>> rows = result.read(from, size);
+		boolean hasMore = from + rows.size() < result.getRowCount() || !result.isFinished();
+		if (format == ResultFormat.COLUMNAR) {
+			return new CursorWindow(jobId, from, null, ColumnarResult.of(result.getColumns(), rows), hasMore);
+		}
+		return new CursorWindow(jobId, from, rows, null, hasMore);
+	}
+
+	/**
+	 * 取消执行中的任务并移除，同时释放保存的结果
+	 */
+	public void remove(String jobId) {
+		QueryJob job = jobs.remove(jobId);
+		if (job != null && !job.getStatus().isFinished()) {
+			registry.cancel(jobId);
+		}
+		resultStore.release(jobId);
+	}
+
+	private void run(QueryJob job, RunningQuery query, PreparedQuery prepared, DbExecutor db, StoredResult result) {
+		NebulaProperties.Job config = properties.getJob();
+		ProgressHandler handler = new ProgressHandler(job, config.getPreviewRows(), config.getProgressInterval().toMillis());
+		job.started();
+		try {
+			// 完整结果写入结果集存储，供之后翻页读取；handler 只负责计数和预览
+			db.queryToStore(prepared.sql(), prepared.args(), properties.getQuery().getFetchSize(), query, result, handler);
+			job.finished(QueryJobStatus.SUCCEEDED, handler.rowCount, null);
+		} catch (Exception e) {
+			String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+			QueryJobStatus status = query.isCancelled() ? QueryJobStatus.CANCELLED : QueryJobStatus.FAILED;
+			log.debug("Query job {} {}: {}", job.getJobId(), status, message);
+			handler.flushPreview();
+			job.finished(status, handler.rowCount, message);
+		} finally {
+			registry.finish(query);
+		}
+	}
+
+	/**
+	 * 定期清理已结束且超过保留时间的任务
+	 */
+	@Scheduled(fixedDelay = 60_000L)
+	public void evictFinished() {
+		Instant deadline = Instant.now().minus(properties.getJob().getRetention());
+		jobs.values().stream()
+			.filter(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(deadline))
+			.map(QueryJob::getJobId)
+			.toList()
+			.forEach(this::remove);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		List.copyOf(jobs.keySet()).forEach(this::remove);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * 逐行计数，收集前 previewRows 行；按 progressInterval 节流推送进度
+	 */
+	private static class ProgressHandler implements RowStreamHandler {
+
+		private final QueryJob job;
+		private final int previewRows;
+		private final long progressInterval;
+		private final ColumnMapRowMapper mapper = new ColumnMapRowMapper();
+
+		private List<Map<String, Object>> preview = new ArrayList<>();
+		private long rowCount;
+		private long lastProgress = System.currentTimeMillis();
+
+		ProgressHandler(QueryJob job, int previewRows, long progressInterval) {
+			this.job = job;
+			this.previewRows = previewRows;
+			this.progressInterval = progressInterval;
+		}
+
+		@Override
+		public void onStart(ResultSetMetaData meta) throws SQLException {
+			job.columns(ColumnMeta.of(meta));
+		}
+
+		@Override
+		public void processRow(ResultSet rs) throws SQLException {
+			if (preview != null) {
+				if (preview.size() < previewRows) {
+					preview.add(mapper.mapRow(rs, (int) rowCount));
+				} else {
+					// 读到第 previewRows + 1 行，说明结果被截断
+					job.preview(preview, true);
+					preview = null;
+				}
+			}
+			rowCount++;
+			long now = System.currentTimeMillis();
+			if (now - lastProgress >= progressInterval) {
+				lastProgress = now;
+				job.progress(rowCount);
+			}
+		}
+
+		@Override
+		public void onComplete(long rowCount) {
+			flushPreview();
+		}
+
+		void flushPreview() {
+			if (preview != null) {
+				job.preview(preview, false);
+				preview = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package com.deego.query;
+
+/**
+ * 结果集返回格式，由前端通过 format 参数协商
+ */
+public enum ResultFormat {
+
+	/**
+	 * 每行一个 Map（列名在每一行重复出现），默认格式
+	 */
+	ROWS,
+
+	/**
+	 * 列信息只发送一次，数据按列存放：columns + data[列][行]
+	 */
+	COLUMNAR,
+
+	/**
+	 * Apache Arrow IPC 流（二进制），仅流式查询接口支持
+	 */
+	ARROW,
+
+	/**
+	 * Parquet 文件（二进制），仅流式查询接口支持，以附件形式下载
+	 */
+	PARQUET;
+
+	public static final String ARROW_STREAM_MEDIA_TYPE = "application/vnd.apache.arrow.stream";
+
+	public static final String PARQUET_MEDIA_TYPE = "application/vnd.apache.parquet";
+
+	public static ResultFormat from(Object value) {
+		if (value == null || value.toString().isBlank()) {
+			return ROWS;
+		}
+		for (ResultFormat format : values()) {
+			if (format.name().equalsIgnoreCase(value.toString())) {
+				return format;
+			}
+		}
+		throw new IllegalArgumentException("Unknown result format: " + value);
+	}
+}
@@ -0,0 +1,105 @@
+package com.deego.query;
+
+import com.deego.exec.StatementHook;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+
+/**
+ * 一次正在执行的查询。执行前通过 {@link #beforeExecute} 拿到 Statement，
+ * 之后可以随时 {@link #cancel()}，数据库中止执行后连接立即归还连接池。
+ */
+@Getter
+@Slf4j
+public class RunningQuery implements StatementHook {
+
+	private final String queryId;
+	private final String connId;
+	private final String database;
+	private final String sql;
+	private final Instant startedAt = Instant.now();
+
+	/**
+	 * 语句超时（秒），0 表示不限制
+	 */
+	private final int timeoutSeconds;
+
+	/**
+	 * sql 只是给运行列表看的说明，不是可以分析的语句，结束时不据此使缓存失效（见 {@link RunningQueryRegistry#beginTask}）
+	 */
+	private final boolean task;
+
+	/**
+	 * PostgreSQL 后端进程号，Statement.cancel() 失败时用 pg_cancel_backend 兜底
+	 */
+	private volatile Integer backendPid;
+
+	private volatile boolean cancelled;
+
+	@JsonIgnore
+	private volatile Statement statement;
+
+	public RunningQuery(String queryId, String connId, String database, String sql, int timeoutSeconds) {
+		this(queryId, connId, database, sql, timeoutSeconds, false);
+	}
+
+	RunningQuery(String queryId, String connId, String database, String sql, int timeoutSeconds, boolean task) {
+		this.queryId = queryId;
+		this.connId = connId;
+		this.database = database;
+		this.sql = sql;
+		this.timeoutSeconds = timeoutSeconds;
+		this.task = task;
+	}
+
+	@Override
+	public void beforeExecute(Connection con, Statement stmt) throws SQLException {
+		if (cancelled) {
+			throw new SQLException("Query " + queryId + " was cancelled", "57014");
+		}
+		if (timeoutSeconds > 0) {
+			stmt.setQueryTimeout(timeoutSeconds);
+		}
+		if (con.isWrapperFor(PGConnection.class)) {
+			backendPid = con.unwrap(PGConnection.class).getBackendPID();
+		}
+		statement = stmt;
+	}
+
+	/**
+	 * 不经过 Statement 执行的操作（如 COPY）只记录后端进程号，取消时由调用方用 pg_cancel_backend 中止
+	 */
+	public void attach(Connection con) throws SQLException {
+		if (cancelled) {
+			throw new SQLException("Query " + queryId + " was cancelled", "57014");
+		}
+		if (con.isWrapperFor(PGConnection.class)) {
+			backendPid = con.unwrap(PGConnection.class).getBackendPID();
+		}
+	}
+
+	/**
+	 * 取消执行中的语句；返回 false 表示驱动取消失败，需要调用方兜底
+	 */
+	boolean cancel() {
+		cancelled = true;
+		Statement stmt = statement;
+		if (stmt == null) {
+			// 还没开始执行时 beforeExecute 会直接失败；通过 attach 登记的操作只能靠 pg_cancel_backend
+			return backendPid == null;
+		}
+		try {
+			stmt.cancel();
+			return true;
+		} catch (SQLException e) {
+			log.warn("Statement.cancel() failed for query {}: {}", queryId, e.getMessage());
+			return false;
+		}
+	}
+}
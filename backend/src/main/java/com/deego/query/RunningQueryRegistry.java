@@ -0,0 +1,139 @@
+package com.deego.query;
+
+import com.deego.config.NebulaProperties;
+import com.deego.enums.DatabaseType;
+import com.deego.enums.WorkPriority;
+import com.deego.exception.BizException;
+import com.deego.metadata.cache.MetadataCache;
+import com.deego.model.Connection;
+import com.deego.query.cache.QueryResultCache;
+import com.deego.service.ConnectionService;
+import com.deego.utils.IdWorker;
+import com.deego.utils.SqlUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ObjectUtils;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 运行中查询登记表：按 queryId 记录正在执行的 Statement，支持取消。
+ * 语句超时优先级：请求参数 > 连接配置 > nebula.query.default-timeout。
+ */
+@Component
+@Slf4j
+public class RunningQueryRegistry {
+
+	@Autowired
+	private ConnectionService connectionService;
+
+	@Autowired
+	private NebulaProperties properties;
+
+	@Autowired
+	private QueryResultCache resultCache;
+
+	@Autowired
+	private MetadataCache metadataCache;
+
+	private final Map<String, RunningQuery> running = new ConcurrentHashMap<>();
+
+	/**
+	 * 登记一次查询；queryId 为空时由服务端生成。调用方执行结束后必须调用 {@link #finish}
+	 */
+	public RunningQuery begin(String queryId, Connection conn, String database, String sql, Integer requestTimeout) {
+		String id = ObjectUtils.isEmpty(queryId) ? IdWorker.getIdStr() : queryId;
+		return track(new RunningQuery(id, conn.getId(), database, sql, resolveTimeout(conn, requestTimeout)));
+	}
+
+	/**
+	 * 为稍后才开始执行的查询（流式响应体）预先确定 queryId：为空时由服务端生成，已在运行时拒绝。
+	 * 只检查不登记，响应体开始执行时再用它调用 {@link #begin}，响应体没有执行时不会留下登记
+	 */
+	public String prepareId(String queryId) {
+		if (ObjectUtils.isEmpty(queryId)) {
+			return IdWorker.getIdStr();
+		}
+		if (running.containsKey(queryId)) {
+			throw new BizException("QUERY_ID_IN_USE", "Query id is already running: " + queryId);
+		}
+		return queryId;
+	}
+
+	/**
+	 * 登记一个由多条语句组成的操作（如编辑集），description 只用于在运行列表中展示；
+	 * 结束时不根据它使缓存失效，调用方在操作生效后自己使受影响的表失效
+	 */
+	public RunningQuery beginTask(String queryId, Connection conn, String database, String description, Integer requestTimeout) {
+		String id = ObjectUtils.isEmpty(queryId) ? IdWorker.getIdStr() : queryId;
+		return track(new RunningQuery(id, conn.getId(), database, description, resolveTimeout(conn, requestTimeout), true));
+	}
+
+	/**
+	 * 登记已经确定超时的查询，例如游标打开后的窗口读取
+	 */
+	public RunningQuery track(RunningQuery query) {
+		if (running.putIfAbsent(query.getQueryId(), query) != null) {
+			throw new BizException("QUERY_ID_IN_USE", "Query id is already running: " + query.getQueryId());
+		}
+		return query;
+	}
+
+	/**
+	 * 查询结束（无论成功失败）；写语句会使相关表的结果缓存失效，DDL 影响的对象无法从语句中准确判断，使整个连接的对象树缓存失效
+	 */
+	public void finish(RunningQuery query) {
+		running.remove(query.getQueryId(), query);
+		if (!query.isTask() && !SqlUtils.isReadOnly(query.getSql())) {
+			resultCache.invalidate(query.getConnId(), SqlUtils.referencedTables(query.getSql()));
+			if (SqlUtils.isDdl(query.getSql())) {
+				metadataCache.invalidateConnection(query.getConnId());
+			}
+		}
+	}
+
+	public List<RunningQuery> list(String connId) {
+		return running.values().stream()
+					  .filter(q -> connId == null || Objects.equals(connId, q.getConnId()))
+					  .sorted(Comparator.comparing(RunningQuery::getStartedAt))
+					  .toList();
+	}
+
+	/**
+	 * 取消查询。先走驱动的 Statement.cancel()（PostgreSQL 即 CancelRequest），
+	 * 失败时对 PostgreSQL 再用另一个池连接执行 pg_cancel_backend 兜底。
+	 */
+	public boolean cancel(String queryId) {
+		RunningQuery query = running.get(queryId);
+		if (query == null) {
+			return false;
+		}
+		if (query.cancel()) {
+			return true;
+		}
+		Integer pid = query.getBackendPid();
+		Connection conn = connectionService.getConnection(query.getConnId()).orElse(null);
+		if (pid == null || conn == null || DatabaseType.fromValue(conn.getDbType()) != DatabaseType.POSTGRESQL) {
+			return false;
+		}
+		// 取消请求按 INTERACTIVE 排队，连接池繁忙时也能尽快执行
+		List<Boolean> result = connectionService.getExecutor(query.getConnId(), query.getDatabase(), WorkPriority.INTERACTIVE)
+												.queryForList("SELECT pg_cancel_backend(?)", Boolean.class, pid);
+		return !result.isEmpty() && Boolean.TRUE.equals(result.get(0));
+	}
+
+	private int resolveTimeout(Connection conn, Integer requestTimeout) {
+		if (requestTimeout != null && requestTimeout >= 0) {
+			return requestTimeout;
+		}
+		if (conn.getQueryTimeout() != null && conn.getQueryTimeout() >= 0) {
+			return conn.getQueryTimeout();
+		}
+		return (int) properties.getQuery().getDefaultTimeout().toSeconds();
+	}
+}
@@ -0,0 +1,40 @@
+package com.deego.query;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 表预览结果：第一页数据和估算行数。
+ * 还有更多数据时游标保持打开，之后用 /api/query/cursor/{cursorId} 继续翻页，用完关闭；第一页就是全部数据时 cursorId 为空
+ */
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TablePreview {
+
+	private String cursorId;
+
+	private List<ColumnMeta> columns;
+
+	private CursorWindow page;
+
+	/**
+	 * 估算的总行数，未知时为空；抽样时仍是整张表的估算
+	 */
+	private Long estimatedRows;
+
+	/**
+	 * 估算来源：reltuples（按当前页数折算的统计信息）/ planner（EXPLAIN 的行数估算）
+	 */
+	private String estimateSource;
+
+	/**
+	 * 实际使用的抽样方式和比例，不抽样时为空
+	 */
+	private String sample;
+
+	private Double samplePercent;
+}
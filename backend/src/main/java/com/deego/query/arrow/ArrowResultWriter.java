@@ -0,0 +1,289 @@
+package com.deego.query.arrow;
+
+import com.deego.exec.RowStreamHandler;
+import com.deego.query.BitString;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMicroTZVector;
+import org.apache.arrow.vector.TimeStampMicroVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把结果集写成 Arrow IPC 流（Streaming Format），每 batchSize 行输出一个 record batch。
+ * int / long / double / timestamp 等列使用对应的定长向量，前端可直接按列读取，无需文本解析。
+ * 其余类型退化为 UTF-8 字符串列，原始类型名放在字段元数据 typeName 中。
+ */
+public class ArrowResultWriter implements RowStreamHandler, AutoCloseable {
+
+	private static final long MICROS_PER_SECOND = 1_000_000L;
+
+	private final BufferAllocator allocator;
+	private final OutputStream out;
+	private final int batchSize;
+
+	private VectorSchemaRoot root;
+	private ArrowStreamWriter writer;
+	private ColumnWriter[] writers;
+	private int batchRows;
+
+	public ArrowResultWriter(BufferAllocator allocator, OutputStream out, int batchSize) {
+		this.allocator = allocator;
+		this.out = out;
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * schema 是否已经写出；写出之后发生的错误只能中断输出
+	 */
+	public boolean isStarted() {
+		return root != null;
+	}
+
+	@Override
+	public void onStart(ResultSetMetaData meta) throws SQLException {
+		int count = meta.getColumnCount();
+		List<Field> fields = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			fields.add(toField(meta, i));
+		}
+		start(new Schema(fields));
+		writers = new ColumnWriter[count];
+		for (int i = 0; i < count; i++) {
+			writers[i] = writerFor(root.getVector(i));
+		}
+	}
+
+	@Override
+	public void processRow(ResultSet rs) throws SQLException {
+		for (int i = 0; i < writers.length; i++) {
+			writers[i].write(rs, i + 1, batchRows);
+		}
+		if (++batchRows == batchSize) {
+			writeBatch();
+		}
+	}
+
+	@Override
+	public void onComplete(long rowCount) {
+		if (batchRows > 0) {
+			writeBatch();
+		}
+		try {
+			writer.end();
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 还没有写出 schema 时出错：输出只有一列 @error 的结果，让前端能拿到错误信息
+	 */
+	public void writeError(String message) throws IOException {
+		if (isStarted()) {
+			throw new IllegalStateException("Arrow stream already started");
+		}
+		Field field = new Field("@error", FieldType.nullable(ArrowType.Utf8.INSTANCE), null);
+		start(new Schema(List.of(field)));
+		VarCharVector vector = (VarCharVector) root.getVector(0);
+		vector.setSafe(0, String.valueOf(message).getBytes(StandardCharsets.UTF_8));
+		batchRows = 1;
+		writeBatch();
+		writer.end();
+		out.flush();
+	}
+
+	@Override
+	public void close() {
+		if (root != null) {
+			root.close();
+		}
+	}
+
+	private void start(Schema schema) {
+		root = VectorSchemaRoot.create(schema, allocator);
+		root.allocateNew();
+		writer = new ArrowStreamWriter(root, null, Channels.newChannel(out));
+		try {
+			writer.start();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeBatch() {
+		root.setRowCount(batchRows);
+		try {
+			writer.writeBatch();
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		// 复用已分配的缓冲区，堆外内存只与 batchSize 相关
+		root.getFieldVectors().forEach(FieldVector::reset);
+		batchRows = 0;
+	}
+
+	private static Field toField(ResultSetMetaData meta, int column) throws SQLException {
+		String name = JdbcUtils.lookupColumnName(meta, column);
+		String typeName = meta.getColumnTypeName(column);
+		ArrowType type = switch (meta.getColumnType(column)) {
+			case Types.TINYINT, Types.SMALLINT, Types.INTEGER -> new ArrowType.Int(32, true);
+			case Types.BIGINT -> new ArrowType.Int(64, true);
+			case Types.REAL -> new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+			case Types.FLOAT, Types.DOUBLE -> new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+			case Types.NUMERIC, Types.DECIMAL -> {
+				int precision = meta.getPrecision(column);
+				int scale = meta.getScale(column);
+				// 未声明精度的 numeric 无法放进 Decimal128，按文本输出保证不丢精度
+				yield precision > 0 && precision <= 38 && scale >= 0 && scale <= precision
+						? new ArrowType.Decimal(precision, scale, 128)
+						: ArrowType.Utf8.INSTANCE;
+			}
+			case Types.BIT, Types.BOOLEAN -> BitString.isBitString(typeName, meta.getPrecision(column))
+					? ArrowType.Utf8.INSTANCE
+					: ArrowType.Bool.INSTANCE;
+			case Types.DATE -> new ArrowType.Date(DateUnit.DAY);
+			case Types.TIMESTAMP -> "timestamptz".equalsIgnoreCase(typeName)
+					? new ArrowType.Timestamp(TimeUnit.MICROSECOND, "UTC")
+					: new ArrowType.Timestamp(TimeUnit.MICROSECOND, null);
+			case Types.TIMESTAMP_WITH_TIMEZONE -> new ArrowType.Timestamp(TimeUnit.MICROSECOND, "UTC");
+			case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB -> ArrowType.Binary.INSTANCE;
+			default -> ArrowType.Utf8.INSTANCE;
+		};
+		// 位串按 '0' / '1' 文本输出，bitLength 为声明的位数
+		Map<String, String> metadata = BitString.isBitString(typeName, meta.getPrecision(column))
+				? Map.of("typeName", typeName, "bitLength", String.valueOf(meta.getPrecision(column)))
+				: Map.of("typeName", typeName);
+		return new Field(name, new FieldType(true, type, null, metadata), null);
+	}
+
+	private static ColumnWriter writerFor(FieldVector vector) {
+		if (vector instanceof IntVector v) {
+			return (rs, col, row) -> {
+				int value = rs.getInt(col);
+				if (rs.wasNull()) v.setNull(row); else v.setSafe(row, value);
+			};
+		}
+		if (vector instanceof BigIntVector v) {
+			return (rs, col, row) -> {
+				long value = rs.getLong(col);
+				if (rs.wasNull()) v.setNull(row); else v.setSafe(row, value);
+			};
+		}
+		if (vector instanceof Float4Vector v) {
+			return (rs, col, row) -> {
+				float value = rs.getFloat(col);
+				if (rs.wasNull()) v.setNull(row); else v.setSafe(row, value);
+			};
+		}
+		if (vector instanceof Float8Vector v) {
+			return (rs, col, row) -> {
+				double value = rs.getDouble(col);
+				if (rs.wasNull()) v.setNull(row); else v.setSafe(row, value);
+			};
+		}
+		if (vector instanceof DecimalVector v) {
+			return (rs, col, row) -> {
+				BigDecimal value = rs.getBigDecimal(col);
+				if (value == null) v.setNull(row); else v.setSafe(row, value.setScale(v.getScale(), RoundingMode.HALF_UP));
+			};
+		}
+		if (vector instanceof BitVector v) {
+			return (rs, col, row) -> {
+				boolean value = rs.getBoolean(col);
+				if (rs.wasNull()) v.setNull(row); else v.setSafe(row, value ? 1 : 0);
+			};
+		}
+		if (vector instanceof DateDayVector v) {
+			return (rs, col, row) -> {
+				LocalDate value = rs.getObject(col, LocalDate.class);
+				if (value == null) v.setNull(row); else v.setSafe(row, (int) value.toEpochDay());
+			};
+		}
+		if (vector instanceof TimeStampMicroTZVector v) {
+			return (rs, col, row) -> {
+				OffsetDateTime value = rs.getObject(col, OffsetDateTime.class);
+				if (value == null) v.setNull(row); else v.setSafe(row, toMicros(value.toLocalDateTime(), value.getOffset()));
+			};
+		}
+		if (vector instanceof TimeStampMicroVector v) {
+			return (rs, col, row) -> {
+				LocalDateTime value = rs.getObject(col, LocalDateTime.class);
+				if (value == null) v.setNull(row); else v.setSafe(row, toMicros(value, ZoneOffset.UTC));
+			};
+		}
+		if (vector instanceof VarBinaryVector v) {
+			return (rs, col, row) -> {
+				byte[] value = rs.getBytes(col);
+				if (value == null) v.setNull(row); else v.setSafe(row, value);
+			};
+		}
+		VarCharVector v = (VarCharVector) vector;
+		String bitLength = vector.getField().getMetadata().get("bitLength");
+		if (bitLength != null) {
+			int length = Integer.parseInt(bitLength);
+			return (rs, col, row) -> {
+				Object value = rs.getObject(col);
+				if (value == null) v.setNull(row); else v.setSafe(row, BitString.of(value, length).getBytes(StandardCharsets.US_ASCII));
+			};
+		}
+		return (rs, col, row) -> {
+			Object value = JdbcUtils.getResultSetValue(rs, col);
+			if (value == null) {
+				v.setNull(row);
+			} else {
+				String text = value instanceof BigDecimal bd ? bd.toPlainString() : value.toString();
+				v.setSafe(row, text.getBytes(StandardCharsets.UTF_8));
+			}
+		};
+	}
+
+	private static long toMicros(LocalDateTime value, ZoneOffset offset) {
+		long seconds = value.toEpochSecond(offset);
+		return Math.addExact(Math.multiplyExact(seconds, MICROS_PER_SECOND), value.get(ChronoField.MICRO_OF_SECOND));
+	}
+
+	@FunctionalInterface
+	private interface ColumnWriter {
+		void write(ResultSet rs, int column, int row) throws SQLException;
+	}
+}
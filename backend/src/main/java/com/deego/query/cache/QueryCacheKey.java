@@ -0,0 +1,10 @@
+package com.deego.query.cache;
+
+import java.util.List;
+
+/**
+ * 结果缓存键。sql 为 {@link com.deego.utils.SqlUtils#normalize} 之后的文本，
+ * variant 区分同一查询的不同结果形态（rows / columnar）
+ */
+public record QueryCacheKey(String connId, String database, String sql, List<Object> params, String variant) {
+}
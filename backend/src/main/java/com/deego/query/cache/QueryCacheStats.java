@@ -0,0 +1,13 @@
+package com.deego.query.cache;
+
+/**
+ * 结果缓存统计
+ */
+public record QueryCacheStats(long hits, long misses, long puts, long evictions, long invalidations,
+							  int entries, long sizeBytes, long maxSizeBytes) {
+
+	public double getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double) hits / total;
+	}
+}
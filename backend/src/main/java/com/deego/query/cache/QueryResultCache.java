@@ -0,0 +1,189 @@
+package com.deego.query.cache;
+
+import com.deego.config.NebulaProperties;
+import com.deego.query.ColumnarResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 只读查询的结果缓存（按需开启）：键为 (connId, database, 规范化 SQL, 参数)，带 TTL，
+ * 超过总大小上限时按 LRU 淘汰。
+ * <p>
+ * 写语句和 DDL 动作按表名使失效；无法解析出表名时使整个连接的缓存失效。
+ * 每个连接维护一个失效版本号，查询执行期间如果发生失效，结果不会写入缓存，避免把旧数据放回去。
+ */
+@Component
+@Slf4j
+public class QueryResultCache {
+
+	@Autowired
+	private NebulaProperties properties;
+
+	/**
+	 * accessOrder = true，迭代顺序即 LRU 顺序
+	 */
+	private final LinkedHashMap<QueryCacheKey, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+	private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+	private long sizeBytes;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong puts = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+
+	private record Entry(Object value, Set<String> tables, long size, long expiresAt) {
+	}
+
+	/**
+	 * 命中时直接返回缓存结果，否则执行 loader 并缓存结果。tables 为查询引用的表（空集合表示未知），
+	 * 只在未命中时求值（可能需要查询目录）；ttl 为空时使用默认值
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(QueryCacheKey key, Supplier<Set<String>> tables, Duration ttl, Supplier<T> loader) {
+		Object cached = lookup(key);
+		if (cached != null) {
+			hits.incrementAndGet();
+			return (T) cached;
+		}
+		misses.incrementAndGet();
+		long generation = generation(key.connId()).get();
+		Set<String> referenced = tables.get();
+		T value = loader.get();
+		put(key, referenced, ttl, value, generation);
+		return value;
+	}
+
+	/**
+	 * 使引用了指定表的缓存失效；tables 为空时使该连接的全部缓存失效
+	 */
+	public void invalidate(String connId, Collection<String> tables) {
+		generation(connId).incrementAndGet();
+		int removed = 0;
+		synchronized (entries) {
+			Iterator<Map.Entry<QueryCacheKey, Entry>> it = entries.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<QueryCacheKey, Entry> e = it.next();
+				if (!Objects.equals(connId, e.getKey().connId())) {
+					continue;
+				}
+				Set<String> cachedTables = e.getValue().tables();
+				// 任一侧表名未知时保守处理，直接失效
+				if (tables == null || tables.isEmpty() || cachedTables.isEmpty() || tables.stream().anyMatch(cachedTables::contains)) {
+					sizeBytes -= e.getValue().size();
+					it.remove();
+					removed++;
+				}
+			}
+		}
+		if (removed > 0) {
+			invalidations.addAndGet(removed);
+			log.debug("Invalidated {} cached results of connection {} (tables: {})", removed, connId, tables);
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			sizeBytes = 0;
+		}
+	}
+
+	public QueryCacheStats stats() {
+		synchronized (entries) {
+			return new QueryCacheStats(hits.get(), misses.get(), puts.get(), evictions.get(), invalidations.get(),
+					entries.size(), sizeBytes, properties.getCache().getMaxSize().toBytes());
+		}
+	}
+
+	private Object lookup(QueryCacheKey key) {
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.expiresAt() < System.currentTimeMillis()) {
+				entries.remove(key);
+				sizeBytes -= entry.size();
+				return null;
+			}
+			return entry.value();
+		}
+	}
+
+	private void put(QueryCacheKey key, Set<String> tables, Duration ttl, Object value, long generation) {
+		NebulaProperties.Cache config = properties.getCache();
+		long size = estimateSize(value);
+		if (size > config.getMaxEntrySize().toBytes()) {
+			return;
+		}
+		long expiresAt = System.currentTimeMillis() + (ttl == null ? config.getTtl() : ttl).toMillis();
+		synchronized (entries) {
+			if (generation(key.connId()).get() != generation) {
+				// 执行期间有写操作，结果可能已经过时
+				return;
+			}
+			Entry previous = entries.put(key, new Entry(value, Set.copyOf(tables), size, expiresAt));
+			if (previous != null) {
+				sizeBytes -= previous.size();
+			}
+			sizeBytes += size;
+			puts.incrementAndGet();
+			long maxSize = config.getMaxSize().toBytes();
+			Iterator<Entry> it = entries.values().iterator();
+			while (sizeBytes > maxSize && it.hasNext()) {
+				sizeBytes -= it.next().size();
+				it.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	private AtomicLong generation(String connId) {
+		return generations.computeIfAbsent(connId, k -> new AtomicLong());
+	}
+
+	/**
+	 * 粗略估算结果占用的堆大小，只用于控制缓存总量
+	 */
+	private static long estimateSize(Object value) {
+		return switch (value) {
+			case null -> 8;
+			case String s -> 40 + 2L * s.length();
+			case byte[] bytes -> 16 + bytes.length;
+			case Number n -> 24;
+			case Boolean b -> 16;
+			case ColumnarResult r -> 64 + estimateSize(r.getData()) + 64L * r.getColumns().size();
+			case Map<?, ?> map -> {
+				long size = 64;
+				for (Map.Entry<?, ?> e : map.entrySet()) {
+					// key 通常是共享的列名字符串，只计算 entry 本身
+					size += 48 + estimateSize(e.getValue());
+				}
+				yield size;
+			}
+			case Collection<?> list -> {
+				long size = 40 + 8L * list.size();
+				for (Object item : list) {
+					size += estimateSize(item);
+				}
+				yield size;
+			}
+			default -> 48;
+		};
+	}
+}
@@ -0,0 +1,595 @@
+package com.deego.query.parquet;
+
+import com.deego.exception.BizException;
+import com.deego.exec.RowStreamHandler;
+import com.deego.query.BitString;
+import org.apache.parquet.conf.ParquetConfiguration;
+import org.apache.parquet.conf.PlainParquetConfiguration;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.TimeUnit;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoField;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 把结果集直接写成 Parquet 文件：每行从 ResultSet 读出后立即编码进当前行组，行组达到 rowGroupSize 字节后压缩写出，
+ * 内存占用只与行组大小相关。
+ * <p>
+ * JDBC 类型映射为对应的 Parquet 逻辑类型（INT / DECIMAL / DATE / TIME / TIMESTAMP / UUID / JSON / STRING），
+ * 未声明精度的 numeric、数组等无法精确表示的类型按文本输出，原始类型名写入文件的 key-value 元数据 typeName.列名。
+ * <p>
+ * Parquet 的元数据在文件尾部，中途出错时不会写出文件尾，客户端拿到的是不完整、无法读取的文件，而不是被截断但看似完整的数据。
+ */
+public class ParquetResultWriter implements RowStreamHandler, AutoCloseable {
+
+	private static final long MICROS_PER_SECOND = 1_000_000L;
+
+	private final StreamOutputFile file;
+	private final CompressionCodecName codec;
+	private final long rowGroupSize;
+
+	private ParquetWriter<ResultSet> writer;
+	private boolean completed;
+
+	/**
+	 * @param out          目标流，写完后不会关闭
+	 * @param codec        行组内数据页的压缩方式
+	 * @param rowGroupSize 每个行组的目标字节数，按编码压缩后在内存中缓冲的大小计算，近似于文件中行组的大小
+	 */
+	public ParquetResultWriter(OutputStream out, CompressionCodecName codec, long rowGroupSize) {
+		this.file = new StreamOutputFile(out);
+		this.codec = codec;
+		this.rowGroupSize = rowGroupSize;
+	}
+
+	/**
+	 * 解析压缩方式：none / snappy / gzip / zstd / lz4，为空时使用 defaultValue
+	 */
+	public static CompressionCodecName codec(String value, String defaultValue) {
+		String name = value == null || value.isBlank() ? defaultValue : value;
+		return switch (name.trim().toLowerCase(Locale.ROOT)) {
+			case "none", "uncompressed" -> CompressionCodecName.UNCOMPRESSED;
+			case "snappy" -> CompressionCodecName.SNAPPY;
+			case "gzip", "gz" -> CompressionCodecName.GZIP;
+			case "zstd" -> CompressionCodecName.ZSTD;
+			// Hadoop 的 LZ4 帧格式已被弃用，LZ4_RAW 才能被 Spark / DuckDB 等读取
+			case "lz4", "lz4_raw" -> CompressionCodecName.LZ4_RAW;
+			default -> throw new BizException("UNSUPPORTED_COMPRESSION", "Unsupported parquet compression: " + name);
+		};
+	}
+
+	/**
+	 * 解析 128MB 这样的行组大小，为空时使用 defaultValue
+	 */
+	public static long rowGroupSize(String value, DataSize defaultValue) {
+		if (value == null || value.isBlank()) {
+			return defaultValue.toBytes();
+		}
+		try {
+			return DataSize.parse(value.trim()).toBytes();
+		} catch (IllegalArgumentException e) {
+			throw new BizException("INVALID_PARAMETER", "Invalid rowGroupSize: " + value);
+		}
+	}
+
+	/**
+	 * 文件头是否已经写出；写出之后发生的错误只能中断输出
+	 */
+	public boolean isStarted() {
+		return writer != null;
+	}
+
+	@Override
+	public void onStart(ResultSetMetaData meta) throws SQLException {
+		int count = meta.getColumnCount();
+		Types.MessageTypeBuilder schema = Types.buildMessage();
+		ColumnWriter[] writers = new ColumnWriter[count];
+		String[] names = new String[count];
+		Map<String, String> typeNames = new LinkedHashMap<>();
+		Set<String> used = new HashSet<>();
+		for (int i = 1; i <= count; i++) {
+			// Parquet 要求同一层的字段名唯一，查询结果里的重名列追加序号
+			String name = JdbcUtils.lookupColumnName(meta, i);
+			String unique = name;
+			for (int n = 2; !used.add(unique); n++) {
+				unique = name + "_" + n;
+			}
+			names[i - 1] = unique;
+			Column column = toColumn(meta, i);
+			schema.addField(column.type().named(unique));
+			writers[i - 1] = column.writer();
+			typeNames.put("typeName." + unique, meta.getColumnTypeName(i));
+		}
+		start(schema.named("result"), names, writers, typeNames);
+	}
+
+	@Override
+	public void processRow(ResultSet rs) throws SQLException {
+		try {
+			writer.write(rs);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (ResultSetAccessException e) {
+			throw e.getCause();
+		}
+	}
+
+	@Override
+	public void onComplete(long rowCount) {
+		try {
+			completed = true;
+			writer.close();
+			file.out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 还没有写出文件头时出错：输出只有一列 @error 的文件，让客户端能拿到错误信息
+	 */
+	public void writeError(String message) throws IOException {
+		if (isStarted()) {
+			throw new IllegalStateException("Parquet file already started");
+		}
+		MessageType schema = Types.buildMessage()
+								  .optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("@error")
+								  .named("result");
+		ColumnWriter error = (rs, col, consumer) -> consumer.addBinary(Binary.fromString(String.valueOf(message)));
+		start(schema, new String[]{"@error"}, new ColumnWriter[]{error}, Map.of());
+		writer.write(null);
+		completed = true;
+		writer.close();
+		file.out.flush();
+	}
+
+	/**
+	 * 没有正常结束时丢弃尚未写出的行组和文件尾，只释放压缩器等资源
+	 */
+	@Override
+	public void close() throws IOException {
+		if (writer != null && !completed) {
+			file.discard();
+			writer.close();
+		}
+	}
+
+	private void start(MessageType schema, String[] names, ColumnWriter[] writers, Map<String, String> metadata) {
+		try {
+			writer = new Builder(file, new ResultSetWriteSupport(schema, names, writers, metadata))
+					.withConf(new PlainParquetConfiguration())
+					.withCompressionCodec(codec)
+					.withRowGroupSize(rowGroupSize)
+					.build();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static Column toColumn(ResultSetMetaData meta, int column) throws SQLException {
+		String typeName = meta.getColumnTypeName(column);
+		return switch (meta.getColumnType(column)) {
+			case java.sql.Types.TINYINT, java.sql.Types.SMALLINT, java.sql.Types.INTEGER -> new Column(
+					Types.optional(PrimitiveTypeName.INT32),
+					(rs, col, consumer) -> {
+						int value = rs.getInt(col);
+						if (!rs.wasNull()) consumer.addInteger(value);
+					});
+			case java.sql.Types.BIGINT -> new Column(
+					Types.optional(PrimitiveTypeName.INT64),
+					(rs, col, consumer) -> {
+						long value = rs.getLong(col);
+						if (!rs.wasNull()) consumer.addLong(value);
+					});
+			case java.sql.Types.REAL -> new Column(
+					Types.optional(PrimitiveTypeName.FLOAT),
+					(rs, col, consumer) -> {
+						float value = rs.getFloat(col);
+						if (!rs.wasNull()) consumer.addFloat(value);
+					});
+			case java.sql.Types.FLOAT, java.sql.Types.DOUBLE -> new Column(
+					Types.optional(PrimitiveTypeName.DOUBLE),
+					(rs, col, consumer) -> {
+						double value = rs.getDouble(col);
+						if (!rs.wasNull()) consumer.addDouble(value);
+					});
+			case java.sql.Types.NUMERIC, java.sql.Types.DECIMAL -> {
+				int precision = meta.getPrecision(column);
+				int scale = meta.getScale(column);
+				// 未声明精度的 numeric 超出 DECIMAL(38) 的范围，按文本输出保证不丢精度
+				yield precision > 0 && precision <= 38 && scale >= 0 && scale <= precision
+						? decimalColumn(precision, scale)
+						: textColumn();
+			}
+			case java.sql.Types.BIT, java.sql.Types.BOOLEAN -> BitString.isBitString(typeName, meta.getPrecision(column))
+					? bitStringColumn(meta.getPrecision(column))
+					: new Column(
+					Types.optional(PrimitiveTypeName.BOOLEAN),
+					(rs, col, consumer) -> {
+						boolean value = rs.getBoolean(col);
+						if (!rs.wasNull()) consumer.addBoolean(value);
+					});
+			case java.sql.Types.DATE -> new Column(
+					Types.optional(PrimitiveTypeName.INT32).as(LogicalTypeAnnotation.dateType()),
+					(rs, col, consumer) -> {
+						LocalDate value = rs.getObject(col, LocalDate.class);
+						if (value != null) consumer.addInteger((int) value.toEpochDay());
+					});
+			case java.sql.Types.TIME -> new Column(
+					Types.optional(PrimitiveTypeName.INT64).as(LogicalTypeAnnotation.timeType(false, TimeUnit.MICROS)),
+					(rs, col, consumer) -> {
+						LocalTime value = rs.getObject(col, LocalTime.class);
+						if (value != null) consumer.addLong(value.getLong(ChronoField.MICRO_OF_DAY));
+					});
+			case java.sql.Types.TIMESTAMP -> "timestamptz".equalsIgnoreCase(typeName)
+					? timestampTzColumn()
+					: new Column(
+					Types.optional(PrimitiveTypeName.INT64).as(LogicalTypeAnnotation.timestampType(false, TimeUnit.MICROS)),
+					(rs, col, consumer) -> {
+						LocalDateTime value = rs.getObject(col, LocalDateTime.class);
+						if (value != null) consumer.addLong(toMicros(value, ZoneOffset.UTC));
+					});
+			case java.sql.Types.TIMESTAMP_WITH_TIMEZONE -> timestampTzColumn();
+			case java.sql.Types.BINARY, java.sql.Types.VARBINARY, java.sql.Types.LONGVARBINARY, java.sql.Types.BLOB -> new Column(
+					Types.optional(PrimitiveTypeName.BINARY),
+					(rs, col, consumer) -> {
+						byte[] value = rs.getBytes(col);
+						if (value != null) consumer.addBinary(Binary.fromConstantByteArray(value));
+					});
+			default -> switch (typeName.toLowerCase(Locale.ROOT)) {
+				case "uuid" -> new Column(
+						Types.optional(PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY).length(16).as(LogicalTypeAnnotation.uuidType()),
+						(rs, col, consumer) -> {
+							Object value = rs.getObject(col);
+							if (value != null) consumer.addBinary(uuidBytes(UUID.fromString(value.toString())));
+						});
+				case "json", "jsonb" -> new Column(
+						Types.optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.jsonType()),
+						(rs, col, consumer) -> {
+							String value = rs.getString(col);
+							if (value != null) consumer.addBinary(Binary.fromString(value));
+						});
+				default -> textColumn();
+			};
+		};
+	}
+
+	private static Column decimalColumn(int precision, int scale) {
+		LogicalTypeAnnotation decimal = LogicalTypeAnnotation.decimalType(scale, precision);
+		if (precision <= 9) {
+			return new Column(Types.optional(PrimitiveTypeName.INT32).as(decimal), (rs, col, consumer) -> {
+				BigDecimal value = rs.getBigDecimal(col);
+				if (value != null) consumer.addInteger(value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().intValueExact());
+			});
+		}
+		if (precision <= 18) {
+			return new Column(Types.optional(PrimitiveTypeName.INT64).as(decimal), (rs, col, consumer) -> {
+				BigDecimal value = rs.getBigDecimal(col);
+				if (value != null) consumer.addLong(value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+			});
+		}
+		// 定长大端补码，长度取能容纳 precision 位十进制数的最少字节数
+		int length = (BigInteger.TEN.pow(precision).bitLength() + 8) / 8;
+		return new Column(Types.optional(PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY).length(length).as(decimal), (rs, col, consumer) -> {
+			BigDecimal value = rs.getBigDecimal(col);
+			if (value != null) {
+				byte[] unscaled = value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().toByteArray();
+				byte[] fixed = new byte[length];
+				Arrays.fill(fixed, 0, length - unscaled.length, unscaled[0] < 0 ? (byte) -1 : 0);
+				System.arraycopy(unscaled, 0, fixed, length - unscaled.length, unscaled.length);
+				consumer.addBinary(Binary.fromConstantByteArray(fixed));
+			}
+		});
+	}
+
+	private static Column timestampTzColumn() {
+		return new Column(
+				Types.optional(PrimitiveTypeName.INT64).as(LogicalTypeAnnotation.timestampType(true, TimeUnit.MICROS)),
+				(rs, col, consumer) -> {
+					OffsetDateTime value = rs.getObject(col, OffsetDateTime.class);
+					if (value != null) consumer.addLong(toMicros(value.toLocalDateTime(), value.getOffset()));
+				});
+	}
+
+	/**
+	 * 位串写成 '0' / '1' 组成的字符串，与 PostgreSQL 的文本形式一致
+	 */
+	private static Column bitStringColumn(int length) {
+		return new Column(
+				Types.optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()),
+				(rs, col, consumer) -> {
+					Object value = rs.getObject(col);
+					if (value != null) consumer.addBinary(Binary.fromString(BitString.of(value, length)));
+				});
+	}
+
+	private static Column textColumn() {
+		return new Column(
+				Types.optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()),
+				(rs, col, consumer) -> {
+					Object value = JdbcUtils.getResultSetValue(rs, col);
+					if (value != null) {
+						String text = value instanceof BigDecimal bd ? bd.toPlainString() : value.toString();
+						consumer.addBinary(Binary.fromString(text));
+					}
+				});
+	}
+
+	private static Binary uuidBytes(UUID uuid) {
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+		buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+		return Binary.fromConstantByteArray(buffer.array());
+	}
+
+	private static long toMicros(LocalDateTime value, ZoneOffset offset) {
+		long seconds = value.toEpochSecond(offset);
+		return Math.addExact(Math.multiplyExact(seconds, MICROS_PER_SECOND), value.get(ChronoField.MICRO_OF_SECOND));
+	}
+
+	/**
+	 * 把一列的值交给 RecordConsumer；值为 null 时什么也不写，由调用方跳过该字段
+	 */
+	@FunctionalInterface
+	private interface ColumnWriter {
+		void write(ResultSet rs, int column, ValueConsumer consumer) throws SQLException;
+	}
+
+	private record Column(Types.PrimitiveBuilder<PrimitiveType> type, ColumnWriter writer) {
+	}
+
+	/**
+	 * RecordConsumer 的字段要先 startField 才能写值，而是否为 null 要读出值后才知道；
+	 * 这里在写第一个值时才打开字段，没有写值的列即为 null
+	 */
+	private static final class ValueConsumer {
+		private RecordConsumer consumer;
+		private String field;
+		private int index;
+		private boolean open;
+
+		void reset(String field, int index) {
+			this.field = field;
+			this.index = index;
+			this.open = false;
+		}
+
+		private RecordConsumer open() {
+			if (!open) {
+				consumer.startField(field, index);
+				open = true;
+			}
+			return consumer;
+		}
+
+		void finish() {
+			if (open) {
+				consumer.endField(field, index);
+			}
+		}
+
+		void addInteger(int value) {
+			open().addInteger(value);
+		}
+
+		void addLong(long value) {
+			open().addLong(value);
+		}
+
+		void addFloat(float value) {
+			open().addFloat(value);
+		}
+
+		void addDouble(double value) {
+			open().addDouble(value);
+		}
+
+		void addBoolean(boolean value) {
+			open().addBoolean(value);
+		}
+
+		void addBinary(Binary value) {
+			open().addBinary(value);
+		}
+	}
+
+	/**
+	 * ParquetWriter 每写一行回调一次，直接从当前游标位置读取各列
+	 */
+	private static final class ResultSetWriteSupport extends WriteSupport<ResultSet> {
+		private final MessageType schema;
+		private final String[] names;
+		private final ColumnWriter[] writers;
+		private final Map<String, String> metadata;
+		private final ValueConsumer values = new ValueConsumer();
+		private RecordConsumer consumer;
+
+		ResultSetWriteSupport(MessageType schema, String[] names, ColumnWriter[] writers, Map<String, String> metadata) {
+			this.schema = schema;
+			this.names = names;
+			this.writers = writers;
+			this.metadata = metadata;
+		}
+
+		/**
+		 * parquet-mr 1.14 中仍是抽象方法、必须实现；构建时只调用 ParquetConfiguration 版本，这里随父类一起标为过时
+		 */
+		@Deprecated
+		@Override
+		public WriteContext init(org.apache.hadoop.conf.Configuration configuration) {
+			return new WriteContext(schema, metadata);
+		}
+
+		@Override
+		public WriteContext init(ParquetConfiguration configuration) {
+			return new WriteContext(schema, metadata);
+		}
+
+		@Override
+		public void prepareForWrite(RecordConsumer recordConsumer) {
+			this.consumer = recordConsumer;
+			this.values.consumer = recordConsumer;
+		}
+
+		@Override
+		public void write(ResultSet rs) {
+			consumer.startMessage();
+			for (int i = 0; i < writers.length; i++) {
+				values.reset(names[i], i);
+				try {
+					writers[i].write(rs, i + 1, values);
+				} catch (SQLException e) {
+					throw new ResultSetAccessException(e);
+				}
+				values.finish();
+			}
+			consumer.endMessage();
+		}
+	}
+
+	/**
+	 * WriteSupport.write 不能抛出受检异常，读取结果集出错时借此带出 SQLException
+	 */
+	private static final class ResultSetAccessException extends RuntimeException {
+		ResultSetAccessException(SQLException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized SQLException getCause() {
+			return (SQLException) super.getCause();
+		}
+	}
+
+	private static final class Builder extends ParquetWriter.Builder<ResultSet, Builder> {
+		private final WriteSupport<ResultSet> writeSupport;
+
+		Builder(OutputFile file, WriteSupport<ResultSet> writeSupport) {
+			super(file);
+			this.writeSupport = writeSupport;
+		}
+
+		@Override
+		protected Builder self() {
+			return this;
+		}
+
+		/**
+		 * 同 {@link ResultSetWriteSupport#init(org.apache.hadoop.conf.Configuration)}：抽象方法必须实现，实际只用 ParquetConfiguration 版本
+		 */
+		@Deprecated
+		@Override
+		protected WriteSupport<ResultSet> getWriteSupport(org.apache.hadoop.conf.Configuration conf) {
+			return writeSupport;
+		}
+
+		@Override
+		protected WriteSupport<ResultSet> getWriteSupport(ParquetConfiguration conf) {
+			return writeSupport;
+		}
+	}
+
+	/**
+	 * 顺序写入的输出流：Parquet 只需要知道当前偏移量，不需要随机访问，因此可以直接写 HTTP 响应。
+	 * discard 之后的写入全部丢弃
+	 */
+	private static final class StreamOutputFile implements OutputFile {
+		private final OutputStream out;
+		private long position;
+		private boolean discarded;
+
+		StreamOutputFile(OutputStream out) {
+			this.out = out;
+		}
+
+		void discard() {
+			discarded = true;
+		}
+
+		@Override
+		public PositionOutputStream create(long blockSizeHint) {
+			return new PositionOutputStream() {
+				@Override
+				public long getPos() {
+					return position;
+				}
+
+				@Override
+				public void write(int b) throws IOException {
+					if (!discarded) {
+						out.write(b);
+						position++;
+					}
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					if (!discarded) {
+						out.write(b, off, len);
+						position += len;
+					}
+				}
+
+				@Override
+				public void flush() throws IOException {
+					if (!discarded) {
+						out.flush();
+					}
+				}
+
+				@Override
+				public void close() {
+					// 目标流由调用方关闭
+				}
+			};
+		}
+
+		@Override
+		public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+			return create(blockSizeHint);
+		}
+
+		@Override
+		public boolean supportsBlockSize() {
+			return false;
+		}
+
+		@Override
+		public long defaultBlockSize() {
+			return 0;
+		}
+	}
+}
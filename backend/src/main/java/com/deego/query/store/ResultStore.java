@@ -0,0 +1,154 @@
+package com.deego.query.store;
+
+import com.deego.config.NebulaProperties;
+import com.deego.exception.BizException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ObjectUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * 服务端结果集存储：管理所有 {@link StoredResult} 的堆内存和磁盘预算。
+ * <ul>
+ *   <li>堆预算不足时，先把最早写完的内存结果溢写到磁盘，仍不足则当前结果直接溢写</li>
+ *   <li>磁盘预算不足时，淘汰最早写完的结果，仍不足则当前结果写入失败</li>
+ * </ul>
+ * 正在写入的结果不会被淘汰。
+ */
+@Component
+@Slf4j
+public class ResultStore {
+
+	/**
+	 * 溢写后按块预占磁盘预算，避免每行都做一次原子操作
+	 */
+	static final long DISK_RESERVE_CHUNK = 1024 * 1024;
+
+	@Autowired
+	private NebulaProperties properties;
+
+	private final Map<String, StoredResult> results = new ConcurrentHashMap<>();
+
+	private final AtomicLong heapUsed = new AtomicLong();
+	private final AtomicLong diskUsed = new AtomicLong();
+
+	private Path directory;
+
+	@PostConstruct
+	public void init() throws IOException {
+		String dir = properties.getResultStore().getDirectory();
+		directory = ObjectUtils.isEmpty(dir) ? Paths.get(System.getProperty("java.io.tmpdir"), "nebula-results") : Paths.get(dir);
+		Files.createDirectories(directory);
+		// 清理上次进程遗留的文件
+		try (Stream<Path> files = Files.list(directory)) {
+			files.filter(p -> p.getFileName().toString().startsWith("result-")).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	public StoredResult create(String id) {
+		NebulaProperties.ResultStore config = properties.getResultStore();
+		StoredResult result = new StoredResult(id, this, config.getIndexInterval(), config.getMemoryThreshold().toBytes());
+		StoredResult previous = results.put(id, result);
+		if (previous != null) {
+			previous.close();
+		}
+		return result;
+	}
+
+	public StoredResult get(String id) {
+		StoredResult result = results.get(id);
+		if (result == null || result.isClosed()) {
+			throw new BizException("RESULT_EXPIRED", "Result not found or evicted: " + id);
+		}
+		return result;
+	}
+
+	public Optional<StoredResult> find(String id) {
+		return Optional.ofNullable(results.get(id)).filter(r -> !r.isClosed());
+	}
+
+	public void release(String id) {
+		StoredResult result = results.remove(id);
+		if (result != null) {
+			result.close();
+		}
+	}
+
+	boolean reserveHeap(StoredResult requester, long bytes) {
+		long budget = properties.getResultStore().getHeapBudget().toBytes();
+		while (!tryReserve(heapUsed, bytes, budget)) {
+			StoredResult victim = oldestFinished(requester, r -> !r.isSpilled()).orElse(null);
+			if (victim == null) {
+				return false;
+			}
+			victim.spill();
+		}
+		return true;
+	}
+
+	void releaseHeap(long bytes) {
+		heapUsed.addAndGet(-bytes);
+	}
+
+	boolean reserveDisk(StoredResult requester, long bytes) {
+		long budget = properties.getResultStore().getDiskBudget().toBytes();
+		while (!tryReserve(diskUsed, bytes, budget)) {
+			StoredResult victim = oldestFinished(requester, StoredResult::isSpilled).orElse(null);
+			if (victim == null) {
+				return false;
+			}
+			log.debug("Evicting result {} to free disk budget", victim.getId());
+			results.remove(victim.getId(), victim);
+			victim.close();
+		}
+		return true;
+	}
+
+	void releaseDisk(long bytes) {
+		diskUsed.addAndGet(-bytes);
+	}
+
+	Path createFile(String id) throws IOException {
+		Path file = Files.createTempFile(directory, "result-" + id + "-", ".bin");
+		file.toFile().deleteOnExit();
+		return file;
+	}
+
+	private Optional<StoredResult> oldestFinished(StoredResult requester, Predicate<StoredResult> filter) {
+		return results.values().stream()
+					  .filter(r -> r != requester && r.isFinished() && !r.isClosed())
+					  .filter(filter)
+					  .min(Comparator.comparingLong(StoredResult::getCreatedAt));
+	}
+
+	private static boolean tryReserve(AtomicLong used, long bytes, long budget) {
+		long current;
+		do {
+			current = used.get();
+			if (current + bytes > budget) {
+				return false;
+			}
+		} while (!used.compareAndSet(current, current + bytes));
+		return true;
+	}
+
+	@PreDestroy
+	public void closeAll() {
+		List.copyOf(results.keySet()).forEach(this::release);
+	}
+}
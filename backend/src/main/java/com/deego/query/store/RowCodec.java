@@ -0,0 +1,175 @@
+package com.deego.query.store;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * 结果行的二进制编码：每个值一个类型标记 + 定长或带长度的内容。
+ * 无法识别的类型（如 PGobject）按 toString() 保存为字符串，与前端看到的 JSON 保持一致。
+ */
+final class RowCodec {
+
+	private static final byte NULL = 0;
+	private static final byte BOOLEAN = 1;
+	private static final byte SHORT = 2;
+	private static final byte INT = 3;
+	private static final byte LONG = 4;
+	private static final byte FLOAT = 5;
+	private static final byte DOUBLE = 6;
+	private static final byte DECIMAL = 7;
+	private static final byte BIG_INTEGER = 8;
+	private static final byte STRING = 9;
+	private static final byte BYTES = 10;
+	private static final byte TIMESTAMP = 11;
+	private static final byte DATE = 12;
+	private static final byte TIME = 13;
+	private static final byte LOCAL_DATE = 14;
+	private static final byte LOCAL_DATE_TIME = 15;
+	private static final byte LOCAL_TIME = 16;
+	private static final byte OFFSET_DATE_TIME = 17;
+	private static final byte UUID_VALUE = 18;
+
+	private RowCodec() {
+	}
+
+	static void write(DataOutputStream out, Object value) throws IOException {
+		switch (value) {
+			case null -> out.writeByte(NULL);
+			case Boolean b -> {
+				out.writeByte(BOOLEAN);
+				out.writeBoolean(b);
+			}
+			case Short s -> {
+				out.writeByte(SHORT);
+				out.writeShort(s);
+			}
+			case Integer i -> {
+				out.writeByte(INT);
+				out.writeInt(i);
+			}
+			case Long l -> {
+				out.writeByte(LONG);
+				out.writeLong(l);
+			}
+			case Float f -> {
+				out.writeByte(FLOAT);
+				out.writeFloat(f);
+			}
+			case Double d -> {
+				out.writeByte(DOUBLE);
+				out.writeDouble(d);
+			}
+			case BigDecimal d -> {
+				out.writeByte(DECIMAL);
+				writeString(out, d.toString());
+			}
+			case BigInteger i -> {
+				out.writeByte(BIG_INTEGER);
+				writeBytes(out, i.toByteArray());
+			}
+			case byte[] bytes -> {
+				out.writeByte(BYTES);
+				writeBytes(out, bytes);
+			}
+			case Timestamp t -> {
+				out.writeByte(TIMESTAMP);
+				out.writeLong(t.getTime());
+				out.writeInt(t.getNanos());
+			}
+			case Date d -> {
+				out.writeByte(DATE);
+				out.writeLong(d.getTime());
+			}
+			case Time t -> {
+				out.writeByte(TIME);
+				out.writeLong(t.getTime());
+			}
+			case LocalDate d -> {
+				out.writeByte(LOCAL_DATE);
+				out.writeLong(d.toEpochDay());
+			}
+			case LocalDateTime t -> {
+				out.writeByte(LOCAL_DATE_TIME);
+				writeString(out, t.toString());
+			}
+			case LocalTime t -> {
+				out.writeByte(LOCAL_TIME);
+				out.writeLong(t.toNanoOfDay());
+			}
+			case OffsetDateTime t -> {
+				out.writeByte(OFFSET_DATE_TIME);
+				writeString(out, t.toString());
+			}
+			case UUID u -> {
+				out.writeByte(UUID_VALUE);
+				out.writeLong(u.getMostSignificantBits());
+				out.writeLong(u.getLeastSignificantBits());
+			}
+			default -> {
+				out.writeByte(STRING);
+				writeString(out, value.toString());
+			}
+		}
+	}
+
+	static Object read(ByteBuffer in) {
+		byte tag = in.get();
+		return switch (tag) {
+			case NULL -> null;
+			case BOOLEAN -> in.get() != 0;
+			case SHORT -> in.getShort();
+			case INT -> in.getInt();
+			case LONG -> in.getLong();
+			case FLOAT -> in.getFloat();
+			case DOUBLE -> in.getDouble();
+			case DECIMAL -> new BigDecimal(readString(in));
+			case BIG_INTEGER -> new BigInteger(readBytes(in));
+			case STRING -> readString(in);
+			case BYTES -> readBytes(in);
+			case TIMESTAMP -> {
+				Timestamp t = new Timestamp(in.getLong());
+				t.setNanos(in.getInt());
+				yield t;
+			}
+			case DATE -> new Date(in.getLong());
+			case TIME -> new Time(in.getLong());
+			case LOCAL_DATE -> LocalDate.ofEpochDay(in.getLong());
+			case LOCAL_DATE_TIME -> LocalDateTime.parse(readString(in));
+			case LOCAL_TIME -> LocalTime.ofNanoOfDay(in.getLong());
+			case OFFSET_DATE_TIME -> OffsetDateTime.parse(readString(in));
+			case UUID_VALUE -> new UUID(in.getLong(), in.getLong());
+			default -> throw new IllegalStateException("Corrupted result block, unknown value tag " + tag);
+		};
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		writeBytes(out, s.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in) {
+		return new String(readBytes(in), StandardCharsets.UTF_8);
+	}
+
+	private static byte[] readBytes(ByteBuffer in) {
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return bytes;
+	}
+}
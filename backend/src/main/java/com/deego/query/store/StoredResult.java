@@ -0,0 +1,354 @@
+package com.deego.query.store;
+
+import com.deego.exception.BizException;
+import com.deego.exec.RowStreamHandler;
+import com.deego.query.ColumnMeta;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 保存在服务端的一份查询结果，按行追加写入、按窗口随机读取。
+ * <p>
+ * 行先编码进堆内缓冲，超过单个结果的内存阈值或全局堆预算后整体溢写到临时文件，之后的行直接追加到文件；
+ * 读取时把目标窗口所在的文件区间映射为 MappedByteBuffer 解码。
+ * 每 indexInterval 行记录一次字节偏移（稀疏索引），定位任意行最多跳过 indexInterval - 1 行。
+ * 每行格式：int 长度 + 各列 {@link RowCodec} 编码。
+ */
+@Slf4j
+public class StoredResult implements RowStreamHandler, AutoCloseable {
+
+	@Getter
+	private final String id;
+
+	@Getter
+	private final long createdAt = System.currentTimeMillis();
+
+	private final ResultStore store;
+	private final int indexInterval;
+	private final long memoryThreshold;
+
+	@Getter
+	private volatile List<ColumnMeta> columns = List.of();
+
+	@Getter
+	private volatile long rowCount;
+
+	/**
+	 * 结果已写完（成功或失败），不会再追加行
+	 */
+	@Getter
+	private volatile boolean finished;
+
+	@Getter
+	private volatile boolean closed;
+
+	private String[] labels;
+	private long[] index = new long[64];
+	private long size;
+
+	private final ByteArrayOutputStream rowBytes = new ByteArrayOutputStream(256);
+	private final DataOutputStream rowOut = new DataOutputStream(rowBytes);
+
+	/**
+	 * 堆内缓冲，溢写后置为 null
+	 */
+	private byte[] heap = new byte[0];
+
+	private Path file;
+	private FileChannel channel;
+	private ByteBuffer writeBuffer;
+	private long diskReserved;
+
+	StoredResult(String id, ResultStore store, int indexInterval, long memoryThreshold) {
+		this.id = id;
+		this.store = store;
+		this.indexInterval = indexInterval;
+		this.memoryThreshold = memoryThreshold;
+	}
+
+	public boolean isSpilled() {
+		return file != null;
+	}
+
+	@Override
+	public synchronized void onStart(ResultSetMetaData meta) throws SQLException {
+		columns = ColumnMeta.of(meta);
+		labels = columns.stream().map(ColumnMeta::getName).toArray(String[]::new);
+	}
+
+	@Override
+	public void processRow(ResultSet rs) throws SQLException {
+		rowBytes.reset();
+		try {
+			rowOut.writeInt(0);
+			for (int i = 1; i <= labels.length; i++) {
+				RowCodec.write(rowOut, JdbcUtils.getResultSetValue(rs, i));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		append(rowBytes.toByteArray());
+	}
+
+	@Override
+	public void onComplete(long rowCount) {
+		finish();
+	}
+
+	/**
+	 * 标记结果写完；查询失败时已写入的行仍可读取
+	 */
+	public synchronized void finish() {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		if (channel != null && !closed) {
+			flushWrites();
+		}
+	}
+
+	/**
+	 * 追加一行。预算在本结果的锁外预占：预占时可能溢写或淘汰其他结果，需要拿它们的锁，
+	 * 持有本结果的锁去等待会和正在读写那些结果的线程互相等待。未写完的结果只有写入线程会修改，
+	 * 锁外读到的状态在重新加锁后仍然有效，唯一的例外是被并发 close，此时归还刚预占的预算
+	 */
+	private void append(byte[] row) {
+		ByteBuffer.wrap(row).putInt(0, row.length - 4);
+		long required;
+		int heapCapacity;
+		boolean spilled;
+		synchronized (this) {
+			ensureOpen();
+			required = size + row.length;
+			spilled = file != null;
+			heapCapacity = spilled ? 0 : heap.length;
+		}
+		if (!spilled) {
+			int capacity = heapCapacity;
+			if (required > heapCapacity && required <= memoryThreshold) {
+				int grown = (int) Math.min(memoryThreshold, Math.max(required, Math.max(8192L, heapCapacity * 2L)));
+				if (store.reserveHeap(this, grown - heapCapacity)) {
+					capacity = grown;
+				}
+			}
+			if (required <= capacity) {
+				appendToHeap(row, capacity, capacity - heapCapacity);
+				return;
+			}
+			spill();
+		}
+		long chunk = 0;
+		if (required > diskReserved()) {
+			chunk = Math.max(row.length, ResultStore.DISK_RESERVE_CHUNK);
+			if (!store.reserveDisk(this, chunk)) {
+				throw new BizException("RESULT_STORE_FULL", "Result store disk budget exhausted, result " + id + " is too large");
+			}
+		}
+		appendToFile(row, chunk);
+	}
+
+	private synchronized void appendToHeap(byte[] row, int capacity, long reserved) {
+		if (closed) {
+			store.releaseHeap(reserved);
+			ensureOpen();
+		}
+		if (capacity > heap.length) {
+			heap = Arrays.copyOf(heap, capacity);
+		}
+		System.arraycopy(row, 0, heap, (int) size, row.length);
+		appended(row.length);
+	}
+
+	private synchronized void appendToFile(byte[] row, long reserved) {
+		if (closed) {
+			store.releaseDisk(reserved);
+			ensureOpen();
+		}
+		diskReserved += reserved;
+		if (row.length > writeBuffer.remaining()) {
+			flushWrites();
+		}
+		if (row.length > writeBuffer.capacity()) {
+			writeFully(ByteBuffer.wrap(row));
+		} else {
+			writeBuffer.put(row);
+		}
+		appended(row.length);
+	}
+
+	private synchronized long diskReserved() {
+		return diskReserved;
+	}
+
+	/**
+	 * 记录新行的稀疏索引并推进 size / rowCount
+	 */
+	private void appended(int length) {
+		if (rowCount % indexInterval == 0) {
+			int slot = (int) (rowCount / indexInterval);
+			if (slot == index.length) {
+				index = Arrays.copyOf(index, slot * 2);
+			}
+			index[slot] = size;
+		}
+		size += length;
+		rowCount++;
+	}
+
+	/**
+	 * 把堆内缓冲整体写入临时文件并释放堆预算。对已写完的结果也可以调用，用于腾出堆空间。
+	 * 磁盘预算同样在锁外预占（见 {@link #append}），并发的 spill 或 close 抢先时归还
+	 */
+	void spill() {
+		long bytes;
+		synchronized (this) {
+			if (file != null || closed) {
+				return;
+			}
+			bytes = size;
+		}
+		if (bytes > 0 && !store.reserveDisk(this, bytes)) {
+			throw new BizException("RESULT_STORE_FULL", "Result store disk budget exhausted, cannot spill result " + id);
+		}
+		synchronized (this) {
+			if (file != null || closed) {
+				store.releaseDisk(bytes);
+				return;
+			}
+			try {
+				file = store.createFile(id);
+			} catch (IOException e) {
+				store.releaseDisk(bytes);
+				throw new UncheckedIOException("Failed to spill result " + id, e);
+			}
+			// 之后失败时由 close 归还
+			diskReserved = bytes;
+			try {
+				channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				writeBuffer = ByteBuffer.allocate(64 * 1024);
+				if (size > 0) {
+					writeFully(ByteBuffer.wrap(heap, 0, (int) size));
+				}
+				log.debug("Result {} spilled to {} after {} rows", id, file, rowCount);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to spill result " + id, e);
+			}
+			store.releaseHeap(heap.length);
+			heap = null;
+		}
+	}
+
+	/**
+	 * 读取 [offset, offset + limit) 范围内的行
+	 */
+	public synchronized List<Map<String, Object>> read(long offset, int limit) {
+		ensureOpen();
+		long end = Math.min(rowCount, offset + limit);
+		if (offset < 0 || offset >= end) {
+			return List.of();
+		}
+		int block = (int) (offset / indexInterval);
+		long from = index[block];
+		int endBlock = (int) ((end + indexInterval - 1) / indexInterval);
+		long to = endBlock < (rowCount + indexInterval - 1) / indexInterval ? index[endBlock] : size;
+
+		ByteBuffer buf = slice(from, to);
+		// 从块首跳到 offset 所在行
+		for (long skip = offset - (long) block * indexInterval; skip > 0; skip--) {
+			buf.position(buf.position() + 4 + buf.getInt(buf.position()));
+		}
+		List<Map<String, Object>> rows = new ArrayList<>((int) (end - offset));
+		for (long i = offset; i < end; i++) {
+			buf.getInt();
+			Map<String, Object> row = new LinkedHashMap<>(labels.length * 2);
+			for (String label : labels) {
+				row.put(label, RowCodec.read(buf));
+			}
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	private ByteBuffer slice(long from, long to) {
+		if (file == null) {
+			return ByteBuffer.wrap(heap, (int) from, (int) (to - from)).slice();
+		}
+		flushWrites();
+		try {
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+			return mapped;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to map result " + id, e);
+		}
+	}
+
+	private void flushWrites() {
+		writeBuffer.flip();
+		writeFully(writeBuffer);
+		writeBuffer.clear();
+	}
+
+	private void writeFully(ByteBuffer buf) {
+		try {
+			while (buf.hasRemaining()) {
+				channel.write(buf);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write result " + id, e);
+		}
+	}
+
+	private void ensureOpen() {
+		if (closed) {
+			throw new BizException("RESULT_EXPIRED", "Result " + id + " has been evicted from the result store");
+		}
+	}
+
+	/**
+	 * 释放堆缓冲和临时文件；只应由 {@link ResultStore} 调用，以便同时归还预算
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		finished = true;
+		if (heap != null) {
+			store.releaseHeap(heap.length);
+			heap = null;
+		}
+		if (file != null) {
+			try {
+				if (channel != null) {
+					channel.close();
+				}
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				log.warn("Failed to delete result file {}: {}", file, e.getMessage());
+			}
+			store.releaseDisk(diskReserved);
+		}
+	}
+}
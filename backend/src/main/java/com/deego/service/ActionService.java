@@ -2,8 +2,11 @@ package com.deego.service;
 
 import com.deego.enums.DatabaseType;
 import com.deego.exception.BizException;
+import com.deego.exec.JdbcExecutor;
 import com.deego.model.Connection;
+import com.deego.query.cache.QueryResultCache;
 import com.deego.service.action.DatabaseActionService;
+import com.deego.utils.SqlUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -18,6 +21,9 @@ public class ActionService {
 	@Autowired
 	private ConnectionService connectionService;
 
+	@Autowired
+	private QueryResultCache resultCache;
+
 	/**
 	 * 按 DatabaseType 存放不同实现，例如：
 	 *  POSTGRESQL -> PostgreSqlActionService
@@ -60,10 +66,26 @@ public class ActionService {
 			throw new BizException("Unsupported dbType for actions: " + type);
 		}
 
-		// 3. 拿到对应数据库的 JdbcTemplate（你已有的通用方法）
-		JdbcTemplate jdbc = connectionService.getJdbcTemplate(connId);
+		// 3. 拿到对应数据库的 JdbcTemplate：借连接、执行和拉取结果按阶段计时，与经过执行器的查询记在同一组指标下
+		JdbcTemplate jdbc = jdbcExecutor(connId).timedJdbc();
 
-		// 4. 委派给具体数据库实现
-		return delegate.execute(handler, jdbc, params);
+		// 4. 委派给具体数据库实现；会改变表结构或数据的动作使相关的查询结果缓存失效
+		// （没有 objectName 时整个连接失效），导出、生成 DDL 等只读动作不影响缓存
+		if (delegate.isReadOnly(handler)) {
+			return delegate.execute(handler, jdbc, params);
+		}
+		try {
+			return delegate.execute(handler, jdbc, params);
+		} finally {
+			String table = SqlUtils.bareName(params.get("objectName"));
+			resultCache.invalidate(connId, table == null ? List.of() : List.of(table));
+		}
+	}
+
+	private JdbcExecutor jdbcExecutor(String connId) {
+		if (connectionService.getExecutor(connId) instanceof JdbcExecutor executor) {
+			return executor;
+		}
+		throw new BizException("Not a relational executor for connection " + connId);
 	}
 }
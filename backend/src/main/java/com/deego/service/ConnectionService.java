@@ -1,9 +1,14 @@
 package com.deego.service;
 
+import com.deego.enums.WorkPriority;
 import com.deego.exception.BizException;
 import com.deego.exec.DbExecutor;
 import com.deego.manager.ConnectionManager;
+import com.deego.metadata.cache.MetadataCache;
+import com.deego.metadata.watch.MetadataWatcher;
 import com.deego.model.Connection;
+import com.deego.pool.AdmissionGate;
+import com.deego.query.cache.QueryResultCache;
 import com.deego.repository.ConnectionRepository;
 import com.deego.utils.IdWorker;
 import com.zaxxer.hikari.HikariDataSource;
@@ -14,6 +19,7 @@ import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class ConnectionService {
@@ -21,9 +27,20 @@ public class ConnectionService {
 	private ConnectionManager connectionManager;
 	@Autowired
 	private ConnectionRepository connectionRepository;
+	@Autowired
+	private QueryResultCache resultCache;
+	@Autowired
+	private MetadataCache metadataCache;
+	@Autowired
+	private MetadataWatcher metadataWatcher;
 
 	private final Map<String, HikariDataSource> dataSources = new HashMap<>();
 
+	/**
+	 * 连接配置缓存：对象树展开、查询等每个请求都要取连接，不再每次 findById；只在本服务内修改，保存和删除时同步更新，对外只返回副本
+	 */
+	private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
 	public List<Connection> getAllConnections() {
 		return connectionRepository.findAll();
 	}
@@ -34,11 +51,26 @@ public class ConnectionService {
 	}
 
 	public DbExecutor getExecutor(String connId, String database) {
+		return getExecutor(connId, database, WorkPriority.QUERY);
+	}
+
+	/**
+	 * priority 决定连接池额度紧张时的排队顺序：元数据浏览用 INTERACTIVE，后台任务和导出用 BULK
+	 */
+	public DbExecutor getExecutor(String connId, String database, WorkPriority priority) {
 		Connection c = getConnection(connId).orElseThrow(() -> new BizException("Connection not found: " + connId));
 		if (ObjectUtils.isEmpty(database)) {
 			database = c.getDatabase();
 		}
-		return connectionManager.acquireExecutor(c, database);
+		return connectionManager.acquireExecutor(c, database, priority);
+	}
+
+	public AdmissionGate admissionGate(String connId, String database) {
+		return connectionManager.admissionGate(connId + "@" + database);
+	}
+
+	public List<AdmissionGate.AdmissionStats> admissionStats() {
+		return connectionManager.admissionStats();
 	}
 
 	/* 供 ConfigController 拉根节点 */
@@ -51,8 +83,9 @@ public class ConnectionService {
 			conn.setId(IdWorker.getIdStr());
 		}
 		Connection saved = connectionRepository.save(conn);
+		connections.put(saved.getId(), saved);
 		createDataSource(saved);
-		return saved;
+		return copy(saved);
 	}
 
 
@@ -70,18 +103,37 @@ public class ConnectionService {
 		connectionManager.closeAllForConnection(id);
 
 		// 3) 更新 connected 标记
-		getConnection(id).ifPresent(conn -> {
+		connectionRepository.findById(id).ifPresent(conn -> {
 			conn.setConnected(false);
-			connectionRepository.save(conn);
+			connections.put(id, connectionRepository.save(conn));
 		});
 	}
 
+	/**
+	 * 返回缓存中连接配置的副本：调用方修改它不会影响其他请求，修改配置走 updateConnection / moveConnection
+	 */
 	public Optional<Connection> getConnection(String id) {
-		return connectionRepository.findById(id);
+		if (id == null) {
+			return Optional.empty();
+		}
+		return Optional.ofNullable(connections.computeIfAbsent(id, k -> connectionRepository.findById(k).orElse(null)))
+					   .map(ConnectionService::copy);
+	}
+
+	/**
+	 * 在对象树中移动连接，只改 parentId；不涉及连接参数，连接池、缓存和结构监视保持不变
+	 */
+	public Connection moveConnection(String id, String parentId) {
+		Connection conn = connectionRepository.findById(id).orElseThrow(() -> new BizException("Connection not found: " + id));
+		conn.setParentId(parentId);
+		Connection saved = connectionRepository.save(conn);
+		connections.put(id, saved);
+		return copy(saved);
 	}
 
 	public Connection updateConnection(String id, Connection update) {
-		Optional<Connection> existing = getConnection(id);
+		// 从库中读取后修改，不改动缓存中正在被其他请求使用的实例
+		Optional<Connection> existing = connectionRepository.findById(id);
 		if (existing.isPresent()) {
 			Connection conn = existing.get();
 			conn.setName(update.getName());
@@ -90,17 +142,26 @@ public class ConnectionService {
 			conn.setDatabase(update.getDatabase());
 			conn.setUsername(update.getUsername());
 			conn.setPassword(update.getPassword());
+			conn.setQueryTimeout(update.getQueryTimeout());
 			Connection saved = connectionRepository.save(conn);
+			connections.put(id, saved);
+			resultCache.invalidate(id, List.of());
+			metadataCache.invalidateConnection(id);
+			metadataWatcher.unwatchAll(id);
 			closeDataSource(id);
 			createDataSource(saved);
-			return saved;
+			return copy(saved);
 		}
 		return null;
 	}
 
 	public void deleteConnection(String id) {
+		resultCache.invalidate(id, List.of());
+		metadataCache.invalidateConnection(id);
+		metadataWatcher.unwatchAll(id);
 		closeDataSource(id);
 		connectionRepository.deleteById(id);
+		connections.remove(id);
 	}
 
 	public String testConnection(Connection conn) {
@@ -142,6 +203,22 @@ public class ConnectionService {
 	}
 
 
+	private static Connection copy(Connection source) {
+		Connection conn = new Connection();
+		conn.setId(source.getId());
+		conn.setName(source.getName());
+		conn.setDbType(source.getDbType());
+		conn.setHost(source.getHost());
+		conn.setPort(source.getPort());
+		conn.setDatabase(source.getDatabase());
+		conn.setUsername(source.getUsername());
+		conn.setPassword(source.getPassword());
+		conn.setParentId(source.getParentId());
+		conn.setQueryTimeout(source.getQueryTimeout());
+		conn.setConnected(source.getConnected());
+		return conn;
+	}
+
 	private void closeDataSource(String id) {
 		HikariDataSource ds = dataSources.remove(id);
 		if (ds != null) {
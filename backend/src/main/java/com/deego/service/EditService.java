@@ -0,0 +1,540 @@
+package com.deego.service;
+
+import com.deego.enums.DatabaseType;
+import com.deego.enums.WorkPriority;
+import com.deego.exception.BizException;
+import com.deego.exec.DbExecutor;
+import com.deego.exec.JdbcExecutor;
+import com.deego.model.Connection;
+import com.deego.model.param.EditSetParam;
+import com.deego.model.param.EditSetParam.RowEdit;
+import com.deego.query.EditResult;
+import com.deego.query.RunningQuery;
+import com.deego.query.RunningQueryRegistry;
+import com.deego.query.cache.QueryResultCache;
+import com.deego.utils.SqlUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ObjectUtils;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 把结果表格中的修改（新增、修改、删除）写回一张表，整组修改在一个事务中执行：先删除、再修改、最后新增。
+ * 形状相同（写入的列、检查的列相同）的行合并执行，往返次数只与形状的种类有关，与行数无关：
+ * <ul>
+ *   <li>PostgreSQL：每种形状一条语句，各列的值以 text[] 数组绑定，用 unnest 展开后与表连接（UPDATE ... FROM / DELETE ... USING / INSERT ... SELECT），
+ *   RETURNING 序号找出没有命中的行</li>
+ *   <li>其它数据库：每种形状一个 JDBC 批次，按每条语句的更新行数找出没有命中的行；驱动不返回行数（SUCCESS_NO_INFO）时无法发现冲突</li>
+ * </ul>
+ * 修改和删除带 original 时做乐观并发检查：行已被删除或当前值与 original 不同都算冲突，收集全部冲突后整组回滚。
+ */
+@Service
+@Slf4j
+public class EditService {
+
+	/**
+	 * 列类型（format_type，直接用于强制转换）、类型分类（A 为数组）和是否主键列
+	 */
+	private static final String PG_COLUMNS_SQL = """
+			SELECT a.attname, format_type(a.atttypid, a.atttypmod) AS type, t.typcategory::text AS category,
+			       coalesce(a.attnum = ANY (i.indkey), false) AS pk
+			FROM pg_attribute a
+			JOIN pg_type t ON t.oid = a.atttypid
+			LEFT JOIN pg_index i ON i.indrelid = a.attrelid AND i.indisprimary
+			WHERE a.attrelid = to_regclass(?) AND a.attnum > 0 AND NOT a.attisdropped
+			ORDER BY a.attnum
+			""";
+
+	@Autowired
+	private ConnectionService connectionService;
+
+	@Autowired
+	private RunningQueryRegistry registry;
+
+	@Autowired
+	private QueryResultCache resultCache;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	public EditResult apply(EditSetParam param) {
+		Connection conn = connectionService.getConnection(param.getConnId())
+										   .orElseThrow(() -> new BizException("Connection not found: " + param.getConnId()));
+		if (ObjectUtils.isEmpty(param.getObjectName())) {
+			throw new BizException("objectName is required");
+		}
+		DatabaseType type = DatabaseType.fromValue(conn.getDbType());
+		String table = SqlUtils.qualifiedName(type, param.getSchemaName(), param.getObjectName());
+		List<Map<String, Object>> inserts = param.getInserts() == null ? List.of() : param.getInserts();
+		List<RowEdit> updates = param.getUpdates() == null ? List.of() : param.getUpdates();
+		List<RowEdit> deletes = param.getDeletes() == null ? List.of() : param.getDeletes();
+		EditResult result = new EditResult();
+		if (inserts.isEmpty() && updates.isEmpty() && deletes.isEmpty()) {
+			result.setCommitted(true);
+			return result;
+		}
+
+		String database = ObjectUtils.isEmpty(param.getDatabase()) ? conn.getDatabase() : param.getDatabase();
+		JdbcExecutor executor = jdbcExecutor(conn.getId(), database);
+		// 登记后可以取消；提交后再使这张表的结果缓存失效
+		String summary = "Edit set on " + table + ": " + inserts.size() + " inserts, " + updates.size() + " updates, " + deletes.size() + " deletes";
+		RunningQuery query = registry.beginTask(param.getQueryId(), conn, database, summary, param.getTimeout());
+		long start = System.nanoTime();
+		try {
+			executor.withConnection(con -> {
+				con.setAutoCommit(false);
+				try {
+					EditTarget target = type == DatabaseType.POSTGRESQL
+							? pgTarget(con, table, param.getKeyColumns())
+							: jdbcTarget(con, param.getSchemaName(), param.getObjectName(), param.getKeyColumns());
+					validate(target, inserts, updates, deletes);
+					if (type == DatabaseType.POSTGRESQL) {
+						applyPg(con, query, table, target, inserts, updates, deletes, result);
+					} else {
+						applyBatches(con, query, type, table, target, inserts, updates, deletes, result);
+					}
+					if (result.getConflicts().isEmpty()) {
+						con.commit();
+						result.setCommitted(true);
+					} else {
+						con.rollback();
+						result.setInserted(0);
+						result.setUpdated(0);
+						result.setDeleted(0);
+					}
+				} catch (SQLException | RuntimeException e) {
+					con.rollback();
+					throw e;
+				} finally {
+					con.setAutoCommit(true);
+				}
+				return null;
+			});
+		} finally {
+			registry.finish(query);
+		}
+		if (result.isCommitted()) {
+			resultCache.invalidate(conn.getId(), List.of(SqlUtils.bareName(table)));
+		}
+		result.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+		log.info("Edit set on {}@{} {}: {} inserted, {} updated, {} deleted, {} conflicts in {} statements, {} ms",
+				conn.getId(), database, table, result.getInserted(), result.getUpdated(), result.getDeleted(),
+				result.getConflicts().size(), result.getStatements(), result.getElapsedMs());
+		return result;
+	}
+
+	/**
+	 * 每种形状一条语句：键列、写入列、检查列各占一个 text[] 参数，在 SQL 里转换回列类型
+	 */
+	private void applyPg(java.sql.Connection con, RunningQuery query, String table, EditTarget target,
+						 List<Map<String, Object>> inserts, List<RowEdit> updates, List<RowEdit> deletes, EditResult result) throws SQLException {
+		List<String> keys = target.keys();
+		for (Map.Entry<Shape, List<Integer>> group : group(deletes, e -> new Shape(List.of(), names(e.getOriginal()), List.of())).entrySet()) {
+			Shape shape = group.getKey();
+			List<Integer> rows = group.getValue();
+			List<String> aliases = new ArrayList<>();
+			List<String[]> arrays = new ArrayList<>();
+			String match = pgMatch(target, shape, deletes, rows, aliases, arrays);
+			String sql = "DELETE FROM " + table + " AS t USING " + unnest(aliases, true) + " WHERE " + match + " RETURNING v.ord";
+			result.setDeleted(result.getDeleted() + returning(con, query, sql, arrays, "delete", deletes, rows, keys, result));
+		}
+		for (Map.Entry<Shape, List<Integer>> group : group(updates, e -> new Shape(names(e.getValues()), names(e.getOriginal()), List.of())).entrySet()) {
+			Shape shape = group.getKey();
+			List<Integer> rows = group.getValue();
+			List<String> aliases = new ArrayList<>();
+			List<String[]> arrays = new ArrayList<>();
+			String match = pgMatch(target, shape, updates, rows, aliases, arrays);
+			StringJoiner set = new StringJoiner(", ");
+			for (String column : shape.values()) {
+				String alias = addArray(aliases, arrays, target.column(column), rows.stream().map(i -> updates.get(i).getValues().get(column)).toList());
+				set.add(SqlUtils.quoteIdent(column) + " = v." + alias + "::" + target.column(column).type());
+			}
+			String sql = "UPDATE " + table + " AS t SET " + set + " FROM " + unnest(aliases, true) + " WHERE " + match + " RETURNING v.ord";
+			result.setUpdated(result.getUpdated() + returning(con, query, sql, arrays, "update", updates, rows, keys, result));
+		}
+		for (Map.Entry<Shape, List<Integer>> group : group(inserts, row -> new Shape(names(row), List.of(), List.of())).entrySet()) {
+			List<String> columns = group.getKey().values();
+			List<Integer> rows = group.getValue();
+			List<String> aliases = new ArrayList<>();
+			List<String[]> arrays = new ArrayList<>();
+			StringJoiner select = new StringJoiner(", ");
+			for (String column : columns) {
+				String alias = addArray(aliases, arrays, target.column(column), rows.stream().map(i -> inserts.get(i).get(column)).toList());
+				select.add("v." + alias + "::" + target.column(column).type());
+			}
+			String sql = "INSERT INTO " + table + " (" + String.join(", ", columns.stream().map(SqlUtils::quoteIdent).toList()) + ") SELECT "
+					+ select + " FROM " + unnest(aliases, false);
+			try (PreparedStatement ps = con.prepareStatement(sql)) {
+				bindArrays(con, ps, arrays);
+				query.beforeExecute(con, ps);
+				result.setInserted(result.getInserted() + ps.executeUpdate());
+			}
+			result.setStatements(result.getStatements() + 1);
+		}
+	}
+
+	/**
+	 * 键列用 = 比较（可以走索引），检查列用 IS NOT DISTINCT FROM（original 中的 null 表示当前值也应为 null）。
+	 * json 类型没有相等运算符，转成 jsonb 比较
+	 */
+	private String pgMatch(EditTarget target, Shape shape, List<RowEdit> edits, List<Integer> rows, List<String> aliases, List<String[]> arrays) {
+		StringJoiner match = new StringJoiner(" AND ");
+		for (String key : target.keys()) {
+			String alias = addArray(aliases, arrays, target.column(key), rows.stream().map(i -> edits.get(i).getKey().get(key)).toList());
+			match.add("t." + SqlUtils.quoteIdent(key) + " = v." + alias + "::" + target.column(key).type());
+		}
+		for (String column : shape.checks()) {
+			PgColumn meta = target.column(column);
+			String alias = addArray(aliases, arrays, meta, rows.stream().map(i -> edits.get(i).getOriginal().get(column)).toList());
+			String compareType = "json".equals(meta.type()) ? "jsonb" : meta.type();
+			match.add("t." + SqlUtils.quoteIdent(column) + "::" + compareType + " IS NOT DISTINCT FROM v." + alias + "::" + compareType);
+		}
+		return match.toString();
+	}
+
+	/**
+	 * 执行带 RETURNING v.ord 的语句，没有返回的序号就是冲突的行
+	 */
+	private long returning(java.sql.Connection con, RunningQuery query, String sql, List<String[]> arrays, String op,
+						   List<RowEdit> edits, List<Integer> rows, List<String> keys, EditResult result) throws SQLException {
+		Set<Long> matched = new HashSet<>();
+		long affected = 0;
+		try (PreparedStatement ps = con.prepareStatement(sql)) {
+			bindArrays(con, ps, arrays);
+			query.beforeExecute(con, ps);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					matched.add(rs.getLong(1));
+					affected++;
+				}
+			}
+		}
+		result.setStatements(result.getStatements() + 1);
+		for (int i = 0; i < rows.size(); i++) {
+			if (!matched.contains((long) i + 1)) {
+				int index = rows.get(i);
+				result.getConflicts().add(new EditResult.Conflict(op, index, keyOf(edits.get(index), keys)));
+			}
+		}
+		return affected;
+	}
+
+	/**
+	 * 其它数据库：每种形状一个批次。检查列中 original 为 null 的写成 IS NULL，null 的位置也是形状的一部分
+	 */
+	private void applyBatches(java.sql.Connection con, RunningQuery query, DatabaseType type, String table, EditTarget target,
+							  List<Map<String, Object>> inserts, List<RowEdit> updates, List<RowEdit> deletes, EditResult result) throws SQLException {
+		List<String> keys = target.keys();
+		for (Map.Entry<Shape, List<Integer>> group : group(deletes, e -> batchShape(List.of(), e.getOriginal())).entrySet()) {
+			String sql = "DELETE FROM " + table + " WHERE " + batchMatch(type, keys, group.getKey());
+			result.setDeleted(result.getDeleted() + batch(con, query, sql, group.getKey(), "delete", deletes, group.getValue(), keys, result));
+		}
+		for (Map.Entry<Shape, List<Integer>> group : group(updates, e -> batchShape(names(e.getValues()), e.getOriginal())).entrySet()) {
+			String set = String.join(", ", group.getKey().values().stream().map(c -> SqlUtils.quoteIdent(type, c) + " = ?").toList());
+			String sql = "UPDATE " + table + " SET " + set + " WHERE " + batchMatch(type, keys, group.getKey());
+			result.setUpdated(result.getUpdated() + batch(con, query, sql, group.getKey(), "update", updates, group.getValue(), keys, result));
+		}
+		for (Map.Entry<Shape, List<Integer>> group : group(inserts, row -> new Shape(names(row), List.of(), List.of())).entrySet()) {
+			List<String> columns = group.getKey().values();
+			String sql = "INSERT INTO " + table + " (" + String.join(", ", columns.stream().map(c -> SqlUtils.quoteIdent(type, c)).toList())
+					+ ") VALUES (" + String.join(", ", columns.stream().map(c -> "?").toList()) + ")";
+			try (PreparedStatement ps = con.prepareStatement(sql)) {
+				for (int index : group.getValue()) {
+					int p = 1;
+					for (String column : columns) {
+						ps.setObject(p++, jdbcValue(inserts.get(index).get(column)));
+					}
+					ps.addBatch();
+				}
+				query.beforeExecute(con, ps);
+				for (int count : ps.executeBatch()) {
+					result.setInserted(result.getInserted() + (count == Statement.SUCCESS_NO_INFO ? 1 : count));
+				}
+			}
+			result.setStatements(result.getStatements() + 1);
+		}
+	}
+
+	private long batch(java.sql.Connection con, RunningQuery query, String sql, Shape shape, String op,
+					   List<RowEdit> edits, List<Integer> rows, List<String> keys, EditResult result) throws SQLException {
+		long affected = 0;
+		try (PreparedStatement ps = con.prepareStatement(sql)) {
+			for (int index : rows) {
+				RowEdit edit = edits.get(index);
+				int p = 1;
+				for (String column : shape.values()) {
+					ps.setObject(p++, jdbcValue(edit.getValues().get(column)));
+				}
+				for (String key : keys) {
+					ps.setObject(p++, jdbcValue(edit.getKey().get(key)));
+				}
+				for (int i = 0; i < shape.checks().size(); i++) {
+					if (!shape.nullChecks().get(i)) {
+						ps.setObject(p++, jdbcValue(edit.getOriginal().get(shape.checks().get(i))));
+					}
+				}
+				ps.addBatch();
+			}
+			query.beforeExecute(con, ps);
+			int[] counts = ps.executeBatch();
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] == 0) {
+					int index = rows.get(i);
+					result.getConflicts().add(new EditResult.Conflict(op, index, keyOf(edits.get(index), keys)));
+				} else {
+					affected += counts[i] == Statement.SUCCESS_NO_INFO ? 1 : counts[i];
+				}
+			}
+		}
+		result.setStatements(result.getStatements() + 1);
+		return affected;
+	}
+
+	private static String batchMatch(DatabaseType type, List<String> keys, Shape shape) {
+		StringJoiner match = new StringJoiner(" AND ");
+		keys.forEach(key -> match.add(SqlUtils.quoteIdent(type, key) + " = ?"));
+		for (int i = 0; i < shape.checks().size(); i++) {
+			String column = SqlUtils.quoteIdent(type, shape.checks().get(i));
+			match.add(shape.nullChecks().get(i) ? column + " IS NULL" : column + " = ?");
+		}
+		return match.toString();
+	}
+
+	private static Shape batchShape(List<String> values, Map<String, Object> original) {
+		List<String> checks = names(original);
+		return new Shape(values, checks, checks.stream().map(c -> original.get(c) == null).toList());
+	}
+
+	private EditTarget pgTarget(java.sql.Connection con, String table, List<String> keyColumns) throws SQLException {
+		Map<String, PgColumn> columns = new LinkedHashMap<>();
+		List<String> primaryKey = new ArrayList<>();
+		try (PreparedStatement ps = con.prepareStatement(PG_COLUMNS_SQL)) {
+			ps.setString(1, table);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					String name = rs.getString("attname");
+					columns.put(name, new PgColumn(rs.getString("type"), "A".equals(rs.getString("category"))));
+					if (rs.getBoolean("pk")) {
+						primaryKey.add(name);
+					}
+				}
+			}
+		}
+		if (columns.isEmpty()) {
+			throw new BizException("TABLE_NOT_FOUND", "Table not found: " + table);
+		}
+		return new EditTarget(keys(table, keyColumns, primaryKey), columns);
+	}
+
+	/**
+	 * 其它数据库不需要列类型，主键取自 DatabaseMetaData
+	 */
+	private EditTarget jdbcTarget(java.sql.Connection con, String schema, String objectName, List<String> keyColumns) throws SQLException {
+		List<String> primaryKey = new ArrayList<>();
+		if (ObjectUtils.isEmpty(keyColumns)) {
+			Map<Short, String> ordered = new TreeMap<>();
+			try (ResultSet rs = con.getMetaData().getPrimaryKeys(con.getCatalog(), ObjectUtils.isEmpty(schema) ? null : schema, objectName)) {
+				while (rs.next()) {
+					ordered.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+				}
+			}
+			primaryKey.addAll(ordered.values());
+		}
+		return new EditTarget(keys(objectName, keyColumns, primaryKey), null);
+	}
+
+	private static List<String> keys(String table, List<String> keyColumns, List<String> primaryKey) {
+		List<String> keys = ObjectUtils.isEmpty(keyColumns) ? primaryKey : keyColumns;
+		if (keys.isEmpty()) {
+			throw new BizException("NO_PRIMARY_KEY", "Table " + table + " has no primary key, keyColumns is required");
+		}
+		return keys;
+	}
+
+	/**
+	 * 执行前检查：列名存在（PostgreSQL），键值完整且不为 null，同一行不能在修改和删除中出现多次
+	 */
+	private static void validate(EditTarget target, List<Map<String, Object>> inserts, List<RowEdit> updates, List<RowEdit> deletes) {
+		Set<List<Object>> seen = new HashSet<>();
+		validate(target, "delete", deletes, seen);
+		validate(target, "update", updates, seen);
+		for (int i = 0; i < inserts.size(); i++) {
+			if (ObjectUtils.isEmpty(inserts.get(i))) {
+				throw new BizException("INVALID_PARAMETER", "insert #" + i + " has no values");
+			}
+			target.check(inserts.get(i).keySet());
+		}
+	}
+
+	private static void validate(EditTarget target, String op, List<RowEdit> edits, Set<List<Object>> seen) {
+		for (int i = 0; i < edits.size(); i++) {
+			RowEdit edit = edits.get(i);
+			if (edit.getKey() == null) {
+				throw new BizException("INVALID_PARAMETER", op + " #" + i + " has no key");
+			}
+			List<Object> key = new ArrayList<>();
+			for (String column : target.keys()) {
+				Object value = edit.getKey().get(column);
+				if (value == null) {
+					throw new BizException("INVALID_PARAMETER", op + " #" + i + " is missing key column " + column);
+				}
+				key.add(value);
+			}
+			if (!seen.add(key)) {
+				throw new BizException("INVALID_PARAMETER", op + " #" + i + " edits row " + key + " which is already edited in this set");
+			}
+			if (op.equals("update") && ObjectUtils.isEmpty(edit.getValues())) {
+				throw new BizException("INVALID_PARAMETER", "update #" + i + " has no values");
+			}
+			target.check(edit.getKey().keySet());
+			target.check(names(edit.getValues()));
+			target.check(names(edit.getOriginal()));
+		}
+	}
+
+	/**
+	 * 按形状分组，保持各组第一次出现的顺序，组内为请求中的下标
+	 */
+	private static <T> Map<Shape, List<Integer>> group(List<T> rows, Function<T, Shape> shapeOf) {
+		Map<Shape, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < rows.size(); i++) {
+			groups.computeIfAbsent(shapeOf.apply(rows.get(i)), s -> new ArrayList<>()).add(i);
+		}
+		return groups;
+	}
+
+	private static List<String> names(Map<String, Object> values) {
+		return values == null ? List.of() : values.keySet().stream().sorted().toList();
+	}
+
+	private static Map<String, Object> keyOf(RowEdit edit, List<String> keys) {
+		Map<String, Object> key = new LinkedHashMap<>();
+		keys.forEach(k -> key.put(k, edit.getKey().get(k)));
+		return key;
+	}
+
+	private String addArray(List<String> aliases, List<String[]> arrays, PgColumn column, List<Object> values) {
+		String alias = "c" + (aliases.size() + 1);
+		aliases.add(alias);
+		arrays.add(values.stream().map(v -> pgText(v, column)).toArray(String[]::new));
+		return alias;
+	}
+
+	private static String unnest(List<String> aliases, boolean ordinality) {
+		String params = String.join(", ", aliases.stream().map(a -> "?::text[]").toList());
+		return "unnest(" + params + ")" + (ordinality ? " WITH ORDINALITY AS v(" + String.join(", ", aliases) + ", ord)" : " AS v(" + String.join(", ", aliases) + ")");
+	}
+
+	private static void bindArrays(java.sql.Connection con, PreparedStatement ps, List<String[]> arrays) throws SQLException {
+		for (int i = 0; i < arrays.size(); i++) {
+			ps.setArray(i + 1, con.createArrayOf("text", arrays.get(i)));
+		}
+	}
+
+	/**
+	 * 值的文本形式，由 PostgreSQL 按列类型解析：JSON 对象和数组写成 JSON 文本，数组列的值写成数组字面量
+	 */
+	private String pgText(Object value, PgColumn column) {
+		if (value == null) {
+			return null;
+		}
+		if (value instanceof List<?> list && column.array()) {
+			return arrayLiteral(list);
+		}
+		return scalarText(value);
+	}
+
+	private String arrayLiteral(List<?> list) {
+		StringJoiner literal = new StringJoiner(",", "{", "}");
+		for (Object element : list) {
+			if (element == null) {
+				literal.add("NULL");
+			} else if (element instanceof List<?> nested) {
+				literal.add(arrayLiteral(nested));
+			} else {
+				literal.add('"' + scalarText(element).replace("\\", "\\\\").replace("\"", "\\\"") + '"');
+			}
+		}
+		return literal.toString();
+	}
+
+	private String scalarText(Object value) {
+		if (value instanceof BigDecimal decimal) {
+			return decimal.toPlainString();
+		}
+		if (value instanceof Map<?, ?> || value instanceof List<?>) {
+			return json(value);
+		}
+		return value.toString();
+	}
+
+	private Object jdbcValue(Object value) {
+		return value instanceof Map<?, ?> || value instanceof List<?> ? json(value) : value;
+	}
+
+	private String json(Object value) {
+		try {
+			return objectMapper.writeValueAsString(value);
+		} catch (JsonProcessingException e) {
+			throw new BizException("INVALID_PARAMETER", "Cannot serialize value: " + e.getMessage());
+		}
+	}
+
+	private JdbcExecutor jdbcExecutor(String connId, String database) {
+		DbExecutor executor = connectionService.getExecutor(connId, database, WorkPriority.QUERY);
+		if (executor instanceof JdbcExecutor jdbcExecutor) {
+			return jdbcExecutor;
+		}
+		throw new BizException("Not a relational executor for connection " + connId);
+	}
+
+	/**
+	 * 一组语句的形状：写入的列、检查的列（均按列名排序），以及检查列的 original 是否为 null（只有非 PostgreSQL 需要）
+	 */
+	private record Shape(List<String> values, List<String> checks, List<Boolean> nullChecks) {
+	}
+
+	/**
+	 * type 为 format_type 的结果，可以直接写在 :: 之后
+	 */
+	private record PgColumn(String type, boolean array) {
+	}
+
+	/**
+	 * columns 只有 PostgreSQL 才有，用于检查列名和转换类型
+	 */
+	private record EditTarget(List<String> keys, Map<String, PgColumn> columns) {
+
+		PgColumn column(String name) {
+			return columns.get(name);
+		}
+
+		void check(Iterable<String> names) {
+			if (columns == null) {
+				return;
+			}
+			for (String name : names) {
+				if (!columns.containsKey(name)) {
+					throw new BizException("INVALID_PARAMETER", "Unknown column: " + name);
+				}
+			}
+		}
+	}
+}
@@ -1,38 +1,84 @@
 package com.deego.service;
 
 import com.deego.controller.MetaController;
+import com.deego.enums.DatabaseType;
+import com.deego.enums.WorkPriority;
+import com.deego.exception.BizException;
+import com.deego.exec.DbExecutor;
+import com.deego.exec.JdbcExecutor;
 import com.deego.metadata.DatabaseNodeType;
 import com.deego.metadata.MetadataProvider;
 import com.deego.metadata.MetadataProviderFactory;
+import com.deego.metadata.cache.MetadataCache;
+import com.deego.metadata.postgresql.ddl.PgCatalog;
+import com.deego.metadata.postgresql.ddl.PgSchemaDiff;
+import com.deego.metadata.postgresql.ddl.SchemaCompareResult;
+import com.deego.metadata.watch.MetadataWatcher;
+import com.deego.metadata.watch.WatchStatus;
 import com.deego.model.Connection;
 import com.deego.model.param.OptionParam;
+import com.deego.model.param.SchemaCompareParam;
 import com.deego.model.pgsql.Option;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Service
+@Slf4j
 public class MetaService {
 
+	/**
+	 * schema 节点下的对象列表，未命中时整个 schema 一起预取
+	 */
+	private static final Set<DatabaseNodeType> SCHEMA_CHILD_TYPES = EnumSet.of(DatabaseNodeType.TABLE, DatabaseNodeType.VIEW,
+			DatabaseNodeType.MATERIALIZED_VIEW, DatabaseNodeType.SEQUENCE, DatabaseNodeType.FUNCTION, DatabaseNodeType.PROCEDURE);
+
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
 	@Autowired
 	private ConnectionService connectionService;
 
 	@Autowired
 	private MetadataProviderFactory factory;
 
-	public List<Map<String, Object>> listChildren(String connId, DatabaseNodeType nodeType, String fullPath) {
+	@Autowired
+	private MetadataCache metadataCache;
+
+	@Autowired
+	private MetadataWatcher metadataWatcher;
+
+	/**
+	 * 子节点列表优先取缓存（按 connId、库、节点类型和父路径），refresh 为 true 时重新查询并更新缓存
+	 */
+	public List<Map<String, Object>> listChildren(String connId, DatabaseNodeType nodeType, String fullPath, boolean refresh) {
 		Connection conn = connectionService.getConnection(connId).orElseThrow(() -> new IllegalArgumentException("Connection not found: " + connId));
 		MetadataProvider provider = factory.getProvider(conn.getDbType());
 		fullPath = Objects.isNull(fullPath) ?
 				"" :
 				StringUtils.trimLeadingCharacter(StringUtils.trimTrailingCharacter(fullPath, '/'), '/');
 		String[] segments = fullPath.split("/");
-		return provider.listChildren(connId, conn, nodeType, segments);
+		String database = segments[0].isEmpty() ? conn.getDatabase() : segments[0];
+		String parent = String.join("/", Arrays.copyOfRange(segments, 1, segments.length));
+		if (segments.length == 2 && SCHEMA_CHILD_TYPES.contains(nodeType)) {
+			// 打开 schema：后台把整个 schema 的对象、列、约束、索引一次读出，之后展开其中的表不再查询
+			return metadataCache.get(connId, database, nodeType, parent, refresh, () -> provider.listChildren(connId, conn, nodeType, segments),
+					() -> provider.prefetchSchema(connId, conn, database, segments[1]));
+		}
+		return metadataCache.get(connId, database, nodeType, parent, refresh, () -> provider.listChildren(connId, conn, nodeType, segments));
 	}
 
 	public Option options(String connId, OptionParam param) {
@@ -40,4 +86,74 @@ public class MetaService {
 		MetadataProvider provider = factory.getProvider(conn.getDbType());
 		return provider.getOptions(conn, param);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * 比较两端的结构：各自读取一份目录快照（每类对象一条集合查询，两端并行），然后在内存中比较并生成迁移脚本，
+	 * 往返次数与表的数量无关
+	 */
+	public SchemaCompareResult compareSchemas(SchemaCompareParam param) {
+		if (ObjectUtils.isEmpty(param.getSourceConnId()) || ObjectUtils.isEmpty(param.getTargetConnId())) {
+			throw new BizException("sourceConnId and targetConnId are required");
+		}
+		String schema = ObjectUtils.isEmpty(param.getSchemaName()) ? null : param.getSchemaName();
+		String source = describe(param.getSourceConnId(), param.getSourceDatabase(), schema);
+		String target = describe(param.getTargetConnId(), param.getTargetDatabase(), schema);
+
+		long start = System.nanoTime();
+		CompletableFuture<PgCatalog> targetLoad = CompletableFuture.supplyAsync(
+				() -> loadCatalog(param.getTargetConnId(), param.getTargetDatabase(), schema), executor);
+		PgCatalog sourceCatalog = loadCatalog(param.getSourceConnId(), param.getSourceDatabase(), schema);
+		PgCatalog targetCatalog;
+		try {
+			targetCatalog = targetLoad.join();
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof RuntimeException cause ? cause : e;
+		}
+		if (schema != null && sourceCatalog.getSchemas().isEmpty()) {
+			throw new BizException("SCHEMA_NOT_FOUND", "Schema " + schema + " not found in " + source);
+		}
+		long loaded = System.nanoTime();
+
+		SchemaCompareResult result = PgSchemaDiff.compare(sourceCatalog, targetCatalog);
+		result.setSource(source);
+		result.setTarget(target);
+		result.setLoadMs((loaded - start) / 1_000_000);
+		result.setCompareMs((System.nanoTime() - loaded) / 1_000_000);
+		log.info("Schema compare {} -> {}: {} / {} objects, {} differences, load {} ms, compare {} ms", source, target,
+				result.getSourceObjects(), result.getTargetObjects(), result.getDifferences().size(), result.getLoadMs(), result.getCompareMs());
+		return result;
+	}
+
+	/**
+	 * 开始监视连接上某个库的结构变化；mode 为 poll 时不尝试安装事件触发器
+	 */
+	public WatchStatus watch(String connId, String database, String mode) {
+		Connection conn = connectionService.getConnection(connId).orElseThrow(() -> new BizException("Connection not found: " + connId));
+		return metadataWatcher.watch(conn, database, !"poll".equalsIgnoreCase(mode));
+	}
+
+	/**
+	 * 停止加载比较目标快照的虚拟线程
+	 */
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private String describe(String connId, String database, String schema) {
+		Connection conn = connectionService.getConnection(connId).orElseThrow(() -> new BizException("Connection not found: " + connId));
+		if (DatabaseType.fromValue(conn.getDbType()) != DatabaseType.POSTGRESQL) {
+			throw new BizException("UNSUPPORTED_DB_TYPE", "Schema compare is only supported between PostgreSQL connections");
+		}
+		String db = ObjectUtils.isEmpty(database) ? conn.getDatabase() : database;
+		return conn.getName() + "/" + db + (schema == null ? "" : "/" + schema);
+	}
+
+	private PgCatalog loadCatalog(String connId, String database, String schema) {
+		DbExecutor executor = connectionService.getExecutor(connId, database, WorkPriority.INTERACTIVE);
+		if (!(executor instanceof JdbcExecutor jdbc)) {
+			throw new BizException("Not a relational executor for connection " + connId);
+		}
+		return jdbc.withConnection(con -> schema == null ? PgCatalog.loadDatabase(con) : PgCatalog.loadSchema(con, schema));
+	}
+}
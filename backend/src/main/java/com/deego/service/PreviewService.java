@@ -0,0 +1,208 @@
+package com.deego.service;
+
+import com.deego.enums.DatabaseType;
+import com.deego.enums.WorkPriority;
+import com.deego.exception.BizException;
+import com.deego.exec.DbExecutor;
+import com.deego.model.Connection;
+import com.deego.model.param.PreviewParam;
+import com.deego.model.param.QueryParam;
+import com.deego.query.CursorInfo;
+import com.deego.query.CursorManager;
+import com.deego.query.CursorWindow;
+import com.deego.query.ResultFormat;
+import com.deego.query.TablePreview;
+import com.deego.utils.IdWorker;
+import com.deego.utils.SqlUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ObjectUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 表预览：第一页通过服务端游标读取，不做 count(*)；总行数取统计信息或优化器的估算，精确计数需要单独请求。
+ * 打开表的开销与表的大小无关
+ */
+@Service
+@Slf4j
+public class PreviewService {
+
+	private static final int DEFAULT_LIMIT = 200;
+
+	/**
+	 * 带种子的抽样要对抽出的全部行排序，按估算行数把比例限制在大约这么多行以内
+	 */
+	private static final long MAX_SEEDED_SAMPLE_ROWS = 100_000;
+
+	/**
+	 * 按当前数据文件的页数折算 reltuples，与优化器的做法一致；表在上次 ANALYZE 之后增长或收缩时仍然接近实际行数
+	 */
+	private static final String PG_ESTIMATE_SQL = """
+			SELECT c.relkind::text AS relkind, c.reltuples::float8 AS reltuples, c.relpages,
+			       CASE WHEN c.relkind IN ('r', 'm') THEN pg_relation_size(c.oid) / current_setting('block_size')::int END AS cur_pages
+			FROM pg_class c
+			WHERE c.oid = to_regclass(?)
+			""";
+
+	@Autowired
+	private ConnectionService connectionService;
+
+	@Autowired
+	private CursorManager cursorManager;
+
+	@Autowired
+	private QueryService queryService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	public TablePreview preview(PreviewParam param) {
+		Connection conn = connection(param);
+		DatabaseType type = DatabaseType.fromValue(conn.getDbType());
+		String table = table(type, param);
+		int limit = param.getLimit() == null ? DEFAULT_LIMIT : Math.max(param.getLimit(), 1);
+
+		TablePreview preview = new TablePreview();
+		String sql = "SELECT * FROM " + table;
+		if (type == DatabaseType.POSTGRESQL) {
+			DbExecutor executor = connectionService.getExecutor(conn.getId(), param.getDatabase(), WorkPriority.INTERACTIVE);
+			TableStats stats = estimate(executor, table, preview);
+			if (!ObjectUtils.isEmpty(param.getSample())) {
+				sql += tableSample(param, stats, limit, preview);
+			}
+		} else if (!ObjectUtils.isEmpty(param.getSample())) {
+			throw new BizException("UNSUPPORTED_SAMPLE", "Sampling is only supported for PostgreSQL tables");
+		}
+
+		CursorInfo cursor = cursorManager.open(conn.getId(), param.getDatabase(), sql, param.getTimeout());
+		CursorWindow page;
+		try {
+			page = cursorManager.fetch(cursor.getCursorId(), 0, limit, ResultFormat.from(param.getFormat()));
+		} catch (RuntimeException e) {
+			cursorManager.close(cursor.getCursorId());
+			throw e;
+		}
+		if (page.isHasMore()) {
+			preview.setCursorId(cursor.getCursorId());
+		} else {
+			// 第一页就是全部数据，不再占用连接
+			cursorManager.close(cursor.getCursorId());
+			page.setCursorId(null);
+		}
+		preview.setColumns(cursor.getColumns());
+		preview.setPage(page);
+		return preview;
+	}
+
+	/**
+	 * 精确行数（count(*)），大表上可能很慢；执行期间登记为运行中的查询，可按 queryId 取消
+	 */
+	public long count(PreviewParam param) {
+		Connection conn = connection(param);
+		QueryParam query = new QueryParam();
+		query.setConnId(conn.getId());
+		query.setDatabase(param.getDatabase());
+		query.setQuery("SELECT count(*) FROM " + table(DatabaseType.fromValue(conn.getDbType()), param));
+		query.setQueryId(ObjectUtils.isEmpty(param.getQueryId()) ? IdWorker.getIdStr() : param.getQueryId());
+		query.setTimeout(param.getTimeout());
+		return queryService.execute(query, ResultFormat.ROWS, rs -> rs.next() ? rs.getLong(1) : 0L);
+	}
+
+	/**
+	 * 填入估算行数；统计信息不可用（从未 ANALYZE、分区表、视图）时用 EXPLAIN 的估算
+	 */
+	private TableStats estimate(DbExecutor executor, String table, TablePreview preview) {
+		List<Map<String, Object>> found = executor.queryMapForList(PG_ESTIMATE_SQL, table);
+		if (found.isEmpty()) {
+			throw new BizException("TABLE_NOT_FOUND", "Table not found: " + table);
+		}
+		Map<String, Object> row = found.get(0);
+		String relkind = (String) row.get("relkind");
+		double reltuples = ((Number) row.get("reltuples")).doubleValue();
+		long relpages = ((Number) row.get("relpages")).longValue();
+		Number curPages = (Number) row.get("cur_pages");
+		TableStats stats = new TableStats(relkind, curPages == null ? null : curPages.longValue());
+		if (curPages != null && reltuples >= 0 && (relpages > 0 || curPages.longValue() == 0)) {
+			preview.setEstimatedRows(relpages > 0 ? Math.round(reltuples / relpages * curPages.longValue()) : 0L);
+			preview.setEstimateSource("reltuples");
+			return stats;
+		}
+		try {
+			String plan = executor.queryForList("EXPLAIN (FORMAT JSON) SELECT * FROM " + table, String.class).get(0);
+			JsonNode rows = objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows");
+			if (rows.isNumber()) {
+				preview.setEstimatedRows(rows.asLong());
+				preview.setEstimateSource("planner");
+			}
+		} catch (JsonProcessingException | RuntimeException e) {
+			// 估算失败不影响预览
+			log.debug("Failed to estimate rows of {}: {}", table, e.getMessage());
+		}
+		return stats;
+	}
+
+	/**
+	 * 带种子时按物理位置排序：样本集合由种子决定，但同步扫描（synchronize_seqscans）会让扫描从任意数据页开始，不排序时第一页每次不同。
+	 * 排序的是抽出来的全部行而不只是第一页，比例按估算行数限制在 {@link #MAX_SEEDED_SAMPLE_ROWS} 行左右，实际比例见返回的 samplePercent
+	 */
+	private String tableSample(PreviewParam param, TableStats stats, int limit, TablePreview preview) {
+		String method = param.getSample().toUpperCase(Locale.ROOT);
+		if (!method.equals("SYSTEM") && !method.equals("BERNOULLI")) {
+			throw new BizException("INVALID_PARAMETER", "Unsupported sample method: " + param.getSample() + ", expected system or bernoulli");
+		}
+		if (!List.of("r", "m", "p").contains(stats.relkind())) {
+			throw new BizException("INVALID_PARAMETER", "Sampling is only supported for tables and materialized views");
+		}
+		double percent;
+		if (param.getSamplePercent() != null) {
+			percent = param.getSamplePercent();
+			if (!(percent > 0 && percent <= 100)) {
+				throw new BizException("INVALID_PARAMETER", "samplePercent must be in (0, 100]");
+			}
+		} else {
+			Long estimated = preview.getEstimatedRows();
+			percent = estimated == null || estimated <= 0 ? 100 : Math.max(limit * 2 * 100.0 / estimated, 0.0001);
+			if (method.equals("SYSTEM") && stats.pages() != null && stats.pages() > 0) {
+				// SYSTEM 整页抽取，比例太小时一页都抽不到；至少期望抽到 10 页
+				percent = Math.max(percent, 10 * 100.0 / stats.pages());
+			}
+			percent = Math.min(percent, 100);
+		}
+		Long estimated = preview.getEstimatedRows();
+		if (param.getSeed() != null && estimated != null && estimated > MAX_SEEDED_SAMPLE_ROWS) {
+			percent = Math.max(Math.min(percent, MAX_SEEDED_SAMPLE_ROWS * 100.0 / estimated), 0.0001);
+		}
+		BigDecimal rounded = BigDecimal.valueOf(percent).setScale(4, RoundingMode.HALF_UP).stripTrailingZeros();
+		preview.setSample(method.toLowerCase(Locale.ROOT));
+		preview.setSamplePercent(rounded.doubleValue());
+		String clause = " TABLESAMPLE " + method + " (" + rounded.toPlainString() + ")";
+		return param.getSeed() == null ? clause : clause + " REPEATABLE (" + param.getSeed() + ") ORDER BY tableoid, ctid";
+	}
+
+	/**
+	 * pages 为数据文件当前的页数，分区表和视图为空
+	 */
+	private record TableStats(String relkind, Long pages) {
+	}
+
+	private Connection connection(PreviewParam param) {
+		return connectionService.getConnection(param.getConnId())
+								.orElseThrow(() -> new BizException("Connection not found: " + param.getConnId()));
+	}
+
+	private static String table(DatabaseType type, PreviewParam param) {
+		if (ObjectUtils.isEmpty(param.getObjectName())) {
+			throw new BizException("objectName is required");
+		}
+		return SqlUtils.qualifiedName(type, param.getSchemaName(), param.getObjectName());
+	}
+}
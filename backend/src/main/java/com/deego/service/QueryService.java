@@ -0,0 +1,245 @@
+package com.deego.service;
+
+import com.deego.config.NebulaProperties;
+import com.deego.exception.BizException;
+import com.deego.exec.DbExecutor;
+import com.deego.exec.JdbcExecutor;
+import com.deego.model.Connection;
+import com.deego.model.param.QueryParam;
+import com.deego.query.BindParameters;
+import com.deego.query.NdjsonResultWriter;
+import com.deego.query.PreparedQuery;
+import com.deego.query.ResultFormat;
+import com.deego.query.RunningQuery;
+import com.deego.query.RunningQueryRegistry;
+import com.deego.query.arrow.ArrowResultWriter;
+import com.deego.query.parquet.ParquetResultWriter;
+import com.deego.query.cache.QueryCacheKey;
+import com.deego.query.cache.QueryResultCache;
+import com.deego.utils.SqlUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ObjectUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+@Service
+@Slf4j
+public class QueryService {
+
+	@Autowired
+	private ConnectionService connectionService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private NebulaProperties properties;
+
+	@Autowired
+	private RunningQueryRegistry registry;
+
+	@Autowired
+	private QueryResultCache resultCache;
+
+	/**
+	 * Arrow 向量使用的堆外内存分配器，每个查询使用一个子分配器
+	 */
+	private final BufferAllocator allocator = new RootAllocator();
+
+	/**
+	 * 执行查询并交给 extractor 处理结果；执行期间登记在运行中查询表里，可按 queryId 取消。
+	 * 请求指定 cache=true 且语句只读时走结果缓存；带 params 时以 PreparedStatement 绑定参数执行
+	 */
+	public <T> T execute(QueryParam param, ResultFormat format, ResultSetExtractor<T> extractor) {
+		PreparedQuery prepared = BindParameters.prepare(param.getQuery(), param.getParams());
+		if (Boolean.TRUE.equals(param.getCache()) && SqlUtils.isReadOnly(param.getQuery())) {
+			// 键里直接用请求中的 database，命中时不需要查连接配置，也不占用数据库连接
+			QueryCacheKey key = new QueryCacheKey(param.getConnId(), param.getDatabase(), SqlUtils.normalize(prepared.sql()), prepared.argList(), format.name());
+			Duration ttl = param.getCacheTtl() == null ? null : Duration.ofSeconds(param.getCacheTtl());
+			return resultCache.get(key, () -> cacheTables(param), ttl, () -> execute(param, prepared, extractor));
+		}
+		return execute(param, prepared, extractor);
+	}
+
+	/**
+	 * 缓存结果按引用的表名失效。名字中有视图、物化视图或同义词时，对底层表的写入按名字匹配不到它，
+	 * 这样的结果记为引用了未知的表（空集合），连接上的任何写入都使它失效；目录查不到的名字（CTE 等）不影响判断
+	 */
+	private Set<String> cacheTables(QueryParam param) {
+		Set<String> tables = SqlUtils.referencedTables(param.getQuery());
+		if (tables.isEmpty()) {
+			return tables;
+		}
+		try {
+			if (!(connectionService.getExecutor(param.getConnId(), param.getDatabase()) instanceof JdbcExecutor executor)) {
+				return Set.of();
+			}
+			boolean onlyTables = executor.withConnection(con -> {
+				DatabaseMetaData meta = con.getMetaData();
+				String escape = meta.getSearchStringEscape();
+				for (String table : tables) {
+					String pattern = ObjectUtils.isEmpty(escape) ? table
+							: table.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+					try (ResultSet rs = meta.getTables(con.getCatalog(), null, pattern, null)) {
+						while (rs.next()) {
+							String type = String.valueOf(rs.getString("TABLE_TYPE")).toUpperCase(Locale.ROOT);
+							if (type.contains("VIEW") || type.contains("SYNONYM") || type.contains("ALIAS")) {
+								return false;
+							}
+						}
+					}
+				}
+				return true;
+			});
+			return onlyTables ? tables : Set.of();
+		} catch (RuntimeException e) {
+			log.debug("Cannot resolve relation kinds for the result cache, treating tables as unknown: {}", e.getMessage());
+			return Set.of();
+		}
+	}
+
+	private <T> T execute(QueryParam param, PreparedQuery prepared, ResultSetExtractor<T> extractor) {
+		RunningQuery query = begin(param);
+		try {
+			DbExecutor executor = connectionService.getExecutor(param.getConnId(), query.getDatabase());
+			return prepared.hasArgs()
+					? executor.query(prepared.sql(), prepared.args(), query, extractor)
+					: executor.query(prepared.sql(), query, extractor);
+		} finally {
+			registry.finish(query);
+		}
+	}
+
+	/**
+	 * 登记一次查询，返回的 RunningQuery 需要作为 StatementHook 传给执行器，执行结束后 finish
+	 */
+	public RunningQuery begin(QueryParam param) {
+		Connection conn = connectionService.getConnection(param.getConnId())
+										   .orElseThrow(() -> new BizException("Connection not found: " + param.getConnId()));
+		String database = ObjectUtils.isEmpty(param.getDatabase()) ? conn.getDatabase() : param.getDatabase();
+		return registry.begin(param.getQueryId(), conn, database, param.getQuery(), param.getTimeout());
+	}
+
+	/**
+	 * 流式执行查询，把结果以 NDJSON 逐行写给客户端。
+	 * 整个结果集不会在堆上物化，内存占用只与 fetchSize 相关。
+	 * 返回前就确定 queryId 并写回 param，客户端可用它随时取消；查询在响应体开始执行时才登记，
+	 * 响应体因请求超时或客户端断开而没有执行时不会在运行中查询表里留下登记。
+	 */
+	public StreamingResponseBody stream(QueryParam param, ResultFormat format) {
+		Connection conn = connectionService.getConnection(param.getConnId())
+										   .orElseThrow(() -> new BizException("Connection not found: " + param.getConnId()));
+		String database = ObjectUtils.isEmpty(param.getDatabase()) ? conn.getDatabase() : param.getDatabase();
+		DbExecutor executor = connectionService.getExecutor(conn.getId(), database);
+		PreparedQuery prepared = BindParameters.prepare(param.getQuery(), param.getParams());
+		param.setQueryId(registry.prepareId(param.getQueryId()));
+		int fetchSize = properties.getQuery().getFetchSize();
+		if (format == ResultFormat.ARROW) {
+			return out -> {
+				RunningQuery query = registry.begin(param.getQueryId(), conn, database, param.getQuery(), param.getTimeout());
+				try {
+					streamArrow(executor, query, prepared, fetchSize, out);
+				} finally {
+					registry.finish(query);
+				}
+			};
+		}
+		if (format == ResultFormat.PARQUET) {
+			return out -> {
+				RunningQuery query = registry.begin(param.getQueryId(), conn, database, param.getQuery(), param.getTimeout());
+				try {
+					streamParquet(executor, query, prepared, fetchSize, out);
+				} finally {
+					registry.finish(query);
+				}
+			};
+		}
+		return out -> {
+			RunningQuery query = registry.begin(param.getQueryId(), conn, database, param.getQuery(), param.getTimeout());
+			try (JsonGenerator gen = objectMapper.getFactory().createGenerator(new BufferedOutputStream(out, 64 * 1024))) {
+				NdjsonResultWriter writer = new NdjsonResultWriter(gen, fetchSize, format);
+				try {
+					executor.queryStream(prepared.sql(), prepared.args(), fetchSize, query, writer);
+				} catch (UncheckedIOException e) {
+					// 客户端已断开，无需再写
+					log.debug("Query stream aborted by client: {}", e.getMessage());
+				} catch (Exception e) {
+					String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+					log.warn("Query stream failed: {}", message);
+					writer.writeError(message);
+				}
+			} finally {
+				registry.finish(query);
+			}
+		};
+	}
+
+	private void streamArrow(DbExecutor executor, RunningQuery query, PreparedQuery prepared, int fetchSize, OutputStream out) throws IOException {
+		BufferedOutputStream buffered = new BufferedOutputStream(out, 64 * 1024);
+		try (BufferAllocator child = allocator.newChildAllocator("query", 0, Long.MAX_VALUE);
+			 ArrowResultWriter writer = new ArrowResultWriter(child, buffered, properties.getQuery().getArrowBatchSize())) {
+			try {
+				executor.queryStream(prepared.sql(), prepared.args(), fetchSize, query, writer);
+			} catch (UncheckedIOException e) {
+				log.debug("Arrow stream aborted by client: {}", e.getMessage());
+			} catch (Exception e) {
+				String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+				log.warn("Arrow stream failed: {}", message);
+				if (writer.isStarted()) {
+					// 已经输出了部分 batch，只能中断响应，前端会收到不完整的流
+					throw e;
+				}
+				writer.writeError(message);
+			}
+		}
+	}
+
+	/**
+	 * 压缩方式和行组大小使用 nebula.transfer 下的 Parquet 默认值
+	 */
+	private void streamParquet(DbExecutor executor, RunningQuery query, PreparedQuery prepared, int fetchSize, OutputStream out) throws IOException {
+		NebulaProperties.Transfer transfer = properties.getTransfer();
+		CompressionCodecName codec = ParquetResultWriter.codec(null, transfer.getParquetCompression());
+		BufferedOutputStream buffered = new BufferedOutputStream(out, 64 * 1024);
+		try (ParquetResultWriter writer = new ParquetResultWriter(buffered, codec, transfer.getParquetRowGroupSize().toBytes())) {
+			try {
+				executor.queryStream(prepared.sql(), prepared.args(), fetchSize, query, writer);
+			} catch (UncheckedIOException e) {
+				log.debug("Parquet stream aborted by client: {}", e.getMessage());
+			} catch (Exception e) {
+				String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+				log.warn("Parquet stream failed: {}", message);
+				if (writer.isStarted()) {
+					// 文件尾还没有写出，中断响应，客户端拿到的文件无法读取
+					throw e;
+				}
+				writer.writeError(message);
+			}
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		allocator.close();
+	}
+}
@@ -0,0 +1,199 @@
+package com.deego.service;
+
+import com.deego.config.NebulaProperties;
+import com.deego.enums.DatabaseType;
+import com.deego.enums.WorkPriority;
+import com.deego.exception.BizException;
+import com.deego.exec.DbExecutor;
+import com.deego.exec.JdbcExecutor;
+import com.deego.model.Connection;
+import com.deego.model.param.ExportParam;
+import com.deego.query.RunningQuery;
+import com.deego.query.RunningQueryRegistry;
+import com.deego.query.parquet.ParquetResultWriter;
+import com.deego.transfer.CopyExport;
+import com.deego.transfer.Compression;
+import com.deego.transfer.CopyFormat;
+import com.deego.transfer.ParallelCopyExporter;
+import com.deego.transfer.PgCopy;
+import com.deego.utils.SqlUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 基于 COPY 的表数据导入导出
+ */
+@Service
+@Slf4j
+public class TransferService {
+
+	@Autowired
+	private ConnectionService connectionService;
+
+	@Autowired
+	private RunningQueryRegistry registry;
+
+	@Autowired
+	private NebulaProperties properties;
+
+	@Autowired
+	private ParallelCopyExporter parallelExporter;
+
+	/**
+	 * 准备导出：校验参数、确定 queryId，返回的 body 把 COPY TO STDOUT 的字节流经有限大小的缓冲区直接写给客户端。
+	 * body 开始执行时才登记到运行中查询表（见 {@link #body}）。导出按 BULK 优先级占用准入额度。
+	 */
+	public CopyExport export(ExportParam param) {
+		Connection conn = postgresConnection(param.getConnId());
+		String database = ObjectUtils.isEmpty(param.getDatabase()) ? conn.getDatabase() : param.getDatabase();
+		CopyFormat format = CopyFormat.from(param.getFormat());
+		boolean header = !Boolean.FALSE.equals(param.getHeader());
+
+		boolean parquet = format == CopyFormat.PARQUET;
+
+		String sql;
+		String fileName;
+		if (!ObjectUtils.isEmpty(param.getQuery())) {
+			sql = parquet ? SqlUtils.normalize(param.getQuery()) : PgCopy.copyOutSql(param.getQuery(), format, header);
+			fileName = "export." + format.extension();
+		} else {
+			// 开始输出后就无法再返回错误响应，表不存在等问题要提前发现
+			String table = PgCopy.qualifiedName(param.getSchemaName(), param.getObjectName());
+			List<String> found = connectionService.getExecutor(conn.getId(), database, WorkPriority.INTERACTIVE)
+												  .queryForList("SELECT to_regclass(?)::text", String.class, table);
+			if (found.isEmpty() || found.get(0) == null) {
+				throw new BizException("TABLE_NOT_FOUND", "Table not found: " + table);
+			}
+			sql = parquet
+					? PgCopy.selectSql(param.getSchemaName(), param.getObjectName(), param.getColumns())
+					: PgCopy.copyOutSql(param.getSchemaName(), param.getObjectName(), param.getColumns(), format, header);
+			fileName = param.getObjectName() + "." + format.extension();
+		}
+		if (parquet) {
+			return exportParquet(param, conn, database, sql, fileName);
+		}
+
+		Compression compression = Compression.from(param.getCompression());
+		fileName += compression.extension();
+		JdbcExecutor executor = jdbcExecutor(conn.getId(), database);
+		String queryId = registry.prepareId(param.getQueryId());
+		Supplier<RunningQuery> begin = () -> registry.begin(queryId, conn, database, sql, null);
+		if (param.getParallel() != null && param.getParallel() > 1 && ObjectUtils.isEmpty(param.getQuery())) {
+			// 并行导出：各段在独立的连接上共享同一快照导出，按范围顺序合并成一个流
+			return new CopyExport(queryId, format, compression, fileName, body(begin, compression, (query, sink) -> {
+				long rows = parallelExporter.exportMerged(param, query, sink);
+				log.info("Exported {} rows from {}@{} in parallel", rows, conn.getId(), database);
+			}));
+		}
+		StreamingResponseBody body = body(begin, compression, (query, sink) -> {
+			long rows = executor.withConnection(con -> {
+				query.attach(con);
+				try {
+					return PgCopy.copyOut(con, sql, sink);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			log.info("Exported {} rows from {}@{} as {}", rows, conn.getId(), database, format);
+		});
+		return new CopyExport(queryId, format, compression, fileName, body);
+	}
+
+	/**
+	 * Parquet 导出：在 BULK 连接上按 fetchSize 流式读取结果集，每行直接编码进当前行组。
+	 * 数据页在文件内部按 compression 压缩，不再在外层套一层 gzip / lz4
+	 */
+	private CopyExport exportParquet(ExportParam param, Connection conn, String database, String sql, String fileName) {
+		if (param.getParallel() != null && param.getParallel() > 1) {
+			throw new BizException("UNSUPPORTED_FORMAT", "Parallel export is not supported for parquet");
+		}
+		NebulaProperties.Transfer transfer = properties.getTransfer();
+		CompressionCodecName codec = ParquetResultWriter.codec(param.getCompression(), transfer.getParquetCompression());
+		long rowGroupSize = ParquetResultWriter.rowGroupSize(param.getRowGroupSize(), transfer.getParquetRowGroupSize());
+		int fetchSize = properties.getQuery().getFetchSize();
+		JdbcExecutor executor = jdbcExecutor(conn.getId(), database);
+		String queryId = registry.prepareId(param.getQueryId());
+		StreamingResponseBody body = body(() -> registry.begin(queryId, conn, database, sql, null), Compression.NONE, (query, sink) -> {
+			try (ParquetResultWriter writer = new ParquetResultWriter(sink, codec, rowGroupSize)) {
+				try {
+					executor.queryStream(sql, null, fetchSize, query, writer);
+				} catch (UncheckedIOException e) {
+					throw e;
+				} catch (RuntimeException e) {
+					String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+					log.warn("Parquet export of {}@{} failed: {}", conn.getId(), database, message);
+					if (writer.isStarted()) {
+						// 文件尾还没有写出，中断响应，客户端拿到的文件无法读取
+						throw e;
+					}
+					// 还没有输出任何内容：输出只有一列 @error 的文件，与 /api/query/stream 一致
+					writer.writeError(message);
+					return;
+				}
+			}
+			log.info("Exported {}@{} as parquet ({})", conn.getId(), database, codec);
+		});
+		return new CopyExport(queryId, CopyFormat.PARQUET, Compression.NONE, fileName, body);
+	}
+
+	/**
+	 * 响应体：导出写入有限大小的缓冲区，需要压缩时先经过独立的压缩线程。
+	 * 开始执行时才登记到运行中查询表、结束后移除：响应体可能因为请求超时或客户端断开而根本不执行，提前登记的查询会一直留在表里。
+	 * 导出失败时放弃压缩流而不是关闭它，不写出压缩尾，客户端解压截断的文件时会报错，不会把它当作完整的导出
+	 */
+	private StreamingResponseBody body(Supplier<RunningQuery> begin, Compression compression, ExportWriter writer) {
+		int bufferSize = (int) properties.getTransfer().getBufferSize().toBytes();
+		return out -> {
+			RunningQuery query = begin.get();
+			// 由容器负责关闭响应流
+			OutputStream buffered = new BufferedOutputStream(StreamUtils.nonClosing(out), bufferSize);
+			OutputStream sink = compression.pipelined(buffered, "export-compress-" + query.getQueryId());
+			try {
+				writer.write(query, sink);
+				sink.close();
+			} catch (UncheckedIOException | IOException e) {
+				// 客户端已断开，COPY 已被驱动中止
+				log.debug("Export aborted by client: {}", e.getMessage());
+			} finally {
+				// 正常关闭后什么也不做
+				Compression.abort(sink);
+				registry.finish(query);
+			}
+		};
+	}
+
+	@FunctionalInterface
+	private interface ExportWriter {
+		void write(RunningQuery query, OutputStream sink) throws IOException;
+	}
+
+	private Connection postgresConnection(String connId) {
+		Connection conn = connectionService.getConnection(connId)
+										   .orElseThrow(() -> new BizException("Connection not found: " + connId));
+		if (DatabaseType.fromValue(conn.getDbType()) != DatabaseType.POSTGRESQL) {
+			throw new BizException("UNSUPPORTED_DB_TYPE", "COPY is only supported for PostgreSQL connections");
+		}
+		return conn;
+	}
+
+	private JdbcExecutor jdbcExecutor(String connId, String database) {
+		DbExecutor executor = connectionService.getExecutor(connId, database, WorkPriority.BULK);
+		if (executor instanceof JdbcExecutor jdbcExecutor) {
+			return jdbcExecutor;
+		}
+		throw new BizException("Not a relational executor for connection " + connId);
+	}
+}
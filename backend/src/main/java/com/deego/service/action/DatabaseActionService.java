@@ -25,4 +25,11 @@ public interface DatabaseActionService {
 	 * @return 处理结果信息（简单字符串，方便前端提示）
 	 */
 	String execute(String handler, JdbcTemplate jdbc, Map<String, Object> params);
+
+	/**
+	 * handler 是否只读（不改变数据和对象）；只读的动作执行后不使查询结果缓存失效。未知的 handler 按写处理
+	 */
+	default boolean isReadOnly(String handler) {
+		return false;
+	}
 }
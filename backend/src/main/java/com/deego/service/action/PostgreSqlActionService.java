@@ -1,12 +1,50 @@
 package com.deego.service.action;
 
+import com.deego.config.NebulaProperties;
 import com.deego.enums.DatabaseType;
+import com.deego.enums.WorkPriority;
+import com.deego.exception.BizException;
+import com.deego.exec.DbExecutor;
+import com.deego.exec.JdbcExecutor;
+import com.deego.metadata.DatabaseNodeType;
+import com.deego.metadata.cache.MetadataCache;
+import com.deego.metadata.postgresql.ddl.PgCatalog;
+import com.deego.metadata.postgresql.ddl.PgDdlGenerator;
+import com.deego.model.param.ExportParam;
+import com.deego.model.param.PreviewParam;
+import com.deego.query.RunningQuery;
+import com.deego.query.RunningQueryRegistry;
+import com.deego.query.parquet.ParquetResultWriter;
+import com.deego.service.ConnectionService;
+import com.deego.service.PreviewService;
+import com.deego.transfer.Compression;
+import com.deego.transfer.CopyFormat;
+import com.deego.transfer.ExportFile;
+import com.deego.transfer.ParallelCopyExporter;
+import com.deego.transfer.PgCopy;
+import com.deego.transfer.TransferPaths;
+import com.deego.utils.SqlUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
 /**
  * PostgreSQL 专用的动作处理实现。
@@ -17,13 +55,52 @@ import java.util.function.BiConsumer;
 @Service
 public class PostgreSqlActionService implements DatabaseActionService {
 
+	/**
+	 * CASCADE 删除可能连带删除的对象所在的列表
+	 */
+	private static final DatabaseNodeType[] CASCADE_TYPES = {DatabaseNodeType.VIEW, DatabaseNodeType.MATERIALIZED_VIEW,
+			DatabaseNodeType.CONSTRAINT, DatabaseNodeType.FOREIGN_KEY};
+
+	/**
+	 * 只读取数据或定义的 handler：导出、生成 DDL、查看定义和属性
+	 */
+	private static final Set<String> READ_ONLY_HANDLERS = Set.of("previewTable", "exportTableData", "viewDefinition",
+			"generateViewSQL", "viewFunctionSource", "showProperties", "viewPublication", "showRoleProperties",
+			"exportDatabase", "exportSchema", "generateTableSQL");
+
 	private final Map<String, BiConsumer<JdbcTemplate, Map<String, Object>>> handlers = new HashMap<>();
 
+	/**
+	 * 返回文本的 handler（生成的 DDL 等），结果直接作为响应内容
+	 */
+	private final Map<String, BiFunction<JdbcTemplate, Map<String, Object>, String>> textHandlers = new HashMap<>();
+
+	@Autowired
+	private ParallelCopyExporter parallelExporter;
+
+	@Autowired
+	private NebulaProperties properties;
+
+	@Autowired
+	private MetadataCache metadataCache;
+
+	@Autowired
+	private ConnectionService connectionService;
+
+	@Autowired
+	private RunningQueryRegistry registry;
+
+	@Autowired
+	private PreviewService previewService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
 	public PostgreSqlActionService() {
 		// 注册 handlers（基本上就是你原来 ActionService 里的内容）
 
 		handlers.put("refreshDatabase", (jdbc, params) -> {
-			// NOP，前端自己重新拉取树即可
+			// 只清掉对象树缓存（见 invalidateMetadata），前端随后重新拉取树
 		});
 
 		handlers.put("createNewSchema", (jdbc, params) -> {
@@ -32,17 +109,13 @@ public class PostgreSqlActionService implements DatabaseActionService {
 			jdbc.update("CREATE SCHEMA IF NOT EXISTS " + schemaName);
 		});
 
-		handlers.put("exportDatabase", (jdbc, params) -> {
-			// 生成 DDL SQL（未来可以对接 pg_dump）
-		});
-
 		handlers.put("deleteDatabase", (jdbc, params) -> {
 			String dbName = (String) params.get("dbName");
 			jdbc.update("DROP DATABASE IF EXISTS " + dbName);
 		});
 
 		handlers.put("refreshSchema", (jdbc, params) -> {
-			// NOP
+			// 同 refreshDatabase，只清掉该 schema 下的缓存
 		});
 
 		handlers.put("createNewTable", (jdbc, params) -> {
@@ -61,27 +134,79 @@ public class PostgreSqlActionService implements DatabaseActionService {
 			jdbc.update(funcDdl);
 		});
 
-		handlers.put("exportSchema", (jdbc, params) -> {
-			// 生成 Schema DDL（未来扩展）
-		});
-
-		handlers.put("previewTable", (jdbc, params) -> {
-			String schema = (String) params.get("schemaName");
-			String table = (String) params.get("objectName");
-			// 这里目前只是示例：真正返回数据需要改接口返回结构
-			// jdbc.queryForList("SELECT * FROM " + schema + "." + table + " LIMIT 1000");
-		});
-
 		handlers.put("editTableStructure", (jdbc, params) -> {
 			// ALTER TABLE ..（结构修改）
 		});
 
-		handlers.put("generateTableSQL", (jdbc, params) -> {
-			// 生成建表 DDL（可用 pg_get_tabledef / pg_dump 等）
-		});
-
 		handlers.put("exportTableData", (jdbc, params) -> {
-			// COPY TO CSV 等导出
+			// COPY TO STDOUT 直接写入服务器上 export-dir 下的文件（filePath），下载到浏览器请使用 /api/transfer/export
+			String filePath = requireParam(params, "filePath");
+			CopyFormat format = CopyFormat.from((String) params.get("format"));
+			boolean header = !Boolean.FALSE.equals(params.get("header"));
+			@SuppressWarnings("unchecked")
+			List<String> columns = (List<String>) params.get("columns");
+			if (params.get("parallel") instanceof Number parallel && parallel.intValue() > 1) {
+				// 并行导出：按范围切分，每段写入 filePath 旁边的 .part-NNN 文件
+				ExportParam export = new ExportParam();
+				export.setConnId(String.valueOf(params.get("connectionId")));
+				export.setSchemaName((String) params.get("schemaName"));
+				export.setObjectName((String) params.get("objectName"));
+				export.setColumns(columns);
+				export.setFormat(format.name());
+				export.setHeader(header);
+				export.setParallel(parallel.intValue());
+				export.setPartitionBy((String) params.get("partitionBy"));
+				export.setCompression((String) params.get("compression"));
+				parallelExporter.exportShards(export, TransferPaths.exportFile(properties.getTransfer(), filePath));
+				return;
+			}
+			// 与 /api/transfer/export 一样在 BULK 执行器上排队，并登记到运行中查询表，可以取消
+			com.deego.model.Connection conn = connectionService.getConnection(String.valueOf(params.get("connectionId")))
+															   .orElseThrow(() -> new BizException("Connection not found: " + params.get("connectionId")));
+			DbExecutor executor = connectionService.getExecutor(conn.getId(), conn.getDatabase(), WorkPriority.BULK);
+			if (format == CopyFormat.PARQUET) {
+				// Parquet 不经过 COPY：经 queryStream 按 fetchSize 读取结果集逐行编码，数据页在文件内部压缩
+				NebulaProperties.Transfer transfer = properties.getTransfer();
+				CompressionCodecName codec = ParquetResultWriter.codec((String) params.get("compression"), transfer.getParquetCompression());
+				long rowGroupSize = ParquetResultWriter.rowGroupSize((String) params.get("rowGroupSize"), transfer.getParquetRowGroupSize());
+				String select = PgCopy.selectSql((String) params.get("schemaName"), (String) params.get("objectName"), columns);
+				int fetchSize = properties.getQuery().getFetchSize();
+				Path target = TransferPaths.exportFile(transfer, filePath);
+				RunningQuery query = registry.begin((String) params.get("queryId"), conn, conn.getDatabase(), select, null);
+				try (ExportFile file = ExportFile.open(target, Compression.NONE, 64 * 1024, "export-" + target.getFileName())) {
+					try (ParquetResultWriter writer = new ParquetResultWriter(file.stream(), codec, rowGroupSize)) {
+						executor.queryStream(select, null, fetchSize, query, writer);
+					}
+					file.commit();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				} finally {
+					registry.finish(query);
+				}
+				return;
+			}
+			String sql = PgCopy.copyOutSql((String) params.get("schemaName"), (String) params.get("objectName"), columns, format, header);
+			// 指定压缩时文件名补上 .gz / .lz4，压缩在独立线程上与 COPY 并行；COPY 失败时只删除 .partial，不留下截断的文件
+			Compression compression = Compression.from((String) params.get("compression"));
+			Path target = exportTarget(filePath, compression);
+			if (!(executor instanceof JdbcExecutor jdbcExecutor)) {
+				throw new BizException("Not a relational executor for connection " + conn.getId());
+			}
+			RunningQuery query = registry.begin((String) params.get("queryId"), conn, conn.getDatabase(), sql, null);
+			try {
+				jdbcExecutor.withConnection(con -> {
+					query.attach(con);
+					try (ExportFile file = ExportFile.open(target, compression, 64 * 1024, "export-compress-" + target.getFileName())) {
+						long rows = PgCopy.copyOut(con, sql, file.stream());
+						file.commit();
+						return rows;
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} finally {
+				registry.finish(query);
+			}
 		});
 
 		handlers.put("viewDefinition", (jdbc, params) -> {
@@ -178,6 +303,44 @@ public class PostgreSqlActionService implements DatabaseActionService {
 			String roleName = (String) params.get("roleName");
 			jdbc.update("DROP ROLE IF EXISTS " + roleName);
 		});
+
+		// DDL 由目录快照在内存中生成，整个库也只有十来次往返；指定 filePath 时写入服务器上的文件（可压缩），否则直接返回脚本
+		textHandlers.put("previewTable", (jdbc, params) -> {
+			// 与 /api/query/preview 相同：游标读第一页、估算行数，不做 count(*)；返回 TablePreview 的 JSON
+			PreviewParam preview = new PreviewParam();
+			preview.setConnId(String.valueOf(params.get("connectionId")));
+			preview.setSchemaName(requireParam(params, "schemaName"));
+			preview.setObjectName(requireParam(params, "objectName"));
+			if (params.get("limit") instanceof Number limit) {
+				preview.setLimit(limit.intValue());
+			}
+			preview.setFormat((String) params.get("format"));
+			preview.setQueryId((String) params.get("queryId"));
+			try {
+				return objectMapper.writeValueAsString(previewService.preview(preview));
+			} catch (JsonProcessingException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+
+		textHandlers.put("exportDatabase", (jdbc, params) -> exportDdl(jdbc, params, PgCatalog::loadDatabase));
+
+		textHandlers.put("exportSchema", (jdbc, params) -> {
+			String schema = requireParam(params, "schemaName");
+			return exportDdl(jdbc, params, con -> {
+				PgCatalog catalog = PgCatalog.loadSchema(con, schema);
+				if (catalog.getSchemas().isEmpty()) {
+					throw new BizException("SCHEMA_NOT_FOUND", "Schema " + schema + " not found");
+				}
+				return catalog;
+			});
+		});
+
+		textHandlers.put("generateTableSQL", (jdbc, params) -> {
+			String schema = requireParam(params, "schemaName");
+			String table = requireParam(params, "objectName");
+			return exportDdl(jdbc, params, con -> PgCatalog.loadTable(con, schema, table));
+		});
 	}
 
 	@Override
@@ -185,13 +348,127 @@ public class PostgreSqlActionService implements DatabaseActionService {
 		return DatabaseType.POSTGRESQL;
 	}
 
+	@Override
+	public boolean isReadOnly(String handler) {
+		return READ_ONLY_HANDLERS.contains(handler);
+	}
+
 	@Override
 	public String execute(String handler, JdbcTemplate jdbc, Map<String, Object> params) {
+		BiFunction<JdbcTemplate, Map<String, Object>, String> textAction = textHandlers.get(handler);
+		if (textAction != null) {
+			return textAction.apply(jdbc, params);
+		}
 		BiConsumer<JdbcTemplate, Map<String, Object>> action = handlers.get(handler);
 		if (action == null) {
 			return "Unknown handler: " + handler;
 		}
 		action.accept(jdbc, params);
+		invalidateMetadata(handler, params);
 		return "Action '" + handler + "' executed successfully";
 	}
+
+	/**
+	 * DDL 执行成功后使对象树中受影响的列表失效。动作在连接的默认库上执行，按 schema 定位的列表不区分库；
+	 * CASCADE 删除可能连带其他 schema 中依赖它的视图和外键，这几类列表在整个连接上失效
+	 */
+	private void invalidateMetadata(String handler, Map<String, Object> params) {
+		String connId = String.valueOf(params.get("connectionId"));
+		String schema = SqlUtils.bareName(params.get("schemaName"));
+		String object = SqlUtils.bareName(params.get("objectName"));
+		switch (handler) {
+			case "refreshDatabase" -> metadataCache.invalidateDatabase(connId, (String) params.get("dbName"));
+			case "refreshSchema" -> {
+				if (schema == null) {
+					metadataCache.invalidateConnection(connId);
+				} else {
+					metadataCache.invalidateSubtree(connId, null, schema);
+				}
+			}
+			case "deleteDatabase" -> {
+				metadataCache.invalidate(connId, null, null, DatabaseNodeType.DATABASE);
+				metadataCache.invalidateDatabase(connId, SqlUtils.bareName(params.get("dbName")));
+			}
+			case "createNewSchema" -> {
+				metadataCache.invalidate(connId, null, "", DatabaseNodeType.SCHEMA);
+				if (schema != null) {
+					// 同名 schema 之前可能在别处被删除，残留的空列表一并清掉
+					metadataCache.invalidateSubtree(connId, null, schema);
+				}
+			}
+			case "deleteSchema" -> {
+				metadataCache.invalidate(connId, null, "", DatabaseNodeType.SCHEMA);
+				if (schema != null) {
+					metadataCache.invalidateSubtree(connId, null, schema);
+				}
+				metadataCache.invalidate(connId, null, null, CASCADE_TYPES);
+			}
+			// 建表语句由前端拼好，没有 schemaName 时不知道建在哪个 schema
+			case "createNewTable" -> metadataCache.invalidate(connId, null, schema, DatabaseNodeType.TABLE);
+			case "deleteTable" -> {
+				metadataCache.invalidate(connId, null, schema, DatabaseNodeType.TABLE);
+				if (schema != null && object != null) {
+					metadataCache.invalidateSubtree(connId, null, schema + "/" + object);
+				}
+				metadataCache.invalidate(connId, null, null, CASCADE_TYPES);
+			}
+			case "createNewView" -> {
+				String viewName = (String) params.get("viewName");
+				String viewSchema = viewName != null && viewName.contains(".") ? SqlUtils.bareName(viewName.substring(0, viewName.lastIndexOf('.'))) : null;
+				metadataCache.invalidate(connId, null, viewSchema, DatabaseNodeType.VIEW);
+			}
+			case "deleteView" -> {
+				if (schema != null && object != null) {
+					metadataCache.invalidateSubtree(connId, null, schema + "/" + object);
+				}
+				metadataCache.invalidate(connId, null, null, DatabaseNodeType.VIEW, DatabaseNodeType.MATERIALIZED_VIEW);
+			}
+			case "createNewFunction" -> metadataCache.invalidate(connId, null, schema, DatabaseNodeType.FUNCTION, DatabaseNodeType.PROCEDURE);
+			case "deleteFunction" -> metadataCache.invalidate(connId, null, null, DatabaseNodeType.FUNCTION, DatabaseNodeType.PROCEDURE,
+					DatabaseNodeType.VIEW, DatabaseNodeType.MATERIALIZED_VIEW);
+			case "createRole", "deleteRole" -> metadataCache.invalidate(connId, null, null, DatabaseNodeType.ROLE,
+					DatabaseNodeType.LOGIN_ROLE, DatabaseNodeType.GROUP_ROLE, DatabaseNodeType.SYSTEM_ROLE);
+			case "createPublication", "deletePublication" -> metadataCache.invalidate(connId, null, null, DatabaseNodeType.PUBLICATION);
+			default -> {
+			}
+		}
+	}
+
+	private String exportDdl(JdbcTemplate jdbc, Map<String, Object> params, ConnectionCallback<PgCatalog> loader) {
+		PgCatalog catalog = jdbc.execute(loader);
+		if (catalog.getRelations().isEmpty() && catalog.isSingleTable()) {
+			throw new BizException("TABLE_NOT_FOUND", "Table not found: " + params.get("schemaName") + "." + params.get("objectName"));
+		}
+		String filePath = (String) params.get("filePath");
+		if (filePath == null || filePath.isBlank()) {
+			return PgDdlGenerator.generate(catalog);
+		}
+		Compression compression = Compression.from((String) params.get("compression"));
+		Path target = exportTarget(filePath, compression);
+		try (ExportFile file = ExportFile.open(target, compression, 64 * 1024, "ddl-compress-" + target.getFileName())) {
+			Writer writer = new OutputStreamWriter(file.stream(), StandardCharsets.UTF_8);
+			PgDdlGenerator.write(catalog, writer);
+			writer.flush();
+			file.commit();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return "DDL for " + catalog.getObjectCount() + " objects written to " + target;
+	}
+
+	/**
+	 * 服务器上的导出文件，限定在 export-dir 之内；指定压缩时文件名补上 .gz / .lz4
+	 */
+	private Path exportTarget(String filePath, Compression compression) {
+		String name = filePath.endsWith(compression.extension()) ? filePath : filePath + compression.extension();
+		return TransferPaths.exportFile(properties.getTransfer(), name);
+	}
+
+	private static String requireParam(Map<String, Object> params, String name) {
+		Object value = params.get(name);
+		if (value == null || value.toString().isBlank()) {
+			throw new BizException(name + " is required");
+		}
+		return value.toString();
+	}
 }
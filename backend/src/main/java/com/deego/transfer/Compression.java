@@ -0,0 +1,141 @@
+package com.deego.transfer;
+
+import com.deego.exception.BizException;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 导入导出流的压缩方式。gzip 压缩率高；LZ4 使用标准帧格式（与 lz4 命令行工具兼容），压缩速度快得多，适合大表。
+ * 两种格式都允许多个压缩流首尾拼接，各段独立压缩后合并仍是合法的压缩文件。
+ */
+public enum Compression {
+	NONE("", null),
+	GZIP(".gz", "application/gzip"),
+	LZ4(".lz4", "application/x-lz4");
+
+	/**
+	 * 流水线每块的字节数和最多排队的块数，两个线程之间最多缓冲 2MB
+	 */
+	private static final int PIPELINE_BLOCK_SIZE = 256 * 1024;
+	private static final int PIPELINE_DEPTH = 8;
+
+	private final String extension;
+	private final String mediaType;
+
+	Compression(String extension, String mediaType) {
+		this.extension = extension;
+		this.mediaType = mediaType;
+	}
+
+	/**
+	 * 追加在文件名后的扩展名，如 orders.csv.gz
+	 */
+	public String extension() {
+		return extension;
+	}
+
+	/**
+	 * 压缩后的响应类型，不压缩时为 null，使用数据格式本身的类型
+	 */
+	public String mediaType() {
+		return mediaType;
+	}
+
+	/**
+	 * 在当前线程压缩写入 out，关闭返回的流时写出压缩尾并关闭 out
+	 */
+	public OutputStream compress(OutputStream out) throws IOException {
+		return switch (this) {
+			case NONE -> out;
+			case GZIP -> new GZIPOutputStream(out, 64 * 1024);
+			case LZ4 -> new LZ4FrameOutputStream(out, LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB);
+		};
+	}
+
+	public InputStream decompress(InputStream in) throws IOException {
+		return switch (this) {
+			case NONE -> in;
+			case GZIP -> new GZIPInputStream(in, 64 * 1024);
+			case LZ4 -> new LZ4FrameInputStream(in);
+		};
+	}
+
+	/**
+	 * 在独立的流水线线程上压缩写入 out，调用方写入时只复制字节，与数据库拉取并行；不压缩时直接返回 out。
+	 * 关闭返回的流时等待压缩完成并关闭 out；写入失败时应改用 {@link #abort(OutputStream)}，不写出压缩尾
+	 */
+	public OutputStream pipelined(OutputStream out, String name) throws IOException {
+		if (this == NONE) {
+			return out;
+		}
+		return new PipelinedOutputStream(compress(out), out, PIPELINE_BLOCK_SIZE, PIPELINE_DEPTH, name);
+	}
+
+	/**
+	 * 放弃 {@link #pipelined} 返回的流：压缩流不写出压缩尾，解压时会报告数据不完整；未压缩的流直接关闭
+	 */
+	public static void abort(OutputStream sink) {
+		if (sink instanceof PipelinedOutputStream pipelined) {
+			pipelined.abort();
+			return;
+		}
+		try {
+			sink.close();
+		} catch (IOException e) {
+			// 已经在出错的路径上
+		}
+	}
+
+	/**
+	 * 在独立的流水线线程上预先解压 in，与解析并行
+	 */
+	public InputStream pipelinedDecompress(InputStream in, String name) throws IOException {
+		if (this == NONE) {
+			return in;
+		}
+		return new PipelinedInputStream(decompress(in), PIPELINE_BLOCK_SIZE, PIPELINE_DEPTH, name);
+	}
+
+	/**
+	 * 解析请求参数，为空或 none 时不压缩
+	 */
+	public static Compression from(String value) {
+		if (value == null || value.isBlank()) {
+			return NONE;
+		}
+		String name = value.trim().toUpperCase(Locale.ROOT);
+		if ("GZ".equals(name)) {
+			return GZIP;
+		}
+		try {
+			return valueOf(name);
+		} catch (IllegalArgumentException e) {
+			throw new BizException("UNSUPPORTED_COMPRESSION", "Unsupported compression: " + value);
+		}
+	}
+
+	/**
+	 * 按文件头的魔数识别压缩格式；in 必须支持 mark/reset，读取后会回到原位置
+	 */
+	public static Compression detect(BufferedInputStream in) throws IOException {
+		in.mark(4);
+		byte[] magic = in.readNBytes(4);
+		in.reset();
+		if (magic.length >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+			return GZIP;
+		}
+		if (magic.length == 4 && (magic[0] & 0xff) == 0x04 && (magic[1] & 0xff) == 0x22
+				&& (magic[2] & 0xff) == 0x4d && (magic[3] & 0xff) == 0x18) {
+			return LZ4;
+		}
+		return NONE;
+	}
+}
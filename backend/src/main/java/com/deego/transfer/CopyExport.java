@@ -0,0 +1,19 @@
+package com.deego.transfer;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * 已登记、尚未开始输出的导出：body 写出时才借连接执行 COPY
+ *
+ * @param queryId  登记在运行中查询表里的 ID，可用于取消
+ * @param fileName 建议的下载文件名
+ */
+public record CopyExport(String queryId, CopyFormat format, Compression compression, String fileName, StreamingResponseBody body) {
+
+	/**
+	 * 压缩时为压缩格式的类型，否则为数据格式的类型
+	 */
+	public String mediaType() {
+		return compression.mediaType() != null ? compression.mediaType() : format.mediaType();
+	}
+}
@@ -0,0 +1,64 @@
+package com.deego.transfer;
+
+import com.deego.exception.BizException;
+
+import java.util.Locale;
+
+/**
+ * COPY 导入导出支持的数据格式
+ */
+public enum CopyFormat {
+	CSV("text/csv", "csv"),
+	/**
+	 * 以制表符分隔的 CSV，引号和转义规则与 CSV 相同
+	 */
+	TSV("text/tab-separated-values", "tsv"),
+	/**
+	 * PostgreSQL 原生二进制格式，只能再导入 PostgreSQL，但无需文本解析，速度最快
+	 */
+	BINARY("application/octet-stream", "bin"),
+	/**
+	 * 列式的 Parquet 文件，保留列类型，适合交给 Spark / DuckDB 等分析工具。
+	 * 不经过 COPY：服务端按 fetchSize 分批读取结果集，由 ParquetResultWriter 编码
+	 */
+	PARQUET("application/vnd.apache.parquet", "parquet");
+
+	private final String mediaType;
+	private final String extension;
+
+	CopyFormat(String mediaType, String extension) {
+		this.mediaType = mediaType;
+		this.extension = extension;
+	}
+
+	public String mediaType() {
+		return mediaType;
+	}
+
+	public String extension() {
+		return extension;
+	}
+
+	/**
+	 * COPY 语句 WITH (...) 中的选项；二进制格式没有表头
+	 */
+	public String options(boolean header) {
+		return switch (this) {
+			case CSV -> "FORMAT csv, HEADER " + header;
+			case TSV -> "FORMAT csv, DELIMITER E'\\t', HEADER " + header;
+			case BINARY -> "FORMAT binary";
+			case PARQUET -> throw new IllegalStateException("Parquet is not a COPY format");
+		};
+	}
+
+	public static CopyFormat from(String value) {
+		if (value == null || value.isBlank()) {
+			return CSV;
+		}
+		try {
+			return valueOf(value.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new BizException("UNSUPPORTED_FORMAT", "Unsupported copy format: " + value);
+		}
+	}
+}
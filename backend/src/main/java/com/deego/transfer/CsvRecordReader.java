@@ -0,0 +1,159 @@
+package com.deego.transfer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * 流式 CSV 解析（RFC 4180）：支持引号内的分隔符、换行和 "" 转义，CRLF 与 LF 都可作为行尾。
+ * 未加引号的空字段读作 null，加引号的空字段读作空字符串。
+ */
+public class CsvRecordReader implements RecordReader {
+
+	private final Reader reader;
+	private final char delimiter;
+	private final char[] buffer = new char[64 * 1024];
+	private int pos;
+	private int limit;
+
+	private List<String> fields;
+	private int[] selected;
+	private String[] pending;
+
+	public CsvRecordReader(Reader reader, char delimiter, boolean header) throws IOException {
+		this.reader = reader;
+		this.delimiter = delimiter;
+		String[] first = readRecord();
+		if (header) {
+			fields = first == null ? List.of() : List.of(nullToEmpty(first));
+		} else {
+			pending = first;
+			List<String> positions = new ArrayList<>();
+			for (int i = 1; first != null && i <= first.length; i++) {
+				positions.add(String.valueOf(i));
+			}
+			fields = List.copyOf(positions);
+		}
+		selected = IntStream.range(0, fields.size()).toArray();
+	}
+
+	@Override
+	public List<String> fields() {
+		return fields;
+	}
+
+	@Override
+	public void select(List<String> names) {
+		int[] indexes = new int[names.size()];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = fields.indexOf(names.get(i));
+			if (indexes[i] < 0) {
+				throw new IllegalArgumentException("Column not found in CSV header: " + names.get(i));
+			}
+		}
+		selected = indexes;
+	}
+
+	@Override
+	public String[] next() throws IOException {
+		String[] record;
+		if (pending != null) {
+			record = pending;
+			pending = null;
+		} else {
+			record = readRecord();
+		}
+		if (record == null) {
+			return null;
+		}
+		// 字段数少于表头时缺少的字段读作 null
+		String[] values = new String[selected.length];
+		for (int i = 0; i < values.length; i++) {
+			int index = selected[i];
+			values[i] = index < record.length ? record[index] : null;
+		}
+		return values;
+	}
+
+	private String[] readRecord() throws IOException {
+		List<String> values = new ArrayList<>();
+		StringBuilder value = new StringBuilder();
+		boolean quoted = false;
+		boolean inQuotes = false;
+		int c = read();
+		if (c < 0) {
+			return null;
+		}
+		while (true) {
+			if (inQuotes) {
+				if (c < 0) {
+					throw new IOException("Unterminated quoted field in CSV");
+				}
+				if (c == '"') {
+					int next = read();
+					if (next == '"') {
+						value.append('"');
+					} else {
+						inQuotes = false;
+						c = next;
+						continue;
+					}
+				} else {
+					value.append((char) c);
+				}
+			} else if (c == delimiter) {
+				values.add(quoted || !value.isEmpty() ? value.toString() : null);
+				value.setLength(0);
+				quoted = false;
+			} else if (c == '\n' || c == '\r' || c < 0) {
+				if (c == '\r' && peek() == '\n') {
+					read();
+				}
+				values.add(quoted || !value.isEmpty() ? value.toString() : null);
+				return values.toArray(String[]::new);
+			} else if (c == '"' && value.isEmpty() && !quoted) {
+				quoted = true;
+				inQuotes = true;
+			} else {
+				value.append((char) c);
+			}
+			c = read();
+		}
+	}
+
+	private int read() throws IOException {
+		if (pos >= limit && !fill()) {
+			return -1;
+		}
+		return buffer[pos++];
+	}
+
+	private int peek() throws IOException {
+		if (pos >= limit && !fill()) {
+			return -1;
+		}
+		return buffer[pos];
+	}
+
+	private boolean fill() throws IOException {
+		limit = reader.read(buffer, 0, buffer.length);
+		pos = 0;
+		return limit > 0;
+	}
+
+	private static String[] nullToEmpty(String[] values) {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == null) {
+				values[i] = "";
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,254 @@
+package com.deego.transfer;
+
+import com.deego.enums.QueryJobStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据比较任务：两张表按键划分成范围，并行比较各范围，只对不一致的范围继续细分，直到找出不同的行。
+ * 计数由各比较线程并发更新；差异行最多保留 maxDiffs 条，超出后只计数。
+ * <p>
+ * SSE 事件：status（任务快照）、progress（各项计数）；任务结束后再发一次 status 并关闭连接。
+ */
+@Getter
+@Slf4j
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DataCompareJob {
+
+	private final String compareId;
+	private final String sourceConnId;
+	private final String sourceDatabase;
+	private final String source;
+	private final String targetConnId;
+	private final String targetDatabase;
+	private final String target;
+	private final int parallel;
+	private final int maxDiffs;
+	private final Instant submittedAt = Instant.now();
+
+	/**
+	 * hash：两端都是 PostgreSQL，每个范围在服务端计算行数和哈希；rows：各范围的行读到本地逐行比较
+	 */
+	private volatile String method;
+
+	/**
+	 * 键列和参与比较的列（源表列名）
+	 */
+	private volatile List<String> keyColumns;
+	private volatile List<String> columns;
+
+	private volatile QueryJobStatus status = QueryJobStatus.PENDING;
+	private volatile Instant startedAt;
+	private volatile Instant finishedAt;
+	private volatile String error;
+
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong rangesCompared = new AtomicLong();
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong rangesDiffering = new AtomicLong();
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong rowsMatched = new AtomicLong();
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong rowsMissing = new AtomicLong();
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong rowsExtra = new AtomicLong();
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong rowsChanged = new AtomicLong();
+	@Getter(AccessLevel.NONE)
+	private final List<DataDiff> diffs = new ArrayList<>();
+
+	@JsonIgnore
+	private volatile boolean cancelRequested;
+
+	@JsonIgnore
+	private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+	public DataCompareJob(String compareId, String sourceConnId, String sourceDatabase, String source,
+						  String targetConnId, String targetDatabase, String target, int parallel, int maxDiffs) {
+		this.compareId = compareId;
+		this.sourceConnId = sourceConnId;
+		this.sourceDatabase = sourceDatabase;
+		this.source = source;
+		this.targetConnId = targetConnId;
+		this.targetDatabase = targetDatabase;
+		this.target = target;
+		this.parallel = parallel;
+		this.maxDiffs = maxDiffs;
+	}
+
+	/**
+	 * 已比较的范围数（包括细分出来的范围）
+	 */
+	public long getRangesCompared() {
+		return rangesCompared.get();
+	}
+
+	/**
+	 * 哈希不一致的范围数，只有 hash 方式才统计
+	 */
+	public long getRangesDiffering() {
+		return rangesDiffering.get();
+	}
+
+	/**
+	 * 确认一致的行数
+	 */
+	public long getRowsMatched() {
+		return rowsMatched.get();
+	}
+
+	public long getRowsMissing() {
+		return rowsMissing.get();
+	}
+
+	public long getRowsExtra() {
+		return rowsExtra.get();
+	}
+
+	public long getRowsChanged() {
+		return rowsChanged.get();
+	}
+
+	/**
+	 * 两张表的数据完全一致；任务未成功结束时为空
+	 */
+	public Boolean getIdentical() {
+		return status == QueryJobStatus.SUCCEEDED ? getRowsMissing() + getRowsExtra() + getRowsChanged() == 0 : null;
+	}
+
+	/**
+	 * 保留下来的差异行，按发现的顺序
+	 */
+	public List<DataDiff> getDiffs() {
+		synchronized (diffs) {
+			return List.copyOf(diffs);
+		}
+	}
+
+	/**
+	 * 差异行多于 maxDiffs，diffs 不完整
+	 */
+	public boolean isDiffsTruncated() {
+		return getRowsMissing() + getRowsExtra() + getRowsChanged() > getDiffs().size();
+	}
+
+	/**
+	 * 还能保留多少条差异行
+	 */
+	int diffCapacity() {
+		synchronized (diffs) {
+			return maxDiffs - diffs.size();
+		}
+	}
+
+	void compared(long matched) {
+		rangesCompared.incrementAndGet();
+		rowsMatched.addAndGet(matched);
+	}
+
+	void differing() {
+		rangesDiffering.incrementAndGet();
+	}
+
+	/**
+	 * 记录一行差异，超出 maxDiffs 时只计数
+	 */
+	void diff(DataDiff diff) {
+		switch (diff.kind()) {
+			case "missing" -> rowsMissing.incrementAndGet();
+			case "extra" -> rowsExtra.incrementAndGet();
+			default -> rowsChanged.incrementAndGet();
+		}
+		synchronized (diffs) {
+			if (diffs.size() < maxDiffs) {
+				diffs.add(diff);
+			}
+		}
+	}
+
+	/**
+	 * 范围只在一边有数据：整段计入 missing / extra，samples 为其中前若干行（不超过剩余的保留名额）
+	 */
+	void oneSided(String kind, long rows, List<DataDiff> samples) {
+		("missing".equals(kind) ? rowsMissing : rowsExtra).addAndGet(rows);
+		synchronized (diffs) {
+			samples.stream().limit(Math.max(0, maxDiffs - diffs.size())).forEach(diffs::add);
+		}
+	}
+
+	/**
+	 * 订阅任务事件。先补发当前快照，任务已结束时直接关闭
+	 */
+	public SseEmitter subscribe() {
+		SseEmitter emitter = new SseEmitter();
+		emitters.add(emitter);
+		emitter.onCompletion(() -> emitters.remove(emitter));
+		emitter.onTimeout(() -> emitters.remove(emitter));
+		emitter.onError(e -> emitters.remove(emitter));
+		send(emitter, "status", this);
+		if (status.isFinished()) {
+			emitter.complete();
+		}
+		return emitter;
+	}
+
+	void started(String method, List<String> keyColumns, List<String> columns) {
+		this.method = method;
+		this.keyColumns = List.copyOf(keyColumns);
+		this.columns = List.copyOf(columns);
+		startedAt = Instant.now();
+		status = QueryJobStatus.RUNNING;
+		publish("status", this);
+	}
+
+	void cancel() {
+		cancelRequested = true;
+	}
+
+	void progress() {
+		Map<String, Object> progress = new LinkedHashMap<>();
+		progress.put("rangesCompared", getRangesCompared());
+		progress.put("rangesDiffering", getRangesDiffering());
+		progress.put("rowsMatched", getRowsMatched());
+		progress.put("rowsMissing", getRowsMissing());
+		progress.put("rowsExtra", getRowsExtra());
+		progress.put("rowsChanged", getRowsChanged());
+		publish("progress", progress);
+	}
+
+	void finished(QueryJobStatus status, String error) {
+		this.error = error;
+		this.finishedAt = Instant.now();
+		this.status = status;
+		publish("status", this);
+		emitters.forEach(SseEmitter::complete);
+		emitters.clear();
+	}
+
+	private void publish(String event, Object data) {
+		emitters.forEach(emitter -> send(emitter, event, data));
+	}
+
+	private void send(SseEmitter emitter, String event, Object data) {
+		try {
+			emitter.send(SseEmitter.event().name(event).data(data));
+		} catch (IOException | IllegalStateException e) {
+			// 客户端已断开，不影响比较继续执行
+			log.debug("Drop SSE subscriber of compare {}: {}", compareId, e.getMessage());
+			emitters.remove(emitter);
+		}
+	}
+}
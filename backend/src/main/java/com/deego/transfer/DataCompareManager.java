@@ -0,0 +1,757 @@
+package com.deego.transfer;
+
+import com.deego.config.NebulaProperties;
+import com.deego.enums.DatabaseType;
+import com.deego.enums.QueryJobStatus;
+import com.deego.enums.WorkPriority;
+import com.deego.exception.BizException;
+import com.deego.exec.DbExecutor;
+import com.deego.exec.JdbcExecutor;
+import com.deego.exec.StatementHook;
+import com.deego.model.Connection;
+import com.deego.model.param.DataCompareParam;
+import com.deego.service.ConnectionService;
+import com.deego.utils.IdWorker;
+import com.deego.utils.SqlUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ObjectUtils;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 跨连接的数据比较，两张表都不整表读入内存：
+ * <ol>
+ *     <li>按源表的键把整张表划分成每段约 chunkRows 行的范围（row_number() 取等距的键作为边界），范围为 (lower, upper]，首尾两段不设界，
+ *     目标表中超出源表键范围的行也落在某一段里</li>
+ *     <li>各范围并行比较：两端都是 PostgreSQL 时在服务端计算范围内的行数和哈希（各行 64 位哈希求和，与行的顺序无关），
+ *     一致则整段跳过；不一致的范围按行数较多的一端再分成 8 段继续比较，直到不超过 leafRows 行时把两端的行读到本地逐行比较。
+ *     只在一端有数据的范围直接整段计数，不再细分</li>
+ *     <li>其它组合（两端的文本表示不同，无法比较哈希）：各范围先比较行数，不超过 2 万行时读到本地逐行比较，否则细分</li>
+ * </ol>
+ * 每个比较线程占用源和目标各一个 BULK 连接，每条语句结束后归还。
+ */
+@Component
+@Slf4j
+public class DataCompareManager {
+
+	private static final String COMPARE_TIMER = "nebula.transfer.compare";
+
+	/**
+	 * 哈希不一致的范围细分成的段数
+	 */
+	private static final int BISECTION = 8;
+
+	/**
+	 * rows 方式下读到本地比较的范围最多行数，超出时继续细分
+	 */
+	private static final int ROWS_CHUNK = 20_000;
+
+	private static final int MAX_INITIAL_RANGES = 10_000;
+
+	/**
+	 * 是否有列都在键中的唯一索引（包括主键），不含表达式索引和部分索引
+	 */
+	private static final String PG_UNIQUE_INDEX_SQL = """
+			SELECT EXISTS (
+			  SELECT 1
+			  FROM pg_index i
+			  WHERE i.indrelid = to_regclass(?) AND i.indisunique AND i.indexprs IS NULL AND i.indpred IS NULL
+			    AND (SELECT array_agg(lower(a.attname::text)) FROM pg_attribute a
+			         WHERE a.attrelid = i.indrelid AND a.attnum = ANY (i.indkey)) <@ ?::text[])
+			""";
+
+	private static final String PG_PRIMARY_KEY_SQL = """
+			SELECT a.attname
+			FROM pg_index i
+			CROSS JOIN LATERAL unnest(i.indkey) WITH ORDINALITY AS k(attnum, ord)
+			JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = k.attnum
+			WHERE i.indrelid = to_regclass(?) AND i.indisprimary
+			ORDER BY k.ord
+			""";
+
+	@Autowired
+	private ConnectionService connectionService;
+
+	@Autowired
+	private NebulaProperties properties;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	private final Map<String, DataCompareJob> jobs = new ConcurrentHashMap<>();
+
+	public DataCompareJob submit(DataCompareParam param) {
+		if (ObjectUtils.isEmpty(param.getSourceTable())) {
+			throw new BizException("sourceTable is required");
+		}
+		Connection source = relationalConnection(param.getSourceConnId());
+		Connection target = relationalConnection(param.getTargetConnId());
+		String sourceDatabase = ObjectUtils.isEmpty(param.getSourceDatabase()) ? source.getDatabase() : param.getSourceDatabase();
+		String targetDatabase = ObjectUtils.isEmpty(param.getTargetDatabase()) ? target.getDatabase() : param.getTargetDatabase();
+		DatabaseType sourceType = DatabaseType.fromValue(source.getDbType());
+		DatabaseType targetType = DatabaseType.fromValue(target.getDbType());
+		String targetTable = ObjectUtils.isEmpty(param.getTargetTable()) ? param.getSourceTable() : param.getTargetTable();
+
+		boolean samePool = source.getId().equals(target.getId()) && sourceDatabase.equals(targetDatabase);
+		DataCompareJob job = new DataCompareJob(IdWorker.getIdStr(),
+				source.getId(), sourceDatabase, SqlUtils.qualifiedName(sourceType, param.getSourceSchema(), param.getSourceTable()),
+				target.getId(), targetDatabase, SqlUtils.qualifiedName(targetType, param.getTargetSchema(), targetTable),
+				parallelism(param.getParallel(), samePool), param.getMaxDiffs() == null ? 1000 : Math.max(0, param.getMaxDiffs()));
+		jobs.put(job.getCompareId(), job);
+		executor.execute(() -> run(job, param, sourceType, targetType));
+		return job;
+	}
+
+	/**
+	 * 请求取消：正在执行的语句结束后停止，已得到的计数和差异行保留
+	 */
+	public DataCompareJob cancel(String compareId) {
+		DataCompareJob job = get(compareId);
+		job.cancel();
+		return job;
+	}
+
+	public DataCompareJob get(String compareId) {
+		DataCompareJob job = jobs.get(compareId);
+		if (job == null) {
+			throw new BizException("JOB_NOT_FOUND", "Compare job not found or expired: " + compareId);
+		}
+		return job;
+	}
+
+	public void remove(String compareId) {
+		DataCompareJob job = jobs.remove(compareId);
+		if (job != null) {
+			job.cancel();
+		}
+	}
+
+	/**
+	 * 每个比较线程同时占用源和目标各一个 BULK 连接；源和目标是同一个连接池时，一个线程就要占两个名额
+	 */
+	private int parallelism(Integer requested, boolean samePool) {
+		NebulaProperties.Admission admission = properties.getAdmission();
+		int limit = admission.isEnabled() ? admission.getBulkMaxConcurrent() : properties.getPool().getMaximumPoolSize();
+		if (samePool) {
+			limit /= 2;
+		}
+		int parallel = requested == null ? 4 : requested;
+		return Math.max(1, Math.min(parallel, limit));
+	}
+
+	private void run(DataCompareJob job, DataCompareParam param, DatabaseType sourceType, DatabaseType targetType) {
+		long start = System.nanoTime();
+		try {
+			JdbcExecutor sourceExecutor = jdbcExecutor(job.getSourceConnId(), job.getSourceDatabase());
+			JdbcExecutor targetExecutor = jdbcExecutor(job.getTargetConnId(), job.getTargetDatabase());
+			List<String> keys = keyColumns(param, sourceExecutor, sourceType, job.getSource());
+			if (keys.size() > 1 && (!supportsRowValues(sourceType) || !supportsRowValues(targetType))) {
+				throw new BizException("UNSUPPORTED_KEY", "Composite keys are only supported between PostgreSQL and MySQL, use a single keyColumns");
+			}
+			List<ColumnPair> columns = mapColumns(param, keys, job, sourceExecutor, targetExecutor);
+			boolean hash = sourceType == DatabaseType.POSTGRESQL && targetType == DatabaseType.POSTGRESQL;
+			Plan plan = new Plan(side(sourceExecutor, sourceType, job.getSource(), columns, true),
+					side(targetExecutor, targetType, job.getTarget(), columns, false),
+					columns.stream().map(ColumnPair::source).toList(), keys.size(), hash,
+					hash ? positive(param.getLeafRows(), 1000) : ROWS_CHUNK);
+			// 键不唯一时范围边界无法推进，逐行比较时同键的行也会相互覆盖；默认用源表主键时源端无需再检查
+			if (!ObjectUtils.isEmpty(param.getKeyColumns())) {
+				checkUniqueKey(plan.source(), plan, param.getSourceSchema(), param.getSourceTable());
+			}
+			checkUniqueKey(plan.target(), plan, param.getTargetSchema(), ObjectUtils.isEmpty(param.getTargetTable()) ? param.getSourceTable() : param.getTargetTable());
+			job.started(hash ? "hash" : "rows", plan.names().subList(0, plan.keyCount()), plan.names());
+
+			List<KeyRange> initial = initialRanges(job, plan, hash ? positive(param.getChunkRows(), 100_000) : Math.min(positive(param.getChunkRows(), 100_000), ROWS_CHUNK));
+			Throwable failure = compareAll(job, plan, initial);
+			if (failure != null) {
+				throw failure;
+			}
+			if (job.isCancelRequested()) {
+				job.finished(QueryJobStatus.CANCELLED, null);
+			} else {
+				job.finished(QueryJobStatus.SUCCEEDED, null);
+			}
+			log.info("Compared {} with {} in {} ranges: {} matched, {} missing, {} extra, {} changed",
+					job.getSource(), job.getTarget(), job.getRangesCompared(), job.getRowsMatched(),
+					job.getRowsMissing(), job.getRowsExtra(), job.getRowsChanged());
+		} catch (Throwable e) {
+			if (job.isCancelRequested()) {
+				job.finished(QueryJobStatus.CANCELLED, null);
+			} else {
+				String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+				log.debug("Compare {} with {} failed: {}", job.getSource(), job.getTarget(), message);
+				job.finished(QueryJobStatus.FAILED, message);
+			}
+		} finally {
+			Timer.builder(COMPARE_TIMER)
+				 .description("Time to compare the data of two tables")
+				 .tag("source", job.getSourceConnId())
+				 .tag("target", job.getTargetConnId())
+				 .tag("status", job.getStatus().name().toLowerCase(Locale.ROOT))
+				 .register(meterRegistry)
+				 .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * 按估算行数划分初始范围；行数较少时不划分，仍至少分成 parallel 段让各线程都有事做
+	 */
+	private List<KeyRange> initialRanges(DataCompareJob job, Plan plan, int chunkRows) {
+		long rows = estimateRows(plan.source());
+		long parts = Math.min(MAX_INITIAL_RANGES, (rows + chunkRows - 1) / chunkRows);
+		if (parts < job.getParallel() && rows > (long) plan.leafRows() * job.getParallel()) {
+			parts = job.getParallel();
+		}
+		if (parts <= 1) {
+			return List.of(KeyRange.ALL);
+		}
+		return KeyRange.ALL.split(boundaries(plan.source(), plan, KeyRange.ALL, rows, (int) parts));
+	}
+
+	/**
+	 * 比较线程共享一个待比较范围的双端队列，细分出来的范围放回队尾，并优先处理（深度优先，队列不会膨胀）。
+	 * outstanding 为已入队但未处理完的范围数，降到 0 时全部完成。返回第一个失败，没有失败时为 null
+	 */
+	private Throwable compareAll(DataCompareJob job, Plan plan, List<KeyRange> initial) throws InterruptedException {
+		Deque<KeyRange> pending = new ConcurrentLinkedDeque<>(initial);
+		AtomicInteger outstanding = new AtomicInteger(initial.size());
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<Thread> workers = new ArrayList<>();
+		for (int i = 0; i < job.getParallel(); i++) {
+			workers.add(Thread.ofVirtual().name("compare-" + job.getCompareId() + "-" + (i + 1)).start(() -> {
+				while (!job.isCancelRequested() && failure.get() == null && outstanding.get() > 0) {
+					KeyRange range = pending.pollLast();
+					if (range == null) {
+						// 其它线程还在处理，可能会细分出新的范围
+						LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+						continue;
+					}
+					try {
+						List<KeyRange> parts = compareRange(job, plan, range);
+						outstanding.addAndGet(parts.size());
+						parts.forEach(pending::addLast);
+					} catch (Exception e) {
+						failure.compareAndSet(null, e);
+					} finally {
+						outstanding.decrementAndGet();
+					}
+				}
+			}));
+		}
+		long progressInterval = properties.getJob().getProgressInterval().toMillis();
+		for (Thread worker : workers) {
+			while (!worker.join(Duration.ofMillis(progressInterval))) {
+				job.progress();
+			}
+		}
+		return failure.get();
+	}
+
+	/**
+	 * 比较一个范围，返回需要继续比较的子范围
+	 */
+	private List<KeyRange> compareRange(DataCompareJob job, Plan plan, KeyRange range) {
+		RangeStat source = stat(plan.source(), plan, range);
+		RangeStat target = stat(plan.target(), plan, range);
+		if (plan.hash() && source.rows() == target.rows() && source.hash().equals(target.hash())) {
+			job.compared(source.rows());
+			return List.of();
+		}
+		if (plan.hash()) {
+			job.differing();
+			if (source.rows() == 0 || target.rows() == 0) {
+				boolean missing = target.rows() == 0;
+				oneSided(job, plan, missing ? plan.source() : plan.target(), missing ? "missing" : "extra", range, Math.max(source.rows(), target.rows()));
+				job.compared(0);
+				return List.of();
+			}
+		}
+		long rows = Math.max(source.rows(), target.rows());
+		if (rows <= plan.leafRows()) {
+			job.compared(compareRows(job, plan, range));
+			return List.of();
+		}
+		Side larger = source.rows() >= target.rows() ? plan.source() : plan.target();
+		List<KeyRange> parts = range.split(boundaries(larger, plan, range, rows, BISECTION));
+		if (parts.size() <= 1) {
+			// 边界没有推进（不应出现，键已检查过唯一），不再细分，直接逐行比较
+			job.compared(compareRows(job, plan, range));
+			return List.of();
+		}
+		job.compared(0);
+		return parts;
+	}
+
+	/**
+	 * 范围内的行数；hash 方式同时计算各行文本表示的 64 位哈希之和（numeric，不会溢出），数值列先去掉末尾的 0，见 {@link #numericText}。
+	 * hashtextextended 是哈希分区使用的函数，跨版本稳定（PostgreSQL 11 起），比 md5 快一倍左右
+	 */
+	private RangeStat stat(Side side, Plan plan, KeyRange range) {
+		List<Object> args = new ArrayList<>();
+		String where = where(side, plan, range, args);
+		String sql = plan.hash()
+				? "SELECT count(*), coalesce(sum(hashtextextended(ROW(" + String.join(", ", side.texts()) + ")::text, 0)), 0)::text FROM "
+				  + side.table() + where
+				: "SELECT count(*) FROM " + side.table() + where;
+		return side.executor().query(sql, args.toArray(), StatementHook.NONE, rs -> {
+			rs.next();
+			return new RangeStat(rs.getLong(1), plan.hash() ? rs.getString(2) : null);
+		});
+	}
+
+	/**
+	 * 范围内按键等距取 parts - 1 个边界（row_number() 为 step 的倍数的键），rows 为该端范围内的行数
+	 */
+	private List<Object[]> boundaries(Side side, Plan plan, KeyRange range, long rows, int parts) {
+		List<Object> args = new ArrayList<>();
+		String keys = String.join(", ", side.keys(plan));
+		String where = where(side, plan, range, args);
+		long step = Math.max(1, (rows + parts - 1) / parts);
+		args.add(step);
+		String mod = side.type() == DatabaseType.SQLSERVER ? "rn % ? = 0" : "MOD(rn, ?) = 0";
+		String sql = "SELECT " + keys + " FROM (SELECT " + keys + ", row_number() OVER (ORDER BY " + keys + ") AS rn FROM " + side.table() + where
+				+ ") s WHERE " + mod + " ORDER BY rn";
+		return side.executor().query(sql, args.toArray(), StatementHook.NONE, rs -> {
+			List<Object[]> bounds = new ArrayList<>();
+			while (rs.next()) {
+				Object[] key = new Object[plan.keyCount()];
+				for (int i = 0; i < key.length; i++) {
+					key[i] = rs.getObject(i + 1);
+				}
+				bounds.add(key);
+			}
+			return bounds;
+		});
+	}
+
+	/**
+	 * 把两端范围内的行读到本地，按键对应后逐列比较，返回一致的行数
+	 */
+	private long compareRows(DataCompareJob job, Plan plan, KeyRange range) {
+		Map<List<Object>, Object[]> source = rows(plan.source(), plan, range);
+		Map<List<Object>, Object[]> target = rows(plan.target(), plan, range);
+		long matched = 0;
+		for (Map.Entry<List<Object>, Object[]> row : target.entrySet()) {
+			Object[] expected = source.remove(row.getKey());
+			if (expected == null) {
+				job.diff(new DataDiff("extra", plan.key(row.getKey()), null));
+				continue;
+			}
+			List<String> changed = new ArrayList<>();
+			for (int i = 0; i < expected.length; i++) {
+				if (!Objects.equals(expected[i], row.getValue()[i])) {
+					changed.add(plan.names().get(plan.keyCount() + i));
+				}
+			}
+			if (changed.isEmpty()) {
+				matched++;
+			} else {
+				job.diff(new DataDiff("changed", plan.key(row.getKey()), changed));
+			}
+		}
+		source.keySet().forEach(key -> job.diff(new DataDiff("missing", plan.key(key), null)));
+		return matched;
+	}
+
+	/**
+	 * 键 -> 非键列的值。hash 方式各列取 PostgreSQL 的文本表示（与哈希所用的一致），rows 方式把数值、二进制等转成可比较的文本
+	 */
+	private Map<List<Object>, Object[]> rows(Side side, Plan plan, KeyRange range) {
+		List<Object> args = new ArrayList<>();
+		String where = where(side, plan, range, args);
+		String select = String.join(", ", plan.hash() ? side.texts() : side.columns());
+		return side.executor().query("SELECT " + select + " FROM " + side.table() + where, args.toArray(), StatementHook.NONE, rs -> {
+			int columnCount = rs.getMetaData().getColumnCount();
+			Map<List<Object>, Object[]> rows = new HashMap<>();
+			while (rs.next()) {
+				Object[] key = new Object[plan.keyCount()];
+				Object[] values = new Object[columnCount - plan.keyCount()];
+				for (int i = 0; i < columnCount; i++) {
+					Object value = comparable(rs.getObject(i + 1));
+					if (i < key.length) {
+						key[i] = value;
+					} else {
+						values[i - key.length] = value;
+					}
+				}
+				if (rows.put(Arrays.asList(key), values) != null) {
+					throw new BizException("DUPLICATE_KEY", "Key " + Arrays.toString(key) + " is not unique in " + side.table());
+				}
+			}
+			return rows;
+		});
+	}
+
+	/**
+	 * 只在一端有数据的范围：整段计数，按键顺序取前若干行作为差异样本
+	 */
+	private void oneSided(DataCompareJob job, Plan plan, Side side, String kind, KeyRange range, long rows) {
+		List<DataDiff> samples = new ArrayList<>();
+		int capacity = job.diffCapacity();
+		if (capacity > 0) {
+			// 只有 hash 方式（PostgreSQL）会走到这里
+			List<Object> args = new ArrayList<>();
+			String where = where(side, plan, range, args);
+			args.add(capacity);
+			List<String> keys = side.keys(plan);
+			String sql = "SELECT " + String.join(", ", keys.stream().map(k -> k + "::text").toList()) + " FROM " + side.table() + where
+					+ " ORDER BY " + String.join(", ", keys) + " LIMIT ?";
+			side.executor().query(sql, args.toArray(), StatementHook.NONE, rs -> {
+				while (rs.next()) {
+					List<Object> key = new ArrayList<>();
+					for (int i = 1; i <= plan.keyCount(); i++) {
+						key.add(rs.getString(i));
+					}
+					samples.add(new DataDiff(kind, plan.key(key), null));
+				}
+				return null;
+			});
+		}
+		job.oneSided(kind, rows, samples);
+	}
+
+	private static String where(Side side, Plan plan, KeyRange range, List<Object> args) {
+		List<String> keys = side.keys(plan);
+		String tuple = keys.size() == 1 ? keys.get(0) : "(" + String.join(", ", keys) + ")";
+		String params = keys.size() == 1 ? "?" : "(" + String.join(", ", Collections.nCopies(keys.size(), "?")) + ")";
+		List<String> conditions = new ArrayList<>();
+		if (range.lower() != null) {
+			conditions.add(tuple + " > " + params);
+			args.addAll(Arrays.asList(range.lower()));
+		}
+		if (range.upper() != null) {
+			conditions.add(tuple + " <= " + params);
+			args.addAll(Arrays.asList(range.upper()));
+		}
+		return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+	}
+
+	/**
+	 * 数值统一成去掉末尾 0 的十进制文本（两端的列类型可能不同，如 int 与 bigint、numeric(10,2) 与 numeric(12,4)），二进制转成十六进制；
+	 * 时间统一成 java.time 类型（PostgreSQL 驱动返回 java.sql.Timestamp，MySQL 驱动返回 LocalDateTime），带时区的按时刻比较
+	 */
+	static Object comparable(Object value) {
+		return switch (value) {
+			case null -> null;
+			case String s -> s;
+			case Timestamp t -> t.toLocalDateTime();
+			case java.sql.Date d -> d.toLocalDate();
+			case Time t -> t.toLocalTime();
+			case OffsetDateTime t -> t.toInstant();
+			case ZonedDateTime t -> t.toInstant();
+			case BigDecimal d -> d.signum() == 0 ? "0" : d.stripTrailingZeros().toPlainString();
+			case Number n -> {
+				try {
+					yield comparable(new BigDecimal(n.toString()));
+				} catch (NumberFormatException e) {
+					// NaN、Infinity
+					yield n.toString();
+				}
+			}
+			case byte[] bytes -> HexFormat.of().formatHex(bytes);
+			default -> value.toString();
+		};
+	}
+
+	private static boolean supportsRowValues(DatabaseType type) {
+		return type == DatabaseType.POSTGRESQL || type == DatabaseType.MYSQL;
+	}
+
+	private static int positive(Integer value, int defaultValue) {
+		return value == null || value <= 0 ? defaultValue : value;
+	}
+
+	/**
+	 * 键列：请求指定的或源表的主键
+	 */
+	private List<String> keyColumns(DataCompareParam param, JdbcExecutor source, DatabaseType type, String table) {
+		if (!ObjectUtils.isEmpty(param.getKeyColumns())) {
+			return param.getKeyColumns();
+		}
+		List<String> keys;
+		if (type == DatabaseType.POSTGRESQL) {
+			keys = source.queryForList(PG_PRIMARY_KEY_SQL, String.class, table);
+		} else {
+			keys = source.withConnection(con -> {
+				Map<Short, String> ordered = new TreeMap<>();
+				try (ResultSet rs = con.getMetaData().getPrimaryKeys(con.getCatalog(),
+						ObjectUtils.isEmpty(param.getSourceSchema()) ? null : param.getSourceSchema(), param.getSourceTable())) {
+					while (rs.next()) {
+						ordered.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+					}
+				}
+				return new ArrayList<>(ordered.values());
+			});
+		}
+		if (keys.isEmpty()) {
+			throw new BizException("NO_PRIMARY_KEY", "Table " + table + " has no primary key, keyColumns is required");
+		}
+		return keys;
+	}
+
+	/**
+	 * 两端按列名对应（不区分大小写），键列在前
+	 */
+	private List<ColumnPair> mapColumns(DataCompareParam param, List<String> keys, DataCompareJob job, JdbcExecutor source, JdbcExecutor target) {
+		Map<String, Integer> sourceColumns = columnTypes(source, job.getSource());
+		Map<String, String> sourceByName = new HashMap<>();
+		sourceColumns.keySet().forEach(c -> sourceByName.putIfAbsent(c.toLowerCase(Locale.ROOT), c));
+		Map<String, Integer> targetColumns = columnTypes(target, job.getTarget());
+		Map<String, String> targetByName = new HashMap<>();
+		targetColumns.keySet().forEach(c -> targetByName.putIfAbsent(c.toLowerCase(Locale.ROOT), c));
+
+		boolean explicit = !ObjectUtils.isEmpty(param.getColumns());
+		Map<String, ColumnPair> columns = new LinkedHashMap<>();
+		for (String key : keys) {
+			String sourceName = sourceByName.get(key.toLowerCase(Locale.ROOT));
+			String targetName = targetByName.get(key.toLowerCase(Locale.ROOT));
+			if (sourceName == null || targetName == null) {
+				throw new BizException("COLUMN_NOT_FOUND", "Key column " + key + " not found in " + (sourceName == null ? job.getSource() : job.getTarget()));
+			}
+			columns.put(sourceName.toLowerCase(Locale.ROOT), pair(sourceName, targetName, sourceColumns, targetColumns));
+		}
+		for (String column : explicit ? param.getColumns() : sourceColumns.keySet()) {
+			String name = column.toLowerCase(Locale.ROOT);
+			String sourceName = sourceByName.get(name);
+			String targetName = targetByName.get(name);
+			if (sourceName != null && targetName != null) {
+				columns.putIfAbsent(name, pair(sourceName, targetName, sourceColumns, targetColumns));
+			} else if (explicit) {
+				throw new BizException("COLUMN_NOT_FOUND", "Column " + column + " not found in " + (sourceName == null ? job.getSource() : job.getTarget()));
+			}
+		}
+		return new ArrayList<>(columns.values());
+	}
+
+	private static ColumnPair pair(String source, String target, Map<String, Integer> sourceTypes, Map<String, Integer> targetTypes) {
+		return new ColumnPair(source, target, isDecimal(sourceTypes.get(source)) || isDecimal(targetTypes.get(target)));
+	}
+
+	private static boolean isDecimal(Integer jdbcType) {
+		return jdbcType != null && (jdbcType == Types.NUMERIC || jdbcType == Types.DECIMAL);
+	}
+
+	/**
+	 * 列名 -> JDBC 类型，按表中的顺序
+	 */
+	private static Map<String, Integer> columnTypes(JdbcExecutor executor, String table) {
+		return executor.query("SELECT * FROM " + table + " WHERE 1 = 0", StatementHook.NONE, rs -> {
+			ResultSetMetaData meta = rs.getMetaData();
+			Map<String, Integer> types = new LinkedHashMap<>();
+			for (int i = 1; i <= meta.getColumnCount(); i++) {
+				types.putIfAbsent(meta.getColumnName(i), meta.getColumnType(i));
+			}
+			return types;
+		});
+	}
+
+	private static Side side(JdbcExecutor executor, DatabaseType type, String table, List<ColumnPair> columns, boolean source) {
+		List<String> quoted = new ArrayList<>();
+		List<String> texts = new ArrayList<>();
+		for (ColumnPair column : columns) {
+			String name = SqlUtils.quoteIdent(type, source ? column.source() : column.target());
+			quoted.add(name);
+			texts.add(column.decimal() ? numericText(name) : name + "::text");
+		}
+		return new Side(executor, type, table, quoted, texts);
+	}
+
+	/**
+	 * numeric 的文本表示带着列的标度（numeric(10,2) 的 1.50 与 numeric(12,4) 的 1.5000），去掉小数部分末尾的 0 后再比较和哈希。
+	 * 不用 trim_scale()，它在 PostgreSQL 13 才有
+	 */
+	static String numericText(String column) {
+		return "CASE WHEN " + column + "::text LIKE '%.%' THEN rtrim(rtrim(" + column + "::text, '0'), '.') ELSE " + column + "::text END";
+	}
+
+	/**
+	 * 确认键在该端唯一：有主键或唯一索引（列都在键中，不含表达式和部分索引）时直接通过，否则查一次重复的键。
+	 * 这次查询要扫描整张表，建议给键列建唯一索引
+	 */
+	private void checkUniqueKey(Side side, Plan plan, String schema, String table) {
+		List<String> keys = plan.names().subList(0, plan.keyCount());
+		if (hasUniqueIndex(side, schema, table, keys)) {
+			return;
+		}
+		String keyList = String.join(", ", side.keys(plan));
+		List<Long> duplicates = side.executor().queryForList("SELECT count(*) FROM (SELECT " + keyList + " FROM " + side.table()
+				+ " GROUP BY " + keyList + " HAVING count(*) > 1) d", Long.class);
+		if (!duplicates.isEmpty() && duplicates.get(0) > 0) {
+			throw new BizException("DUPLICATE_KEY", "keyColumns " + keys + " are not unique in " + side.table() + " ("
+					+ duplicates.get(0) + " duplicated keys), choose a unique key");
+		}
+	}
+
+	private static boolean hasUniqueIndex(Side side, String schema, String table, List<String> keys) {
+		Set<String> keySet = new HashSet<>();
+		keys.forEach(k -> keySet.add(k.toLowerCase(Locale.ROOT)));
+		if (side.type() == DatabaseType.POSTGRESQL) {
+			List<Boolean> found = side.executor().queryForList(PG_UNIQUE_INDEX_SQL, Boolean.class, side.table(), keySet.toArray(new String[0]));
+			return !found.isEmpty() && Boolean.TRUE.equals(found.get(0));
+		}
+		return side.executor().withConnection(con -> {
+			Map<String, Set<String>> indexes = new HashMap<>();
+			try (ResultSet rs = con.getMetaData().getIndexInfo(con.getCatalog(), ObjectUtils.isEmpty(schema) ? null : schema, table, true, true)) {
+				while (rs.next()) {
+					String index = rs.getString("INDEX_NAME");
+					String column = rs.getString("COLUMN_NAME");
+					if (index == null) {
+						continue;
+					}
+					// 表达式索引没有列名，不能用来证明唯一
+					indexes.computeIfAbsent(index, k -> new HashSet<>()).add(column == null ? "" : column.toLowerCase(Locale.ROOT));
+				}
+			}
+			return indexes.values().stream().anyMatch(keySet::containsAll);
+		});
+	}
+
+	/**
+	 * PostgreSQL 取 reltuples（从未 ANALYZE 时退回 count(*)），其它数据库直接 count(*)；只用于决定初始划分的段数
+	 */
+	private static long estimateRows(Side side) {
+		if (side.type() == DatabaseType.POSTGRESQL) {
+			List<Long> found = side.executor().queryForList("SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)", Long.class, side.table());
+			if (!found.isEmpty() && found.get(0) != null && found.get(0) > 0) {
+				return found.get(0);
+			}
+		}
+		return side.executor().queryForList("SELECT count(*) FROM " + side.table(), Long.class).get(0);
+	}
+
+	private Connection relationalConnection(String connId) {
+		Connection conn = connectionService.getConnection(connId)
+										   .orElseThrow(() -> new BizException("Connection not found: " + connId));
+		if (!DatabaseType.fromValue(conn.getDbType()).isRelational()) {
+			throw new BizException("UNSUPPORTED_DB_TYPE", "Data compare is only supported between relational connections");
+		}
+		return conn;
+	}
+
+	private JdbcExecutor jdbcExecutor(String connId, String database) {
+		// 比较会扫描整张表，按 BULK 排队
+		DbExecutor executor = connectionService.getExecutor(connId, database, WorkPriority.BULK);
+		if (executor instanceof JdbcExecutor jdbcExecutor) {
+			return jdbcExecutor;
+		}
+		throw new BizException("Not a relational executor for connection " + connId);
+	}
+
+	/**
+	 * 定期清理已结束且超过保留时间的任务
+	 */
+	@Scheduled(fixedDelay = 60_000L)
+	public void evictFinished() {
+		Instant deadline = Instant.now().minus(properties.getJob().getRetention());
+		jobs.values().stream()
+			.filter(job -> job.getStatus().isFinished() && job.getFinishedAt() != null && job.getFinishedAt().isBefore(deadline))
+			.map(DataCompareJob::getCompareId)
+			.toList()
+			.forEach(this::remove);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		List.copyOf(jobs.keySet()).forEach(this::remove);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * 一端的表：columns 为加好引号的列名，前 keyCount 个是键列；texts 为 hash 方式下各列的文本表达式
+	 */
+	private record Side(JdbcExecutor executor, DatabaseType type, String table, List<String> columns, List<String> texts) {
+
+		List<String> keys(Plan plan) {
+			return columns.subList(0, plan.keyCount());
+		}
+	}
+
+	/**
+	 * names 为源表的列名（键列在前），leafRows 为逐行比较的范围行数上限
+	 */
+	private record Plan(Side source, Side target, List<String> names, int keyCount, boolean hash, int leafRows) {
+
+		Map<String, Object> key(List<Object> values) {
+			Map<String, Object> key = new LinkedHashMap<>();
+			for (int i = 0; i < keyCount; i++) {
+				key.put(names.get(i), values.get(i));
+			}
+			return key;
+		}
+	}
+
+	private record RangeStat(long rows, String hash) {
+	}
+
+	/**
+	 * 两端对应的列；decimal 表示任一端是 numeric / decimal，hash 方式下按去掉末尾 0 的文本比较
+	 */
+	private record ColumnPair(String source, String target, boolean decimal) {
+	}
+
+	/**
+	 * 键的范围 (lower, upper]，为 null 的一端不设界
+	 */
+	record KeyRange(Object[] lower, Object[] upper) {
+
+		static final KeyRange ALL = new KeyRange(null, null);
+
+		/**
+		 * 按升序的边界切分；与前一个边界或本范围上界相同的边界不产生新范围（空范围 (k, k]），
+		 * 边界都无效时只返回本范围一段，调用方据此停止细分
+		 */
+		List<KeyRange> split(List<Object[]> bounds) {
+			List<KeyRange> parts = new ArrayList<>(bounds.size() + 1);
+			Object[] previous = lower;
+			for (Object[] bound : bounds) {
+				if (Arrays.equals(bound, previous) || Arrays.equals(bound, upper)) {
+					continue;
+				}
+				parts.add(new KeyRange(previous, bound));
+				previous = bound;
+			}
+			parts.add(new KeyRange(previous, upper));
+			return parts;
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package com.deego.transfer;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一行差异。kind：missing（只在源表中）、extra（只在目标表中）、changed（两边都有但值不同，columns 为不同的列）
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record DataDiff(String kind, Map<String, Object> key, List<String> columns) {
+}
@@ -0,0 +1,86 @@
+package com.deego.transfer;
+
+import org.springframework.util.StreamUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 导出到服务器文件：数据先写入同目录下的 &lt;target&gt;.partial，{@link #commit()} 完成压缩后才改名为目标文件；
+ * 未 commit 就 close（导出失败）时放弃压缩流、不写出压缩尾，并删除 .partial，不会留下看起来完整的截断文件。
+ * <pre>
+ * try (ExportFile file = ExportFile.open(target, compression, 64 * 1024, "export-compress")) {
+ *     write(file.stream());
+ *     file.commit();
+ * }
+ * </pre>
+ */
+public final class ExportFile implements Closeable {
+
+	public static final String PARTIAL_SUFFIX = ".partial";
+
+	private final Path target;
+	private final Path partial;
+	private final OutputStream sink;
+	private boolean done;
+
+	private ExportFile(Path target, Path partial, OutputStream sink) {
+		this.target = target;
+		this.partial = partial;
+		this.sink = sink;
+	}
+
+	public static ExportFile open(Path target, Compression compression, int bufferSize, String name) throws IOException {
+		Path partial = target.resolveSibling(target.getFileName() + PARTIAL_SUFFIX);
+		OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), bufferSize);
+		try {
+			return new ExportFile(target, partial, compression.pipelined(out, name));
+		} catch (IOException e) {
+			out.close();
+			Files.deleteIfExists(partial);
+			throw e;
+		}
+	}
+
+	/**
+	 * 写入的流；关闭它不会结束文件（只 flush），文件的结束只由 commit/close 决定
+	 */
+	public OutputStream stream() {
+		return StreamUtils.nonClosing(sink);
+	}
+
+	/**
+	 * 完成压缩并改名为目标文件（覆盖已有文件）
+	 */
+	public void commit() throws IOException {
+		done = true;
+		sink.close();
+		try {
+			Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * 未 commit 时放弃写入并删除 .partial；commit 失败时同样删除残留的 .partial
+	 */
+	@Override
+	public void close() {
+		if (!done) {
+			done = true;
+			Compression.abort(sink);
+		}
+		try {
+			Files.deleteIfExists(partial);
+		} catch (IOException e) {
+			// 已经在出错的路径上
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package com.deego.transfer;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 导入的目标列，负责把源文件中的文本值转换成列类型对应的值。
+ * 数值和布尔在客户端校验并规范化，失败的记录单独记错而不会让整批写入失败；
+ * 日期时间等其它类型原样交给数据库解析。
+ *
+ * @param jdbcType {@link Types} 中的类型
+ */
+public record ImportColumn(String name, int jdbcType, String typeName) {
+
+	private static final Set<String> TRUE_VALUES = Set.of("true", "t", "1", "yes", "y", "on");
+	private static final Set<String> FALSE_VALUES = Set.of("false", "f", "0", "no", "n", "off");
+
+	/**
+	 * 转换源文件中的值；非字符类型的空白值视为 NULL
+	 *
+	 * @throws IllegalArgumentException 值不能转换成列类型
+	 */
+	public Object coerce(String raw) {
+		if (raw == null) {
+			return null;
+		}
+		if (isText()) {
+			return raw;
+		}
+		String value = raw.trim();
+		if (value.isEmpty()) {
+			return null;
+		}
+		return switch (jdbcType) {
+			// PostgreSQL 的 boolean 也报告为 BIT；真正的位串类型原样交给数据库
+			case Types.BOOLEAN, Types.BIT -> typeName != null && typeName.toLowerCase(Locale.ROOT).contains("bit") ? value : toBoolean(value);
+			case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> toInteger(value);
+			case Types.NUMERIC, Types.DECIMAL -> toDecimal(value);
+			case Types.REAL, Types.FLOAT, Types.DOUBLE -> toFloat(value);
+			default -> value;
+		};
+	}
+
+	private boolean isText() {
+		return switch (jdbcType) {
+			case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR, Types.NCHAR, Types.NVARCHAR, Types.LONGNVARCHAR, Types.CLOB, Types.NCLOB -> true;
+			default -> false;
+		};
+	}
+
+	private Boolean toBoolean(String value) {
+		String lower = value.toLowerCase(Locale.ROOT);
+		if (TRUE_VALUES.contains(lower)) {
+			return Boolean.TRUE;
+		}
+		if (FALSE_VALUES.contains(lower)) {
+			return Boolean.FALSE;
+		}
+		throw new IllegalArgumentException("invalid boolean '" + value + "'");
+	}
+
+	private Long toInteger(String value) {
+		try {
+			// 接受 1.0、1e3 这类等值于整数的写法
+			return new BigDecimal(value).longValueExact();
+		} catch (NumberFormatException | ArithmeticException e) {
+			throw new IllegalArgumentException("invalid integer '" + value + "'");
+		}
+	}
+
+	private BigDecimal toDecimal(String value) {
+		try {
+			return new BigDecimal(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("invalid number '" + value + "'");
+		}
+	}
+
+	private Object toFloat(String value) {
+		try {
+			return Double.valueOf(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("invalid number '" + value + "'");
+		}
+	}
+}
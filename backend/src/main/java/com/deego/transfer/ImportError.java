@@ -0,0 +1,10 @@
+package com.deego.transfer;
+
+/**
+ * 导入中的一个错误。行号是源文件中数据记录的序号（从 1 开始，不含表头）；
+ * 类型转换错误只涉及一行，批次写入失败时为整批的行范围
+ *
+ * @param column 转换失败的目标列，批次错误时为 null
+ */
+public record ImportError(long fromRow, long toRow, String column, String message) {
+}
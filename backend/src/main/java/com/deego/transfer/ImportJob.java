@@ -0,0 +1,222 @@
+package com.deego.transfer;
+
+import com.deego.enums.QueryJobStatus;
+import com.deego.model.param.ImportParam;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 异步导入任务。源文件增量解析后分批写入目标表，每批提交后推进 checkpoint；
+ * 失败或取消后可以从 checkpoint 继续导入，已提交的批次不会重复写入。
+ * <p>
+ * SSE 事件：status（任务快照）、progress（{bytesRead, rowsRead, rowsImported, rowsRejected}）；任务结束后再发一次 status 并关闭连接。
+ */
+@Getter
+@Slf4j
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportJob {
+
+	/**
+	 * 最多保留的错误明细条数，errorCount 仍然统计全部错误
+	 */
+	private static final int MAX_ERROR_DETAILS = 100;
+
+	private final String importId;
+	private final String connId;
+	private final String database;
+	private final String table;
+	private final SourceFormat format;
+	private final String sourceName;
+	private final long totalBytes;
+	private final Instant submittedAt = Instant.now();
+
+	private volatile QueryJobStatus status = QueryJobStatus.PENDING;
+	private volatile Instant startedAt;
+	private volatile Instant finishedAt;
+	/**
+	 * bytesRead、rowsRead、rowsRejected、errorCount 和 errors 只统计本次执行，继续导入时重新计数（maxErrors 也按本次计算）；
+	 * rowsImported 和批次数累计所有执行
+	 */
+	private volatile long bytesRead;
+	private volatile long rowsRead;
+	private volatile long rowsImported;
+	private volatile long rowsRejected;
+	private volatile long batchesCommitted;
+	private volatile long batchesFailed;
+
+	/**
+	 * 已经处理完（提交或按 onError=skip 放弃）的源记录数，继续导入时跳过这些记录
+	 */
+	private volatile long checkpoint;
+
+	private volatile long errorCount;
+	private volatile String error;
+
+	/**
+	 * 由 this 保护，序列化时通过 {@link #getErrors()} 取副本，避免与写入线程并发修改
+	 */
+	private final List<ImportError> errors = new ArrayList<>();
+
+	@JsonIgnore
+	private final ImportParam param;
+
+	@JsonIgnore
+	private final Path source;
+
+	/**
+	 * 源文件是上传后保存的临时文件，任务清理时删除
+	 */
+	@JsonIgnore
+	private final boolean uploaded;
+
+	@JsonIgnore
+	private volatile boolean cancelRequested;
+
+	@JsonIgnore
+	private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+	public ImportJob(String importId, String connId, String database, String table, ImportParam param,
+					 Path source, String sourceName, long totalBytes, boolean uploaded) {
+		this.importId = importId;
+		this.connId = connId;
+		this.database = database;
+		this.table = table;
+		this.format = SourceFormat.from(param.getFormat());
+		this.param = param;
+		this.source = source;
+		this.sourceName = sourceName;
+		this.totalBytes = totalBytes;
+		this.uploaded = uploaded;
+		this.checkpoint = param.getSkipRows() == null ? 0 : Math.max(param.getSkipRows(), 0);
+	}
+
+	/**
+	 * 已读取的源文件比例（0-100）
+	 */
+	public double getPercent() {
+		return totalBytes <= 0 ? 0 : Math.min(100.0, bytesRead * 100.0 / totalBytes);
+	}
+
+	public synchronized List<ImportError> getErrors() {
+		return List.copyOf(errors);
+	}
+
+	/**
+	 * 订阅任务事件。先补发当前快照，任务已结束时直接关闭
+	 */
+	public SseEmitter subscribe() {
+		SseEmitter emitter = new SseEmitter();
+		emitters.add(emitter);
+		emitter.onCompletion(() -> emitters.remove(emitter));
+		emitter.onTimeout(() -> emitters.remove(emitter));
+		emitter.onError(e -> emitters.remove(emitter));
+		send(emitter, "status", this);
+		if (status.isFinished()) {
+			emitter.complete();
+		}
+		return emitter;
+	}
+
+	/**
+	 * 失败或取消的任务重新置为排队状态并清零本次执行的计数；其它状态不变。返回切换前的状态，
+	 * 检查和切换在同一个锁内完成，并发调用时只有一个会看到 FAILED / CANCELLED
+	 */
+	synchronized QueryJobStatus requeue() {
+		QueryJobStatus previous = status;
+		if (previous == QueryJobStatus.FAILED || previous == QueryJobStatus.CANCELLED) {
+			cancelRequested = false;
+			error = null;
+			finishedAt = null;
+			bytesRead = 0;
+			rowsRead = 0;
+			rowsRejected = 0;
+			errorCount = 0;
+			errors.clear();
+			status = QueryJobStatus.PENDING;
+		}
+		return previous;
+	}
+
+	void started() {
+		startedAt = Instant.now();
+		status = QueryJobStatus.RUNNING;
+		publish("status", this);
+	}
+
+	void cancel() {
+		cancelRequested = true;
+	}
+
+	void read(long bytesRead) {
+		this.bytesRead = bytesRead;
+		this.rowsRead++;
+	}
+
+	synchronized void rejected(long row, String column, String message) {
+		rowsRejected++;
+		addError(new ImportError(row, row, column, message));
+	}
+
+	void batchCommitted(long lastRow, long rows) {
+		rowsImported += rows;
+		batchesCommitted++;
+		checkpoint = lastRow;
+	}
+
+	void batchFailed(long fromRow, long toRow, String message) {
+		batchesFailed++;
+		addError(new ImportError(fromRow, toRow, null, message));
+	}
+
+	/**
+	 * onError=skip 时放弃失败的批次，继续导入时不再重试
+	 */
+	void batchSkipped(long lastRow) {
+		checkpoint = lastRow;
+	}
+
+	void progress() {
+		publish("progress", Map.of("bytesRead", bytesRead, "rowsRead", rowsRead, "rowsImported", rowsImported, "rowsRejected", rowsRejected));
+	}
+
+	void finished(QueryJobStatus status, String error) {
+		this.error = error;
+		this.finishedAt = Instant.now();
+		this.status = status;
+		publish("status", this);
+		emitters.forEach(SseEmitter::complete);
+		emitters.clear();
+	}
+
+	private synchronized void addError(ImportError importError) {
+		errorCount++;
+		if (errors.size() < MAX_ERROR_DETAILS) {
+			errors.add(importError);
+		}
+	}
+
+	private void publish(String event, Object data) {
+		emitters.forEach(emitter -> send(emitter, event, data));
+	}
+
+	private void send(SseEmitter emitter, String event, Object data) {
+		try {
+			emitter.send(SseEmitter.event().name(event).data(data));
+		} catch (IOException | IllegalStateException e) {
+			// 客户端已断开，不影响导入继续执行
+			log.debug("Drop SSE subscriber of import {}: {}", importId, e.getMessage());
+			emitters.remove(emitter);
+		}
+	}
+}
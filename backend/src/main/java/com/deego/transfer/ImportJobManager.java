@@ -0,0 +1,494 @@
+package com.deego.transfer;
+
+import com.deego.config.NebulaProperties;
+import com.deego.enums.DatabaseType;
+import com.deego.enums.QueryJobStatus;
+import com.deego.enums.WorkPriority;
+import com.deego.exception.BizException;
+import com.deego.exec.DbExecutor;
+import com.deego.exec.JdbcExecutor;
+import com.deego.exec.StatementHook;
+import com.deego.model.Connection;
+import com.deego.model.param.ImportParam;
+import com.deego.query.cache.QueryResultCache;
+import com.deego.service.ConnectionService;
+import com.deego.utils.IdWorker;
+import com.deego.utils.SqlUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ObjectUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 批量导入任务管理。每个任务在虚拟线程上执行，内部是两段流水线：
+ * 解析线程增量读取源文件、做列映射和类型转换，按 chunkRows 行一块放入有界队列；
+ * 写入线程从队列取块写入目标表（PostgreSQL 用 COPY FROM STDIN，其它数据库用 JDBC 批处理）。
+ * 写入跟不上时队列写满，解析线程随之阻塞，内存占用与文件大小无关。
+ */
+@Component
+@Slf4j
+public class ImportJobManager {
+
+	@Autowired
+	private ConnectionService connectionService;
+
+	@Autowired
+	private NebulaProperties properties;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private QueryResultCache resultCache;
+
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+	/**
+	 * 提交导入任务。file 为空时读取服务器上的 param.filePath，否则先把上传的文件保存下来，以便失败后继续导入
+	 */
+	public ImportJob submit(ImportParam param, MultipartFile file) {
+		if (ObjectUtils.isEmpty(param.getObjectName())) {
+			throw new BizException("objectName is required");
+		}
+		Connection conn = connectionService.getConnection(param.getConnId())
+										   .orElseThrow(() -> new BizException("Connection not found: " + param.getConnId()));
+		String database = ObjectUtils.isEmpty(param.getDatabase()) ? conn.getDatabase() : param.getDatabase();
+		DatabaseType type = DatabaseType.fromValue(conn.getDbType());
+		String table = SqlUtils.qualifiedName(type, param.getSchemaName(), param.getObjectName());
+		SourceFormat.from(param.getFormat());
+
+		Path source;
+		String sourceName;
+		boolean uploaded = file != null;
+		try {
+			if (uploaded) {
+				source = uploadFile();
+				file.transferTo(source);
+				sourceName = file.getOriginalFilename();
+			} else {
+				if (ObjectUtils.isEmpty(param.getFilePath())) {
+					throw new BizException("file or filePath is required");
+				}
+				source = TransferPaths.importFile(properties.getTransfer(), param.getFilePath());
+				sourceName = source.getFileName().toString();
+			}
+			ImportJob job = new ImportJob(IdWorker.getIdStr(), conn.getId(), database, table, param, source, sourceName, Files.size(source), uploaded);
+			jobs.put(job.getImportId(), job);
+			executor.execute(() -> run(job));
+			return job;
+		} catch (IOException e) {
+			throw new BizException("IMPORT_ERROR", "Failed to read import file: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 从上次的 checkpoint 继续执行失败或取消的任务。状态检查和切换是一步完成的，并发的继续请求只有一个能启动
+	 */
+	public ImportJob resume(String importId) {
+		ImportJob job = get(importId);
+		QueryJobStatus previous = job.requeue();
+		if (!previous.isFinished()) {
+			throw new BizException("IMPORT_RUNNING", "Import is still running: " + importId);
+		}
+		if (previous == QueryJobStatus.SUCCEEDED) {
+			throw new BizException("IMPORT_FINISHED", "Import already finished: " + importId);
+		}
+		executor.execute(() -> run(job));
+		return job;
+	}
+
+	/**
+	 * 请求取消；当前批次撤销，已提交的批次保留，之后可以继续导入
+	 */
+	public ImportJob cancel(String importId) {
+		ImportJob job = get(importId);
+		job.cancel();
+		return job;
+	}
+
+	public ImportJob get(String importId) {
+		ImportJob job = jobs.get(importId);
+		if (job == null) {
+			throw new BizException("JOB_NOT_FOUND", "Import job not found or expired: " + importId);
+		}
+		return job;
+	}
+
+	/**
+	 * 取消并移除任务，删除上传时保存的源文件
+	 */
+	public void remove(String importId) {
+		ImportJob job = jobs.remove(importId);
+		if (job == null) {
+			return;
+		}
+		job.cancel();
+		if (job.isUploaded()) {
+			try {
+				Files.deleteIfExists(job.getSource());
+			} catch (IOException e) {
+				log.warn("Failed to delete import file {}: {}", job.getSource(), e.getMessage());
+			}
+		}
+	}
+
+	private Path uploadFile() throws IOException {
+		String dir = properties.getTransfer().getUploadDir();
+		if (ObjectUtils.isEmpty(dir)) {
+			return Files.createTempFile("nebula-import-", ".tmp");
+		}
+		Path path = Files.createDirectories(Path.of(dir));
+		return Files.createTempFile(path, "nebula-import-", ".tmp");
+	}
+
+	private void run(ImportJob job) {
+		job.started();
+		long skipRows = job.getCheckpoint();
+		try (CountingInputStream in = new CountingInputStream(Files.newInputStream(job.getSource()));
+			 RecordReader reader = openReader(job, in)) {
+			Connection conn = connectionService.getConnection(job.getConnId())
+											   .orElseThrow(() -> new BizException("Connection not found: " + job.getConnId()));
+			DatabaseType type = DatabaseType.fromValue(conn.getDbType());
+			JdbcExecutor db = jdbcExecutor(job);
+			List<ImportColumn> columns = mapColumns(job, reader, db);
+			List<String> quotedColumns = columns.stream().map(c -> SqlUtils.quoteIdent(type, c.name())).toList();
+			boolean completed = db.withConnection(con -> {
+				try (TableLoader loader = type == DatabaseType.POSTGRESQL
+						? new PgCopyLoader(con, job.getTable(), quotedColumns)
+						: new JdbcBatchLoader(con, job.getTable(), quotedColumns)) {
+					return pump(job, reader, in, columns, loader, skipRows);
+				}
+			});
+			job.finished(completed ? QueryJobStatus.SUCCEEDED : QueryJobStatus.CANCELLED, null);
+		} catch (Exception e) {
+			String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+			log.debug("Import {} failed: {}", job.getImportId(), message);
+			job.finished(QueryJobStatus.FAILED, message);
+		} finally {
+			// job.getTable() 是加了引号的完整表名，bareName 保留原样的大小写，与缓存中按语句解析出的表名一致
+			resultCache.invalidate(job.getConnId(), List.of(SqlUtils.bareName(job.getTable())));
+		}
+	}
+
+	/**
+	 * 按参数或文件头识别压缩格式，需要时在独立线程上解压；进度仍按读取的压缩字节计算
+	 */
+	private RecordReader openReader(ImportJob job, InputStream in) throws IOException {
+		BufferedInputStream buffered = new BufferedInputStream(in, 64 * 1024);
+		String declared = job.getParam().getCompression();
+		Compression compression = ObjectUtils.isEmpty(declared) || "auto".equalsIgnoreCase(declared)
+				? Compression.detect(buffered) : Compression.from(declared);
+		InputStream data = compression.pipelinedDecompress(buffered, "import-decompress-" + job.getImportId());
+		InputStreamReader reader = new InputStreamReader(data, StandardCharsets.UTF_8);
+		boolean header = !Boolean.FALSE.equals(job.getParam().getHeader());
+		return switch (job.getFormat()) {
+			case CSV -> new CsvRecordReader(reader, ',', header);
+			case TSV -> new CsvRecordReader(reader, '\t', header);
+			case JSONL -> new JsonLinesRecordReader(reader, objectMapper);
+		};
+	}
+
+	private JdbcExecutor jdbcExecutor(ImportJob job) {
+		// 导入长时间占用连接，按 BULK 排队
+		DbExecutor executor = connectionService.getExecutor(job.getConnId(), job.getDatabase(), WorkPriority.BULK);
+		if (executor instanceof JdbcExecutor jdbcExecutor) {
+			return jdbcExecutor;
+		}
+		throw new BizException("Not a relational executor for connection " + job.getConnId());
+	}
+
+	/**
+	 * 确定源字段与目标列的对应关系，并让 reader 只读取用到的字段。
+	 * 有 mapping 时按 mapping；否则按名称匹配（不区分大小写），没有表头的 CSV 按列序号对应表的第 n 列
+	 */
+	private List<ImportColumn> mapColumns(ImportJob job, RecordReader reader, JdbcExecutor db) throws IOException {
+		List<ImportColumn> tableColumns = db.query("SELECT * FROM " + job.getTable() + " WHERE 1 = 0", StatementHook.NONE, rs -> {
+			ResultSetMetaData meta = rs.getMetaData();
+			List<ImportColumn> result = new ArrayList<>();
+			for (int i = 1; i <= meta.getColumnCount(); i++) {
+				result.add(new ImportColumn(meta.getColumnName(i), meta.getColumnType(i), meta.getColumnTypeName(i)));
+			}
+			return result;
+		});
+		Map<String, ImportColumn> byName = new HashMap<>();
+		tableColumns.forEach(c -> byName.putIfAbsent(c.name().toLowerCase(Locale.ROOT), c));
+
+		List<String> sourceFields = new ArrayList<>();
+		List<ImportColumn> targets = new ArrayList<>();
+		Map<String, String> mapping = job.getParam().getMapping();
+		if (mapping != null && !mapping.isEmpty()) {
+			mapping.forEach((field, column) -> {
+				ImportColumn target = byName.get(column.toLowerCase(Locale.ROOT));
+				if (target == null) {
+					throw new BizException("COLUMN_NOT_FOUND", "Column not found in " + job.getTable() + ": " + column);
+				}
+				sourceFields.add(field);
+				targets.add(target);
+			});
+		} else {
+			boolean positional = job.getFormat() != SourceFormat.JSONL && Boolean.FALSE.equals(job.getParam().getHeader());
+			List<String> fields = reader.fields();
+			for (int i = 0; i < fields.size(); i++) {
+				String field = fields.get(i);
+				ImportColumn target = positional
+						? (i < tableColumns.size() ? tableColumns.get(i) : null)
+						: byName.get(field.toLowerCase(Locale.ROOT));
+				if (target != null) {
+					sourceFields.add(field);
+					targets.add(target);
+				}
+			}
+		}
+		if (targets.isEmpty()) {
+			throw new BizException("NO_MATCHING_COLUMNS", "No source fields match the columns of " + job.getTable());
+		}
+		try {
+			reader.select(sourceFields);
+		} catch (IllegalArgumentException e) {
+			throw new BizException("COLUMN_NOT_FOUND", e.getMessage());
+		}
+		return targets;
+	}
+
+	/**
+	 * 在当前线程写入，另起一个虚拟线程解析；返回 false 表示被取消
+	 */
+	private boolean pump(ImportJob job, RecordReader reader, CountingInputStream in, List<ImportColumn> columns,
+						 TableLoader loader, long skipRows) throws SQLException {
+		NebulaProperties.Transfer config = properties.getTransfer();
+		int batchSize = job.getParam().getBatchSize() == null ? config.getBatchSize() : Math.max(job.getParam().getBatchSize(), 1);
+		int maxErrors = job.getParam().getMaxErrors() == null ? config.getMaxErrors() : job.getParam().getMaxErrors();
+		boolean skipFailedBatches = "skip".equalsIgnoreCase(job.getParam().getOnError());
+		long progressInterval = properties.getJob().getProgressInterval().toMillis();
+
+		BlockingQueue<ImportChunk> queue = new ArrayBlockingQueue<>(Math.max(config.getQueueChunks(), 1));
+		Thread parser = Thread.ofVirtual().name("import-parse-" + job.getImportId()).start(
+				() -> parse(job, reader, in, columns, queue, skipRows, batchSize, Math.max(config.getChunkRows(), 1), maxErrors));
+		try {
+			long batchFirstRow = skipRows + 1;
+			long batchRows = 0;
+			boolean inBatch = false;
+			String batchError = null;
+			long lastProgress = System.currentTimeMillis();
+			while (true) {
+				ImportChunk chunk = queue.take();
+				if (chunk.failure() != null) {
+					if (inBatch) {
+						loader.abortBatch();
+					}
+					throw chunk.failure();
+				}
+				if (chunk.rows() == null) {
+					return true;
+				}
+				if (job.isCancelRequested()) {
+					if (inBatch) {
+						loader.abortBatch();
+					}
+					return false;
+				}
+				if (batchError == null) {
+					try {
+						if (!inBatch) {
+							loader.beginBatch();
+							inBatch = true;
+						}
+						loader.write(chunk.rows());
+						batchRows += chunk.rows().size();
+						if (chunk.endOfBatch()) {
+							loader.commitBatch();
+							inBatch = false;
+							job.batchCommitted(chunk.lastRow(), batchRows);
+						}
+					} catch (SQLException | IOException | RuntimeException e) {
+						loader.abortBatch();
+						inBatch = false;
+						batchError = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+						if (!skipFailedBatches) {
+							job.batchFailed(batchFirstRow, chunk.lastRow(), batchError);
+							throw new BizException("IMPORT_BATCH_FAILED", "Batch starting at row " + batchFirstRow + " failed: " + batchError);
+						}
+					}
+				}
+				if (chunk.endOfBatch()) {
+					if (batchError != null) {
+						// onError=skip：整批放弃，继续下一批
+						job.batchFailed(batchFirstRow, chunk.lastRow(), batchError);
+						job.batchSkipped(chunk.lastRow());
+						batchError = null;
+					}
+					batchFirstRow = chunk.lastRow() + 1;
+					batchRows = 0;
+				}
+				long now = System.currentTimeMillis();
+				if (now - lastProgress >= progressInterval) {
+					lastProgress = now;
+					job.progress();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BizException("IMPORT_INTERRUPTED", "Import interrupted");
+		} finally {
+			parser.interrupt();
+			try {
+				parser.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * 解析线程：跳过 checkpoint 之前的记录，转换失败的记录单独记错；
+	 * 批次按源记录数划分（包括转换失败的记录），这样批次提交后的 checkpoint 就是源文件中的确切位置
+	 */
+	private void parse(ImportJob job, RecordReader reader, CountingInputStream in, List<ImportColumn> columns,
+					   BlockingQueue<ImportChunk> queue, long skipRows, int batchSize, int chunkRows, int maxErrors) {
+		try {
+			try {
+				long row = 0;
+				long batchRows = 0;
+				List<Object[]> rows = new ArrayList<>(chunkRows);
+				String[] values;
+				while ((values = reader.next()) != null) {
+					row++;
+					if (row <= skipRows) {
+						continue;
+					}
+					job.read(in.count());
+					Object[] converted = convert(job, row, values, columns);
+					if (converted != null) {
+						rows.add(converted);
+					} else if (maxErrors >= 0 && job.getRowsRejected() > maxErrors) {
+						throw new BizException("TOO_MANY_ERRORS", "More than " + maxErrors + " rows could not be converted, see errors");
+					}
+					batchRows++;
+					boolean endOfBatch = batchRows >= batchSize;
+					if (rows.size() >= chunkRows || endOfBatch) {
+						queue.put(new ImportChunk(rows, row, endOfBatch, null));
+						rows = new ArrayList<>(chunkRows);
+						if (endOfBatch) {
+							batchRows = 0;
+						}
+					}
+				}
+				if (batchRows > 0) {
+					queue.put(new ImportChunk(rows, row, true, null));
+				}
+				queue.put(ImportChunk.END);
+			} catch (IOException | RuntimeException e) {
+				queue.put(new ImportChunk(null, 0, false, e instanceof IOException io ? new UncheckedIOException(io) : (RuntimeException) e));
+			}
+		} catch (InterruptedException e) {
+			// 写入线程已经结束
+		}
+	}
+
+	private static Object[] convert(ImportJob job, long row, String[] values, List<ImportColumn> columns) {
+		Object[] converted = new Object[values.length];
+		for (int i = 0; i < values.length; i++) {
+			ImportColumn column = columns.get(i);
+			try {
+				converted[i] = column.coerce(values[i]);
+			} catch (IllegalArgumentException e) {
+				job.rejected(row, column.name(), e.getMessage());
+				return null;
+			}
+		}
+		return converted;
+	}
+
+	/**
+	 * 定期清理已结束且超过保留时间的任务
+	 */
+	@Scheduled(fixedDelay = 60_000L)
+	public void evictFinished() {
+		Instant deadline = Instant.now().minus(properties.getJob().getRetention());
+		jobs.values().stream()
+			.filter(job -> job.getStatus().isFinished() && job.getFinishedAt() != null && job.getFinishedAt().isBefore(deadline))
+			.map(ImportJob::getImportId)
+			.toList()
+			.forEach(this::remove);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		List.copyOf(jobs.keySet()).forEach(this::remove);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * 解析线程交给写入线程的一块数据；rows 为 null 表示源文件读完，failure 不为 null 表示解析失败
+	 *
+	 * @param lastRow    块中最后一条源记录的序号
+	 * @param endOfBatch 这一块之后提交当前批次
+	 */
+	private record ImportChunk(List<Object[]> rows, long lastRow, boolean endOfBatch, RuntimeException failure) {
+		static final ImportChunk END = new ImportChunk(null, 0, false, null);
+	}
+
+	/**
+	 * 统计已读取的字节数，用于计算进度
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+
+		private volatile long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		long count() {
+			return count;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+	}
+}
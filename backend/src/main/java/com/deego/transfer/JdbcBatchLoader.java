@@ -0,0 +1,75 @@
+package com.deego.transfer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 其它数据库：INSERT 预编译语句 + JDBC 批处理，每批一个事务。
+ * MySQL 连接池开启了 rewriteBatchedStatements，驱动会把一次 executeBatch 改写成多值 INSERT。
+ */
+@Slf4j
+public class JdbcBatchLoader implements TableLoader {
+
+	private final Connection con;
+	private final String sql;
+	private PreparedStatement ps;
+
+	public JdbcBatchLoader(Connection con, String qualifiedTable, List<String> quotedColumns) {
+		this.con = con;
+		this.sql = "INSERT INTO " + qualifiedTable + " (" + String.join(", ", quotedColumns) + ") VALUES ("
+				+ String.join(", ", Collections.nCopies(quotedColumns.size(), "?")) + ")";
+	}
+
+	@Override
+	public void beginBatch() throws SQLException {
+		con.setAutoCommit(false);
+		if (ps == null) {
+			ps = con.prepareStatement(sql);
+		}
+	}
+
+	@Override
+	public void write(List<Object[]> rows) throws SQLException {
+		for (Object[] row : rows) {
+			for (int i = 0; i < row.length; i++) {
+				ps.setObject(i + 1, row[i]);
+			}
+			ps.addBatch();
+		}
+		ps.executeBatch();
+	}
+
+	@Override
+	public void commitBatch() throws SQLException {
+		con.commit();
+	}
+
+	@Override
+	public void abortBatch() {
+		try {
+			if (ps != null) {
+				ps.clearBatch();
+			}
+			con.rollback();
+		} catch (SQLException e) {
+			log.debug("Rollback import batch failed: {}", e.getMessage());
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			if (ps != null) {
+				ps.close();
+			}
+			con.setAutoCommit(true);
+		} catch (SQLException e) {
+			log.debug("Close import statement failed: {}", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.deego.transfer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 流式读取 JSON Lines：每条记录是一个 JSON 对象，标量取文本值，嵌套的对象和数组保留为 JSON 文本。
+ * 字段默认取第一条记录的键
+ */
+public class JsonLinesRecordReader implements RecordReader {
+
+	private final MappingIterator<JsonNode> iterator;
+	private final List<String> fields;
+	private List<String> selected;
+	private JsonNode pending;
+
+	public JsonLinesRecordReader(Reader reader, ObjectMapper objectMapper) throws IOException {
+		this.iterator = objectMapper.readerFor(JsonNode.class).readValues(reader);
+		List<String> keys = new ArrayList<>();
+		if (iterator.hasNextValue()) {
+			pending = iterator.nextValue();
+			for (Iterator<String> it = pending.fieldNames(); it.hasNext(); ) {
+				keys.add(it.next());
+			}
+		}
+		this.fields = List.copyOf(keys);
+		this.selected = fields;
+	}
+
+	@Override
+	public List<String> fields() {
+		return fields;
+	}
+
+	@Override
+	public void select(List<String> names) {
+		selected = List.copyOf(names);
+	}
+
+	@Override
+	public String[] next() throws IOException {
+		JsonNode node;
+		if (pending != null) {
+			node = pending;
+			pending = null;
+		} else if (iterator.hasNextValue()) {
+			node = iterator.nextValue();
+		} else {
+			return null;
+		}
+		if (!node.isObject()) {
+			throw new IOException("Expected a JSON object per line but got " + node.getNodeType());
+		}
+		String[] values = new String[selected.size()];
+		for (int i = 0; i < values.length; i++) {
+			JsonNode value = node.get(selected.get(i));
+			if (value == null || value.isNull()) {
+				continue;
+			}
+			values[i] = value.isValueNode() ? value.asText() : value.toString();
+		}
+		return values;
+	}
+
+	@Override
+	public void close() throws IOException {
+		iterator.close();
+	}
+}
@@ -0,0 +1,424 @@
+package com.deego.transfer;
+
+import com.deego.config.NebulaProperties;
+import com.deego.enums.WorkPriority;
+import com.deego.exception.BizException;
+import com.deego.exec.DbExecutor;
+import com.deego.exec.JdbcExecutor;
+import com.deego.model.Connection;
+import com.deego.model.param.ExportParam;
+import com.deego.query.RunningQuery;
+import com.deego.query.RunningQueryRegistry;
+import com.deego.service.ConnectionService;
+import com.deego.utils.SqlUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ObjectUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * 单表并行导出。协调连接开启 REPEATABLE READ 事务并 pg_export_snapshot()，
+ * 按 ctid 数据块范围或整数主键范围把表切成若干段，每段在自己的池连接上 SET TRANSACTION SNAPSHOT 后执行 COPY，
+ * 各段看到的是同一时刻的一致数据。协调事务保持到所有分段结束。
+ * <p>
+ * 协调连接和各分段的 BULK 额度在开始前一次占用（见 {@link JdbcExecutor#reserve(int)}），分段数按实际占到的额度截断，
+ * 不会出现持有协调连接的额度再等待分段额度的情况：bulk-max-concurrent 为 1 时不再自等待，多个并行导出之间也不会互相占住额度。
+ * 只占到一个额度时不切分，由协调连接在自己的事务里导出整表。
+ */
+@Component
+@Slf4j
+public class ParallelCopyExporter {
+
+	@Autowired
+	private ConnectionService connectionService;
+
+	@Autowired
+	private RunningQueryRegistry registry;
+
+	@Autowired
+	private NebulaProperties properties;
+
+	/**
+	 * 各段写入独立的文件：base 为 /data/orders.csv 时生成 /data/orders.part-001.csv、/data/orders.part-002.csv ...，
+	 * CSV/TSV 每个文件都带表头；指定压缩时各文件分别压缩（如 orders.part-001.csv.gz）。返回按范围排序的文件列表
+	 */
+	public List<Path> exportShards(ExportParam param, Path base) {
+		Compression compression = Compression.from(param.getCompression());
+		List<Path> files = new ArrayList<>();
+		export(param, null, (shard, count) -> {
+			Path file = shardFile(base, shard, count, compression);
+			files.add(file);
+			return file;
+		}, compression, null, true);
+		return files;
+	}
+
+	/**
+	 * 合并成一个流写入 out：各段先写入临时文件（transfer.upload-dir，为空时为系统临时目录），按范围顺序在前面的段完成后依次输出，
+	 * 输出后立即删除，只有第一段带表头。前面的段较慢时后面的段会全部落盘，最坏情况下临时文件接近整表导出的大小，
+	 * 开始前按表的大小检查临时目录的可用空间（见 {@link #checkSpoolSpace}）。
+	 * 二进制格式每段都有自己的文件头，不能拼接。需要压缩时由调用方包装 out。返回导出的行数
+	 */
+	public long exportMerged(ExportParam param, RunningQuery parent, OutputStream out) {
+		if (CopyFormat.from(param.getFormat()) == CopyFormat.BINARY) {
+			throw new BizException("UNSUPPORTED_FORMAT", "Parallel binary export can only be written as shard files");
+		}
+		return export(param, parent, (shard, count) -> spoolFile(), Compression.NONE, out, false);
+	}
+
+	private long export(ExportParam param, RunningQuery parent, ShardTarget target, Compression compression,
+						OutputStream merged, boolean headerOnEveryShard) {
+		Connection conn = connectionService.getConnection(param.getConnId())
+										   .orElseThrow(() -> new BizException("Connection not found: " + param.getConnId()));
+		String database = ObjectUtils.isEmpty(param.getDatabase()) ? conn.getDatabase() : param.getDatabase();
+		String table = PgCopy.qualifiedName(param.getSchemaName(), param.getObjectName());
+		CopyFormat format = CopyFormat.from(param.getFormat());
+		if (format == CopyFormat.PARQUET) {
+			throw new BizException("UNSUPPORTED_FORMAT", "Parallel export is not supported for parquet");
+		}
+		boolean header = !Boolean.FALSE.equals(param.getHeader());
+		String columns = param.getColumns() == null || param.getColumns().isEmpty()
+				? "*" : param.getColumns().stream().map(SqlUtils::quoteIdent).collect(Collectors.joining(", "));
+		String exportId = parent != null ? parent.getQueryId() : conn.getId() + "-" + System.nanoTime();
+		int bufferSize = (int) properties.getTransfer().getBufferSize().toBytes();
+
+		try (JdbcExecutor.Reservation reservation = jdbcExecutor(conn.getId(), database).reserve(parallelism(param) + 1)) {
+			JdbcExecutor executor = reservation.executor();
+			int parallel = reservation.permits() - 1;
+			return executor.withConnection(con -> {
+				if (parent != null) {
+					parent.attach(con);
+				}
+				try (Statement st = con.createStatement()) {
+					st.execute("BEGIN ISOLATION LEVEL REPEATABLE READ READ ONLY");
+					try {
+						if (merged != null) {
+							checkSpoolSpace(st, table);
+						}
+						String snapshot = parallel > 0 ? single(st, "SELECT pg_export_snapshot()") : null;
+						List<String> ranges = plan(st, table, param.getPartitionBy(), Math.max(1, parallel));
+						List<Shard> shards = new ArrayList<>();
+						for (int i = 0; i < ranges.size(); i++) {
+							String sql = "COPY (SELECT " + columns + " FROM " + table + " WHERE " + ranges.get(i) + ") TO STDOUT WITH ("
+									+ format.options(header && (headerOnEveryShard || i == 0)) + ")";
+							Path file = target.file(i + 1, ranges.size());
+							RunningQuery query = registry.track(new RunningQuery(exportId + "#" + (i + 1), conn.getId(), database, sql, 0));
+							shards.add(new Shard(sql, file, compression, query));
+						}
+						long rows;
+						if (snapshot == null) {
+							// 只占到一个额度：不另借连接，协调连接在自己的事务里导出
+							log.info("Exporting {} without splitting, no spare bulk permit", table);
+							rows = runShards(shards, shard -> copyShard(con, shard, bufferSize), parent, merged, merged == null);
+						} else {
+							log.info("Exporting {} in {} ranges under snapshot {}", table, shards.size(), snapshot);
+							rows = runShards(shards, shard -> exportShard(executor, snapshot, shard, bufferSize), parent, merged, merged == null);
+						}
+						st.execute("COMMIT");
+						return rows;
+					} catch (SQLException | RuntimeException e) {
+						st.execute("ROLLBACK");
+						throw e;
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * 在虚拟线程上执行各段，等待它们按顺序完成；merged 不为 null 时依次把临时文件合并进去并删除。
+	 * 保留分段文件时，任何一段失败都删除全部分段文件，不留下不完整的一组文件
+	 */
+	private long runShards(List<Shard> shards, ShardRunner runner, RunningQuery parent,
+						   OutputStream merged, boolean keepFiles) throws SQLException {
+		long rows = 0;
+		boolean completed = false;
+		try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<Long>> futures = shards.stream()
+											   .map(shard -> workers.submit(() -> runner.run(shard)))
+											   .toList();
+			try {
+				for (int i = 0; i < shards.size(); i++) {
+					rows += await(futures.get(i), parent);
+					if (merged != null) {
+						Files.copy(shards.get(i).file(), merged);
+						deleteQuietly(shards.get(i).file());
+					}
+				}
+				if (merged != null) {
+					merged.flush();
+				}
+				completed = true;
+			} catch (IOException e) {
+				// 客户端断开，中止其余仍在执行的段
+				cancelAll(shards);
+				throw new UncheckedIOException(e);
+			} catch (SQLException | RuntimeException e) {
+				cancelAll(shards);
+				throw e;
+			} finally {
+				shards.forEach(shard -> registry.finish(shard.query()));
+			}
+		} finally {
+			if (!keepFiles || !completed) {
+				shards.forEach(shard -> deleteQuietly(shard.file()));
+			}
+		}
+		return rows;
+	}
+
+	private void cancelAll(List<Shard> shards) {
+		shards.forEach(shard -> registry.cancel(shard.query().getQueryId()));
+	}
+
+	private long exportShard(JdbcExecutor executor, String snapshot, Shard shard, int bufferSize) {
+		return executor.withConnection(con -> {
+			try (Statement st = con.createStatement()) {
+				st.execute("BEGIN ISOLATION LEVEL REPEATABLE READ READ ONLY");
+				try {
+					st.execute("SET TRANSACTION SNAPSHOT '" + snapshot + "'");
+					long rows = copyShard(con, shard, bufferSize);
+					st.execute("COMMIT");
+					return rows;
+				} catch (SQLException | RuntimeException e) {
+					st.execute("ROLLBACK");
+					throw e;
+				}
+			}
+		});
+	}
+
+	/**
+	 * 在 con 当前的事务里执行一段的 COPY，写入分段文件
+	 */
+	private static long copyShard(java.sql.Connection con, Shard shard, int bufferSize) throws SQLException {
+		shard.query().attach(con);
+		try (ExportFile file = ExportFile.open(shard.file(), shard.compression(), bufferSize, "export-compress-" + shard.query().getQueryId())) {
+			long rows = PgCopy.copyOut(con, shard.sql(), file.stream());
+			file.commit();
+			return rows;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private long await(Future<Long> future, RunningQuery parent) throws SQLException {
+		try {
+			while (true) {
+				if (parent != null && parent.isCancelled()) {
+					throw new SQLException("Export " + parent.getQueryId() + " was cancelled", "57014");
+				}
+				try {
+					return future.get(500, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					// 继续等待，同时检查是否被取消
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BizException("EXPORT_INTERRUPTED", "Export interrupted");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw new BizException("EXPORT_ERROR", e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * 计算各段的过滤条件，在协调事务的快照下执行，与导出看到的数据一致
+	 */
+	private List<String> plan(Statement st, String table, String partitionBy, int parallel) throws SQLException {
+		String mode = ObjectUtils.isEmpty(partitionBy) ? "ctid" : partitionBy.toLowerCase(Locale.ROOT);
+		return switch (mode) {
+			case "ctid" -> ctidRanges(st, table, parallel);
+			case "pk" -> keyRanges(st, table, parallel);
+			default -> throw new BizException("UNSUPPORTED_PARTITION", "Unsupported partitionBy: " + partitionBy);
+		};
+	}
+
+	/**
+	 * 按数据块均分；最后一段不设上界，首段不设下界。PostgreSQL 14 起 ctid 范围条件走 TID Range Scan，只读取本段的数据块
+	 */
+	private List<String> ctidRanges(Statement st, String table, int parallel) throws SQLException {
+		long blocks = Long.parseLong(single(st, "SELECT pg_relation_size('" + table.replace("'", "''")
+				+ "'::regclass) / current_setting('block_size')::bigint"));
+		int count = (int) Math.max(1, Math.min(parallel, blocks));
+		List<String> ranges = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			long from = blocks * i / count;
+			long to = blocks * (i + 1) / count;
+			List<String> bounds = new ArrayList<>();
+			if (i > 0) {
+				bounds.add("ctid >= '(" + from + ",0)'::tid");
+			}
+			if (i < count - 1) {
+				bounds.add("ctid < '(" + to + ",0)'::tid");
+			}
+			ranges.add(bounds.isEmpty() ? "true" : String.join(" AND ", bounds));
+		}
+		return ranges;
+	}
+
+	/**
+	 * 按单列整数主键的取值范围均分；主键分布不均匀时各段大小会有差异
+	 */
+	private List<String> keyRanges(Statement st, String table, int parallel) throws SQLException {
+		String pk;
+		try (ResultSet rs = st.executeQuery("SELECT a.attname, format_type(a.atttypid, a.atttypmod) FROM pg_index i "
+				+ "JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY (i.indkey) "
+				+ "WHERE i.indrelid = '" + table.replace("'", "''") + "'::regclass AND i.indisprimary")) {
+			List<String[]> keys = new ArrayList<>();
+			while (rs.next()) {
+				keys.add(new String[]{rs.getString(1), rs.getString(2)});
+			}
+			if (keys.size() != 1 || !List.of("smallint", "integer", "bigint").contains(keys.get(0)[1])) {
+				throw new BizException("UNSUPPORTED_PARTITION", "partitionBy=pk requires a single-column integer primary key on " + table);
+			}
+			pk = SqlUtils.quoteIdent(keys.get(0)[0]);
+		}
+		try (ResultSet rs = st.executeQuery("SELECT min(" + pk + "), max(" + pk + ") FROM " + table)) {
+			rs.next();
+			long min = rs.getLong(1);
+			long max = rs.getLong(2);
+			if (rs.wasNull()) {
+				return List.of("true");
+			}
+			return keyRanges(pk, min, max, parallel);
+		}
+	}
+
+	/**
+	 * 把 [min, max] 均分成最多 parallel 段（不超过取值个数），首段不设下界、最后一段不设上界。
+	 * 取值范围可能覆盖整个 bigint（max - min + 1 溢出 long），按 BigInteger 计算
+	 */
+	static List<String> keyRanges(String pk, long min, long max, int parallel) {
+		BigInteger low = BigInteger.valueOf(min);
+		BigInteger span = BigInteger.valueOf(max).subtract(low).add(BigInteger.ONE);
+		int count = span.min(BigInteger.valueOf(Math.max(1, parallel))).intValue();
+		List<String> ranges = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			List<String> bounds = new ArrayList<>();
+			if (i > 0) {
+				bounds.add(pk + " >= " + low.add(span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(count))));
+			}
+			if (i < count - 1) {
+				bounds.add(pk + " < " + low.add(span.multiply(BigInteger.valueOf(i + 1)).divide(BigInteger.valueOf(count))));
+			}
+			ranges.add(bounds.isEmpty() ? "true" : String.join(" AND ", bounds));
+		}
+		return ranges;
+	}
+
+	/**
+	 * 请求的分段数，不超过连接池大小（协调连接也占一个连接）；准入额度在 reserve 时再按 bulk-max-concurrent 截断
+	 */
+	private int parallelism(ExportParam param) {
+		int requested = param.getParallel() == null ? 1 : param.getParallel();
+		return Math.max(1, Math.min(requested, properties.getPool().getMaximumPoolSize() - 1));
+	}
+
+	/**
+	 * 合并导出前按表在库中的大小（pg_table_size，含 TOAST）估算临时文件最多需要的空间，临时目录放不下时直接拒绝，
+	 * 而不是导出到一半写满磁盘。文本格式的导出通常不大于表的大小，但宽度很小的列可能略大，只是估算
+	 */
+	private void checkSpoolSpace(Statement st, String table) throws SQLException {
+		long size = Long.parseLong(single(st, "SELECT pg_table_size('" + table.replace("'", "''") + "'::regclass)"));
+		Path dir = spoolDir();
+		long usable;
+		try {
+			usable = Files.getFileStore(dir).getUsableSpace();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (size > usable) {
+			throw new BizException("INSUFFICIENT_SPACE", "Parallel export of " + table + " may need up to " + size
+					+ " bytes of temporary space in " + dir + " but only " + usable + " are available; export without parallel instead");
+		}
+	}
+
+	private JdbcExecutor jdbcExecutor(String connId, String database) {
+		DbExecutor executor = connectionService.getExecutor(connId, database, WorkPriority.BULK);
+		if (executor instanceof JdbcExecutor jdbcExecutor) {
+			return jdbcExecutor;
+		}
+		throw new BizException("Not a relational executor for connection " + connId);
+	}
+
+	private static String single(Statement st, String sql) throws SQLException {
+		try (ResultSet rs = st.executeQuery(sql)) {
+			rs.next();
+			return rs.getString(1);
+		}
+	}
+
+	private static Path shardFile(Path base, int shard, int count, Compression compression) {
+		String name = base.getFileName().toString();
+		if (!compression.extension().isEmpty() && name.endsWith(compression.extension())) {
+			name = name.substring(0, name.length() - compression.extension().length());
+		}
+		int dot = name.lastIndexOf('.');
+		String stem = dot > 0 ? name.substring(0, dot) : name;
+		String extension = dot > 0 ? name.substring(dot) : "";
+		int width = Math.max(3, String.valueOf(count).length());
+		return base.resolveSibling(stem + ".part-" + String.format("%0" + width + "d", shard) + extension + compression.extension());
+	}
+
+	private Path spoolFile() {
+		try {
+			return Files.createTempFile(spoolDir(), "nebula-export-", ".part");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private Path spoolDir() {
+		String dir = properties.getTransfer().getUploadDir();
+		try {
+			return ObjectUtils.isEmpty(dir) ? Path.of(System.getProperty("java.io.tmpdir")) : Files.createDirectories(Path.of(dir));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			log.warn("Failed to delete export spool file {}: {}", file, e.getMessage());
+		}
+	}
+
+	@FunctionalInterface
+	private interface ShardTarget {
+		Path file(int shard, int count);
+	}
+
+	@FunctionalInterface
+	private interface ShardRunner {
+		long run(Shard shard) throws SQLException;
+	}
+
+	private record Shard(String sql, Path file, Compression compression, RunningQuery query) {
+	}
+}
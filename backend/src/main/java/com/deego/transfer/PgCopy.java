@@ -0,0 +1,74 @@
+package com.deego.transfer;
+
+import com.deego.exception.BizException;
+import com.deego.utils.SqlUtils;
+import org.postgresql.PGConnection;
+import org.springframework.util.ObjectUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 基于 pgjdbc CopyManager 的 COPY 工具：数据以 COPY 协议的原始字节在数据库和流之间传输，不会解码成 Java 对象
+ */
+public final class PgCopy {
+
+	private PgCopy() {
+	}
+
+	/**
+	 * 导出整张表（或指定列）：COPY "schema"."table" (cols) TO STDOUT WITH (...)
+	 */
+	public static String copyOutSql(String schema, String table, List<String> columns, CopyFormat format, boolean header) {
+		return "COPY " + qualifiedName(schema, table) + columnList(columns) + " TO STDOUT WITH (" + format.options(header) + ")";
+	}
+
+	/**
+	 * 导出任意查询的结果：COPY (query) TO STDOUT WITH (...)
+	 */
+	public static String copyOutSql(String query, CopyFormat format, boolean header) {
+		return "COPY (" + SqlUtils.normalize(query) + ") TO STDOUT WITH (" + format.options(header) + ")";
+	}
+
+	/**
+	 * 与 copyOutSql(schema, table, ...) 等价的查询，供不经过 COPY 的导出格式使用
+	 */
+	public static String selectSql(String schema, String table, List<String> columns) {
+		String list = columns == null || columns.isEmpty()
+				? "*" : columns.stream().map(SqlUtils::quoteIdent).collect(Collectors.joining(", "));
+		return "SELECT " + list + " FROM " + qualifiedName(schema, table);
+	}
+
+	public static String qualifiedName(String schema, String table) {
+		if (ObjectUtils.isEmpty(table)) {
+			throw new BizException("objectName is required");
+		}
+		return ObjectUtils.isEmpty(schema) ? SqlUtils.quoteIdent(table) : SqlUtils.quoteIdent(schema) + "." + SqlUtils.quoteIdent(table);
+	}
+
+	private static String columnList(List<String> columns) {
+		if (columns == null || columns.isEmpty()) {
+			return "";
+		}
+		return columns.stream().map(SqlUtils::quoteIdent).collect(Collectors.joining(", ", " (", ")"));
+	}
+
+	/**
+	 * 执行 COPY ... TO STDOUT，把数据原样写入 out（不关闭 out），返回导出的行数。
+	 * 写出失败（如客户端断开）时驱动会中止 COPY，连接仍可归还连接池。
+	 */
+	public static long copyOut(Connection con, String sql, OutputStream out) throws SQLException, IOException {
+		return pgConnection(con).getCopyAPI().copyOut(sql, out);
+	}
+
+	private static PGConnection pgConnection(Connection con) throws SQLException {
+		if (!con.isWrapperFor(PGConnection.class)) {
+			throw new BizException("UNSUPPORTED_DB_TYPE", "COPY is only supported for PostgreSQL connections");
+		}
+		return con.unwrap(PGConnection.class);
+	}
+}
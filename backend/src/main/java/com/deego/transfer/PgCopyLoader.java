@@ -0,0 +1,115 @@
+package com.deego.transfer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * PostgreSQL：每批是一条 COPY ... FROM STDIN (FORMAT csv) 语句，行编码成 CSV 后分块写入，
+ * 自动提交模式下 COPY 结束即提交
+ */
+@Slf4j
+public class PgCopyLoader implements TableLoader {
+
+	private final CopyManager copyManager;
+	private final String sql;
+	private final StringBuilder chunk = new StringBuilder(256 * 1024);
+	private CopyIn copyIn;
+
+	public PgCopyLoader(Connection con, String qualifiedTable, List<String> quotedColumns) throws SQLException {
+		this.copyManager = con.unwrap(PGConnection.class).getCopyAPI();
+		this.sql = "COPY " + qualifiedTable + " (" + String.join(", ", quotedColumns) + ") FROM STDIN WITH (FORMAT csv, ENCODING 'UTF8')";
+	}
+
+	@Override
+	public void beginBatch() throws SQLException {
+		copyIn = copyManager.copyIn(sql);
+	}
+
+	@Override
+	public void write(List<Object[]> rows) throws SQLException {
+		chunk.setLength(0);
+		for (Object[] row : rows) {
+			for (int i = 0; i < row.length; i++) {
+				if (i > 0) {
+					chunk.append(',');
+				}
+				appendValue(row[i]);
+			}
+			chunk.append('\n');
+		}
+		byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+		copyIn.writeToCopy(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * CSV 格式中未加引号的空值表示 NULL，因此空字符串必须加引号；单独一行的 \. 是结束标记，同样加引号
+	 */
+	private void appendValue(Object value) {
+		if (value == null) {
+			return;
+		}
+		String text = switch (value) {
+			case Double d -> doubleText(d);
+			// bytea 的十六进制输入格式，从其它数据库复制二进制列时会遇到
+			case byte[] bytes -> "\\x" + HexFormat.of().formatHex(bytes);
+			default -> value.toString();
+		};
+		boolean quote = text.isEmpty();
+		for (int i = 0; i < text.length() && !quote; i++) {
+			char c = text.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r' || c == '\\';
+		}
+		if (!quote) {
+			chunk.append(text);
+			return;
+		}
+		chunk.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"') {
+				chunk.append('"');
+			}
+			chunk.append(c);
+		}
+		chunk.append('"');
+	}
+
+	private static String doubleText(Double d) {
+		if (d.isNaN()) {
+			return "NaN";
+		}
+		if (d.isInfinite()) {
+			return d > 0 ? "Infinity" : "-Infinity";
+		}
+		return d.toString();
+	}
+
+	@Override
+	public void commitBatch() throws SQLException {
+		copyIn.endCopy();
+		copyIn = null;
+	}
+
+	@Override
+	public void abortBatch() {
+		if (copyIn == null) {
+			return;
+		}
+		try {
+			if (copyIn.isActive()) {
+				copyIn.cancelCopy();
+			}
+		} catch (SQLException e) {
+			log.debug("Cancel COPY failed: {}", e.getMessage());
+		}
+		copyIn = null;
+	}
+}
@@ -0,0 +1,108 @@
+package com.deego.transfer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 在另一个虚拟线程上预先读取 source（例如解压），按块放入有界队列，读取方与解压并行。
+ * 读取方关闭流时停止预读并关闭 source。
+ */
+public class PipelinedInputStream extends InputStream {
+
+	private static final byte[] EOF = new byte[0];
+
+	private final BlockingQueue<byte[]> queue;
+	private final Thread worker;
+	private final InputStream source;
+	private volatile IOException failure;
+	private byte[] block = new byte[0];
+	private int position;
+	private boolean finished;
+
+	public PipelinedInputStream(InputStream source, int blockSize, int depth, String name) {
+		this.source = source;
+		this.queue = new ArrayBlockingQueue<>(Math.max(depth, 1));
+		this.worker = Thread.ofVirtual().name(name).start(() -> fill(blockSize));
+	}
+
+	private void fill(int blockSize) {
+		try {
+			while (true) {
+				byte[] buffer = source.readNBytes(blockSize);
+				if (buffer.length == 0) {
+					break;
+				}
+				queue.put(buffer);
+			}
+		} catch (IOException e) {
+			failure = e;
+		} catch (InterruptedException e) {
+			// 读取方已关闭
+			return;
+		}
+		try {
+			queue.put(EOF);
+		} catch (InterruptedException e) {
+			// 读取方已关闭
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!ensureData()) {
+			return -1;
+		}
+		return block[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!ensureData()) {
+			return -1;
+		}
+		int n = Math.min(len, block.length - position);
+		System.arraycopy(block, position, b, off, n);
+		position += n;
+		return n;
+	}
+
+	private boolean ensureData() throws IOException {
+		while (position >= block.length) {
+			if (finished) {
+				return false;
+			}
+			try {
+				block = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while reading from pipeline");
+			}
+			position = 0;
+			if (block == EOF) {
+				finished = true;
+				if (failure != null) {
+					throw failure;
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		worker.interrupt();
+		try {
+			worker.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		source.close();
+	}
+}
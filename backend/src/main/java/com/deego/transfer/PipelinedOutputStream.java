@@ -0,0 +1,191 @@
+package com.deego.transfer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把写入的数据按块交给另一个虚拟线程处理（例如压缩），写入方只负责复制字节，
+ * 数据库拉取与压缩得以并行。队列有界，下游跟不上时写入方阻塞。
+ * <p>
+ * 下游出错后，之后的 write/close 抛出该异常；close 会等待下游处理完所有数据并关闭目标流。
+ * 写入方出错时调用 {@link #abort()}：丢弃未处理的数据，不关闭目标流（压缩流关闭时会写出压缩尾，截断的数据看起来就像完整的文件），
+ * 只关闭 abortTarget（压缩流下面的原始流）。
+ */
+public class PipelinedOutputStream extends OutputStream {
+
+	private static final byte[] EOF = new byte[0];
+	private static final byte[] ABORT = new byte[0];
+
+	private final BlockingQueue<byte[]> queue;
+	private final Thread worker;
+	private final int blockSize;
+	private byte[] block;
+	private int position;
+	private volatile IOException failure;
+	private boolean closed;
+
+	/**
+	 * @param target    在后台线程中写入的目标流，close 时一并关闭，出错或 abort 时同样关闭
+	 * @param blockSize 每块的字节数
+	 * @param depth     最多排队的块数
+	 */
+	public PipelinedOutputStream(OutputStream target, int blockSize, int depth, String name) {
+		this(target, target, blockSize, depth, name);
+	}
+
+	/**
+	 * @param target      在后台线程中写入的目标流（通常是压缩流），正常 close 时关闭
+	 * @param abortTarget 出错或 abort 时代替 target 关闭的流（压缩流下面的原始流），不写出压缩尾
+	 */
+	public PipelinedOutputStream(OutputStream target, OutputStream abortTarget, int blockSize, int depth, String name) {
+		this.queue = new ArrayBlockingQueue<>(Math.max(depth, 1));
+		this.blockSize = blockSize;
+		this.block = new byte[blockSize];
+		this.worker = Thread.ofVirtual().name(name).start(() -> drain(target, abortTarget));
+	}
+
+	private void drain(OutputStream target, OutputStream abortTarget) {
+		try {
+			while (true) {
+				byte[] data = queue.take();
+				if (data == EOF) {
+					target.close();
+					return;
+				}
+				if (data == ABORT) {
+					break;
+				}
+				target.write(data);
+			}
+		} catch (IOException e) {
+			failure = e;
+		} catch (InterruptedException e) {
+			failure = new InterruptedIOException("Pipeline interrupted");
+		}
+		if (failure != null) {
+			// 让阻塞在 put 上的写入方尽快看到失败
+			queue.clear();
+		}
+		try {
+			abortTarget.close();
+		} catch (IOException e) {
+			// 已经在出错或放弃的路径上
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		if (position == blockSize) {
+			handOff();
+		}
+		block[position++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		while (len > 0) {
+			if (position == blockSize) {
+				handOff();
+			}
+			int n = Math.min(len, blockSize - position);
+			System.arraycopy(b, off, block, position, n);
+			position += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * 只把当前块交给下游；不等待下游写出，真正的刷新在 close 时完成
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if (position > 0) {
+			handOff();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (failure == null && position > 0) {
+				handOff();
+			}
+			if (failure == null) {
+				put(EOF);
+			} else {
+				worker.interrupt();
+			}
+			worker.join();
+		} catch (InterruptedException e) {
+			worker.interrupt();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while closing pipeline");
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * 放弃写入：丢弃排队的数据，等待下游线程关闭 abortTarget 后返回，不写出压缩尾。已 close 或 abort 过时什么也不做
+	 */
+	public void abort() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		queue.clear();
+		// 写入方是唯一的生产者，清空后一定放得下
+		queue.offer(ABORT);
+		try {
+			worker.join();
+		} catch (InterruptedException e) {
+			worker.interrupt();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void handOff() throws IOException {
+		put(position == blockSize ? block : Arrays.copyOf(block, position));
+		block = new byte[blockSize];
+		position = 0;
+	}
+
+	private void put(byte[] data) throws IOException {
+		try {
+			while (!queue.offer(data, 100, TimeUnit.MILLISECONDS)) {
+				ensureHealthy();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while writing to pipeline");
+		}
+		ensureHealthy();
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		ensureHealthy();
+	}
+
+	private void ensureHealthy() throws IOException {
+		if (failure != null) {
+			throw failure;
+		}
+	}
+}
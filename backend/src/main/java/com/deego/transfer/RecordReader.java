@@ -0,0 +1,28 @@
+package com.deego.transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 增量读取源文件的记录，任何时候只在内存中保留当前一条
+ */
+public interface RecordReader extends Closeable {
+
+	/**
+	 * 源文件中的字段名：CSV 为表头（没有表头时为 1..n），JSON Lines 为第一条记录的键
+	 */
+	List<String> fields() throws IOException;
+
+	/**
+	 * 选择要读取的字段，之后 {@link #next()} 按这个顺序返回字段值；不调用时读取全部 {@link #fields()}
+	 *
+	 * @throws IllegalArgumentException 源文件中没有这个字段（JSON Lines 不校验，缺失的键读作 null）
+	 */
+	void select(List<String> selected);
+
+	/**
+	 * 读取下一条记录，按选择的字段顺序返回字段值，值缺失时为 null；没有更多记录时返回 null
+	 */
+	String[] next() throws IOException;
+}
@@ -0,0 +1,32 @@
+package com.deego.transfer;
+
+import com.deego.exception.BizException;
+
+import java.util.Locale;
+
+/**
+ * 导入源文件的格式
+ */
+public enum SourceFormat {
+	CSV,
+	TSV,
+	/**
+	 * 每行一个 JSON 对象，键名即字段名
+	 */
+	JSONL;
+
+	public static SourceFormat from(String value) {
+		if (value == null || value.isBlank()) {
+			return CSV;
+		}
+		String name = value.trim().toUpperCase(Locale.ROOT);
+		if ("NDJSON".equals(name) || "JSON".equals(name)) {
+			return JSONL;
+		}
+		try {
+			return valueOf(name);
+		} catch (IllegalArgumentException e) {
+			throw new BizException("UNSUPPORTED_FORMAT", "Unsupported import format: " + value);
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package com.deego.transfer;
+
+import com.deego.enums.QueryJobStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 跨连接复制任务：若干张表从源连接直接复制到目标连接，最多 parallel 张表同时进行。
+ * 各表相互独立，一张表失败不影响其它表，任务最终状态为 FAILED 时看各表的 error。
+ * <p>
+ * SSE 事件：status（任务快照）、progress（总计和各表的行数、字节数、吞吐）；任务结束后再发一次 status 并关闭连接。
+ */
+@Getter
+@Slf4j
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TableCopyJob {
+
+	private final String copyId;
+	private final String sourceConnId;
+	private final String sourceDatabase;
+	private final String targetConnId;
+	private final String targetDatabase;
+	private final int parallel;
+	private final List<TableCopyTask> tables;
+	private final Instant submittedAt = Instant.now();
+
+	private volatile QueryJobStatus status = QueryJobStatus.PENDING;
+	private volatile Instant startedAt;
+	private volatile Instant finishedAt;
+	private volatile String error;
+
+	@JsonIgnore
+	private volatile boolean cancelRequested;
+
+	@JsonIgnore
+	private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+	public TableCopyJob(String copyId, String sourceConnId, String sourceDatabase, String targetConnId, String targetDatabase,
+						int parallel, List<TableCopyTask> tables) {
+		this.copyId = copyId;
+		this.sourceConnId = sourceConnId;
+		this.sourceDatabase = sourceDatabase;
+		this.targetConnId = targetConnId;
+		this.targetDatabase = targetDatabase;
+		this.parallel = parallel;
+		this.tables = List.copyOf(tables);
+	}
+
+	public long getRowsCopied() {
+		return tables.stream().mapToLong(TableCopyTask::getRowsCopied).sum();
+	}
+
+	public long getBytesCopied() {
+		return tables.stream().mapToLong(TableCopyTask::getBytesCopied).sum();
+	}
+
+	/**
+	 * 整个任务的平均吞吐：总行数除以任务已运行的时间（并行的表合计）
+	 */
+	public long getRowsPerSecond() {
+		if (startedAt == null) {
+			return 0;
+		}
+		long elapsed = Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now()).toMillis();
+		return elapsed <= 0 ? 0 : getRowsCopied() * 1000 / elapsed;
+	}
+
+	public long getTablesFinished() {
+		return tables.stream().filter(t -> t.getStatus().isFinished()).count();
+	}
+
+	/**
+	 * 订阅任务事件。先补发当前快照，任务已结束时直接关闭
+	 */
+	public SseEmitter subscribe() {
+		SseEmitter emitter = new SseEmitter();
+		emitters.add(emitter);
+		emitter.onCompletion(() -> emitters.remove(emitter));
+		emitter.onTimeout(() -> emitters.remove(emitter));
+		emitter.onError(e -> emitters.remove(emitter));
+		send(emitter, "status", this);
+		if (status.isFinished()) {
+			emitter.complete();
+		}
+		return emitter;
+	}
+
+	void started() {
+		startedAt = Instant.now();
+		status = QueryJobStatus.RUNNING;
+		publish("status", this);
+	}
+
+	void cancel() {
+		cancelRequested = true;
+	}
+
+	void progress() {
+		Map<String, Object> progress = new LinkedHashMap<>();
+		progress.put("rowsCopied", getRowsCopied());
+		progress.put("bytesCopied", getBytesCopied());
+		progress.put("rowsPerSecond", getRowsPerSecond());
+		progress.put("tables", tables.stream()
+									 .filter(t -> t.getStatus() == QueryJobStatus.RUNNING)
+									 .map(t -> Map.of("target", t.getTarget(), "rowsCopied", t.getRowsCopied(),
+													  "bytesCopied", t.getBytesCopied(), "rowsPerSecond", t.getRowsPerSecond()))
+									 .toList());
+		publish("progress", progress);
+	}
+
+	void finished(QueryJobStatus status, String error) {
+		this.error = error;
+		this.finishedAt = Instant.now();
+		this.status = status;
+		publish("status", this);
+		emitters.forEach(SseEmitter::complete);
+		emitters.clear();
+	}
+
+	private void publish(String event, Object data) {
+		emitters.forEach(emitter -> send(emitter, event, data));
+	}
+
+	private void send(SseEmitter emitter, String event, Object data) {
+		try {
+			emitter.send(SseEmitter.event().name(event).data(data));
+		} catch (IOException | IllegalStateException e) {
+			// 客户端已断开，不影响复制继续执行
+			log.debug("Drop SSE subscriber of copy {}: {}", copyId, e.getMessage());
+			emitters.remove(emitter);
+		}
+	}
+}
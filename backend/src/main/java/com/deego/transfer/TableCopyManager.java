@@ -0,0 +1,667 @@
+package com.deego.transfer;
+
+import com.deego.config.NebulaProperties;
+import com.deego.enums.DatabaseType;
+import com.deego.enums.QueryJobStatus;
+import com.deego.enums.WorkPriority;
+import com.deego.exception.BizException;
+import com.deego.exec.DbExecutor;
+import com.deego.exec.JdbcExecutor;
+import com.deego.exec.RowStreamHandler;
+import com.deego.exec.StatementHook;
+import com.deego.model.Connection;
+import com.deego.model.param.TableCopyParam;
+import com.deego.query.cache.QueryResultCache;
+import com.deego.service.ConnectionService;
+import com.deego.utils.IdWorker;
+import com.deego.utils.SqlUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ObjectUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 跨连接的表复制，不经过中间文件。每张表是一条读写流水线，读写两端之间是有界队列，写入跟不上时读取方阻塞：
+ * <ul>
+ *     <li>两端都是 PostgreSQL：源连接上 COPY ... TO STDOUT 的 CSV 字节按块交给另一个线程，直接写入目标连接上的
+ *     COPY ... FROM STDIN，整张表在目标端是一个事务，数据不在 Java 中解码</li>
+ *     <li>其它组合：源连接按 fetchSize 流式读取，每 chunkRows 行一块放入队列；写入线程用 COPY FROM STDIN（目标为 PostgreSQL）
+ *     或 JDBC 批处理（连接池已开启 reWriteBatchedInserts / rewriteBatchedStatements）分批提交</li>
+ * </ul>
+ * 每张表占用源和目标各一个 BULK 连接，两个额度在开始复制前一起占用（见 {@link #reserve}），不会持有一端的额度再排队等待另一端：
+ * 两个方向相反的作业（A→B 与 B→A）之间不会互相死锁，同一个连接池在 bulk-max-concurrent 为 1 时也不会自己等自己。
+ */
+@Component
+@Slf4j
+public class TableCopyManager {
+
+	private static final String ROWS_COUNTER = "nebula.transfer.copy.rows";
+	private static final String BYTES_COUNTER = "nebula.transfer.copy.bytes";
+	private static final String TABLE_TIMER = "nebula.transfer.copy.table";
+
+	/**
+	 * 两端都是 PostgreSQL 时流水线每块的字节数和最多排队的块数
+	 */
+	private static final int PIPE_BLOCK_SIZE = 256 * 1024;
+	private static final int PIPE_DEPTH = 8;
+
+	@Autowired
+	private ConnectionService connectionService;
+
+	@Autowired
+	private NebulaProperties properties;
+
+	@Autowired
+	private QueryResultCache resultCache;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	private final Map<String, TableCopyJob> jobs = new ConcurrentHashMap<>();
+
+	public TableCopyJob submit(TableCopyParam param) {
+		if (param.getTables() == null || param.getTables().isEmpty()) {
+			throw new BizException("tables is required");
+		}
+		Connection source = relationalConnection(param.getSourceConnId());
+		Connection target = relationalConnection(param.getTargetConnId());
+		String sourceDatabase = ObjectUtils.isEmpty(param.getSourceDatabase()) ? source.getDatabase() : param.getSourceDatabase();
+		String targetDatabase = ObjectUtils.isEmpty(param.getTargetDatabase()) ? target.getDatabase() : param.getTargetDatabase();
+		DatabaseType sourceType = DatabaseType.fromValue(source.getDbType());
+		DatabaseType targetType = DatabaseType.fromValue(target.getDbType());
+
+		List<TableCopyTask> tasks = new ArrayList<>();
+		for (TableCopyParam.Table table : param.getTables()) {
+			if (ObjectUtils.isEmpty(table.getSourceTable())) {
+				throw new BizException("sourceTable is required");
+			}
+			String targetTable = ObjectUtils.isEmpty(table.getTargetTable()) ? table.getSourceTable() : table.getTargetTable();
+			tasks.add(new TableCopyTask(table,
+					SqlUtils.qualifiedName(sourceType, table.getSourceSchema(), table.getSourceTable()),
+					SqlUtils.qualifiedName(targetType, table.getTargetSchema(), targetTable)));
+		}
+		boolean samePool = source.getId().equals(target.getId()) && sourceDatabase.equals(targetDatabase);
+		TableCopyJob job = new TableCopyJob(IdWorker.getIdStr(), source.getId(), sourceDatabase, target.getId(), targetDatabase,
+				parallelism(param.getParallel(), samePool, tasks.size()), tasks);
+		jobs.put(job.getCopyId(), job);
+		executor.execute(() -> run(job, param, sourceType, targetType));
+		return job;
+	}
+
+	/**
+	 * 请求取消：正在复制的表中止并撤销未提交的部分，尚未开始的表不再执行
+	 */
+	public TableCopyJob cancel(String copyId) {
+		TableCopyJob job = get(copyId);
+		job.cancel();
+		return job;
+	}
+
+	public TableCopyJob get(String copyId) {
+		TableCopyJob job = jobs.get(copyId);
+		if (job == null) {
+			throw new BizException("JOB_NOT_FOUND", "Copy job not found or expired: " + copyId);
+		}
+		return job;
+	}
+
+	public void remove(String copyId) {
+		TableCopyJob job = jobs.remove(copyId);
+		if (job != null) {
+			job.cancel();
+		}
+	}
+
+	/**
+	 * 每张表同时占用源和目标各一个 BULK 连接；源和目标是同一个连接池时，一张表就要占两个名额
+	 */
+	private int parallelism(Integer requested, boolean samePool, int tables) {
+		NebulaProperties.Admission admission = properties.getAdmission();
+		int limit = admission.isEnabled() ? admission.getBulkMaxConcurrent() : properties.getPool().getMaximumPoolSize();
+		if (samePool) {
+			limit /= 2;
+		}
+		int parallel = requested == null ? 2 : requested;
+		return Math.max(1, Math.min(Math.min(parallel, limit), tables));
+	}
+
+	private void run(TableCopyJob job, TableCopyParam param, DatabaseType sourceType, DatabaseType targetType) {
+		job.started();
+		JdbcExecutor source = jdbcExecutor(job.getSourceConnId(), job.getSourceDatabase());
+		JdbcExecutor target = jdbcExecutor(job.getTargetConnId(), job.getTargetDatabase());
+		Queue<TableCopyTask> pending = new ConcurrentLinkedQueue<>(job.getTables());
+		List<Thread> workers = new ArrayList<>();
+		for (int i = 0; i < job.getParallel(); i++) {
+			workers.add(Thread.ofVirtual().name("copy-" + job.getCopyId() + "-" + (i + 1)).start(() -> {
+				TableCopyTask task;
+				while (!job.isCancelRequested() && (task = pending.poll()) != null) {
+					copyTable(job, task, param, source, sourceType, target, targetType);
+				}
+			}));
+		}
+		try {
+			long progressInterval = properties.getJob().getProgressInterval().toMillis();
+			for (Thread worker : workers) {
+				while (!worker.join(Duration.ofMillis(progressInterval))) {
+					job.progress();
+				}
+			}
+		} catch (InterruptedException e) {
+			job.cancel();
+			Thread.currentThread().interrupt();
+		}
+		long failed = job.getTables().stream().filter(t -> t.getStatus() == QueryJobStatus.FAILED).count();
+		if (job.isCancelRequested()) {
+			job.getTables().stream().filter(t -> t.getStatus() == QueryJobStatus.PENDING)
+			   .forEach(t -> t.finished(QueryJobStatus.CANCELLED, null, null));
+			job.finished(QueryJobStatus.CANCELLED, null);
+		} else if (failed > 0) {
+			job.finished(QueryJobStatus.FAILED, failed + " of " + job.getTables().size() + " tables failed");
+		} else {
+			job.finished(QueryJobStatus.SUCCEEDED, null);
+		}
+		resultCache.invalidate(job.getTargetConnId(), job.getTables().stream()
+														 .map(t -> SqlUtils.bareName(t.getTarget()))
+														 .toList());
+	}
+
+	private void copyTable(TableCopyJob job, TableCopyTask task, TableCopyParam param,
+						   JdbcExecutor source, DatabaseType sourceType, JdbcExecutor target, DatabaseType targetType) {
+		long start = System.nanoTime();
+		try {
+			List<String[]> columns = mapColumns(task, source, target);
+			String where = ObjectUtils.isEmpty(task.getSpec().getWhere()) ? "" : " WHERE " + task.getSpec().getWhere();
+			String select = "SELECT " + String.join(", ", columns.stream().map(c -> SqlUtils.quoteIdent(sourceType, c[0])).toList())
+					+ " FROM " + task.getSource() + where;
+			List<String> targetColumns = columns.stream().map(c -> SqlUtils.quoteIdent(targetType, c[1])).toList();
+			boolean truncate = Boolean.TRUE.equals(param.getTruncate());
+			boolean pgToPg = sourceType == DatabaseType.POSTGRESQL && targetType == DatabaseType.POSTGRESQL;
+			Long estimate = where.isEmpty() && sourceType == DatabaseType.POSTGRESQL ? estimateRows(source, task.getSource()) : null;
+			long rows;
+			try (Endpoints endpoints = reserve(job, source, target)) {
+				if (pgToPg) {
+					task.started("copy", estimate);
+					rows = pipeCopy(job, task, endpoints.source(), endpoints.target(), select, targetColumns, truncate);
+				} else {
+					task.started("rows", estimate);
+					rows = pipeRows(job, task, endpoints.source(), endpoints.target(), targetType, select, targetColumns, truncate, param.getBatchSize());
+				}
+			}
+			task.finished(QueryJobStatus.SUCCEEDED, rows, null);
+			log.info("Copied {} rows from {} to {} in {} ms", rows, task.getSource(), task.getTarget(), task.getElapsedMillis());
+		} catch (Exception e) {
+			if (job.isCancelRequested()) {
+				task.finished(QueryJobStatus.CANCELLED, null, null);
+			} else {
+				String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+				log.debug("Copy {} -> {} failed: {}", task.getSource(), task.getTarget(), message);
+				task.finished(QueryJobStatus.FAILED, null, message);
+			}
+		} finally {
+			record(job, task, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * 一起占用源和目标的 BULK 额度，返回在额度内借连接的执行器：
+	 * <ul>
+	 *     <li>同一个连接池：一次占两个额度；bulk-max-concurrent 为 1 时只能占到一个，源和目标连接都在这一个额度内借出</li>
+	 *     <li>不同连接池：排队等待目标额度，再不排队地尝试源额度，拿不到时归还目标额度、随机退避后重试，
+	 *     总等待不超过 admission.max-wait</li>
+	 * </ul>
+	 */
+	private Endpoints reserve(TableCopyJob job, JdbcExecutor source, JdbcExecutor target) throws InterruptedException {
+		if (job.getSourceConnId().equals(job.getTargetConnId()) && job.getSourceDatabase().equals(job.getTargetDatabase())) {
+			JdbcExecutor.Reservation both = target.reserve(2);
+			return new Endpoints(both.executor(), both.executor(), List.of(both));
+		}
+		long deadline = System.nanoTime() + properties.getAdmission().getMaxWait().toNanos();
+		long backoff = 20;
+		while (true) {
+			JdbcExecutor.Reservation targetPermit = target.reserve(1);
+			JdbcExecutor.Reservation sourcePermit = source.tryReserve(1);
+			if (sourcePermit != null) {
+				return new Endpoints(sourcePermit.executor(), targetPermit.executor(), List.of(targetPermit, sourcePermit));
+			}
+			targetPermit.close();
+			if (job.isCancelRequested()) {
+				throw new BizException("COPY_CANCELLED", "Copy cancelled");
+			}
+			if (System.nanoTime() > deadline) {
+				throw new BizException("ADMISSION_TIMEOUT", "Timed out waiting for connection slots on both "
+						+ job.getSourceConnId() + " and " + job.getTargetConnId());
+			}
+			Thread.sleep(ThreadLocalRandom.current().nextLong(backoff, backoff * 2));
+			backoff = Math.min(backoff * 2, 1000);
+		}
+	}
+
+	/**
+	 * 两端都是 PostgreSQL：目标端在一个事务中（可选地先 TRUNCATE）执行 COPY FROM STDIN，
+	 * 源端 COPY TO STDOUT 写出的字节经过有界的块队列交给写入线程，任一端失败时目标事务回滚
+	 */
+	private long pipeCopy(TableCopyJob job, TableCopyTask task, JdbcExecutor source, JdbcExecutor target,
+						  String select, List<String> targetColumns, boolean truncate) {
+		String copyOut = "COPY (" + select + ") TO STDOUT WITH (FORMAT csv)";
+		String copyIn = "COPY " + task.getTarget() + " (" + String.join(", ", targetColumns) + ") FROM STDIN WITH (FORMAT csv)";
+		return target.withConnection(targetCon -> source.withConnection(sourceCon -> {
+			boolean autoCommit = targetCon.getAutoCommit();
+			targetCon.setAutoCommit(false);
+			try {
+				if (truncate) {
+					try (Statement st = targetCon.createStatement()) {
+						st.execute("TRUNCATE TABLE " + task.getTarget());
+					}
+				}
+				CopyIn in = targetCon.unwrap(PGConnection.class).getCopyAPI().copyIn(copyIn);
+				long rows;
+				try {
+					try (OutputStream pipe = new PipelinedOutputStream(new CopyInStream(in), PIPE_BLOCK_SIZE, PIPE_DEPTH, "copy-write-" + job.getCopyId())) {
+						rows = PgCopy.copyOut(sourceCon, copyOut, new ProgressOutputStream(pipe, job, task));
+					}
+					in.endCopy();
+				} finally {
+					if (in.isActive()) {
+						in.cancelCopy();
+					}
+				}
+				targetCon.commit();
+				return rows;
+			} catch (SQLException | RuntimeException e) {
+				targetCon.rollback();
+				throw e;
+			} catch (IOException e) {
+				targetCon.rollback();
+				throw new UncheckedIOException(e);
+			} finally {
+				targetCon.setAutoCommit(autoCommit);
+			}
+		}));
+	}
+
+	/**
+	 * 其它组合：读取线程流式读取源表，写入线程每 batchSize 行提交一批；失败时已提交的批次保留
+	 */
+	private long pipeRows(TableCopyJob job, TableCopyTask task, JdbcExecutor source, JdbcExecutor target, DatabaseType targetType,
+						  String select, List<String> targetColumns, boolean truncate, Integer batchSizeParam) {
+		NebulaProperties.Transfer config = properties.getTransfer();
+		int batchSize = batchSizeParam == null ? config.getBatchSize() : Math.max(batchSizeParam, 1);
+		int chunkRows = Math.max(config.getChunkRows(), 1);
+		int fetchSize = properties.getQuery().getFetchSize();
+		return target.withConnection(targetCon -> {
+			if (truncate) {
+				try (Statement st = targetCon.createStatement()) {
+					st.execute("TRUNCATE TABLE " + task.getTarget());
+				}
+			}
+			BlockingQueue<RowChunk> queue = new ArrayBlockingQueue<>(Math.max(config.getQueueChunks(), 1));
+			Thread reader = Thread.ofVirtual().name("copy-read-" + job.getCopyId()).start(
+					() -> readRows(job, source, select, fetchSize, chunkRows, queue));
+			try (TableLoader loader = targetType == DatabaseType.POSTGRESQL
+					? new PgCopyLoader(targetCon, task.getTarget(), targetColumns)
+					: new JdbcBatchLoader(targetCon, task.getTarget(), targetColumns)) {
+				return writeRows(job, task, loader, queue, batchSize);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new BizException("COPY_INTERRUPTED", "Copy interrupted");
+			} finally {
+				reader.interrupt();
+				try {
+					reader.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+	}
+
+	private void readRows(TableCopyJob job, JdbcExecutor source, String select, int fetchSize, int chunkRows, BlockingQueue<RowChunk> queue) {
+		StatementHook hook = new StatementHook() {
+			@Override
+			public void beforeExecute(java.sql.Connection con, Statement stmt) {
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return job.isCancelRequested();
+			}
+		};
+		try {
+			try {
+				source.queryStream(select, null, fetchSize, hook, new RowStreamHandler() {
+					private List<Object[]> rows = new ArrayList<>(chunkRows);
+					private int columnCount;
+
+					@Override
+					public void onStart(ResultSetMetaData meta) throws SQLException {
+						columnCount = meta.getColumnCount();
+					}
+
+					@Override
+					public void processRow(ResultSet rs) throws SQLException {
+						Object[] row = new Object[columnCount];
+						for (int i = 0; i < columnCount; i++) {
+							row[i] = portable(JdbcUtils.getResultSetValue(rs, i + 1));
+						}
+						rows.add(row);
+						if (rows.size() >= chunkRows) {
+							put(queue, new RowChunk(rows, null));
+							rows = new ArrayList<>(chunkRows);
+						}
+					}
+
+					@Override
+					public void onComplete(long rowCount) {
+						if (!rows.isEmpty()) {
+							put(queue, new RowChunk(rows, null));
+						}
+					}
+				});
+				queue.put(RowChunk.END);
+			} catch (RuntimeException e) {
+				queue.put(new RowChunk(null, e));
+			}
+		} catch (InterruptedException e) {
+			// 写入线程已经结束
+		}
+	}
+
+	private static void put(BlockingQueue<RowChunk> queue, RowChunk chunk) {
+		try {
+			queue.put(chunk);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BizException("COPY_INTERRUPTED", "Copy interrupted");
+		}
+	}
+
+	private long writeRows(TableCopyJob job, TableCopyTask task, TableLoader loader, BlockingQueue<RowChunk> queue, int batchSize)
+			throws SQLException, IOException, InterruptedException {
+		long rows = 0;
+		long batchRows = 0;
+		boolean inBatch = false;
+		try {
+			while (true) {
+				RowChunk chunk = queue.take();
+				if (chunk.failure() != null) {
+					throw chunk.failure();
+				}
+				if (chunk.rows() == null) {
+					if (inBatch) {
+						loader.commitBatch();
+						inBatch = false;
+					}
+					return rows;
+				}
+				if (job.isCancelRequested()) {
+					throw new BizException("COPY_CANCELLED", "Copy cancelled");
+				}
+				if (!inBatch) {
+					loader.beginBatch();
+					inBatch = true;
+				}
+				loader.write(chunk.rows());
+				rows += chunk.rows().size();
+				batchRows += chunk.rows().size();
+				task.copied(chunk.rows().size(), 0);
+				if (batchRows >= batchSize) {
+					loader.commitBatch();
+					inBatch = false;
+					batchRows = 0;
+				}
+			}
+		} finally {
+			if (inBatch) {
+				loader.abortBatch();
+			}
+		}
+	}
+
+	/**
+	 * 驱动特有的值（PGobject、数组、UUID 等）转成文本，交给目标数据库按列类型解析
+	 */
+	private static Object portable(Object value) {
+		return switch (value) {
+			case null -> null;
+			case Number n -> n;
+			case String s -> s;
+			case Boolean b -> b;
+			case byte[] bytes -> bytes;
+			case Date d -> d;
+			case Temporal t -> t;
+			default -> value.toString();
+		};
+	}
+
+	/**
+	 * 两端按列名对应：指定了 columns 时直接使用；否则取源表中在目标表里也存在的列（名称不区分大小写），返回 [源列名, 目标列名]
+	 */
+	private List<String[]> mapColumns(TableCopyTask task, JdbcExecutor source, JdbcExecutor target) {
+		List<String> sourceColumns = columnNames(source, task.getSource());
+		List<String> targetColumns = columnNames(target, task.getTarget());
+		Map<String, String> targetByName = new HashMap<>();
+		targetColumns.forEach(c -> targetByName.putIfAbsent(c.toLowerCase(Locale.ROOT), c));
+		Map<String, String> sourceByName = new HashMap<>();
+		sourceColumns.forEach(c -> sourceByName.putIfAbsent(c.toLowerCase(Locale.ROOT), c));
+
+		List<String> wanted = ObjectUtils.isEmpty(task.getSpec().getColumns()) ? sourceColumns : task.getSpec().getColumns();
+		boolean explicit = !ObjectUtils.isEmpty(task.getSpec().getColumns());
+		List<String[]> columns = new ArrayList<>();
+		for (String column : wanted) {
+			String sourceColumn = sourceByName.get(column.toLowerCase(Locale.ROOT));
+			String targetColumn = targetByName.get(column.toLowerCase(Locale.ROOT));
+			if (sourceColumn != null && targetColumn != null) {
+				columns.add(new String[]{sourceColumn, targetColumn});
+			} else if (explicit) {
+				throw new BizException("COLUMN_NOT_FOUND", "Column " + column + " not found in " + (sourceColumn == null ? task.getSource() : task.getTarget()));
+			}
+		}
+		if (columns.isEmpty()) {
+			throw new BizException("NO_MATCHING_COLUMNS", "No columns in common between " + task.getSource() + " and " + task.getTarget());
+		}
+		return columns;
+	}
+
+	private static List<String> columnNames(JdbcExecutor executor, String table) {
+		return executor.query("SELECT * FROM " + table + " WHERE 1 = 0", StatementHook.NONE, rs -> {
+			ResultSetMetaData meta = rs.getMetaData();
+			List<String> names = new ArrayList<>();
+			for (int i = 1; i <= meta.getColumnCount(); i++) {
+				names.add(meta.getColumnName(i));
+			}
+			return names;
+		});
+	}
+
+	/**
+	 * 从 pg_class.reltuples 估算行数，表从未 ANALYZE 过时为 null
+	 */
+	private static Long estimateRows(JdbcExecutor source, String table) {
+		List<Long> found = source.queryForList("SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)", Long.class, table);
+		return found.isEmpty() || found.get(0) == null || found.get(0) < 0 ? null : found.get(0);
+	}
+
+	/**
+	 * 每张表结束后记录耗时，成功的表再累计行数和字节数，标签为源和目标连接
+	 */
+	private void record(TableCopyJob job, TableCopyTask task, long nanos) {
+		Timer.builder(TABLE_TIMER)
+			 .description("Time to copy one table between connections")
+			 .tag("source", job.getSourceConnId())
+			 .tag("target", job.getTargetConnId())
+			 .tag("status", task.getStatus().name().toLowerCase(Locale.ROOT))
+			 .register(meterRegistry)
+			 .record(nanos, TimeUnit.NANOSECONDS);
+		if (task.getStatus() != QueryJobStatus.SUCCEEDED) {
+			return;
+		}
+		Counter.builder(ROWS_COUNTER)
+			   .description("Rows copied between connections")
+			   .tag("source", job.getSourceConnId())
+			   .tag("target", job.getTargetConnId())
+			   .register(meterRegistry)
+			   .increment(task.getRowsCopied());
+		Counter.builder(BYTES_COUNTER)
+			   .description("COPY bytes piped between PostgreSQL connections")
+			   .baseUnit("bytes")
+			   .tag("source", job.getSourceConnId())
+			   .tag("target", job.getTargetConnId())
+			   .register(meterRegistry)
+			   .increment(task.getBytesCopied());
+	}
+
+	private Connection relationalConnection(String connId) {
+		Connection conn = connectionService.getConnection(connId)
+										   .orElseThrow(() -> new BizException("Connection not found: " + connId));
+		if (!DatabaseType.fromValue(conn.getDbType()).isRelational()) {
+			throw new BizException("UNSUPPORTED_DB_TYPE", "Table copy is only supported between relational connections");
+		}
+		return conn;
+	}
+
+	private JdbcExecutor jdbcExecutor(String connId, String database) {
+		// 复制长时间占用连接，按 BULK 排队
+		DbExecutor executor = connectionService.getExecutor(connId, database, WorkPriority.BULK);
+		if (executor instanceof JdbcExecutor jdbcExecutor) {
+			return jdbcExecutor;
+		}
+		throw new BizException("Not a relational executor for connection " + connId);
+	}
+
+	/**
+	 * 定期清理已结束且超过保留时间的任务
+	 */
+	@Scheduled(fixedDelay = 60_000L)
+	public void evictFinished() {
+		Instant deadline = Instant.now().minus(properties.getJob().getRetention());
+		jobs.values().stream()
+			.filter(job -> job.getStatus().isFinished() && job.getFinishedAt() != null && job.getFinishedAt().isBefore(deadline))
+			.map(TableCopyJob::getCopyId)
+			.toList()
+			.forEach(this::remove);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		List.copyOf(jobs.keySet()).forEach(this::remove);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * 读取线程交给写入线程的一块数据；rows 为 null 表示读完，failure 不为 null 表示读取失败
+	 */
+	private record RowChunk(List<Object[]> rows, RuntimeException failure) {
+		static final RowChunk END = new RowChunk(null, null);
+	}
+
+	/**
+	 * 已经占好额度的源和目标执行器，close 时归还全部额度
+	 */
+	private record Endpoints(JdbcExecutor source, JdbcExecutor target, List<JdbcExecutor.Reservation> reservations) implements AutoCloseable {
+		@Override
+		public void close() {
+			reservations.forEach(JdbcExecutor.Reservation::close);
+		}
+	}
+
+	/**
+	 * 把字节写入目标端的 COPY FROM STDIN；结束或取消 COPY 由调用方决定，close 不做任何事
+	 */
+	private static class CopyInStream extends OutputStream {
+
+		private final CopyIn copyIn;
+
+		CopyInStream(CopyIn copyIn) {
+			this.copyIn = copyIn;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[]{(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			try {
+				copyIn.writeToCopy(b, off, len);
+			} catch (SQLException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * 统计源端写出的字节数和行数（按换行符估算，带引号的多行值会多算），任务被取消时让 COPY TO 中止
+	 */
+	private static class ProgressOutputStream extends OutputStream {
+
+		private final OutputStream out;
+		private final TableCopyJob job;
+		private final TableCopyTask task;
+
+		ProgressOutputStream(OutputStream out, TableCopyJob job, TableCopyTask task) {
+			this.out = out;
+			this.job = job;
+			this.task = task;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[]{(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (job.isCancelRequested()) {
+				throw new IOException("Copy cancelled");
+			}
+			out.write(b, off, len);
+			long lines = 0;
+			for (int i = off; i < off + len; i++) {
+				if (b[i] == '\n') {
+					lines++;
+				}
+			}
+			task.copied(lines, len);
+		}
+	}
+}
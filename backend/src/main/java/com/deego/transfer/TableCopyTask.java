@@ -0,0 +1,100 @@
+package com.deego.transfer;
+
+import com.deego.enums.QueryJobStatus;
+import com.deego.model.param.TableCopyParam;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 复制任务中的一张表：进度计数由读写线程更新，查询时按已用时间计算吞吐
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TableCopyTask {
+
+	/**
+	 * 源表和目标表，已按各自的数据库加好引号
+	 */
+	private final String source;
+	private final String target;
+
+	/**
+	 * copy：两端都是 PostgreSQL，COPY TO 的输出直接作为 COPY FROM 的输入；rows：游标逐行读取，分批写入
+	 */
+	private volatile String method;
+
+	private volatile QueryJobStatus status = QueryJobStatus.PENDING;
+	private volatile Instant startedAt;
+	private volatile Instant finishedAt;
+
+	/**
+	 * 源表的估算行数（PostgreSQL 的 reltuples），未知时为 null
+	 */
+	private volatile Long estimatedRows;
+
+	/**
+	 * 已写入目标的行数；copy 方式运行中按传输的行数估算，结束后为 COPY 报告的准确行数
+	 */
+	private volatile long rowsCopied;
+	private volatile long bytesCopied;
+	private volatile String error;
+
+	@JsonIgnore
+	private final TableCopyParam.Table spec;
+
+	TableCopyTask(TableCopyParam.Table spec, String source, String target) {
+		this.spec = spec;
+		this.source = source;
+		this.target = target;
+	}
+
+	public Double getPercent() {
+		Long estimated = estimatedRows;
+		if (status == QueryJobStatus.SUCCEEDED) {
+			return 100.0;
+		}
+		return estimated == null || estimated <= 0 ? null : Math.min(99.9, rowsCopied * 100.0 / estimated);
+	}
+
+	public long getElapsedMillis() {
+		if (startedAt == null) {
+			return 0;
+		}
+		return Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now()).toMillis();
+	}
+
+	public long getRowsPerSecond() {
+		long elapsed = getElapsedMillis();
+		return elapsed <= 0 ? 0 : rowsCopied * 1000 / elapsed;
+	}
+
+	public long getBytesPerSecond() {
+		long elapsed = getElapsedMillis();
+		return elapsed <= 0 ? 0 : bytesCopied * 1000 / elapsed;
+	}
+
+	void started(String method, Long estimatedRows) {
+		this.method = method;
+		this.estimatedRows = estimatedRows;
+		this.startedAt = Instant.now();
+		this.status = QueryJobStatus.RUNNING;
+	}
+
+	void copied(long rows, long bytes) {
+		rowsCopied += rows;
+		bytesCopied += bytes;
+	}
+
+	void finished(QueryJobStatus status, Long rows, String error) {
+		if (rows != null) {
+			this.rowsCopied = rows;
+		}
+		this.error = error;
+		this.finishedAt = Instant.now();
+		this.status = status;
+	}
+}
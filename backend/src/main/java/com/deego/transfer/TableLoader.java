@@ -0,0 +1,33 @@
+package com.deego.transfer;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 把转换好的行分批写入目标表。每批单独提交：提交成功的批次不会因为后面的失败而回滚，
+ * 失败的批次整体撤销，可以从该批的第一行重新导入。
+ */
+public interface TableLoader extends AutoCloseable {
+
+	void beginBatch() throws SQLException;
+
+	/**
+	 * 写入当前批次的一部分行，每行的值与目标列一一对应
+	 */
+	void write(List<Object[]> rows) throws SQLException, IOException;
+
+	void commitBatch() throws SQLException;
+
+	/**
+	 * 撤销当前批次，之后连接可以继续写下一批
+	 */
+	void abortBatch();
+
+	/**
+	 * 释放语句并恢复连接状态，连接本身由调用方归还
+	 */
+	@Override
+	default void close() {
+	}
+}
@@ -0,0 +1,86 @@
+package com.deego.transfer;
+
+import com.deego.config.NebulaProperties;
+import com.deego.exception.BizException;
+import org.springframework.util.ObjectUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+
+/**
+ * 解析请求中给出的服务器文件路径。导入只能读取 transfer.import-dir 下的文件，导出只能写入 transfer.export-dir 下的文件；
+ * 相对路径相对于对应目录，绝对路径规范化（含符号链接）后也必须在目录之内，否则拒绝
+ */
+public final class TransferPaths {
+
+	private TransferPaths() {
+	}
+
+	/**
+	 * 导入的源文件，必须已存在且可读
+	 */
+	public static Path importFile(NebulaProperties.Transfer config, String path) {
+		Path base = baseDir(config.getImportDir(), "import");
+		Path resolved = resolve(base, path);
+		if (!Files.isReadable(resolved)) {
+			throw new BizException("FILE_NOT_FOUND", "File not readable: " + path);
+		}
+		try {
+			checkInside(base.toRealPath(), resolved.toRealPath(), path);
+		} catch (IOException e) {
+			throw new BizException("FILE_NOT_FOUND", "File not readable: " + path);
+		}
+		return resolved;
+	}
+
+	/**
+	 * 导出的目标文件，需要时创建目录内的上级目录；已存在的文件会被覆盖
+	 */
+	public static Path exportFile(NebulaProperties.Transfer config, String path) {
+		Path base = baseDir(config.getExportDir(), "export");
+		Path resolved = resolve(base, path);
+		try {
+			Path realBase = Files.createDirectories(base).toRealPath();
+			Path parent = Files.createDirectories(resolved.getParent()).toRealPath();
+			checkInside(realBase, parent, path);
+			if (Files.isDirectory(resolved) || Files.isSymbolicLink(resolved)) {
+				throw new BizException("PATH_NOT_ALLOWED", "Export target must be a regular file: " + path);
+			}
+		} catch (IOException e) {
+			throw new BizException("EXPORT_ERROR", "Cannot create export directory for " + path + ": " + e.getMessage(), e);
+		}
+		return resolved;
+	}
+
+	private static Path baseDir(String dir, String kind) {
+		if (ObjectUtils.isEmpty(dir)) {
+			throw new BizException("PATH_NOT_ALLOWED", "Server-side " + kind + " files are disabled (nebula.transfer." + kind + "-dir is empty)");
+		}
+		return Path.of(dir).toAbsolutePath().normalize();
+	}
+
+	private static Path resolve(Path base, String path) {
+		if (ObjectUtils.isEmpty(path)) {
+			throw new BizException("filePath is required");
+		}
+		Path resolved;
+		try {
+			resolved = base.resolve(path).normalize();
+		} catch (InvalidPathException e) {
+			throw new BizException("PATH_NOT_ALLOWED", "Invalid path: " + path);
+		}
+		checkInside(base, resolved, path);
+		if (resolved.equals(base)) {
+			throw new BizException("PATH_NOT_ALLOWED", "Path must name a file: " + path);
+		}
+		return resolved;
+	}
+
+	private static void checkInside(Path base, Path resolved, String path) {
+		if (!resolved.startsWith(base)) {
+			throw new BizException("PATH_NOT_ALLOWED", "Path is outside of " + base + ": " + path);
+		}
+	}
+}
@@ -1,12 +1,341 @@
 package com.deego.utils;
 
+import com.deego.enums.DatabaseType;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class SqlUtils {
+
+	/**
+	 * 只读语句的起始关键字
+	 */
+	private static final Set<String> READ_ONLY_KEYWORDS = Set.of("select", "with", "values", "table", "show", "explain");
+
+	/**
+	 * 出现在只读关键字之后仍会修改数据的情况：WITH 中的 DML、SELECT ... INTO、EXPLAIN ANALYZE、加锁读
+	 */
+	private static final Pattern WRITE_KEYWORD = Pattern.compile(
+			"\\b(insert|update|delete|merge|truncate|into|analyze|for\\s+update|for\\s+share|nextval|setval)\\b");
+
+	/**
+	 * COPY ... TO 只读出数据，COPY ... FROM 会写入表
+	 */
+	private static final Pattern COPY_TO = Pattern.compile("\\bto\\s+(?:stdout|program\\b|')");
+
+	/**
+	 * 表名，支持 schema.table 和带引号的标识符
+	 */
+	private static final String RELATION = "((?:[\\w$]+|\"[^\"]+\"|`[^`]+`)(?:\\s*\\.\\s*(?:[\\w$]+|\"[^\"]+\"|`[^`]+`))*)";
+
+	/**
+	 * FROM / JOIN / USING / UPDATE / INTO / TABLE 等关键字后面的表名
+	 */
+	private static final Pattern TABLE_REFERENCE = Pattern.compile(
+			"\\b(from|join|using|update|into|table|truncate|exists|copy)\\s+(?:only\\s+|lateral\\s+)?" + RELATION);
+
+	/**
+	 * FROM 列表中逗号之后的表名
+	 */
+	private static final Pattern LIST_RELATION = Pattern.compile("\\s*(?:only\\s+|lateral\\s+)?" + RELATION);
+
+	/**
+	 * 以子查询开头的 FROM 列表，子查询之后可能还有逗号分隔的表
+	 */
+	private static final Pattern SUBQUERY_REFERENCE = Pattern.compile("\\b(?:from|join|using)\\s+(?:lateral\\s+)?\\(");
+
+	/**
+	 * 结束 FROM 列表的关键字；JOIN 后面的表由 TABLE_REFERENCE 单独匹配
+	 */
+	private static final Set<String> FROM_LIST_END = Set.of("where", "group", "having", "order", "limit", "offset", "window",
+			"union", "intersect", "except", "returning", "on", "join", "natural", "cross", "inner", "left", "right", "full",
+			"fetch", "for", "set", "select", "values", "into", "when");
+
+	/**
+	 * 改变数据库对象的语句的起始关键字
+	 */
+	private static final Pattern DDL_KEYWORD = Pattern.compile(
+			"(?:^|;)\\s*(?:create|alter|drop|comment|grant|revoke|do|security\\s+label|import\\s+foreign\\s+schema)\\b");
+
 	public static String replacePlaceholders(String sql, Map<String, String> placeholders) {
 		for (Map.Entry<String, String> entry : placeholders.entrySet()) {
 			sql = sql.replace("{" + entry.getKey() + "}", entry.getValue());
 		}
 		return sql;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * 规范化 SQL：去掉注释和末尾分号，字符串/标识符引号之外的连续空白压缩为一个空格。
+	 * 只做不改变语义的变换，不改变大小写。
+	 */
+	public static String normalize(String sql) {
+		StringBuilder sb = new StringBuilder(sql.length());
+		boolean pendingSpace = false;
+		int i = 0;
+		int n = sql.length();
+		while (i < n) {
+			char c = sql.charAt(i);
+			if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+				while (i < n && sql.charAt(i) != '\n') {
+					i++;
+				}
+				pendingSpace = true;
+				continue;
+			}
+			if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+				int end = sql.indexOf("*/", i + 2);
+				i = end < 0 ? n : end + 2;
+				pendingSpace = true;
+				continue;
+			}
+			if (Character.isWhitespace(c)) {
+				pendingSpace = true;
+				i++;
+				continue;
+			}
+			if (pendingSpace && !sb.isEmpty()) {
+				sb.append(' ');
+			}
+			pendingSpace = false;
+			if (c == '\'' || c == '"' || c == '`') {
+				int end = closingQuote(sql, i, c);
+				sb.append(sql, i, end);
+				i = end;
+				continue;
+			}
+			sb.append(c);
+			i++;
+		}
+		int len = sb.length();
+		while (len > 0 && (sb.charAt(len - 1) == ';' || sb.charAt(len - 1) == ' ')) {
+			len--;
+		}
+		sb.setLength(len);
+		return sb.toString();
+	}
+
+	/**
+	 * 判断语句是否只读（不修改数据、不加锁）。判断偏保守：拿不准的一律当作写语句。
+	 */
+	public static boolean isReadOnly(String sql) {
+		String text = stripLiterals(normalize(sql)).toLowerCase(Locale.ROOT);
+		if (text.isEmpty() || text.contains(";")) {
+			return false;
+		}
+		int end = 0;
+		while (end < text.length() && Character.isLetter(text.charAt(end))) {
+			end++;
+		}
+		String keyword = text.substring(0, end);
+		if ("copy".equals(keyword)) {
+			// COPY (query) TO 的 query 可以是带 RETURNING 的 INSERT/UPDATE/DELETE
+			return COPY_TO.matcher(text).find() && !WRITE_KEYWORD.matcher(text).find();
+		}
+		return READ_ONLY_KEYWORDS.contains(keyword) && !WRITE_KEYWORD.matcher(text).find();
+	}
+
+	/**
+	 * 判断语句是否可能改变数据库对象（CREATE、ALTER、DROP、COMMENT、GRANT 等，以及可以执行任意语句的 DO）；
+	 * 多条语句时任意一条是即可
+	 */
+	public static boolean isDdl(String sql) {
+		return DDL_KEYWORD.matcher(stripLiterals(normalize(sql)).toLowerCase(Locale.ROOT)).find();
+	}
+
+	/**
+	 * 提取语句中引用的表名（小写、去掉引号和 schema 前缀），包括 FROM a, b 这样逗号分隔的列表。
+	 * 解析失败、没有找到表，或 FROM 中有函数调用（FROM f(1)，读了哪些表无从得知）时返回空集合，调用方应视为"可能涉及任意表"。
+	 * 只按语法解析，视图底层的表不在其中
+	 */
+	public static Set<String> referencedTables(String sql) {
+		String text = stripLiterals(normalize(sql));
+		String lower = text.toLowerCase(Locale.ROOT);
+		Set<String> tables = new LinkedHashSet<>();
+		Matcher m = TABLE_REFERENCE.matcher(lower);
+		while (m.find()) {
+			addTable(tables, text, m.start(2), m.end(2));
+			String keyword = m.group(1);
+			if ("from".equals(keyword) || "join".equals(keyword) || "using".equals(keyword)) {
+				if (isCall(lower, m.end(2)) || !fromList(text, lower, m.end(2), tables)) {
+					return new LinkedHashSet<>();
+				}
+			}
+		}
+		Matcher sub = SUBQUERY_REFERENCE.matcher(lower);
+		while (sub.find()) {
+			int end = closingParen(lower, sub.end() - 1);
+			if (end < 0 || !fromList(text, lower, end + 1, tables)) {
+				return new LinkedHashSet<>();
+			}
+		}
+		return tables;
+	}
+
+	/**
+	 * 从 FROM 列表的第一项之后读出逗号分隔的其余表名，直到子句结束；括号内的子查询由外层的匹配处理。
+	 * 其中有函数调用时返回 false
+	 */
+	private static boolean fromList(String text, String lower, int pos, Set<String> tables) {
+		int n = lower.length();
+		int depth = 0;
+		for (int i = pos; i < n; i++) {
+			char c = lower.charAt(i);
+			if (c == '"' || c == '`') {
+				i = closingQuote(lower, i, c) - 1;
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				if (depth == 0) {
+					return true;
+				}
+				depth--;
+			} else if (depth == 0 && c == ',') {
+				Matcher next = LIST_RELATION.matcher(lower).region(i + 1, n);
+				if (next.lookingAt()) {
+					if (FROM_LIST_END.contains(next.group(1))) {
+						return true;
+					}
+					if (isCall(lower, next.end(1))) {
+						return false;
+					}
+					addTable(tables, text, next.start(1), next.end(1));
+					i = next.end(1) - 1;
+				}
+			} else if (depth == 0 && Character.isLetter(c) && (i == 0 || !isWordChar(lower.charAt(i - 1)))) {
+				int end = i;
+				while (end < n && isWordChar(lower.charAt(end))) {
+					end++;
+				}
+				if (FROM_LIST_END.contains(lower.substring(i, end))) {
+					return true;
+				}
+				i = end - 1;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * start 处左括号对应的右括号位置，没有时返回 -1
+	 */
+	private static int closingParen(String lower, int start) {
+		int depth = 0;
+		for (int i = start; i < lower.length(); i++) {
+			char c = lower.charAt(i);
+			if (c == '"' || c == '`') {
+				i = closingQuote(lower, i, c) - 1;
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')' && --depth == 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isCall(String lower, int pos) {
+		int i = pos;
+		while (i < lower.length() && lower.charAt(i) == ' ') {
+			i++;
+		}
+		return i < lower.length() && lower.charAt(i) == '(';
+	}
+
+	private static boolean isWordChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+	}
+
+	private static void addTable(Set<String> tables, String text, int start, int end) {
+		// 用原文截取，保留带引号标识符的大小写
+		String name = bareName(text.substring(start, end));
+		if (name != null) {
+			tables.add(name);
+		}
+	}
+
+	/**
+	 * PostgreSQL 标识符加双引号，内部的双引号转义
+	 */
+	public static String quoteIdent(String name) {
+		return '"' + name.replace("\"", "\"\"") + '"';
+	}
+
+	/**
+	 * 按数据库类型给标识符加引号：MySQL 用反引号，SQL Server 用方括号，其余用双引号
+	 */
+	public static String quoteIdent(DatabaseType type, String name) {
+		return switch (type) {
+			case MYSQL -> '`' + name.replace("`", "``") + '`';
+			case SQLSERVER -> '[' + name.replace("]", "]]") + ']';
+			default -> quoteIdent(name);
+		};
+	}
+
+	/**
+	 * schema 为空时只有表名
+	 */
+	public static String qualifiedName(DatabaseType type, String schema, String table) {
+		String quoted = quoteIdent(type, table);
+		return schema == null || schema.isEmpty() ? quoted : quoteIdent(type, schema) + "." + quoted;
+	}
+
+	/**
+	 * 去掉 schema 前缀和引号，未加引号的部分转成小写：public."Users" -> Users，public.users -> users
+	 */
+	public static String bareName(Object qualifiedName) {
+		if (qualifiedName == null) {
+			return null;
+		}
+		String name = qualifiedName.toString().trim();
+		if (name.isEmpty()) {
+			return null;
+		}
+		int dot = name.lastIndexOf('.');
+		String last = name.substring(dot + 1).trim();
+		if (last.length() >= 2 && (last.charAt(0) == '"' || last.charAt(0) == '`')) {
+			return last.substring(1, last.length() - 1);
+		}
+		return last.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * 把字符串字面量替换为空字面量，避免其中的关键字干扰判断
+	 */
+	private static String stripLiterals(String sql) {
+		StringBuilder sb = new StringBuilder(sql.length());
+		int i = 0;
+		while (i < sql.length()) {
+			char c = sql.charAt(i);
+			if (c == '\'') {
+				i = closingQuote(sql, i, c);
+				sb.append("''");
+				continue;
+			}
+			sb.append(c);
+			i++;
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 返回 start 处引号对应的闭合引号之后的位置，连续两个引号视为转义
+	 */
+	private static int closingQuote(String sql, int start, char quote) {
+		int i = start + 1;
+		while (i < sql.length()) {
+			if (sql.charAt(i) == quote) {
+				if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+					i += 2;
+					continue;
+				}
+				return i + 1;
+			}
+			i++;
+		}
+		return sql.length();
+	}
+}
@@ -0,0 +1,151 @@
+package com.deego.benchmark;
+
+import com.deego.exec.JdbcExecutor;
+import com.deego.query.arrow.ArrowResultWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对比两种结果传输方式在大结果集上的开销（独立运行，不随应用启动）：
+ * 1. 现有路径：JdbcTemplate.queryForList 物化全部行 + Jackson 序列化为 JSON，前端再整体解析
+ * 2. Arrow：流式遍历 ResultSet，按 record batch 写成 Arrow IPC，前端按列读取
+ *
+ * 位于测试源码中，不打进应用 jar。运行方式（需要一个可连接的 PostgreSQL）：
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java --add-opens=java.base/java.nio=ALL-UNNAMED -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *      com.deego.benchmark.ResultEncodingBenchmark jdbc:postgresql://localhost:5432/postgres postgres password 1000000
+ */
+public class ResultEncodingBenchmark {
+
+	private static final int ROUNDS = 3;
+
+	public static void main(String[] args) throws Exception {
+		String url = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/postgres";
+		String user = args.length > 1 ? args[1] : "postgres";
+		String password = args.length > 2 ? args[2] : "";
+		int rows = args.length > 3 ? Integer.parseInt(args[3]) : 1_000_000;
+
+		String sql = """
+				SELECT g AS id,
+				       g::bigint * 7919 AS amount,
+				       g * 0.25::float8 AS ratio,
+				       timestamptz '2024-01-01' + g * interval '1 second' AS created_at,
+				       md5(g::text) AS label
+				FROM generate_series(1, %d) g
+				""".formatted(rows);
+
+		SingleConnectionDataSource ds = new SingleConnectionDataSource(url, user, password, true);
+		JdbcTemplate jdbc = new JdbcTemplate(ds);
+		JdbcExecutor executor = new JdbcExecutor(jdbc);
+		ObjectMapper mapper = new ObjectMapper();
+
+		System.out.printf("rows=%d, rounds=%d (best of)%n", rows, ROUNDS);
+		Result json = null;
+		Result arrow = null;
+		try (BufferAllocator allocator = new RootAllocator()) {
+			for (int i = 0; i < ROUNDS; i++) {
+				json = best(json, runJson(jdbc, mapper, sql));
+				arrow = best(arrow, runArrow(executor, allocator, sql));
+			}
+		} finally {
+			ds.destroy();
+		}
+		System.out.println("path                   server ms   payload MB   client decode ms   heap growth MB");
+		print("queryForList + Jackson", json);
+		print("Arrow IPC stream", arrow);
+	}
+
+	private static Result runJson(JdbcTemplate jdbc, ObjectMapper mapper, String sql) throws Exception {
+		HeapProbe heap = new HeapProbe();
+		long start = System.nanoTime();
+		List<Map<String, Object>> results = jdbc.queryForList(sql);
+		heap.sample();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.writeValue(out, Map.of("success", true, "results", results, "rowCount", results.size()));
+		heap.sample();
+		long serverNanos = System.nanoTime() - start;
+		results = null;
+
+		byte[] payload = out.toByteArray();
+		out = null;
+		long decodeStart = System.nanoTime();
+		mapper.readTree(payload);
+		long decodeNanos = System.nanoTime() - decodeStart;
+		return new Result(serverNanos, payload.length, decodeNanos, heap.peakMb());
+	}
+
+	private static Result runArrow(JdbcExecutor executor, BufferAllocator allocator, String sql) throws Exception {
+		HeapProbe heap = new HeapProbe();
+		long start = System.nanoTime();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ArrowResultWriter writer = new ArrowResultWriter(allocator, out, 16384)) {
+			executor.queryStream(sql, 1000, writer);
+		}
+		heap.sample();
+		long serverNanos = System.nanoTime() - start;
+
+		byte[] payload = out.toByteArray();
+		out = null;
+		long decodeStart = System.nanoTime();
+		long decodedRows = 0;
+		try (ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(payload), allocator)) {
+			VectorSchemaRoot root = reader.getVectorSchemaRoot();
+			while (reader.loadNextBatch()) {
+				decodedRows += root.getRowCount();
+			}
+		}
+		long decodeNanos = System.nanoTime() - decodeStart;
+		if (decodedRows == 0) {
+			throw new IllegalStateException("Arrow stream is empty");
+		}
+		return new Result(serverNanos, payload.length, decodeNanos, heap.peakMb());
+	}
+
+	private static Result best(Result current, Result next) {
+		return current == null || next.serverNanos < current.serverNanos ? next : current;
+	}
+
+	private static void print(String name, Result r) {
+		System.out.printf("%-22s %10.0f %12.1f %18.0f %14.0f%n", name, r.serverNanos / 1e6, r.payloadBytes / 1048576.0,
+				r.decodeNanos / 1e6, r.peakHeapMb);
+	}
+
+	private record Result(long serverNanos, long payloadBytes, long decodeNanos, double peakHeapMb) {
+	}
+
+	/**
+	 * 粗略统计堆占用：开始前 GC 一次作为基线，采样时记录当前已用堆
+	 */
+	private static class HeapProbe {
+		private final long baseline;
+		private long peak;
+
+		HeapProbe() {
+			System.gc();
+			baseline = used();
+		}
+
+		void sample() {
+			peak = Math.max(peak, used() - baseline);
+		}
+
+		double peakMb() {
+			return peak / 1048576.0;
+		}
+
+		private static long used() {
+			Runtime rt = Runtime.getRuntime();
+			return rt.totalMemory() - rt.freeMemory();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.deego.exec;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JdbcExecutorTest {
+
+    private static final String JSONB_SQL = "SELECT doc FROM t WHERE doc ? 'key' OR doc ?| array['a']";
+
+    private Connection con;
+    private DatabaseMetaData metaData;
+    private ResultSet rs;
+    private JdbcExecutor executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        con = mock(Connection.class);
+        metaData = mock(DatabaseMetaData.class);
+        rs = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(con);
+        when(con.getAutoCommit()).thenReturn(true);
+        when(con.getMetaData()).thenReturn(metaData);
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(rs.getMetaData()).thenReturn(mock(ResultSetMetaData.class));
+        executor = new JdbcExecutor(new JdbcTemplate(dataSource));
+    }
+
+    @Test
+    void streamWithoutArgsUsesPlainStatement() throws Exception {
+        Statement st = mock(Statement.class);
+        when(con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(st);
+        when(st.executeQuery(JSONB_SQL)).thenReturn(rs);
+        when(rs.next()).thenReturn(true, true, false);
+        long[] rows = new long[1];
+
+        executor.queryStream(JSONB_SQL, null, 500, StatementHook.NONE, new RowStreamHandler() {
+            @Override
+            public void processRow(ResultSet r) {
+            }
+
+            @Override
+            public void onComplete(long rowCount) {
+                rows[0] = rowCount;
+            }
+        });
+
+        assertThat(rows[0]).isEqualTo(2);
+        verify(st).setFetchSize(500);
+        verify(con, never()).prepareStatement(anyString(), anyInt(), anyInt());
+        // 自动提交的连接在流式读取期间改为手动提交，结束后恢复
+        verify(con).setAutoCommit(false);
+        verify(con).commit();
+        verify(con).setAutoCommit(true);
+    }
+
+    @Test
+    void streamWithArgsBindsThem() throws Exception {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(con.prepareStatement("SELECT * FROM t WHERE id = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(ps);
+        when(ps.executeQuery()).thenReturn(rs);
+
+        executor.queryStream("SELECT * FROM t WHERE id = ?", new Object[]{42}, 500, StatementHook.NONE, r -> {
+        });
+
+        verify(ps).setFetchSize(500);
+        verify(ps).setObject(1, 42);
+        verify(con, never()).createStatement(anyInt(), anyInt());
+    }
+
+    @Test
+    void streamOnMySqlPreparesForCursorFetch() throws Exception {
+        when(metaData.getDatabaseProductName()).thenReturn("MySQL");
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(con.prepareStatement("SELECT * FROM t", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(ps);
+        when(ps.executeQuery()).thenReturn(rs);
+
+        executor.queryStream("SELECT * FROM t", new Object[0], 500, StatementHook.NONE, r -> {
+        });
+
+        verify(ps).setFetchSize(500);
+        verify(con, never()).createStatement(anyInt(), anyInt());
+    }
+}
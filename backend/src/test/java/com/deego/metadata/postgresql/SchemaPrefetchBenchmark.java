@@ -0,0 +1,182 @@
+package com.deego.metadata.postgresql;
+
+import com.deego.exec.JdbcExecutor;
+import com.deego.metadata.DatabaseNodeType;
+import com.deego.metadata.TreeListing;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对比对象树两种加载方式在大 schema 上的开销（独立运行，不随应用启动）：
+ * 1. 逐个节点：打开 schema 6 次查询（表、视图、物化视图、序列、函数、存储过程），每张表展开再 3 次（列、约束、索引）
+ * 2. 预取：{@link PgSchemaPrefetch} 一次往返读出整个 schema 的所有列表
+ * 同时校验两种方式得到的列表完全一致，并对比列列表改用 pg_attribute 前后单次查询的耗时。
+ *
+ * 测试用的 schema 不存在或表数不符时先重建（每张表 6 列、主键、一个索引，每 10 张表一个外键，另有视图、序列和函数）。
+ * 位于测试源码中、与 {@link PostgreSqlMetadataProvider} 同包，以便直接在 JDBC 连接上逐个节点查询。
+ * 运行方式（需要一个可连接的 PostgreSQL）：
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *      com.deego.metadata.postgresql.SchemaPrefetchBenchmark jdbc:postgresql://localhost:5432/postgres postgres password 5000
+ */
+public class SchemaPrefetchBenchmark {
+
+	private static final int ROUNDS = 3;
+
+	private static final String SCHEMA = "bench_tree";
+
+	private static final String CONN_ID = "bench";
+
+	private static final DatabaseNodeType[] SCHEMA_TYPES = {DatabaseNodeType.TABLE, DatabaseNodeType.VIEW, DatabaseNodeType.MATERIALIZED_VIEW,
+			DatabaseNodeType.SEQUENCE, DatabaseNodeType.FUNCTION, DatabaseNodeType.PROCEDURE};
+
+	private static final DatabaseNodeType[] TABLE_TYPES = {DatabaseNodeType.COLUMN, DatabaseNodeType.CONSTRAINT, DatabaseNodeType.INDEX};
+
+	/**
+	 * 改动之前列列表使用的查询
+	 */
+	private static final String INFORMATION_SCHEMA_COLUMNS = """
+			SELECT column_name AS name, data_type, is_nullable
+			FROM information_schema.columns
+			WHERE table_schema = ? AND table_name = ?
+			ORDER BY ordinal_position
+			""";
+
+	private static final String PG_ATTRIBUTE_COLUMNS = """
+			SELECT a.attname AS name, format_type(a.atttypid, NULL) AS data_type,
+			       CASE WHEN a.attnotnull THEN 'NO' ELSE 'YES' END AS is_nullable
+			FROM pg_attribute a
+			JOIN pg_class c ON c.oid = a.attrelid
+			JOIN pg_namespace n ON n.oid = c.relnamespace
+			WHERE n.nspname = ? AND c.relname = ? AND a.attnum > 0 AND NOT a.attisdropped
+			ORDER BY a.attnum
+			""";
+
+	public static void main(String[] args) throws Exception {
+		String url = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/postgres";
+		String user = args.length > 1 ? args[1] : "postgres";
+		String password = args.length > 2 ? args[2] : "";
+		int tables = args.length > 3 ? Integer.parseInt(args[3]) : 5000;
+
+		SingleConnectionDataSource ds = new SingleConnectionDataSource(url, user, password, true);
+		try {
+			JdbcTemplate jdbc = new JdbcTemplate(ds);
+			JdbcExecutor executor = new JdbcExecutor(jdbc);
+			String database = jdbc.queryForObject("SELECT current_database()", String.class);
+			prepareSchema(jdbc, tables);
+
+			PostgreSqlMetadataProvider provider = new PostgreSqlMetadataProvider();
+			String[] schemaPath = {database, SCHEMA};
+			List<String> tableNames = jdbc.queryForList(
+					"SELECT relname FROM pg_class WHERE relnamespace = ?::regnamespace AND relkind IN ('r', 'p', 'v', 'm') ORDER BY relname",
+					String.class, SCHEMA);
+
+			long open = Long.MAX_VALUE;
+			long expand = Long.MAX_VALUE;
+			long prefetch = Long.MAX_VALUE;
+			Map<TreeListing, List<Map<String, Object>>> perNode = null;
+			Map<TreeListing, List<Map<String, Object>>> prefetched = null;
+			for (int i = 0; i < ROUNDS; i++) {
+				perNode = new HashMap<>();
+				long start = System.nanoTime();
+				for (DatabaseNodeType type : SCHEMA_TYPES) {
+					perNode.put(new TreeListing(type, SCHEMA), provider.listChildren(CONN_ID, executor, type, schemaPath));
+				}
+				long opened = System.nanoTime();
+				for (String table : tableNames) {
+					String[] tablePath = {database, SCHEMA, table};
+					for (DatabaseNodeType type : TABLE_TYPES) {
+						perNode.put(new TreeListing(type, SCHEMA + "/" + table), provider.listChildren(CONN_ID, executor, type, tablePath));
+					}
+				}
+				long expanded = System.nanoTime();
+				open = Math.min(open, opened - start);
+				expand = Math.min(expand, expanded - start);
+
+				start = System.nanoTime();
+				prefetched = executor.withConnection(con -> PgSchemaPrefetch.load(con, CONN_ID, database, SCHEMA));
+				prefetch = Math.min(prefetch, System.nanoTime() - start);
+			}
+
+			int sample = Math.min(500, tableNames.size());
+			long informationSchema = timeColumns(jdbc, INFORMATION_SCHEMA_COLUMNS, tableNames.subList(0, sample));
+			long pgAttribute = timeColumns(jdbc, PG_ATTRIBUTE_COLUMNS, tableNames.subList(0, sample));
+
+			long nodes = prefetched.values().stream().mapToLong(List::size).sum();
+			System.out.printf("schema=%s, relations=%d, lists=%d, nodes=%d, rounds=%d (best of)%n",
+					SCHEMA, tableNames.size(), prefetched.size(), nodes, ROUNDS);
+			System.out.println("path                                   queries        ms");
+			System.out.printf("%-36s %9d %9.0f%n", "per-node: open schema", SCHEMA_TYPES.length, open / 1e6);
+			System.out.printf("%-36s %9d %9.0f%n", "per-node: open schema + every table", SCHEMA_TYPES.length + TABLE_TYPES.length * tableNames.size(), expand / 1e6);
+			System.out.printf("%-36s %9d %9.0f%n", "prefetch: whole schema", 1, prefetch / 1e6);
+			System.out.printf("column list, %d tables: information_schema.columns %.2f ms/table, pg_attribute %.2f ms/table%n",
+					sample, informationSchema / 1e6 / sample, pgAttribute / 1e6 / sample);
+			System.out.println(perNode.equals(prefetched) ? "prefetched lists match per-node lists"
+					: "MISMATCH: prefetched lists differ from per-node lists (" + diff(perNode, prefetched) + ")");
+		} finally {
+			ds.destroy();
+		}
+	}
+
+	private static long timeColumns(JdbcTemplate jdbc, String sql, List<String> tables) {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < ROUNDS; i++) {
+			long start = System.nanoTime();
+			for (String table : tables) {
+				jdbc.queryForList(sql, SCHEMA, table);
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static String diff(Map<TreeListing, List<Map<String, Object>>> expected, Map<TreeListing, List<Map<String, Object>>> actual) {
+		return expected.entrySet().stream()
+					   .filter(e -> !e.getValue().equals(actual.get(e.getKey())))
+					   .map(e -> e.getKey().type() + ":" + e.getKey().path())
+					   .limit(5)
+					   .toList()
+					   .toString();
+	}
+
+	/**
+	 * 每条语句建 100 张表，分批提交，避免单个事务持有太多锁
+	 */
+	private static void prepareSchema(JdbcTemplate jdbc, int tables) {
+		Integer existing = jdbc.queryForObject(
+				"SELECT count(*) FROM pg_class WHERE relkind = 'r' AND relnamespace = (SELECT oid FROM pg_namespace WHERE nspname = ?)",
+				Integer.class, SCHEMA);
+		if (existing != null && existing == tables) {
+			return;
+		}
+		System.out.printf("creating schema %s with %d tables ...%n", SCHEMA, tables);
+		jdbc.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+		jdbc.execute("CREATE SCHEMA " + SCHEMA);
+		StringBuilder sql = new StringBuilder();
+		for (int i = 1; i <= tables; i++) {
+			sql.append("""
+					CREATE TABLE %1$s.t_%2$05d (id bigint PRIMARY KEY, name text NOT NULL, amount numeric(12,2) CHECK (amount >= 0),
+					  created_at timestamptz DEFAULT now(), ref_id bigint%3$s, note varchar(200));
+					CREATE INDEX t_%2$05d_created_idx ON %1$s.t_%2$05d (created_at);
+					""".formatted(SCHEMA, i, i % 10 == 0 ? " REFERENCES " + SCHEMA + ".t_%05d".formatted(i - 1) : ""));
+			if (i % 100 == 0 || i == tables) {
+				jdbc.execute(sql.toString());
+				sql.setLength(0);
+			}
+		}
+		for (int i = 1; i <= 50; i++) {
+			jdbc.execute("CREATE VIEW %1$s.v_%2$03d AS SELECT id, name FROM %1$s.t_%3$05d".formatted(SCHEMA, i, i));
+			jdbc.execute("CREATE SEQUENCE %s.s_%03d".formatted(SCHEMA, i));
+		}
+		for (int i = 1; i <= 10; i++) {
+			jdbc.execute("CREATE MATERIALIZED VIEW %1$s.mv_%2$03d AS SELECT id FROM %1$s.t_%3$05d".formatted(SCHEMA, i, i));
+			jdbc.execute("CREATE FUNCTION %s.f_%03d(a int, b text DEFAULT 'x') RETURNS int LANGUAGE sql AS 'SELECT a'".formatted(SCHEMA, i));
+			jdbc.execute("CREATE PROCEDURE %s.p_%03d(a int) LANGUAGE sql AS 'SELECT a'".formatted(SCHEMA, i));
+		}
+		jdbc.execute("ANALYZE");
+	}
+}
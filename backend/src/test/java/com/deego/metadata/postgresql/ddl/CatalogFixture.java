@@ -0,0 +1,89 @@
+package com.deego.metadata.postgresql.ddl;
+
+import com.deego.metadata.postgresql.ddl.PgCatalog.Column;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Relation;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Routine;
+import com.deego.metadata.postgresql.ddl.PgCatalog.Schema;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 在 public schema 下手工拼出 {@link PgCatalog} 快照，不访问数据库
+ */
+final class CatalogFixture {
+
+	private final List<Relation> relations = new ArrayList<>();
+	private final List<Routine> routines = new ArrayList<>();
+	private final Map<Long, List<Column>> columns = new LinkedHashMap<>();
+	private final Map<String, Set<String>> dependencies = new HashMap<>();
+
+	/**
+	 * columns 形如 "id int"
+	 */
+	CatalogFixture table(long oid, String name, String... columns) {
+		return relation(new Relation(oid, "public", name, 'r', false, List.of(), List.of(), null, null, List.of(), null, null), columns);
+	}
+
+	CatalogFixture partitionedTable(long oid, String name, String key, String... columns) {
+		return relation(new Relation(oid, "public", name, 'p', false, List.of(), List.of(), null, key, List.of(), null, null), columns);
+	}
+
+	CatalogFixture partition(long oid, String name, long parent, String bound) {
+		return relation(new Relation(oid, "public", name, 'r', false, List.of(parent), List.of(PgDdlGenerator.name("public", nameOf(parent))),
+				bound, null, List.of(), null, null));
+	}
+
+	CatalogFixture view(long oid, String name, String definition, long... uses) {
+		relation(new Relation(oid, "public", name, 'v', false, List.of(), List.of(), null, null, List.of(), definition, null));
+		for (long ref : uses) {
+			depends("r" + oid, "r" + ref);
+		}
+		return this;
+	}
+
+	CatalogFixture function(long oid, String name, String definition, long... uses) {
+		routines.add(new Routine(oid, "public", name, 'f', "", "", definition, null));
+		for (long ref : uses) {
+			depends("p" + oid, "r" + ref);
+		}
+		return this;
+	}
+
+	CatalogFixture column(long relid, Column column) {
+		columns.computeIfAbsent(relid, k -> new ArrayList<>()).add(column);
+		return this;
+	}
+
+	CatalogFixture depends(String key, String ref) {
+		dependencies.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(ref);
+		return this;
+	}
+
+	PgCatalog build() {
+		return new PgCatalog(false, List.of(new Schema("public", null)), List.of(), List.of(), List.of(), relations, routines,
+				columns, Map.of(), Map.of(), Map.of(), dependencies);
+	}
+
+	static Column column(long relid, String name, String type) {
+		return new Column(relid, name, type, null, false, null, (char) 0, (char) 0, true, null);
+	}
+
+	private CatalogFixture relation(Relation relation, String... specs) {
+		relations.add(relation);
+		for (String spec : specs) {
+			String[] parts = spec.split(" ", 2);
+			column(relation.oid(), column(relation.oid(), parts[0], parts[1]));
+		}
+		return this;
+	}
+
+	private String nameOf(long oid) {
+		return relations.stream().filter(r -> r.oid() == oid).findFirst().orElseThrow().name();
+	}
+}
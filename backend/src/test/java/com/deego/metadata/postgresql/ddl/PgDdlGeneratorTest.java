@@ -0,0 +1,87 @@
+package com.deego.metadata.postgresql.ddl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PgDdlGeneratorTest {
+
+	@Test
+	void viewsFollowTheViewsTheyReadFrom() {
+		PgCatalog catalog = new CatalogFixture()
+				.table(10, "z_table", "id int")
+				.view(20, "a_view", "SELECT id FROM b_view", 21)
+				.view(21, "b_view", "SELECT id FROM z_table", 10)
+				.build();
+
+		assertThat(names(catalog)).containsExactly("z_table", "b_view", "a_view");
+	}
+
+	@Test
+	void dependenciesOverrideTheKindOrder() {
+		// 没有依赖时函数先于表；返回表行类型的函数要等表建好
+		PgCatalog catalog = new CatalogFixture()
+				.table(10, "t", "id int")
+				.function(30, "rows_of_t", "CREATE FUNCTION public.rows_of_t() RETURNS SETOF public.t LANGUAGE sql AS 'SELECT * FROM t'", 10)
+				.function(31, "answer", "CREATE FUNCTION public.answer() RETURNS int LANGUAGE sql AS 'SELECT 42'")
+				.build();
+
+		assertThat(names(catalog)).containsExactly("answer()", "t", "rows_of_t()");
+	}
+
+	@Test
+	void partitionsFollowTheirParent() {
+		PgCatalog catalog = new CatalogFixture()
+				.partitionedTable(10, "z_parent", "LIST (id)", "id int")
+				.partition(11, "a_part", 10, "FOR VALUES IN (1)")
+				.build();
+
+		assertThat(names(catalog)).containsExactly("z_parent", "a_part");
+		String ddl = PgDdlGenerator.generate(catalog);
+		assertThat(ddl.indexOf("CREATE TABLE \"public\".\"z_parent\"")).isLessThan(ddl.indexOf("CREATE TABLE \"public\".\"a_part\""));
+		assertThat(ddl).contains("CREATE TABLE \"public\".\"a_part\" PARTITION OF \"public\".\"z_parent\" FOR VALUES IN (1);");
+	}
+
+	@Test
+	void cyclesAreBrokenInKindAndNameOrder() {
+		PgCatalog catalog = new CatalogFixture()
+				.view(20, "b_view", "SELECT 1", 21)
+				.view(21, "a_view", "SELECT 1", 20)
+				.table(10, "t", "id int")
+				.build();
+
+		assertThat(names(catalog)).containsExactly("t", "a_view", "b_view");
+	}
+
+	@Test
+	void orderIsStableWithoutDependencies() {
+		PgCatalog catalog = new CatalogFixture()
+				.view(20, "v", "SELECT 1")
+				.table(11, "b", "id int")
+				.table(10, "a", "id int")
+				.build();
+
+		assertThat(names(catalog)).containsExactly("a", "b", "v");
+	}
+
+	@Test
+	void writeMatchesGenerate() throws Exception {
+		PgCatalog catalog = new CatalogFixture()
+				.table(10, "t", "id int", "name text")
+				.view(20, "v", "SELECT id FROM t;", 10)
+				.build();
+
+		StringWriter out = new StringWriter();
+		PgDdlGenerator.write(catalog, out);
+		assertThat(out.toString()).isEqualTo(PgDdlGenerator.generate(catalog))
+								  .contains("CREATE TABLE \"public\".\"t\" (\n    \"id\" int,\n    \"name\" text\n);")
+								  .contains("CREATE VIEW \"public\".\"v\" AS\nSELECT id FROM t;");
+	}
+
+	private static List<String> names(PgCatalog catalog) {
+		return new PgDdlGenerator(catalog, new StringBuilder()).sortedNodes().stream().map(PgDdlGenerator.Node::name).toList();
+	}
+}
@@ -0,0 +1,88 @@
+package com.deego.metadata.postgresql.ddl;
+
+import com.deego.metadata.postgresql.ddl.PgCatalog.Column;
+import com.deego.metadata.postgresql.ddl.SchemaCompareResult.Difference;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PgSchemaDiffTest {
+
+	@Test
+	void identicalSnapshots() {
+		SchemaCompareResult result = PgSchemaDiff.compare(
+				new CatalogFixture().table(10, "t", "id int").build(),
+				new CatalogFixture().table(99, "t", "id int").build());
+
+		assertThat(result.isIdentical()).isTrue();
+		assertThat(result.getDifferences()).isEmpty();
+		assertThat(result.getScript()).isEmpty();
+	}
+
+	@Test
+	void droppedTableIsMarkedAsDataLoss() {
+		SchemaCompareResult result = PgSchemaDiff.compare(
+				new CatalogFixture().table(10, "t", "id int").build(),
+				new CatalogFixture().table(20, "t", "id int").table(21, "old", "id int").build());
+
+		assertThat(result.getScript()).contains("-- WARNING: data loss, drops table public.old with all of its rows\nDROP TABLE \"public\".\"old\";\n");
+		assertThat(result.getDifferences()).containsExactly(new Difference("removed", "table", "public.old", null));
+	}
+
+	@Test
+	void droppedViewIsNotDataLoss() {
+		SchemaCompareResult result = PgSchemaDiff.compare(
+				new CatalogFixture().table(10, "t", "id int").build(),
+				new CatalogFixture().table(20, "t", "id int").view(21, "v", "SELECT id FROM t", 20).build());
+
+		assertThat(result.getScript()).contains("DROP VIEW \"public\".\"v\";").doesNotContain("WARNING");
+	}
+
+	@Test
+	void droppedColumnIsMarkedAsDataLoss() {
+		SchemaCompareResult result = PgSchemaDiff.compare(
+				new CatalogFixture().table(10, "t", "id int").build(),
+				new CatalogFixture().table(20, "t", "id int", "note text").build());
+
+		assertThat(result.getScript())
+				.contains("-- WARNING: data loss, drops column public.t.note with its values\nALTER TABLE \"public\".\"t\" DROP COLUMN \"note\";\n");
+		assertThat(result.getDifferences()).containsExactly(new Difference("removed", "column", "public.t.note", null));
+	}
+
+	@Test
+	void recreatedGeneratedColumnIsMarkedAsDataLoss() {
+		Column generated = new Column(10, "total", "int", null, false, "a + b", (char) 0, 's', true, null);
+		SchemaCompareResult result = PgSchemaDiff.compare(
+				new CatalogFixture().table(10, "t", "a int", "b int").column(10, generated).build(),
+				new CatalogFixture().table(20, "t", "a int", "b int", "total int").build());
+
+		assertThat(result.getScript())
+				.contains("-- WARNING: data loss, drops and re-adds column public.t.total, existing values are not kept\n"
+						+ "ALTER TABLE \"public\".\"t\" DROP COLUMN \"total\";\n")
+				.contains("ADD COLUMN \"total\" int GENERATED ALWAYS AS (a + b) STORED");
+	}
+
+	@Test
+	void addedAndChangedColumnsAreOneAlterTable() {
+		SchemaCompareResult result = PgSchemaDiff.compare(
+				new CatalogFixture().table(10, "t", "id bigint", "note text").build(),
+				new CatalogFixture().table(20, "t", "id int").build());
+
+		assertThat(result.getScript())
+				.contains("ALTER TABLE \"public\".\"t\"\n    ALTER COLUMN \"id\" TYPE bigint USING \"id\"::bigint,\n    ADD COLUMN \"note\" text;")
+				.doesNotContain("WARNING");
+		assertThat(result.getDifferences()).containsExactlyInAnyOrder(
+				new Difference("changed", "column", "public.t.id", "type int -> bigint"),
+				new Difference("added", "column", "public.t.note", null));
+	}
+
+	@Test
+	void newTableUsesTheGeneratorDdl() {
+		SchemaCompareResult result = PgSchemaDiff.compare(
+				new CatalogFixture().table(10, "t", "id int").table(11, "added", "id int").build(),
+				new CatalogFixture().table(20, "t", "id int").build());
+
+		assertThat(result.getScript()).contains("CREATE TABLE \"public\".\"added\" (\n    \"id\" int\n);").doesNotContain("DROP");
+		assertThat(result.getDifferences()).containsExactly(new Difference("added", "table", "public.added", null));
+	}
+}
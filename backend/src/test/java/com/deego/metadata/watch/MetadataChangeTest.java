@@ -0,0 +1,102 @@
+package com.deego.metadata.watch;
+
+import com.deego.metadata.DatabaseNodeType;
+import com.deego.metadata.TreeListing;
+import com.deego.metadata.cache.MetadataCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+class MetadataChangeTest {
+
+	@Test
+	void unknownScopeReloadsTheDatabase() {
+		MetadataChange change = MetadataChange.of("c1", "db", "reconnect", null);
+
+		assertThat(change.all()).isTrue();
+		assertThat(change.isEmpty()).isFalse();
+		assertThat(change.listings()).isEmpty();
+	}
+
+	@Test
+	void relationsReloadTheirListingAndSubtree() {
+		MetadataChange change = MetadataChange.of("c1", "db", "trigger", List.of(
+				new DdlObject("table", "public", "orders", null),
+				new DdlObject("materialized view", "sales", "totals", null),
+				new DdlObject("sequence", "public", "orders_id_seq", null),
+				new DdlObject("procedure", "public", null, null)));
+
+		assertThat(change.all()).isFalse();
+		assertThat(change.listings()).containsExactly(
+				new TreeListing(DatabaseNodeType.TABLE, "public"),
+				new TreeListing(DatabaseNodeType.MATERIALIZED_VIEW, "sales"),
+				new TreeListing(DatabaseNodeType.SEQUENCE, "public"),
+				new TreeListing(DatabaseNodeType.PROCEDURE, "public"));
+		assertThat(change.subtrees()).containsExactly("public/orders", "sales/totals");
+	}
+
+	@Test
+	void tableChildrenInsideAReloadedSubtreeAreDropped() {
+		MetadataChange change = MetadataChange.of("c1", "db", "trigger", List.of(
+				new DdlObject("table", "public", "orders", null),
+				new DdlObject("table column", "public", "orders.note", "orders"),
+				new DdlObject("index", "public", "items_pkey", "items")));
+
+		assertThat(change.listings()).containsExactly(
+				new TreeListing(DatabaseNodeType.TABLE, "public"),
+				new TreeListing(DatabaseNodeType.INDEX, "public/items"));
+		assertThat(change.subtrees()).containsExactly("public/orders");
+	}
+
+	@Test
+	void schemaChangesReloadTheSchemaList() {
+		MetadataChange change = MetadataChange.of("c1", "db", "trigger", List.of(
+				new DdlObject("schema", null, "sales", null),
+				new DdlObject("table", "sales", "orders", null)));
+
+		assertThat(change.listings()).containsExactly(new TreeListing(DatabaseNodeType.SCHEMA, ""));
+		assertThat(change.subtrees()).containsExactly("sales", "sales/orders");
+	}
+
+	@Test
+	void objectsOutsideTheTreeAreIgnored() {
+		MetadataChange change = MetadataChange.of("c1", "db", "trigger", List.of(
+				new DdlObject("type", "public", "mood", null),
+				new DdlObject("trigger", "public", "audit", "orders"),
+				new DdlObject("table", null, "orphan", null)));
+
+		assertThat(change.isEmpty()).isTrue();
+	}
+
+	@Test
+	void applyInvalidatesListingsAndSubtrees() {
+		MetadataCache cache = mock(MetadataCache.class);
+		MetadataChange change = MetadataChange.of("c1", "db", "trigger", List.of(
+				new DdlObject("index", "public", "orphan_idx", null),
+				new DdlObject("table constraint", "public", "items_check", "items"),
+				new DdlObject("view", "public", "v", null)));
+
+		change.applyTo(cache);
+
+		verify(cache).invalidateUnder("c1", "db", "public", DatabaseNodeType.INDEX);
+		verify(cache).invalidate("c1", "db", "public/items", DatabaseNodeType.CONSTRAINT);
+		verify(cache).invalidate("c1", "db", "public", DatabaseNodeType.VIEW);
+		verify(cache).invalidateSubtree("c1", "db", "public/v");
+		verifyNoMoreInteractions(cache);
+	}
+
+	@Test
+	void applyAllInvalidatesTheDatabase() {
+		MetadataCache cache = mock(MetadataCache.class);
+
+		MetadataChange.of("c1", "db", "poll", null).applyTo(cache);
+
+		verify(cache).invalidateDatabase("c1", "db");
+		verifyNoMoreInteractions(cache);
+	}
+}
@@ -0,0 +1,37 @@
+package com.deego.metadata.watch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PgDdlWatchTest {
+
+	@Test
+	void parsesObjects() {
+		String payload = """
+				{"objects":[
+				  {"type":"table","schema":"public","name":"orders"},
+				  {"type":"index","schema":"public","name":"orders_pkey","parent":"orders"},
+				  {"type":"function","schema":"public","name":null}
+				]}""";
+
+		assertThat(PgDdlWatch.parse(payload)).containsExactly(
+				new DdlObject("table", "public", "orders", null),
+				new DdlObject("index", "public", "orders_pkey", "orders"),
+				new DdlObject("function", "public", null, null));
+	}
+
+	@Test
+	void emptyObjectListIsNotOverflow() {
+		assertThat(PgDdlWatch.parse("{\"objects\":[]}")).isEmpty();
+	}
+
+	@Test
+	void overflowAndGarbageMeanUnknownScope() {
+		assertThat(PgDdlWatch.parse("{\"overflow\":true}")).isNull();
+		assertThat(PgDdlWatch.parse("{\"overflow\":true,\"objects\":[]}")).isNull();
+		assertThat(PgDdlWatch.parse("{\"objects\":{}}")).isNull();
+		assertThat(PgDdlWatch.parse("{}")).isNull();
+		assertThat(PgDdlWatch.parse("not json")).isNull();
+	}
+}
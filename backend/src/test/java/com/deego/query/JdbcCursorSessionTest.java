@@ -0,0 +1,90 @@
+package com.deego.query;
+
+import com.deego.exception.BizException;
+import com.deego.exec.StatementHook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JdbcCursorSessionTest {
+
+	private static final int TOTAL_ROWS = 10;
+
+	private Connection con;
+	private PreparedStatement ps;
+	private JdbcCursorSession session;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		con = mock(Connection.class);
+		ps = mock(PreparedStatement.class);
+		when(con.prepareStatement("SELECT n FROM t", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(ps);
+		when(ps.executeQuery()).thenAnswer(invocation -> rows(TOTAL_ROWS));
+		session = new JdbcCursorSession("c1", "conn", "db", "SELECT n FROM t", 30, con, 100);
+		session.open(StatementHook.NONE);
+	}
+
+	@Test
+	void opensForwardOnlyWithFetchSize() throws Exception {
+		verify(ps).setFetchSize(100);
+		assertThat(session.getColumns()).extracting(ColumnMeta::getName).containsExactly("n");
+	}
+
+	@Test
+	void sequentialWindowsDoNotRequery() throws Exception {
+		assertThat(values(session.window(0, 3, ResultFormat.ROWS, StatementHook.NONE))).containsExactly(1, 2, 3);
+		assertThat(values(session.window(3, 3, ResultFormat.ROWS, StatementHook.NONE))).containsExactly(4, 5, 6);
+		CursorWindow skipped = session.window(8, 3, ResultFormat.ROWS, StatementHook.NONE);
+		assertThat(values(skipped)).containsExactly(9, 10);
+		assertThat(skipped.isHasMore()).isFalse();
+		assertThat(values(session.window(20, 3, ResultFormat.ROWS, StatementHook.NONE))).isEmpty();
+		verify(ps, times(1)).executeQuery();
+	}
+
+	@Test
+	void backwardSeekRequeries() throws Exception {
+		session.window(5, 3, ResultFormat.ROWS, StatementHook.NONE);
+		assertThat(values(session.window(1, 2, ResultFormat.ROWS, StatementHook.NONE))).containsExactly(2, 3);
+		verify(ps, times(2)).executeQuery();
+	}
+
+	@Test
+	void rejectsOffsetBeyondIntRange() {
+		assertThatThrownBy(() -> session.window(Integer.MAX_VALUE + 1L, 3, ResultFormat.ROWS, StatementHook.NONE))
+				.isInstanceOf(BizException.class);
+	}
+
+	private static List<Object> values(CursorWindow window) {
+		return window.getRows().stream().map(row -> row.get("n")).toList();
+	}
+
+	/**
+	 * 只进结果集：单列 n，取值 1..count
+	 */
+	private static ResultSet rows(int count) throws SQLException {
+		ResultSetMetaData meta = mock(ResultSetMetaData.class);
+		when(meta.getColumnCount()).thenReturn(1);
+		when(meta.getColumnLabel(1)).thenReturn("n");
+		ResultSet rs = mock(ResultSet.class);
+		when(rs.getMetaData()).thenReturn(meta);
+		int[] current = {0};
+		when(rs.next()).thenAnswer(invocation -> ++current[0] <= count);
+		when(rs.getObject(anyInt())).thenAnswer(invocation -> current[0]);
+		return rs;
+	}
+}
@@ -0,0 +1,89 @@
+package com.deego.transfer;
+
+import com.deego.transfer.DataCompareManager.KeyRange;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataCompareManagerTest {
+
+	@Test
+	void splitCoversTheRangeWithoutGaps() {
+		List<KeyRange> parts = KeyRange.ALL.split(List.of(key(10), key(20), key(30)));
+
+		assertThat(parts).hasSize(4);
+		assertThat(parts.get(0).lower()).isNull();
+		assertThat(parts.get(0).upper()).containsExactly(10);
+		assertThat(parts.get(1).lower()).containsExactly(10);
+		assertThat(parts.get(1).upper()).containsExactly(20);
+		assertThat(parts.get(2).upper()).containsExactly(30);
+		assertThat(parts.get(3).lower()).containsExactly(30);
+		assertThat(parts.get(3).upper()).isNull();
+	}
+
+	@Test
+	void splitSkipsDuplicateBoundsAndTheUpperBound() {
+		KeyRange range = new KeyRange(key(0), key(100));
+
+		List<KeyRange> parts = range.split(List.of(key(0), key(50), key(50), key(100)));
+
+		assertThat(parts).hasSize(2);
+		assertThat(parts.get(0).lower()).containsExactly(0);
+		assertThat(parts.get(0).upper()).containsExactly(50);
+		assertThat(parts.get(1).lower()).containsExactly(50);
+		assertThat(parts.get(1).upper()).containsExactly(100);
+	}
+
+	@Test
+	void splitWithoutUsableBoundsReturnsTheRangeItself() {
+		KeyRange range = new KeyRange(key(1, "a"), key(1, "b"));
+
+		List<KeyRange> parts = range.split(List.of(key(1, "a"), key(1, "b")));
+
+		assertThat(parts).hasSize(1);
+		assertThat(parts.get(0).lower()).containsExactly(1, "a");
+		assertThat(parts.get(0).upper()).containsExactly(1, "b");
+		assertThat(KeyRange.ALL.split(List.of())).hasSize(1);
+	}
+
+	@Test
+	void numbersCompareByValueAcrossTypes() {
+		assertThat(DataCompareManager.comparable(42)).isEqualTo(DataCompareManager.comparable(42L));
+		assertThat(DataCompareManager.comparable(new BigDecimal("1.50"))).isEqualTo("1.5");
+		assertThat(DataCompareManager.comparable(new BigDecimal("1.5000"))).isEqualTo("1.5");
+		assertThat(DataCompareManager.comparable(new BigDecimal("100"))).isEqualTo("100");
+		assertThat(DataCompareManager.comparable(new BigDecimal("1E+2"))).isEqualTo("100");
+		assertThat(DataCompareManager.comparable(new BigDecimal("0.000"))).isEqualTo("0");
+		assertThat(DataCompareManager.comparable(2.5d)).isEqualTo("2.5");
+		assertThat(DataCompareManager.comparable(Double.NaN)).isEqualTo("NaN");
+	}
+
+	@Test
+	void timesAndBinaryAreNormalized() {
+		LocalDateTime time = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+		assertThat(DataCompareManager.comparable(Timestamp.valueOf(time))).isEqualTo(time);
+		assertThat(DataCompareManager.comparable(OffsetDateTime.of(time, ZoneOffset.ofHours(2))))
+				.isEqualTo(Instant.parse("2024-01-02T01:04:05Z"));
+		assertThat(DataCompareManager.comparable(new byte[] {0x0a, (byte) 0xff})).isEqualTo("0aff");
+		assertThat(DataCompareManager.comparable(null)).isNull();
+		assertThat(DataCompareManager.comparable("x")).isEqualTo("x");
+	}
+
+	@Test
+	void numericTextTrimsOnlyTheFraction() {
+		assertThat(DataCompareManager.numericText("\"amount\""))
+				.isEqualTo("CASE WHEN \"amount\"::text LIKE '%.%' THEN rtrim(rtrim(\"amount\"::text, '0'), '.') ELSE \"amount\"::text END");
+	}
+
+	private static Object[] key(Object... values) {
+		return values;
+	}
+}
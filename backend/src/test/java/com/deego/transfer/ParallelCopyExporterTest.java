@@ -0,0 +1,40 @@
+package com.deego.transfer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelCopyExporterTest {
+
+	@Test
+	void keyRangesSplitEvenlyWithOpenEnds() {
+		assertThat(ParallelCopyExporter.keyRanges("id", 1, 100, 4)).containsExactly(
+				"id < 26",
+				"id >= 26 AND id < 51",
+				"id >= 51 AND id < 76",
+				"id >= 76");
+	}
+
+	@Test
+	void keyRangesNeverExceedTheNumberOfValues() {
+		assertThat(ParallelCopyExporter.keyRanges("id", 5, 6, 8)).containsExactly("id < 6", "id >= 6");
+		assertThat(ParallelCopyExporter.keyRanges("id", 7, 7, 4)).containsExactly("true");
+	}
+
+	@Test
+	void keyRangesWithoutParallelismCoverEverything() {
+		assertThat(ParallelCopyExporter.keyRanges("id", 1, 1000, 1)).containsExactly("true");
+		assertThat(ParallelCopyExporter.keyRanges("id", 1, 1000, 0)).containsExactly("true");
+	}
+
+	@Test
+	void keyRangesHandleNegativeKeysAndTheFullBigintRange() {
+		assertThat(ParallelCopyExporter.keyRanges("\"k\"", -10, 9, 2)).containsExactly("\"k\" < 0", "\"k\" >= 0");
+		assertThat(ParallelCopyExporter.keyRanges("id", Long.MIN_VALUE, Long.MAX_VALUE, 2)).containsExactly("id < 0", "id >= 0");
+		assertThat(ParallelCopyExporter.keyRanges("id", Long.MIN_VALUE, Long.MAX_VALUE, 4)).containsExactly(
+				"id < -4611686018427387904",
+				"id >= -4611686018427387904 AND id < 0",
+				"id >= 0 AND id < 4611686018427387904",
+				"id >= 4611686018427387904");
+	}
+}
@@ -0,0 +1,81 @@
+package com.deego.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlUtilsTest {
+
+	@Test
+	void readOnlyStatements() {
+		assertThat(SqlUtils.isReadOnly("SELECT * FROM t")).isTrue();
+		assertThat(SqlUtils.isReadOnly("  with x as (select 1) select * from x;")).isTrue();
+		assertThat(SqlUtils.isReadOnly("EXPLAIN SELECT * FROM t")).isTrue();
+		assertThat(SqlUtils.isReadOnly("select * from t where note = 'delete me'")).isTrue();
+		assertThat(SqlUtils.isReadOnly("-- insert\nselect 1")).isTrue();
+	}
+
+	@Test
+	void writesHiddenBehindReadOnlyKeywords() {
+		assertThat(SqlUtils.isReadOnly("with d as (delete from t returning *) select * from d")).isFalse();
+		assertThat(SqlUtils.isReadOnly("select * into t2 from t")).isFalse();
+		assertThat(SqlUtils.isReadOnly("select * from t for update")).isFalse();
+		assertThat(SqlUtils.isReadOnly("explain analyze select * from t")).isFalse();
+		assertThat(SqlUtils.isReadOnly("select nextval('s')")).isFalse();
+		assertThat(SqlUtils.isReadOnly("select 1; drop table t")).isFalse();
+		assertThat(SqlUtils.isReadOnly("insert into t values (1)")).isFalse();
+		assertThat(SqlUtils.isReadOnly("")).isFalse();
+	}
+
+	@Test
+	void copyIsReadOnlyOnlyWhenItReadsAQuery() {
+		assertThat(SqlUtils.isReadOnly("COPY t TO STDOUT")).isTrue();
+		assertThat(SqlUtils.isReadOnly("copy (select * from t) to stdout with (format csv)")).isTrue();
+		assertThat(SqlUtils.isReadOnly("COPY t FROM STDIN")).isFalse();
+		assertThat(SqlUtils.isReadOnly("COPY (DELETE FROM t RETURNING *) TO STDOUT")).isFalse();
+		assertThat(SqlUtils.isReadOnly("copy (update t set x = 1 returning id) to stdout")).isFalse();
+	}
+
+	@Test
+	void ddl() {
+		assertThat(SqlUtils.isDdl("CREATE TABLE t (id int)")).isTrue();
+		assertThat(SqlUtils.isDdl("/* c */ alter table t add column x int")).isTrue();
+		assertThat(SqlUtils.isDdl("insert into t values (1); drop table t")).isTrue();
+		assertThat(SqlUtils.isDdl("COMMENT ON TABLE t IS 'x'")).isTrue();
+		assertThat(SqlUtils.isDdl("do $$ begin perform 1; end $$")).isTrue();
+		assertThat(SqlUtils.isDdl("select 'drop table t'")).isFalse();
+		assertThat(SqlUtils.isDdl("select * from created")).isFalse();
+		assertThat(SqlUtils.isDdl("update t set dropped = true")).isFalse();
+	}
+
+	@Test
+	void referencedTablesOfJoinsAndLists() {
+		assertThat(SqlUtils.referencedTables("SELECT * FROM public.users u JOIN orders o ON u.id = o.user_id"))
+				.containsExactly("users", "orders");
+		assertThat(SqlUtils.referencedTables("select * from a, b x where a.id = x.id")).containsExactly("a", "b");
+		assertThat(SqlUtils.referencedTables("select * from (select * from a) x, b")).containsExactlyInAnyOrder("a", "b");
+		assertThat(SqlUtils.referencedTables("select * from t where note = 'from secret'")).containsExactly("t");
+	}
+
+	@Test
+	void referencedTablesOfWrites() {
+		assertThat(SqlUtils.referencedTables("insert into s.t values (1)")).containsExactly("t");
+		assertThat(SqlUtils.referencedTables("UPDATE t SET x = 1")).containsExactly("t");
+		assertThat(SqlUtils.referencedTables("delete from t where id in (select id from u)")).containsExactly("t", "u");
+		assertThat(SqlUtils.referencedTables("truncate t")).containsExactly("t");
+		assertThat(SqlUtils.referencedTables("copy (delete from t returning *) to stdout")).containsExactly("t");
+	}
+
+	@Test
+	void referencedTablesKeepQuotedCase() {
+		assertThat(SqlUtils.referencedTables("select * from public.\"Mixed Case\"")).containsExactly("Mixed Case");
+		assertThat(SqlUtils.referencedTables("select * from Public.Users")).containsExactly("users");
+	}
+
+	@Test
+	void referencedTablesAreUnknownForFunctions() {
+		assertThat(SqlUtils.referencedTables("select * from generate_series(1, 3)")).isEmpty();
+		assertThat(SqlUtils.referencedTables("select * from a, f(1)")).isEmpty();
+		assertThat(SqlUtils.referencedTables("select 1")).isEmpty();
+	}
+}